@@ -0,0 +1,100 @@
+package git.chexson.chexsonsaeutils.parts.automation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+public final class MultiLevelEmitterBenchmarkFixtures {
+    // Amounts stored per fuzzy bucket; a fuzzy slot sums all of them, like findFuzzy does for damaged variants.
+    static final int FUZZY_VARIANTS = 8;
+
+    private MultiLevelEmitterBenchmarkFixtures() {
+    }
+
+    public enum Shape {
+        FLAT,
+        NESTED
+    }
+
+    public enum Matching {
+        STRICT,
+        FUZZY
+    }
+
+    /**
+     * FLAT alternates {@code AND}/{@code OR} without grouping; NESTED right-nests every operand so the plan is as
+     * deep as it is wide.
+     */
+    static String expression(Shape shape, int slots) {
+        StringBuilder expression = new StringBuilder();
+        for (int slot = 1; slot <= slots; slot++) {
+            if (slot > 1) {
+                expression.append(slot % 2 == 0 ? " AND " : " OR ");
+                if (shape == Shape.NESTED && slot < slots) {
+                    expression.append('(');
+                }
+            }
+            expression.append('#').append(slot);
+        }
+        if (shape == Shape.NESTED) {
+            expression.append(")".repeat(Math.max(0, slots - 2)));
+        }
+        return expression.toString();
+    }
+
+    static long[][] amounts(int slots, Matching matching, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int variants = matching == Matching.FUZZY ? FUZZY_VARIANTS : 1;
+        long[][] amounts = new long[slots][variants];
+        for (int slot = 0; slot < slots; slot++) {
+            for (int variant = 0; variant < variants; variant++) {
+                amounts[slot][variant] = random.nextLong(0L, 256L);
+            }
+        }
+        return amounts;
+    }
+
+    static long observed(long[] bucket) {
+        long total = 0L;
+        for (long amount : bucket) {
+            total += amount;
+        }
+        return total;
+    }
+
+    static List<Long> observedValues(long[][] amounts) {
+        List<Long> values = new ArrayList<>(amounts.length);
+        for (long[] bucket : amounts) {
+            values.add(observed(bucket));
+        }
+        return values;
+    }
+
+    static Map<Integer, Long> thresholds(int slots, Matching matching) {
+        long threshold = matching == Matching.FUZZY ? 128L * FUZZY_VARIANTS / 2 : 128L;
+        Map<Integer, Long> thresholds = new LinkedHashMap<>();
+        for (int slot = 0; slot < slots; slot++) {
+            thresholds.put(slot, threshold);
+        }
+        return thresholds;
+    }
+
+    static List<MultiLevelEmitterPart.ComparisonMode> comparisons(int slots) {
+        MultiLevelEmitterPart.ComparisonMode[] modes = MultiLevelEmitterPart.ComparisonMode.values();
+        List<MultiLevelEmitterPart.ComparisonMode> comparisons = new ArrayList<>(slots);
+        for (int slot = 0; slot < slots; slot++) {
+            comparisons.add(modes[slot % modes.length]);
+        }
+        return comparisons;
+    }
+
+    static List<MultiLevelEmitterPart.LogicRelation> relations(int slots) {
+        List<MultiLevelEmitterPart.LogicRelation> relations = new ArrayList<>(Math.max(0, slots - 1));
+        for (int slot = 1; slot < slots; slot++) {
+            relations.add(slot % 2 == 1 ? MultiLevelEmitterPart.LogicRelation.AND : MultiLevelEmitterPart.LogicRelation.OR);
+        }
+        return relations;
+    }
+}
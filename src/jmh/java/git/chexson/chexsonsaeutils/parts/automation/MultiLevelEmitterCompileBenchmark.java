@@ -0,0 +1,44 @@
+package git.chexson.chexsonsaeutils.parts.automation;
+
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompileResult;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Measures the uncached compiler; MultiLevelEmitterExpressionCache would hide everything after the first call.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiLevelEmitterCompileBenchmark {
+    @Param({"1", "8", "32", "64"})
+    public int slots;
+
+    @Param({"FLAT", "NESTED"})
+    public MultiLevelEmitterBenchmarkFixtures.Shape shape;
+
+    private String expression;
+
+    @Setup
+    public void setUp() {
+        expression = MultiLevelEmitterBenchmarkFixtures.expression(shape, slots);
+    }
+
+    @Benchmark
+    public MultiLevelEmitterExpressionCompileResult compile() {
+        return MultiLevelEmitterExpressionCompiler.compile(expression, slots, slot -> true);
+    }
+}
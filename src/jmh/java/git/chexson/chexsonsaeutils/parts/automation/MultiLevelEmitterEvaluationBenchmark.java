@@ -0,0 +1,146 @@
+package git.chexson.chexsonsaeutils.parts.automation;
+
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompiler;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionPlan;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionProgram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-evaluation cost of the emitter engine, from slot comparisons through the relation fold and the compiled plan.
+ * <p>
+ * Fuzzy slots are modelled by summing a bucket of variant amounts on every lazy read, which is the work a fuzzy slot
+ * adds over a strict one; the grid lookup itself needs a running server and is not part of these numbers. Fixture
+ * lists and the slot reader are built once per trial so {@code -prof gc} only reports what the evaluator allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiLevelEmitterEvaluationBenchmark {
+    @Param({"1", "8", "32", "64"})
+    public int slots;
+
+    @Param({"STRICT", "FUZZY"})
+    public MultiLevelEmitterBenchmarkFixtures.Matching matching;
+
+    @Param({"FLAT", "NESTED"})
+    public MultiLevelEmitterBenchmarkFixtures.Shape shape;
+
+    private long[][] amounts;
+    private long[] thresholds;
+    private MultiLevelEmitterPart.ComparisonMode[] comparisonModes;
+    private List<Long> observedValues;
+    private Map<Integer, Long> thresholdMap;
+    private List<MultiLevelEmitterPart.ComparisonMode> comparisons;
+    private List<MultiLevelEmitterPart.LogicRelation> relations;
+    private List<MultiLevelEmitterPart.SlotEvaluation> slotEvaluations;
+    private MultiLevelEmitterExpressionPlan plan;
+    private MultiLevelEmitterExpressionProgram program;
+    private MultiLevelEmitterExpressionProgram.SlotResultReader slotReader;
+    private long participatingSlots;
+    private long fuzzySlots;
+    private long slotResults;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        amounts = MultiLevelEmitterBenchmarkFixtures.amounts(slots, matching, 0x5EEDL);
+        thresholdMap = MultiLevelEmitterBenchmarkFixtures.thresholds(slots, matching);
+        comparisons = MultiLevelEmitterBenchmarkFixtures.comparisons(slots);
+        relations = MultiLevelEmitterBenchmarkFixtures.relations(slots);
+        observedValues = MultiLevelEmitterBenchmarkFixtures.observedValues(amounts);
+        slotEvaluations = MultiLevelEmitterPart.evaluateSlotComparisonsWithParticipation(
+                observedValues,
+                thresholdMap,
+                comparisons
+        );
+
+        thresholds = new long[slots];
+        comparisonModes = new MultiLevelEmitterPart.ComparisonMode[slots];
+        for (int slot = 0; slot < slots; slot++) {
+            thresholds[slot] = thresholdMap.get(slot);
+            comparisonModes[slot] = comparisons.get(slot);
+        }
+
+        plan = MultiLevelEmitterExpressionCompiler.compile(
+                MultiLevelEmitterBenchmarkFixtures.expression(shape, slots),
+                slots,
+                slot -> true
+        ).plan();
+        if (plan == null) {
+            throw new IllegalStateException("Benchmark expression failed to compile");
+        }
+        program = plan.program();
+        slotReader = this::readSlot;
+        participatingSlots = slots == Long.SIZE ? -1L : (1L << slots) - 1L;
+        fuzzySlots = matching == MultiLevelEmitterBenchmarkFixtures.Matching.FUZZY ? participatingSlots : 0L;
+        for (int slot = 0; slot < slots; slot++) {
+            if (slotEvaluations.get(slot).result()) {
+                slotResults |= 1L << slot;
+            }
+        }
+    }
+
+    @Benchmark
+    public List<MultiLevelEmitterPart.SlotEvaluation> slotComparisons() {
+        return MultiLevelEmitterPart.evaluateSlotComparisonsWithParticipation(
+                observedValues,
+                thresholdMap,
+                comparisons
+        );
+    }
+
+    @Benchmark
+    public MultiLevelEmitterPart.AggregationResult finalResult() {
+        return MultiLevelEmitterPart.evaluateFinalResultWithParticipation(slotEvaluations, relations);
+    }
+
+    @Benchmark
+    public MultiLevelEmitterPart.AggregationResult configuredSlots() {
+        return MultiLevelEmitterPart.evaluateConfiguredSlotsWithParticipation(
+                observedValues,
+                thresholdMap,
+                comparisons,
+                relations
+        );
+    }
+
+    @Benchmark
+    public MultiLevelEmitterPart.AggregationResult compiledPlan() {
+        return plan.evaluateParticipating(slotEvaluations);
+    }
+
+    @Benchmark
+    public long programPacked() {
+        return program.evaluatePacked(participatingSlots, slotResults);
+    }
+
+    @Benchmark
+    public long programLazy() {
+        return program.evaluateLazy(participatingSlots, 0L, fuzzySlots, 0L, slotReader);
+    }
+
+    private boolean readSlot(int slot) {
+        return MultiLevelEmitterPart.evaluateComparison(
+                MultiLevelEmitterBenchmarkFixtures.observed(amounts[slot]),
+                thresholds[slot],
+                comparisonModes[slot]
+        );
+    }
+}
@@ -17,6 +17,7 @@ import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterPart;
 import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterRuntimePart;
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompileResult;
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionDiagnostic;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionLexer;
 import net.minecraft.client.gui.Font;
 import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.client.gui.components.Button;
@@ -36,6 +37,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Collections;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitterMenu.RuntimeMenu> {
 
@@ -66,6 +68,7 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
     private static final int COLOR_OPERATOR = 0x6B9FB3;
     private static final int COLOR_PAREN = 0x8A8A8A;
     private static final int MAX_RENDERED_ROWS = 2;
+    private static final long ALL_ROWS = (1L << MAX_RENDERED_ROWS) - 1L;
     private static final int ROW_HEIGHT = 18;
     private static final int ROW_TOP = 104;
     private static final int ROW_WIDGET_Y_OFFSET = 1;
@@ -83,12 +86,18 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
     private static final int ACTION_PARENS_WIDTH = 22;
     private static final int ACTION_FORMAT_WIDTH = 78;
     private static final int ACTION_APPLY_WIDTH = 81;
+    private static final int ACTION_BAND_X = 80;
+    private static final int ACTION_DWELL_X = 126;
+    private static final int ACTION_SETTING_WIDTH = 42;
     private static final int CONFIG_PANEL_X = 7;
     private static final int CONFIG_PANEL_Y = 95;
     private static final int CONFIG_PANEL_WIDTH = 162;
     private static final int CONFIG_PANEL_HEIGHT = 34;
     private static final int SLOT_CHIP_X = 13;
     private static final int SLOT_X = 33;
+    private static final int SLOT_SIZE = 16;
+    private static final float OBSERVED_AMOUNT_SCALE = 0.5f;
+    private static final int COLOR_OBSERVED_AMOUNT = 0xFFFFFF;
     private static final int THRESHOLD_X = 52;
     private static final int THRESHOLD_INPUT_WIDTH = 32;
     private static final int MODE_X = 86;
@@ -131,13 +140,25 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
     private Button formatExpressionButton;
     private Button applyExpressionButton;
     private EditBox expressionInput;
+    private SettingEditBox hysteresisBandInput;
+    private SettingEditBox minimumDwellInput;
+    // The band field edits the slot whose threshold field was focused last.
+    private int bandSlotIndex;
     private int scrollOffset;
     private String expressionDraftText = "";
+    // Tokens of lexedDraftText, re-lexed around each edit and shared by validation and highlighting.
+    private String lexedDraftText;
+    private List<MultiLevelEmitterExpressionLexer.Token> expressionDraftTokens = List.of();
     private boolean expressionDirty;
     private int previousConfiguredSlots;
     private Component helperStatus = PRECEDENCE_HINT;
     private int helperStatusColor = COLOR_HELPER;
-    private final List<Long> lastServerThresholds = new ArrayList<>();
+    private final long[] lastServerThresholds = new long[MultiLevelEmitterMenu.SLOT_CAPACITY];
+    private int lastServerThresholdCount;
+    private final MultiLevelEmitterScreen.RuntimeScreenModel screenModel = new MultiLevelEmitterScreen.RuntimeScreenModel();
+    // Rows to re-sync on the next pass even though the menu did not change, e.g. after a threshold field lost focus.
+    private long pendingRowSyncs;
+    private Component markedStatusLabel = Component.empty();
     private MultiLevelEmitterExpressionCompileResult currentExpressionValidation;
     private Component currentValidationStatus = INVALID_STATUS;
     private int currentValidationColor = COLOR_INVALID;
@@ -249,6 +270,26 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
                 Tooltip.create(Component.translatable("gui.chexsonsaeutils.multi_level_emitter.wrap_selection"))
         ));
 
+        hysteresisBandInput = addRenderableWidget(new SettingEditBox(
+                font,
+                leftPos + ACTION_BAND_X,
+                topPos + ACTION_PRIMARY_ROW_Y,
+                Component.literal("hysteresisBandInput"),
+                Component.translatable("gui.chexsonsaeutils.multi_level_emitter.hysteresis_band_hint"),
+                this::commitHysteresisBand
+        ));
+        minimumDwellInput = addRenderableWidget(new SettingEditBox(
+                font,
+                leftPos + ACTION_DWELL_X,
+                topPos + ACTION_PRIMARY_ROW_Y,
+                Component.literal("minimumDwellInput"),
+                Component.translatable("gui.chexsonsaeutils.multi_level_emitter.minimum_dwell_hint"),
+                this::commitMinimumDwell
+        ));
+        minimumDwellInput.setTooltip(Tooltip.create(
+                Component.translatable("gui.chexsonsaeutils.multi_level_emitter.minimum_dwell")
+        ));
+
         actionButtonX = leftPos + CONTENT_X;
         formatExpressionButton = addRenderableWidget(new FittedTextButton(
                 actionButtonX,
@@ -256,7 +297,10 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
                 ACTION_FORMAT_WIDTH,
                 16,
                 Component.translatable("gui.chexsonsaeutils.multi_level_emitter.format_expression"),
-                button -> setExpressionDraft(MultiLevelEmitterScreen.formatDraftExpression(expressionInput.getValue())),
+                button -> setExpressionDraft(MultiLevelEmitterScreen.formatDraftExpression(
+                        expressionInput.getValue(),
+                        menu.configuredSlotCount()
+                )),
                 0.74f,
                 0.62f,
                 Tooltip.create(Component.translatable("gui.chexsonsaeutils.multi_level_emitter.normalize_expression_spacing"))
@@ -277,12 +321,12 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
 
         scrollUpButton = addRenderableWidget(Button.builder(Component.literal("^"), button -> {
             scrollOffset = Math.max(0, scrollOffset - 1);
-            syncLayoutFromMenu();
+            syncLayoutFromMenu(true);
         }).bounds(leftPos + SCROLL_BUTTON_X, topPos + SCROLL_UP_BUTTON_Y, SCROLL_BUTTON_SIZE, SCROLL_BUTTON_SIZE).build());
 
         scrollDownButton = addRenderableWidget(Button.builder(Component.literal("v"), button -> {
             scrollOffset = Math.min(maxScrollOffset(menu.visibleSlotCount()), scrollOffset + 1);
-            syncLayoutFromMenu();
+            syncLayoutFromMenu(true);
         }).bounds(leftPos + SCROLL_BUTTON_X, topPos + SCROLL_DOWN_BUTTON_Y, SCROLL_BUTTON_SIZE, SCROLL_BUTTON_SIZE).build());
 
         for (int row = 0; row < MAX_RENDERED_ROWS; row++) {
@@ -354,7 +398,7 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
             craftingModeButtons.add(craftingModeButton);
         }
 
-        syncLayoutFromMenu();
+        syncLayoutFromMenu(true);
     }
 
     @Override
@@ -378,7 +422,7 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
                 scrollOffset = Math.min(maxScrollOffset(menu.visibleSlotCount()), scrollOffset + 1);
             }
             if (scrollOffset != previousOffset) {
-                syncLayoutFromMenu();
+                syncLayoutFromMenu(true);
                 return true;
             }
         }
@@ -394,7 +438,7 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
     @Override
     public void drawBG(GuiGraphics guiGraphics, int offsetX, int offsetY, int mouseX, int mouseY, float partialTicks) {
         super.drawBG(guiGraphics, offsetX, offsetY, mouseX, mouseY, partialTicks);
-        MultiLevelEmitterScreen.RuntimeScreenState state = MultiLevelEmitterScreen.snapshotState(menu);
+        int visibleSlots = screenModel.visibleSlots();
 
         for (int row = 0; row < MAX_RENDERED_ROWS; row++) {
             int slotIndex = rowToSlotIndex(row);
@@ -410,9 +454,9 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
                 if (color != 0) {
                     guiGraphics.fill(offsetX + ROW_SHADE_LEFT, y, offsetX + ROW_SHADE_RIGHT, y + ROW_SHADE_HEIGHT, color);
                 }
-            } else if (slotIndex < state.slots().size() && state.slots().get(slotIndex).duplicateEmitToCraftTarget()) {
+            } else if (slotIndex < visibleSlots && screenModel.slot(slotIndex).duplicateEmitToCraftTarget()) {
                 guiGraphics.fill(offsetX + ROW_SHADE_LEFT, y, offsetX + ROW_SHADE_RIGHT, y + ROW_SHADE_HEIGHT, FUZZY_HIGHLIGHT_COLOR);
-            } else if (slotIndex < state.slots().size() && state.slots().get(slotIndex).emphasizeFuzzyMode()) {
+            } else if (slotIndex < visibleSlots && screenModel.slot(slotIndex).emphasizeFuzzyMode()) {
                 guiGraphics.fill(offsetX + ROW_SHADE_LEFT, y, offsetX + ROW_SHADE_RIGHT, y + ROW_SHADE_HEIGHT, FUZZY_HIGHLIGHT_COLOR);
             }
         }
@@ -420,14 +464,10 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
 
     @Override
     public void drawFG(GuiGraphics guiGraphics, int offsetX, int offsetY, int mouseX, int mouseY) {
-        MultiLevelEmitterScreen.RuntimeScreenState state = MultiLevelEmitterScreen.snapshotState(menu);
         drawFittedText(
                 guiGraphics,
                 font,
-                Component.literal(MultiLevelEmitterScreen.configuredOverTotalLabel(
-                        state.markedSlots(),
-                        state.configuredSlots()
-                )),
+                markedStatusLabel,
                 MARKED_STATUS_X,
                 MARKED_STATUS_Y,
                 MARKED_STATUS_WIDTH,
@@ -438,25 +478,91 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
         guiGraphics.drawString(font, EXPRESSION_LABEL, 8, EXPRESSION_LABEL_Y, COLOR_TEXT, false);
         drawFittedText(guiGraphics, font, helperStatus, CONTENT_X, 50, CONTENT_WIDTH, helperStatusColor, 0.58f, 0.5f);
         drawFittedText(guiGraphics, font, currentValidationStatus, CONTENT_X, 58, CONTENT_WIDTH, currentValidationColor, 0.52f, 0.4f);
+        drawObservedAmounts(guiGraphics);
+    }
+
+    // The current stock sits in the corner of each marked slot, drawn over the item like AE2's stack sizes.
+    private void drawObservedAmounts(GuiGraphics guiGraphics) {
+        int visibleSlots = screenModel.visibleSlots();
+        for (int row = 0; row < MAX_RENDERED_ROWS; row++) {
+            int slotIndex = rowToSlotIndex(row);
+            if (slotIndex >= visibleSlots || !screenModel.slot(slotIndex).marked()) {
+                continue;
+            }
+            String label = screenModel.slot(slotIndex).observedAmountLabel();
+            guiGraphics.pose().pushPose();
+            guiGraphics.pose().translate(
+                    SLOT_X + SLOT_SIZE + 1 - font.width(label) * OBSERVED_AMOUNT_SCALE,
+                    rowBaseY(row) + SLOT_SIZE - font.lineHeight * OBSERVED_AMOUNT_SCALE + 1,
+                    300.0f
+            );
+            guiGraphics.pose().scale(OBSERVED_AMOUNT_SCALE, OBSERVED_AMOUNT_SCALE, 1.0f);
+            guiGraphics.drawString(font, label, 0, 0, COLOR_OBSERVED_AMOUNT, true);
+            guiGraphics.pose().popPose();
+        }
     }
 
     private void syncLayoutFromMenu() {
-        MultiLevelEmitterScreen.RuntimeScreenState state = MultiLevelEmitterScreen.snapshotState(menu);
-        clampScrollOffset(state.visibleSlots());
-        syncExpressionState(state);
-        syncSlotLayout(state.visibleSlots());
-        syncWidgetLayout(state);
-
-        addSlotButton.active = state.configuredSlots() < state.totalSlots();
-        removeSlotButton.active = state.configuredSlots() > MultiLevelEmitterRuntimePart.DEFAULT_VISIBLE_SLOT_COUNT;
+        syncLayoutFromMenu(false);
+    }
+
+    /**
+     * Follows the menu only when its view version moved, and then only for the rows whose slots changed.
+     * {@code relayout} re-syncs every row for changes made by the screen itself, such as scrolling or a resize.
+     */
+    private void syncLayoutFromMenu(boolean relayout) {
+        boolean menuChanged = screenModel.refresh(menu);
+        int previousScrollOffset = scrollOffset;
+        clampScrollOffset(screenModel.visibleSlots());
+        boolean layoutChanged = relayout
+                || scrollOffset != previousScrollOffset
+                || (menuChanged && screenModel.changedSlots() == -1L);
+        long rows = pendingRowSyncs;
+        if (menuChanged || relayout) {
+            syncExpressionState(screenModel);
+            markedStatusLabel = Component.literal(MultiLevelEmitterScreen.configuredOverTotalLabel(
+                    screenModel.markedSlots(),
+                    screenModel.configuredSlots()
+            ));
+        }
+        if (layoutChanged) {
+            syncSlotLayout(screenModel.visibleSlots());
+            rows = ALL_ROWS;
+        } else if (menuChanged) {
+            rows |= rowsForSlots(screenModel.changedSlots());
+        }
+        if (rows != 0L) {
+            pendingRowSyncs = 0L;
+            syncWidgetLayout(screenModel, rows);
+        }
+        if (menuChanged || relayout) {
+            syncSettingInputs();
+        }
+
+        addSlotButton.active = screenModel.configuredSlots() < screenModel.totalSlots();
+        removeSlotButton.active =
+                screenModel.configuredSlots() > MultiLevelEmitterRuntimePart.DEFAULT_VISIBLE_SLOT_COUNT;
         scrollUpButton.active = scrollOffset > 0;
-        scrollDownButton.active = scrollOffset < maxScrollOffset(state.visibleSlots());
+        scrollDownButton.active = scrollOffset < maxScrollOffset(screenModel.visibleSlots());
         applyExpressionButton.active =
-                !state.expressionLocked() && MultiLevelEmitterScreen.canApplyExpression(currentExpressionValidation);
-        rememberServerSnapshot(state);
+                !screenModel.expressionLocked() && MultiLevelEmitterScreen.canApplyExpression(currentExpressionValidation);
+        if (menuChanged) {
+            rememberServerSnapshot(screenModel);
+        }
     }
 
-    private void syncExpressionState(MultiLevelEmitterScreen.RuntimeScreenState state) {
+    private long rowsForSlots(long slots) {
+        long rows = 0L;
+        for (int row = 0; row < MAX_RENDERED_ROWS; row++) {
+            int slotIndex = rowToSlotIndex(row);
+            if (slotIndex < Long.SIZE && (slots & (1L << slotIndex)) != 0L) {
+                rows |= 1L << row;
+            }
+        }
+        return rows;
+    }
+
+    private void syncExpressionState(MultiLevelEmitterScreen.RuntimeScreenModel state) {
         if (expressionInput == null) {
             return;
         }
@@ -480,6 +586,7 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
         }
         currentExpressionValidation = MultiLevelEmitterScreen.validateExpressionDraft(
                 expressionInput.getValue(),
+                draftTokens(expressionInput.getValue()),
                 state.configuredSlots(),
                 menu::hasMarkedItem
         );
@@ -535,9 +642,12 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
         }
     }
 
-    private void syncWidgetLayout(MultiLevelEmitterScreen.RuntimeScreenState state) {
+    private void syncWidgetLayout(MultiLevelEmitterScreen.RuntimeScreenModel state, long rows) {
         int visibleRows = visibleRows(state.visibleSlots());
         for (int row = 0; row < MAX_RENDERED_ROWS; row++) {
+            if ((rows & (1L << row)) == 0L) {
+                continue;
+            }
             Button slotReferenceButton = slotReferenceButtons.get(row);
             ThresholdEditBox input = thresholdInputs.get(row);
             Button comparisonButton = comparisonButtons.get(row);
@@ -564,7 +674,7 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
             }
 
             int slotIndex = rowToSlotIndex(row);
-            MultiLevelEmitterScreen.SlotView slot = state.slots().get(slotIndex);
+            MultiLevelEmitterScreen.SlotModel slot = state.slot(slotIndex);
             int y = topPos + rowBaseY(row) + ROW_WIDGET_Y_OFFSET;
             boolean enabled = slot.enabled();
 
@@ -636,6 +746,48 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
         }
     }
 
+    private void syncSettingInputs() {
+        if (!menu.isSlotConfigured(bandSlotIndex)) {
+            bandSlotIndex = 0;
+        }
+        if (!hysteresisBandInput.isFocused()) {
+            hysteresisBandInput.setValue(Long.toString(menu.hysteresisBandForSlot(bandSlotIndex)));
+        }
+        hysteresisBandInput.setTooltip(Tooltip.create(Component.translatable(
+                "gui.chexsonsaeutils.multi_level_emitter.hysteresis_band",
+                "#" + (bandSlotIndex + 1)
+        )));
+        if (!minimumDwellInput.isFocused()) {
+            minimumDwellInput.setValue(Integer.toString(menu.minimumDwellTicks()));
+        }
+    }
+
+    private void selectBandSlot(int slotIndex) {
+        if (slotIndex != bandSlotIndex && menu.isSlotConfigured(slotIndex)) {
+            bandSlotIndex = slotIndex;
+            syncSettingInputs();
+        }
+    }
+
+    private void commitHysteresisBand(String value) {
+        long fallback = menu.hysteresisBandForSlot(bandSlotIndex);
+        MultiLevelEmitterScreen.commitHysteresisBand(
+                menu,
+                bandSlotIndex,
+                MultiLevelEmitterScreen.parseThresholdInput(value, fallback)
+        );
+        hysteresisBandInput.setValue(Long.toString(menu.hysteresisBandForSlot(bandSlotIndex)));
+    }
+
+    private void commitMinimumDwell(String value) {
+        int fallback = menu.minimumDwellTicks();
+        MultiLevelEmitterScreen.commitMinimumDwellTicks(
+                menu,
+                MultiLevelEmitterScreen.parseDwellTicksInput(value, fallback)
+        );
+        minimumDwellInput.setValue(Integer.toString(menu.minimumDwellTicks()));
+    }
+
     private void onExpressionDraftChanged(String value) {
         expressionDraftText = value == null ? "" : value;
         expressionDirty = !Objects.equals(expressionDraftText, menu.appliedExpressionText());
@@ -643,6 +795,7 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
         helperStatusColor = COLOR_HELPER;
         currentExpressionValidation = MultiLevelEmitterScreen.validateExpressionDraft(
                 expressionDraftText,
+                draftTokens(expressionDraftText),
                 menu.configuredSlotCount(),
                 menu::hasMarkedItem
         );
@@ -690,6 +843,7 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
         helperStatusColor = COLOR_HELPER;
         currentExpressionValidation = MultiLevelEmitterScreen.validateExpressionDraft(
                 expressionInput.getValue(),
+                draftTokens(expressionInput.getValue()),
                 menu.configuredSlotCount(),
                 menu::hasMarkedItem
         );
@@ -709,64 +863,79 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
         expressionInput.setFocused(true);
     }
 
+    private List<MultiLevelEmitterExpressionLexer.Token> draftTokens(String text) {
+        expressionDraftTokens = MultiLevelEmitterExpressionLexer.relex(lexedDraftText, expressionDraftTokens, text);
+        lexedDraftText = text;
+        return expressionDraftTokens;
+    }
+
     private FormattedCharSequence formatDraftText(String text, int displayOffset) {
         if (text == null || text.isEmpty()) {
             return FormattedCharSequence.EMPTY;
         }
-        List<FormattedCharSequence> segments = new ArrayList<>();
-        MultiLevelEmitterExpressionDiagnostic diagnostic = primaryDiagnostic();
-        int diagnosticStart = diagnostic == null ? -1 : diagnostic.start();
-        int diagnosticEnd = diagnostic == null ? -1 : diagnostic.end();
-        int cursor = 0;
-        while (cursor < text.length()) {
-            int absoluteIndex = displayOffset + cursor;
-            if (diagnostic != null
-                    && diagnostic.severity() != MultiLevelEmitterExpressionDiagnostic.Severity.VALID
-                    && absoluteIndex >= diagnosticStart
-                    && absoluteIndex < diagnosticEnd) {
-                int end = Math.min(text.length(), diagnosticEnd - displayOffset);
-                segments.add(FormattedCharSequence.forward(
-                        text.substring(cursor, end),
-                        Style.EMPTY.withColor(diagnostic.severity() == MultiLevelEmitterExpressionDiagnostic.Severity.WARNING
-                                ? COLOR_WARNING
-                                : COLOR_INVALID)
-                ));
-                cursor = end;
-                continue;
-            }
+        String value = expressionInput.getValue();
+        List<MultiLevelEmitterExpressionLexer.Token> tokens;
+        int visibleStart;
+        if (value.startsWith(text, displayOffset)) {
+            tokens = draftTokens(value);
+            visibleStart = displayOffset;
+        } else {
+            tokens = MultiLevelEmitterExpressionLexer.lex(text);
+            visibleStart = 0;
+        }
+        int visibleEnd = visibleStart + text.length();
 
-            if (startsWithOperator(text, cursor)) {
-                String operator = text.regionMatches(true, cursor, "AND", 0, 3)
-                        ? text.substring(cursor, cursor + 3)
-                        : text.substring(cursor, cursor + 2);
-                segments.add(FormattedCharSequence.forward(operator, Style.EMPTY.withColor(COLOR_OPERATOR)));
-                cursor += operator.length();
-                continue;
-            }
+        MultiLevelEmitterExpressionDiagnostic diagnostic = primaryDiagnostic();
+        boolean highlightDiagnostic = diagnostic != null
+                && diagnostic.severity() != MultiLevelEmitterExpressionDiagnostic.Severity.VALID
+                && diagnostic.start() < diagnostic.end();
+        int diagnosticStart = highlightDiagnostic ? diagnostic.start() : visibleEnd;
+        int diagnosticEnd = highlightDiagnostic ? diagnostic.end() : visibleEnd;
+        Style diagnosticStyle = Style.EMPTY.withColor(highlightDiagnostic
+                && diagnostic.severity() == MultiLevelEmitterExpressionDiagnostic.Severity.WARNING
+                ? COLOR_WARNING
+                : COLOR_INVALID);
 
-            char current = text.charAt(cursor);
-            if (current == '(' || current == ')') {
-                segments.add(FormattedCharSequence.forward(Character.toString(current), Style.EMPTY.withColor(COLOR_PAREN)));
-                cursor++;
+        List<FormattedCharSequence> segments = new ArrayList<>();
+        for (MultiLevelEmitterExpressionLexer.Token token : tokens) {
+            int start = Math.max(visibleStart, token.start());
+            int end = Math.min(visibleEnd, token.end());
+            if (start >= end) {
                 continue;
             }
-
-            int next = cursor + 1;
-            while (next < text.length()
-                    && !startsWithOperator(text, next)
-                    && text.charAt(next) != '('
-                    && text.charAt(next) != ')'
-                    && (diagnostic == null
-                    || displayOffset + next < diagnosticStart
-                    || displayOffset + next >= diagnosticEnd)) {
-                next++;
-            }
-            segments.add(FormattedCharSequence.forward(text.substring(cursor, next), Style.EMPTY));
-            cursor = next;
+            Style style = switch (token.kind()) {
+                case AND, OR -> Style.EMPTY.withColor(COLOR_OPERATOR);
+                case LEFT_PAREN, RIGHT_PAREN -> Style.EMPTY.withColor(COLOR_PAREN);
+                default -> Style.EMPTY;
+            };
+            // The diagnostic range overrides token colours wherever the two overlap.
+            appendSegment(segments, text, visibleStart, start, Math.min(end, Math.max(start, diagnosticStart)), style);
+            appendSegment(
+                    segments,
+                    text,
+                    visibleStart,
+                    Math.max(start, diagnosticStart),
+                    Math.min(end, diagnosticEnd),
+                    diagnosticStyle
+            );
+            appendSegment(segments, text, visibleStart, Math.max(start, diagnosticEnd), end, style);
         }
         return FormattedCharSequence.composite(segments);
     }
 
+    private static void appendSegment(
+            List<FormattedCharSequence> segments,
+            String text,
+            int visibleStart,
+            int start,
+            int end,
+            Style style
+    ) {
+        if (start < end) {
+            segments.add(FormattedCharSequence.forward(text.substring(start - visibleStart, end - visibleStart), style));
+        }
+    }
+
     private void updateValidationPresentation() {
         MultiLevelEmitterExpressionDiagnostic diagnostic = primaryDiagnostic();
         if (diagnostic == null) {
@@ -830,25 +999,26 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
 
     private void resetLocalUiState() {
         scrollOffset = 0;
+        bandSlotIndex = 0;
         expressionDraftText = menu.appliedExpressionText();
         expressionDirty = false;
         previousConfiguredSlots = menu.configuredSlotCount();
         helperStatus = PRECEDENCE_HINT;
         helperStatusColor = COLOR_HELPER;
-        lastServerThresholds.clear();
+        lastServerThresholdCount = 0;
         clearFocus();
     }
 
     private long previousServerThresholdFor(int slotIndex, long fallbackThreshold) {
-        return slotIndex >= 0 && slotIndex < lastServerThresholds.size()
-                ? lastServerThresholds.get(slotIndex)
+        return slotIndex >= 0 && slotIndex < lastServerThresholdCount
+                ? lastServerThresholds[slotIndex]
                 : fallbackThreshold;
     }
 
-    private void rememberServerSnapshot(MultiLevelEmitterScreen.RuntimeScreenState state) {
-        lastServerThresholds.clear();
-        for (MultiLevelEmitterScreen.SlotView slot : state.slots()) {
-            lastServerThresholds.add(slot.threshold());
+    private void rememberServerSnapshot(MultiLevelEmitterScreen.RuntimeScreenModel state) {
+        lastServerThresholdCount = state.visibleSlots();
+        for (int slotIndex = 0; slotIndex < lastServerThresholdCount; slotIndex++) {
+            lastServerThresholds[slotIndex] = state.slot(slotIndex).threshold();
         }
         previousConfiguredSlots = state.configuredSlots();
     }
@@ -875,26 +1045,6 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
         return tooltip;
     }
 
-    private static boolean startsWithOperator(String text, int index) {
-        if (index < 0 || index >= text.length()) {
-            return false;
-        }
-        if (matchesOperator(text, index, "AND")) {
-            return true;
-        }
-        return matchesOperator(text, index, "OR");
-    }
-
-    private static boolean matchesOperator(String text, int index, String operator) {
-        int end = index + operator.length();
-        if (end > text.length() || !text.regionMatches(true, index, operator, 0, operator.length())) {
-            return false;
-        }
-        boolean leftBoundary = index == 0 || !Character.isLetterOrDigit(text.charAt(index - 1));
-        boolean rightBoundary = end >= text.length() || !Character.isLetterOrDigit(text.charAt(end));
-        return leftBoundary && rightBoundary;
-    }
-
     private static void drawScaled(
             GuiGraphics guiGraphics,
             Font font,
@@ -1131,11 +1281,13 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
 
     private final class ThresholdEditBox extends EditBox {
 
+        private final int row;
         private int slotIndex;
 
-        private ThresholdEditBox(Font font, int x, int y, int width, int height, int slotIndex) {
-            super(font, x, y, width, height, Component.literal("threshold-" + slotIndex));
-            this.slotIndex = slotIndex;
+        private ThresholdEditBox(Font font, int x, int y, int width, int height, int row) {
+            super(font, x, y, width, height, Component.literal("threshold-" + row));
+            this.row = row;
+            this.slotIndex = row;
         }
 
         private void setSlotIndex(int slotIndex) {
@@ -1155,8 +1307,13 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
         public void setFocused(boolean focused) {
             boolean focusLost = isFocused() && !focused;
             super.setFocused(focused);
+            if (focused) {
+                selectBandSlot(slotIndex);
+            }
             if (focusLost) {
                 commitThreshold(false, true);
+                // An unfocused field shows the menu's value again, whether or not the commit changed it.
+                pendingRowSyncs |= 1L << row;
             }
         }
 
@@ -1180,4 +1337,43 @@ public class MultiLevelEmitterRuntimeScreen extends AEBaseScreen<MultiLevelEmitt
             }
         }
     }
+
+    // Commits the same way the threshold fields do: on Enter, or when the field loses focus.
+    private static final class SettingEditBox extends EditBox {
+
+        private final Consumer<String> commit;
+
+        private SettingEditBox(
+                Font font,
+                int x,
+                int y,
+                Component message,
+                Component hint,
+                Consumer<String> commit
+        ) {
+            super(font, x, y, ACTION_SETTING_WIDTH, 16, message);
+            this.commit = commit;
+            setMaxLength(12);
+            setFilter(value -> value.isEmpty() || value.matches("\\d{0,12}"));
+            setHint(hint);
+        }
+
+        @Override
+        public boolean keyPressed(int keyCode, int scanCode, int modifiers) {
+            if (keyCode == GLFW.GLFW_KEY_ENTER || keyCode == GLFW.GLFW_KEY_KP_ENTER) {
+                commit.accept(getValue());
+                return true;
+            }
+            return super.keyPressed(keyCode, scanCode, modifiers);
+        }
+
+        @Override
+        public void setFocused(boolean focused) {
+            boolean focusLost = isFocused() && !focused;
+            super.setFocused(focused);
+            if (focusLost) {
+                commit.accept(getValue());
+            }
+        }
+    }
 }
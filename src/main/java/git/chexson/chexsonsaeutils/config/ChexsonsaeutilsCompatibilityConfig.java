@@ -1,21 +1,38 @@
 package git.chexson.chexsonsaeutils.config;
 
+import git.chexson.chexsonsaeutils.crafting.status.CraftingContinuationRefillPolicy;
 import net.minecraftforge.common.ForgeConfigSpec;
 
 public final class ChexsonsaeutilsCompatibilityConfig {
 
     public static final ForgeConfigSpec SPEC;
     public static final ForgeConfigSpec.BooleanValue CRAFTING_CONTINUATION_ENABLED;
+    public static final ForgeConfigSpec.LongValue CRAFTING_CONTINUATION_REFILL_AMOUNT_PER_TICK;
+    public static final ForgeConfigSpec.IntValue CRAFTING_CONTINUATION_REFILL_OPERATIONS_PER_TICK;
+    public static final ForgeConfigSpec.EnumValue<CraftingContinuationRefillPolicy> CRAFTING_CONTINUATION_REFILL_POLICY;
     public static final ForgeConfigSpec.BooleanValue PROCESSING_PATTERN_REPLACEMENT_ENABLED;
+    public static final ForgeConfigSpec.IntValue MULTI_LEVEL_EMITTER_OBSERVED_SYNC_TICKS;
 
     static {
         ForgeConfigSpec.Builder builder = new ForgeConfigSpec.Builder();
         CRAFTING_CONTINUATION_ENABLED = builder
                 .comment("Disable the AE2 crafting continuation / ignore-missing feature bundle. Takes effect after restart.")
                 .define("craftingContinuationEnabled", true);
+        CRAFTING_CONTINUATION_REFILL_AMOUNT_PER_TICK = builder
+                .comment("How much, summed over all keys, waiting continuation jobs of one grid may be refilled with per tick.")
+                .defineInRange("craftingContinuationRefillAmountPerTick", 1_000_000L, 1L, Long.MAX_VALUE);
+        CRAFTING_CONTINUATION_REFILL_OPERATIONS_PER_TICK = builder
+                .comment("How many storage extractions one grid may spend per tick on refilling waiting continuation jobs.")
+                .defineInRange("craftingContinuationRefillOperationsPerTick", 64, 1, 4096);
+        CRAFTING_CONTINUATION_REFILL_POLICY = builder
+                .comment("How a scarce item is split between continuation jobs waiting on it: PROPORTIONAL, OLDEST_FIRST or SMALLEST_REMAINING_FIRST.")
+                .defineEnum("craftingContinuationRefillPolicy", CraftingContinuationRefillPolicy.DEFAULT);
         PROCESSING_PATTERN_REPLACEMENT_ENABLED = builder
                 .comment("Disable the AE2 processing pattern replacement feature bundle. Takes effect after restart.")
                 .define("processingPatternReplacementEnabled", true);
+        MULTI_LEVEL_EMITTER_OBSERVED_SYNC_TICKS = builder
+                .comment("How often, in ticks, an open multi-level emitter menu refreshes the stock shown per slot.")
+                .defineInRange("multiLevelEmitterObservedSyncTicks", 10, 1, 200);
         SPEC = builder.build();
     }
 
@@ -0,0 +1,85 @@
+package git.chexson.chexsonsaeutils.crafting.status;
+
+import appeng.api.networking.IGrid;
+import appeng.api.networking.IStackWatcher;
+import appeng.api.networking.storage.IStorageWatcherNode;
+import appeng.api.stacks.AEKey;
+import appeng.me.helpers.StackWatcher;
+import git.chexson.chexsonsaeutils.mixin.ae2.crafting.StorageServiceAccessor;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Storage watcher for the keys a grid's continuation jobs wait on. It is not attached to any grid node, so it is
+ * registered straight with the storage service's interest registry and lives as long as the grid does.
+ */
+public final class CraftingContinuationAvailabilityWatcher implements IStorageWatcherNode {
+    private final Set<AEKey> watchedKeys = new HashSet<>();
+    private final Set<AEKey> changedKeys = new LinkedHashSet<>();
+    private @Nullable IStackWatcher watcher;
+    private long watchedKeyVersion = -1L;
+
+    /**
+     * Brings the watched keys in line with {@code waitingIndex}. Returns {@code false} when the grid's storage
+     * cannot be watched, in which case callers have to poll.
+     */
+    public boolean watch(IGrid grid, CraftingContinuationWaitingIndex<AEKey, ?> waitingIndex) {
+        if (watcher == null) {
+            if (!(grid.getStorageService() instanceof StorageServiceAccessor storageService)) {
+                return false;
+            }
+            updateWatcher(new StackWatcher<>(storageService.chexsonsaeutils$getInterestManager(), this));
+        }
+        if (waitingIndex.keyVersion() == watchedKeyVersion) {
+            return true;
+        }
+
+        Set<AEKey> waitingKeys = waitingIndex.keys();
+        for (Iterator<AEKey> iterator = watchedKeys.iterator(); iterator.hasNext(); ) {
+            AEKey watchedKey = iterator.next();
+            if (!waitingKeys.contains(watchedKey)) {
+                iterator.remove();
+                changedKeys.remove(watchedKey);
+                watcher.remove(watchedKey);
+            }
+        }
+        for (AEKey waitingKey : waitingKeys) {
+            if (watchedKeys.add(waitingKey)) {
+                watcher.add(waitingKey);
+                // Storage may already hold some of it, and that will never be reported as a change.
+                changedKeys.add(waitingKey);
+            }
+        }
+        watchedKeyVersion = waitingIndex.keyVersion();
+        return true;
+    }
+
+    public List<AEKey> drainChangedKeys() {
+        if (changedKeys.isEmpty()) {
+            return List.of();
+        }
+
+        List<AEKey> drained = List.copyOf(changedKeys);
+        changedKeys.clear();
+        return drained;
+    }
+
+    @Override
+    public void updateWatcher(IStackWatcher newWatcher) {
+        watcher = newWatcher;
+        watchedKeys.clear();
+        watchedKeyVersion = -1L;
+    }
+
+    @Override
+    public void onStackChange(AEKey what, long amount) {
+        if (watchedKeys.contains(what)) {
+            changedKeys.add(what);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package git.chexson.chexsonsaeutils.crafting.status;
+
+import java.math.BigInteger;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * How a scarce key is split between the continuation jobs waiting on it. Without one, whichever CPU happens to be
+ * visited first drains the whole arrival and every other job sharing the bottleneck stays stalled.
+ */
+public enum CraftingContinuationRefillPolicy {
+    /**
+     * Everyone gets the same fraction of what they asked for; rounding leftovers go out in request order.
+     */
+    PROPORTIONAL,
+    /**
+     * The longest-running job is filled first, so jobs finish in the order they were started.
+     */
+    OLDEST_FIRST,
+    /**
+     * The job needing the least of the key is filled first, unblocking as many jobs as the arrival allows.
+     */
+    SMALLEST_REMAINING_FIRST;
+
+    public static final CraftingContinuationRefillPolicy DEFAULT = PROPORTIONAL;
+
+    /**
+     * Splits {@code available} over {@code requested}, never giving a request more than it asked for.
+     *
+     * @param ages how long each request's job has been running; only {@link #OLDEST_FIRST} looks at it
+     */
+    public long[] allocate(long available, long[] requested, long[] ages) {
+        long[] allocated = new long[requested.length];
+        long remaining = Math.max(0L, available);
+        if (this == PROPORTIONAL) {
+            long total = 0L;
+            for (long amount : requested) {
+                total = saturatedAdd(total, Math.max(0L, amount));
+            }
+            if (total == 0L) {
+                return allocated;
+            }
+
+            long handedOut = 0L;
+            for (int index = 0; index < requested.length; index++) {
+                long wanted = Math.max(0L, requested[index]);
+                allocated[index] = total <= remaining ? wanted : share(remaining, wanted, total);
+                handedOut += allocated[index];
+            }
+            remaining = Math.max(0L, remaining - handedOut);
+            for (int index = 0; index < requested.length && remaining > 0L; index++) {
+                long extra = Math.min(remaining, Math.max(0L, requested[index]) - allocated[index]);
+                allocated[index] += extra;
+                remaining -= extra;
+            }
+            return allocated;
+        }
+
+        Comparator<Integer> order = this == OLDEST_FIRST
+                ? Comparator.comparingLong((Integer index) -> ages[index]).reversed()
+                : Comparator.comparingLong((Integer index) -> requested[index]);
+        for (int index : IntStream.range(0, requested.length).boxed().sorted(order).toList()) {
+            if (remaining <= 0L) {
+                break;
+            }
+            allocated[index] = Math.min(remaining, Math.max(0L, requested[index]));
+            remaining -= allocated[index];
+        }
+        return allocated;
+    }
+
+    private static long share(long available, long wanted, long total) {
+        try {
+            return Math.multiplyExact(available, wanted) / total;
+        } catch (ArithmeticException overflow) {
+            return BigInteger.valueOf(available)
+                    .multiply(BigInteger.valueOf(wanted))
+                    .divide(BigInteger.valueOf(total))
+                    .longValueExact();
+        }
+    }
+
+    static long saturatedAdd(long left, long right) {
+        long sum = left + right;
+        return ((left ^ sum) & (right ^ sum)) < 0L ? Long.MAX_VALUE : sum;
+    }
+}
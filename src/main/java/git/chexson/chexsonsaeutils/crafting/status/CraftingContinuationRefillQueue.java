@@ -0,0 +1,191 @@
+package git.chexson.chexsonsaeutils.crafting.status;
+
+import appeng.api.config.Actionable;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Keys that continuation jobs of one grid may be refilled with at the end of the tick, oldest first. A key that was
+ * imported many times within one tick is still only refilled once.
+ */
+public final class CraftingContinuationRefillQueue<K> {
+    private final Set<K> pendingKeys = new LinkedHashSet<>();
+
+    public void enqueue(@Nullable K key) {
+        if (key != null) {
+            pendingKeys.add(key);
+        }
+    }
+
+    public boolean isEmpty() {
+        return pendingKeys.isEmpty();
+    }
+
+    public @Nullable K peek() {
+        return pendingKeys.isEmpty() ? null : pendingKeys.iterator().next();
+    }
+
+    public void remove(K key) {
+        pendingKeys.remove(key);
+    }
+
+    /**
+     * Moves queued keys from {@code storage} into the targets waiting on them. What storage can spare of a key is
+     * split between its targets by {@code policy}, no player being given more than storage shows them, then extracted
+     * once per requesting player. A key that runs out of amount or operation budget stays at the head of the queue
+     * for the next pass.
+     *
+     * @param targetsFor the targets currently waiting on a key, each already reporting what it would accept
+     */
+    public <T extends Target<K>> void drain(
+            Function<K, List<T>> targetsFor,
+            Storage<K, T> storage,
+            CraftingContinuationRefillPolicy policy,
+            long amountBudget,
+            int operationBudget
+    ) {
+        while (!pendingKeys.isEmpty() && amountBudget > 0L && operationBudget > 0) {
+            K key = pendingKeys.iterator().next();
+            List<T> targets = targetsFor.apply(key);
+            if (targets.isEmpty()) {
+                pendingKeys.remove(key);
+                continue;
+            }
+
+            long[] accepted = new long[targets.size()];
+            long[] ages = new long[targets.size()];
+            long totalAccepted = 0L;
+            Map<Integer, List<Integer>> targetsByPlayer = new LinkedHashMap<>();
+            for (int index = 0; index < targets.size(); index++) {
+                T target = targets.get(index);
+                accepted[index] = target.accepted();
+                ages[index] = target.age();
+                totalAccepted = CraftingContinuationRefillPolicy.saturatedAdd(totalAccepted, target.accepted());
+                targetsByPlayer.computeIfAbsent(target.playerId(), ignored -> new ArrayList<>()).add(index);
+            }
+
+            // Players may see different parts of storage, so each group is trimmed to what its own player can see.
+            long available = 0L;
+            for (List<Integer> playerTargets : targetsByPlayer.values()) {
+                long visible = Math.max(0L, storage.extract(
+                        key, totalAccepted, Actionable.SIMULATE, targets.get(playerTargets.get(0))));
+                long wanted = 0L;
+                for (int index : playerTargets) {
+                    wanted = CraftingContinuationRefillPolicy.saturatedAdd(wanted, accepted[index]);
+                }
+                if (visible < wanted) {
+                    trimToVisible(policy, visible, playerTargets, accepted, ages);
+                }
+                available = Math.max(available, visible);
+            }
+
+            boolean budgetExhausted = available > amountBudget;
+            long[] shares = policy.allocate(Math.min(available, amountBudget), accepted, ages);
+
+            for (List<Integer> playerTargets : targetsByPlayer.values()) {
+                if (operationBudget <= 0) {
+                    budgetExhausted = true;
+                    break;
+                }
+
+                long requested = 0L;
+                for (int index : playerTargets) {
+                    requested += shares[index];
+                }
+                if (requested <= 0L) {
+                    continue;
+                }
+
+                T requester = targets.get(playerTargets.get(0));
+                long extracted = storage.extract(key, requested, Actionable.MODULATE, requester);
+                operationBudget--;
+                if (extracted <= 0L) {
+                    continue;
+                }
+
+                long remaining = extracted;
+                for (int index : playerTargets) {
+                    if (remaining <= 0L) {
+                        break;
+                    }
+                    remaining -= targets.get(index).insert(key, Math.min(remaining, shares[index]));
+                }
+                if (remaining > 0L) {
+                    storage.insert(key, remaining, requester);
+                }
+                amountBudget -= extracted - remaining;
+
+                for (int index : playerTargets) {
+                    targets.get(index).refresh();
+                }
+            }
+
+            if (budgetExhausted) {
+                return;
+            }
+            pendingKeys.remove(key);
+        }
+    }
+
+    private static void trimToVisible(
+            CraftingContinuationRefillPolicy policy,
+            long visible,
+            List<Integer> playerTargets,
+            long[] accepted,
+            long[] ages
+    ) {
+        long[] groupAccepted = new long[playerTargets.size()];
+        long[] groupAges = new long[playerTargets.size()];
+        for (int member = 0; member < playerTargets.size(); member++) {
+            groupAccepted[member] = accepted[playerTargets.get(member)];
+            groupAges[member] = ages[playerTargets.get(member)];
+        }
+        long[] trimmed = policy.allocate(visible, groupAccepted, groupAges);
+        for (int member = 0; member < playerTargets.size(); member++) {
+            accepted[playerTargets.get(member)] = trimmed[member];
+        }
+    }
+
+    /**
+     * A job waiting on a queued key, as resolved for one pass.
+     */
+    public interface Target<K> {
+        /**
+         * Targets of the same player share one extraction, made with that player's permissions.
+         */
+        @Nullable Integer playerId();
+
+        /**
+         * How much of the key the job would take right now.
+         */
+        long accepted();
+
+        long age();
+
+        /**
+         * @return how much was actually taken
+         */
+        long insert(K key, long amount);
+
+        /**
+         * Called after the target's player group was refilled, so the job can update what it still waits for.
+         */
+        void refresh();
+    }
+
+    /**
+     * Where refills come from, acting on behalf of one target's player.
+     */
+    public interface Storage<K, T> {
+        long extract(K key, long amount, Actionable mode, T requester);
+
+        void insert(K key, long amount, T requester);
+    }
+}
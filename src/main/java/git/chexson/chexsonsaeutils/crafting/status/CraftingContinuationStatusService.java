@@ -9,10 +9,12 @@ import appeng.api.networking.security.IActionHost;
 import appeng.api.networking.security.IActionSource;
 import appeng.api.stacks.AEKey;
 import appeng.api.stacks.GenericStack;
+import appeng.api.storage.MEStorage;
 import appeng.crafting.execution.ExecutingCraftingJob;
 import appeng.me.helpers.PlayerSource;
 import appeng.me.cluster.implementations.CraftingCPUCluster;
 import appeng.menu.me.crafting.CraftingCPUMenu;
+import git.chexson.chexsonsaeutils.config.ChexsonsaeutilsCompatibilityConfig;
 import git.chexson.chexsonsaeutils.crafting.persistence.CraftingContinuationSavedData;
 import git.chexson.chexsonsaeutils.mixin.ae2.crafting.CraftingCpuLogicAccessor;
 import git.chexson.chexsonsaeutils.mixin.ae2.crafting.ExecutingCraftingJobAccessor;
@@ -21,6 +23,8 @@ import net.minecraft.server.level.ServerLevel;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -33,6 +37,15 @@ import java.util.function.ToLongFunction;
 
 public final class CraftingContinuationStatusService {
     private static final Map<ServerLevel, CraftingContinuationStatusService> INSTANCES = new WeakHashMap<>();
+    // Encoding writes the whole key tag; the same keys get encoded for every save, sync and tooltip.
+    private static final int MAX_ENCODED_KEYS = 1024;
+    private static final Map<AEKey, String> ENCODED_KEYS = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<AEKey, String> eldest) {
+                    return size() > MAX_ENCODED_KEYS;
+                }
+            });
 
     private final ServerLevel level;
     private final Map<UUID, CraftingContinuationWaitingDetail> trackedJobs = new LinkedHashMap<>();
@@ -96,6 +109,12 @@ public final class CraftingContinuationStatusService {
             return;
         }
 
+        var waitingIndex = waitingIndex(grid);
+        if (changedStack != null && waitingIndex != null) {
+            reconcileIndexedWaitingInputs(grid, waitingIndex, changedStack);
+            return;
+        }
+
         Map<ServerLevel, Set<UUID>> liveCraftIdsByLevel = new HashMap<>();
         for (CraftingCPUCluster cpu : cpus) {
             if (cpu == null || !(cpu.getLevel() instanceof ServerLevel serverLevel)) {
@@ -104,7 +123,7 @@ public final class CraftingContinuationStatusService {
 
             liveCraftIdsByLevel.computeIfAbsent(serverLevel, ignored -> new HashSet<>());
             CraftingContinuationStatusService service = get(serverLevel);
-            UUID craftId = service.reconcileWaitingInputs(grid, cpu, changedStack);
+            UUID craftId = service.reconcileWaitingInputs(grid, cpu, changedStack, waitingIndex, refillQueue(grid));
             if (craftId != null) {
                 liveCraftIdsByLevel.get(serverLevel).add(craftId);
             }
@@ -114,11 +133,53 @@ public final class CraftingContinuationStatusService {
             return;
         }
 
+        Set<UUID> liveCraftIds = new HashSet<>();
         for (var entry : liveCraftIdsByLevel.entrySet()) {
             get(entry.getKey()).retainLiveCrafts(entry.getValue());
+            liveCraftIds.addAll(entry.getValue());
+        }
+        if (waitingIndex != null) {
+            waitingIndex.retain(liveCraftIds);
         }
     }
 
+    // Imports arrive far more often than anything is missing, so they only visit the CPUs indexed under the key.
+    private static void reconcileIndexedWaitingInputs(
+            IGrid grid,
+            CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> waitingIndex,
+            AEKey changedStack
+    ) {
+        var refillQueue = refillQueue(grid);
+        if (refillQueue != null) {
+            if (waitingIndex.keys().contains(changedStack)) {
+                refillQueue.enqueue(changedStack);
+            }
+            return;
+        }
+
+        for (var waitingJob : waitingIndex.waitingFor(changedStack).entrySet()) {
+            CraftingCPUCluster cpu = waitingJob.getValue();
+            if (!(cpu.getLevel() instanceof ServerLevel serverLevel)
+                    || !waitingJob.getKey().equals(currentCraftId(cpu))) {
+                waitingIndex.remove(waitingJob.getKey());
+                continue;
+            }
+
+            get(serverLevel).reconcileWaitingInputs(grid, cpu, changedStack, waitingIndex, null);
+        }
+    }
+
+    public static void indexWaitingJob(@Nullable IGrid grid, CraftingCPUCluster cpu) {
+        var waitingIndex = waitingIndex(grid);
+        ExecutingCraftingJob job = cpu == null ? null : ((CraftingCpuLogicAccessor) cpu.craftingLogic).getJob();
+        if (waitingIndex == null || job == null) {
+            return;
+        }
+
+        ExecutingCraftingJobAccessor jobAccessor = (ExecutingCraftingJobAccessor) job;
+        waitingIndex.update(jobAccessor.getLink().getCraftingID(), cpu, snapshotWaitingKeys(jobAccessor).keySet());
+    }
+
     public static void reconcileWaitingInputsOnServerEndTick(
             @Nullable IGrid grid,
             Iterable<CraftingCPUCluster> cpus
@@ -127,6 +188,26 @@ public final class CraftingContinuationStatusService {
             return;
         }
 
+        var waitingIndex = waitingIndex(grid);
+        if (waitingIndex != null
+                && grid.getCraftingService() instanceof WaitingInputsHost host
+                && host.chexsonsaeutils$availabilityWatcher().watch(grid, waitingIndex)) {
+            reconcileWatchedAvailability(grid, waitingIndex, host.chexsonsaeutils$availabilityWatcher());
+        } else {
+            pollWaitingAvailability(grid, cpus, waitingIndex);
+        }
+
+        var refillQueue = refillQueue(grid);
+        if (waitingIndex != null && refillQueue != null) {
+            refillQueuedWaitingInputs(grid, waitingIndex, refillQueue);
+        }
+    }
+
+    private static void pollWaitingAvailability(
+            IGrid grid,
+            Iterable<CraftingCPUCluster> cpus,
+            @Nullable CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> waitingIndex
+    ) {
         var cachedInventory = grid.getStorageService().getCachedInventory();
         Map<ServerLevel, Set<UUID>> liveCraftIdsByLevel = new HashMap<>();
         boolean availabilityIncreased = false;
@@ -138,13 +219,23 @@ public final class CraftingContinuationStatusService {
 
             liveCraftIdsByLevel.computeIfAbsent(serverLevel, ignored -> new HashSet<>());
             CraftingContinuationStatusService service = get(serverLevel);
-            if (service.recordWaitingAvailability(cpu, cachedInventory, liveCraftIdsByLevel.get(serverLevel))) {
+            if (service.recordWaitingAvailability(
+                    cpu,
+                    cachedInventory,
+                    liveCraftIdsByLevel.get(serverLevel),
+                    waitingIndex
+            )) {
                 availabilityIncreased = true;
             }
         }
 
+        Set<UUID> liveCraftIds = new HashSet<>();
         for (var entry : liveCraftIdsByLevel.entrySet()) {
             get(entry.getKey()).retainObservedAvailability(entry.getValue());
+            liveCraftIds.addAll(entry.getValue());
+        }
+        if (waitingIndex != null) {
+            waitingIndex.retain(liveCraftIds);
         }
 
         if (availabilityIncreased) {
@@ -152,6 +243,162 @@ public final class CraftingContinuationStatusService {
         }
     }
 
+    // Only keys the storage watcher reported since the last tick are diffed, so idle jobs cost nothing here.
+    private static void reconcileWatchedAvailability(
+            IGrid grid,
+            CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> waitingIndex,
+            CraftingContinuationAvailabilityWatcher availabilityWatcher
+    ) {
+        List<AEKey> changedKeys = availabilityWatcher.drainChangedKeys();
+        if (changedKeys.isEmpty()) {
+            return;
+        }
+
+        var cachedInventory = grid.getStorageService().getCachedInventory();
+        for (AEKey changedKey : changedKeys) {
+            boolean availabilityIncreased = false;
+            for (var waitingJob : waitingIndex.waitingFor(changedKey).entrySet()) {
+                CraftingCPUCluster cpu = waitingJob.getValue();
+                if (!(cpu.getLevel() instanceof ServerLevel serverLevel)
+                        || !waitingJob.getKey().equals(currentCraftId(cpu))) {
+                    waitingIndex.remove(waitingJob.getKey());
+                    continue;
+                }
+
+                if (get(serverLevel).recordWatchedAvailability(
+                        waitingJob.getKey(),
+                        cpu,
+                        changedKey,
+                        cachedInventory
+                )) {
+                    availabilityIncreased = true;
+                }
+            }
+
+            if (availabilityIncreased) {
+                reconcileIndexedWaitingInputs(grid, waitingIndex, changedKey);
+            }
+        }
+    }
+
+    /**
+     * Moves queued keys from storage into the CPUs waiting on them, within the configured per-tick budgets. Each CPU
+     * first reports in simulation what it would accept; {@link CraftingContinuationRefillQueue#drain} does the split.
+     */
+    private static void refillQueuedWaitingInputs(
+            IGrid grid,
+            CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> waitingIndex,
+            CraftingContinuationRefillQueue<AEKey> refillQueue
+    ) {
+        refillQueue.drain(
+                liveKey -> resolveRefillTargets(waitingIndex, liveKey),
+                new RefillStorage(grid.getStorageService().getInventory()),
+                refillPolicy(),
+                refillAmountPerTick(),
+                refillOperationsPerTick()
+        );
+    }
+
+    private static List<RefillTarget> resolveRefillTargets(
+            CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> waitingIndex,
+            AEKey liveKey
+    ) {
+        List<RefillTarget> targets = new ArrayList<>();
+        for (var waitingJob : waitingIndex.waitingFor(liveKey).entrySet()) {
+            CraftingCPUCluster cpu = waitingJob.getValue();
+            if (!(cpu.getLevel() instanceof ServerLevel serverLevel)
+                    || !waitingJob.getKey().equals(currentCraftId(cpu))) {
+                waitingIndex.remove(waitingJob.getKey());
+                continue;
+            }
+
+            RefillTarget target = get(serverLevel).resolveRefillTarget(cpu, liveKey, waitingIndex);
+            if (target != null) {
+                targets.add(target);
+            }
+        }
+        return targets;
+    }
+
+    private @Nullable RefillTarget resolveRefillTarget(
+            CraftingCPUCluster cpu,
+            AEKey liveKey,
+            CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> waitingIndex
+    ) {
+        ExecutingCraftingJob job = ((CraftingCpuLogicAccessor) cpu.craftingLogic).getJob();
+        if (job == null) {
+            return null;
+        }
+
+        ExecutingCraftingJobAccessor jobAccessor = (ExecutingCraftingJobAccessor) job;
+        CraftingContinuationWaitingDetail detail = getTrackedJob(jobAccessor.getLink().getCraftingID());
+        long stillWaiting = jobAccessor.getWaitingFor().list.get(liveKey);
+        if (detail == null || stillWaiting <= 0L || !isTrackedAsMissing(detail, liveKey)) {
+            return null;
+        }
+
+        IActionSource refillActionSource = resolveRefillActionSource(jobAccessor, cpu);
+        long accepted = cpu.insert(liveKey, stillWaiting, Actionable.SIMULATE, refillActionSource);
+        return accepted <= 0L
+                ? null
+                : new RefillTarget(
+                        this,
+                        cpu,
+                        waitingIndex,
+                        jobAccessor.getPlayerId(),
+                        refillActionSource,
+                        accepted,
+                        jobAccessor.getTimeTracker().getElapsedTime()
+                );
+    }
+
+    private static boolean isTrackedAsMissing(CraftingContinuationWaitingDetail detail, AEKey liveKey) {
+        String syncKey = encodeKeyForSync(liveKey);
+        for (CraftingContinuationWaitingBranch waitingBranch : detail.waitingBranches()) {
+            if (waitingBranch.missingStacks().containsKey(syncKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void refreshWaitingJob(
+            CraftingCPUCluster cpu,
+            CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> waitingIndex
+    ) {
+        ExecutingCraftingJob job = ((CraftingCpuLogicAccessor) cpu.craftingLogic).getJob();
+        if (job == null) {
+            return;
+        }
+
+        ExecutingCraftingJobAccessor jobAccessor = (ExecutingCraftingJobAccessor) job;
+        UUID craftId = jobAccessor.getLink().getCraftingID();
+        CraftingContinuationWaitingDetail detail = getTrackedJob(craftId);
+        if (detail == null || buildLiveSnapshot(job, detail) == null) {
+            waitingIndex.remove(craftId);
+        } else {
+            waitingIndex.update(craftId, cpu, snapshotWaitingKeys(jobAccessor).keySet());
+        }
+    }
+
+    private static CraftingContinuationRefillPolicy refillPolicy() {
+        return ChexsonsaeutilsCompatibilityConfig.SPEC.isLoaded()
+                ? ChexsonsaeutilsCompatibilityConfig.CRAFTING_CONTINUATION_REFILL_POLICY.get()
+                : ChexsonsaeutilsCompatibilityConfig.CRAFTING_CONTINUATION_REFILL_POLICY.getDefault();
+    }
+
+    private static long refillAmountPerTick() {
+        return ChexsonsaeutilsCompatibilityConfig.SPEC.isLoaded()
+                ? ChexsonsaeutilsCompatibilityConfig.CRAFTING_CONTINUATION_REFILL_AMOUNT_PER_TICK.get()
+                : ChexsonsaeutilsCompatibilityConfig.CRAFTING_CONTINUATION_REFILL_AMOUNT_PER_TICK.getDefault();
+    }
+
+    private static int refillOperationsPerTick() {
+        return ChexsonsaeutilsCompatibilityConfig.SPEC.isLoaded()
+                ? ChexsonsaeutilsCompatibilityConfig.CRAFTING_CONTINUATION_REFILL_OPERATIONS_PER_TICK.get()
+                : ChexsonsaeutilsCompatibilityConfig.CRAFTING_CONTINUATION_REFILL_OPERATIONS_PER_TICK.getDefault();
+    }
+
     public @Nullable CraftingContinuationStatusSnapshot buildSnapshot(CraftingCPUCluster cpu) {
         if (cpu == null) {
             return null;
@@ -199,10 +446,11 @@ public final class CraftingContinuationStatusService {
     ) {
         ExecutingCraftingJobAccessor jobAccessor = (ExecutingCraftingJobAccessor) job;
         UUID craftId = jobAccessor.getLink().getCraftingID();
-        Map<String, Long> liveWaitingStacks = snapshotWaitingStacks(jobAccessor);
+        Map<AEKey, Long> liveWaitingKeys = snapshotWaitingKeys(jobAccessor);
         List<CraftingContinuationWaitingBranch> liveWaitingBranches = buildLiveWaitingBranches(
                 detail.waitingBranches(),
-                liveWaitingStacks
+                liveWaitingKeys,
+                liveKeysBySyncKey(liveWaitingKeys)
         );
         if (liveWaitingBranches.isEmpty()) {
             clearCompletedJob(craftId);
@@ -227,28 +475,31 @@ public final class CraftingContinuationStatusService {
         );
     }
 
-    private static Map<String, Long> snapshotWaitingStacks(ExecutingCraftingJobAccessor jobAccessor) {
-        Map<String, Long> waitingStacks = new LinkedHashMap<>();
-        for (var entry : jobAccessor.getWaitingFor().list) {
-            waitingStacks.merge(describeKey(entry.getKey()), entry.getLongValue(), Long::sum);
+    // Tracked branches keep the encoded keys they are saved and synced with; everything live stays an AEKey.
+    private static Map<String, AEKey> liveKeysBySyncKey(Map<AEKey, Long> liveWaitingKeys) {
+        Map<String, AEKey> liveKeysBySyncKey = new HashMap<>(liveWaitingKeys.size() * 2);
+        for (AEKey liveWaitingKey : liveWaitingKeys.keySet()) {
+            liveKeysBySyncKey.put(encodeKeyForSync(liveWaitingKey), liveWaitingKey);
         }
-        return waitingStacks;
+        return liveKeysBySyncKey;
     }
 
     private static List<CraftingContinuationWaitingBranch> buildLiveWaitingBranches(
             List<CraftingContinuationWaitingBranch> trackedWaitingBranches,
-            Map<String, Long> liveWaitingStacks
+            Map<AEKey, Long> liveWaitingKeys,
+            Map<String, AEKey> liveKeysBySyncKey
     ) {
-        if (trackedWaitingBranches == null || trackedWaitingBranches.isEmpty() || liveWaitingStacks.isEmpty()) {
+        if (trackedWaitingBranches == null || trackedWaitingBranches.isEmpty() || liveWaitingKeys.isEmpty()) {
             return List.of();
         }
 
-        Map<String, Long> remainingWaitingStacks = new LinkedHashMap<>(liveWaitingStacks);
+        Map<AEKey, Long> remainingWaitingKeys = new HashMap<>(liveWaitingKeys);
         var liveWaitingBranches = new java.util.ArrayList<CraftingContinuationWaitingBranch>(trackedWaitingBranches.size());
         for (CraftingContinuationWaitingBranch trackedBranch : trackedWaitingBranches) {
             Map<String, Long> branchWaitingStacks = new LinkedHashMap<>();
             for (var missingStack : trackedBranch.missingStacks().entrySet()) {
-                long remainingAmount = remainingWaitingStacks.getOrDefault(missingStack.getKey(), 0L);
+                AEKey liveKey = liveKeysBySyncKey.get(missingStack.getKey());
+                long remainingAmount = liveKey == null ? 0L : remainingWaitingKeys.getOrDefault(liveKey, 0L);
                 if (remainingAmount <= 0L) {
                     continue;
                 }
@@ -256,9 +507,9 @@ public final class CraftingContinuationStatusService {
                 long liveAmount = Math.min(missingStack.getValue(), remainingAmount);
                 branchWaitingStacks.put(missingStack.getKey(), liveAmount);
                 if (liveAmount == remainingAmount) {
-                    remainingWaitingStacks.remove(missingStack.getKey());
+                    remainingWaitingKeys.remove(liveKey);
                 } else {
-                    remainingWaitingStacks.put(missingStack.getKey(), remainingAmount - liveAmount);
+                    remainingWaitingKeys.put(liveKey, remainingAmount - liveAmount);
                 }
             }
 
@@ -295,7 +546,9 @@ public final class CraftingContinuationStatusService {
     private @Nullable UUID reconcileWaitingInputs(
             IGrid grid,
             CraftingCPUCluster cpu,
-            @Nullable AEKey changedStack
+            @Nullable AEKey changedStack,
+            @Nullable CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> waitingIndex,
+            @Nullable CraftingContinuationRefillQueue<AEKey> refillQueue
     ) {
         CraftingCpuLogicAccessor logicAccessor = (CraftingCpuLogicAccessor) cpu.craftingLogic;
         ExecutingCraftingJob job = logicAccessor.getJob();
@@ -307,29 +560,35 @@ public final class CraftingContinuationStatusService {
         UUID craftId = jobAccessor.getLink().getCraftingID();
         CraftingContinuationWaitingDetail detail = getTrackedJob(craftId);
         if (detail == null) {
+            unindex(waitingIndex, craftId);
             return craftId;
         }
 
         Map<AEKey, Long> liveWaitingKeys = snapshotWaitingKeys(jobAccessor);
         if (liveWaitingKeys.isEmpty()) {
             clearCompletedJob(craftId);
+            unindex(waitingIndex, craftId);
+            return craftId;
+        }
+
+        if (changedStack != null && !liveWaitingKeys.containsKey(changedStack)) {
+            if (waitingIndex != null) {
+                waitingIndex.update(craftId, cpu, liveWaitingKeys.keySet());
+            }
             return craftId;
         }
 
-        String changedKey = encodeKeyForSync(changedStack);
         var storage = grid.getStorageService().getInventory();
         IActionSource refillActionSource = resolveRefillActionSource(jobAccessor, cpu);
+        Map<String, AEKey> liveKeysBySyncKey = liveKeysBySyncKey(liveWaitingKeys);
         for (CraftingContinuationWaitingBranch waitingBranch : buildLiveWaitingBranches(
                 detail.waitingBranches(),
-                snapshotWaitingStacks(jobAccessor)
+                liveWaitingKeys,
+                liveKeysBySyncKey
         )) {
             for (var missingStack : waitingBranch.missingStacks().entrySet()) {
-                if (changedStack != null && !missingStack.getKey().equals(changedKey)) {
-                    continue;
-                }
-
-                AEKey liveKey = findLiveWaitingKey(liveWaitingKeys, missingStack.getKey());
-                if (liveKey == null) {
+                AEKey liveKey = liveKeysBySyncKey.get(missingStack.getKey());
+                if (liveKey == null || changedStack != null && !liveKey.equals(changedStack)) {
                     continue;
                 }
 
@@ -337,6 +596,10 @@ public final class CraftingContinuationStatusService {
                 if (stillWaiting <= 0L) {
                     continue;
                 }
+                if (refillQueue != null) {
+                    refillQueue.enqueue(liveKey);
+                    continue;
+                }
 
                 long extracted = storage.extract(liveKey, stillWaiting, Actionable.MODULATE, refillActionSource);
                 if (extracted <= 0L) {
@@ -351,7 +614,12 @@ public final class CraftingContinuationStatusService {
             }
         }
 
-        buildLiveSnapshot(job, detail);
+        if (buildLiveSnapshot(job, detail) == null) {
+            unindex(waitingIndex, craftId);
+        } else if (waitingIndex != null) {
+            liveWaitingKeys.values().removeIf(stillWaiting -> stillWaiting <= 0L);
+            waitingIndex.update(craftId, cpu, liveWaitingKeys.keySet());
+        }
         return craftId;
     }
 
@@ -371,7 +639,8 @@ public final class CraftingContinuationStatusService {
     private boolean recordWaitingAvailability(
             CraftingCPUCluster cpu,
             appeng.api.stacks.KeyCounter cachedInventory,
-            Set<UUID> liveCraftIds
+            Set<UUID> liveCraftIds,
+            @Nullable CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> waitingIndex
     ) {
         CraftingCpuLogicAccessor logicAccessor = (CraftingCpuLogicAccessor) cpu.craftingLogic;
         ExecutingCraftingJob job = logicAccessor.getJob();
@@ -384,6 +653,7 @@ public final class CraftingContinuationStatusService {
         CraftingContinuationWaitingDetail detail = getTrackedJob(craftId);
         if (detail == null) {
             observedAvailableWaitingStacks.remove(craftId);
+            unindex(waitingIndex, craftId);
             return false;
         }
 
@@ -391,9 +661,14 @@ public final class CraftingContinuationStatusService {
         Map<AEKey, Long> liveWaitingKeys = snapshotWaitingKeys(jobAccessor);
         if (liveWaitingKeys.isEmpty()) {
             observedAvailableWaitingStacks.remove(craftId);
+            unindex(waitingIndex, craftId);
             return false;
         }
 
+        if (waitingIndex != null) {
+            waitingIndex.update(craftId, cpu, liveWaitingKeys.keySet());
+        }
+
         Map<AEKey, Long> currentAvailableWaitingStacks = snapshotAvailableWaitingStacks(
                 liveWaitingKeys,
                 cachedInventory::get
@@ -407,9 +682,37 @@ public final class CraftingContinuationStatusService {
                 : hasAvailabilityIncrease(previousAvailableWaitingStacks, currentAvailableWaitingStacks);
     }
 
+    private boolean recordWatchedAvailability(
+            UUID craftId,
+            CraftingCPUCluster cpu,
+            AEKey changedKey,
+            appeng.api.stacks.KeyCounter cachedInventory
+    ) {
+        ExecutingCraftingJob job = ((CraftingCpuLogicAccessor) cpu.craftingLogic).getJob();
+        if (job == null || getTrackedJob(craftId) == null) {
+            observedAvailableWaitingStacks.remove(craftId);
+            return false;
+        }
+
+        long stillWaiting = ((ExecutingCraftingJobAccessor) job).getWaitingFor().list.get(changedKey);
+        Map<AEKey, Long> currentAvailableWaitingStacks = snapshotAvailableWaitingStacks(
+                stillWaiting > 0L ? Map.of(changedKey, stillWaiting) : Map.of(),
+                cachedInventory::get
+        );
+        Map<AEKey, Long> previousAvailableWaitingStacks = observedAvailableWaitingStacks.computeIfAbsent(
+                craftId,
+                ignored -> new HashMap<>()
+        );
+        boolean increased = hasAvailabilityIncrease(previousAvailableWaitingStacks, currentAvailableWaitingStacks);
+        previousAvailableWaitingStacks.remove(changedKey);
+        previousAvailableWaitingStacks.putAll(currentAvailableWaitingStacks);
+        return increased;
+    }
+
     private void retainLiveCrafts(Set<UUID> liveCraftIds) {
         Set<UUID> safeLiveCraftIds = liveCraftIds == null ? Set.of() : Set.copyOf(liveCraftIds);
         trackedJobs.keySet().removeIf(craftId -> !safeLiveCraftIds.contains(craftId));
+        observedAvailableWaitingStacks.keySet().removeIf(craftId -> !safeLiveCraftIds.contains(craftId));
         CraftingContinuationSavedData.get(level).retainLiveCrafts(safeLiveCraftIds);
     }
 
@@ -418,6 +721,34 @@ public final class CraftingContinuationStatusService {
         observedAvailableWaitingStacks.keySet().removeIf(craftId -> !safeLiveCraftIds.contains(craftId));
     }
 
+    private static @Nullable CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> waitingIndex(
+            @Nullable IGrid grid
+    ) {
+        return grid != null && grid.getCraftingService() instanceof WaitingInputsHost host
+                ? host.chexsonsaeutils$waitingIndex()
+                : null;
+    }
+
+    private static @Nullable CraftingContinuationRefillQueue<AEKey> refillQueue(@Nullable IGrid grid) {
+        return grid != null && grid.getCraftingService() instanceof WaitingInputsHost host
+                ? host.chexsonsaeutils$refillQueue()
+                : null;
+    }
+
+    private static void unindex(
+            @Nullable CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> waitingIndex,
+            UUID craftId
+    ) {
+        if (waitingIndex != null) {
+            waitingIndex.remove(craftId);
+        }
+    }
+
+    private static @Nullable UUID currentCraftId(CraftingCPUCluster cpu) {
+        ExecutingCraftingJob job = ((CraftingCpuLogicAccessor) cpu.craftingLogic).getJob();
+        return job == null ? null : ((ExecutingCraftingJobAccessor) job).getLink().getCraftingID();
+    }
+
     private static Map<AEKey, Long> snapshotWaitingKeys(ExecutingCraftingJobAccessor jobAccessor) {
         Map<AEKey, Long> waitingKeys = new LinkedHashMap<>();
         for (var entry : jobAccessor.getWaitingFor().list) {
@@ -426,15 +757,6 @@ public final class CraftingContinuationStatusService {
         return waitingKeys;
     }
 
-    private static @Nullable AEKey findLiveWaitingKey(Map<AEKey, Long> liveWaitingKeys, String keyDescription) {
-        for (AEKey liveWaitingKey : liveWaitingKeys.keySet()) {
-            if (keyDescription.equals(describeKey(liveWaitingKey))) {
-                return liveWaitingKey;
-            }
-        }
-        return null;
-    }
-
     private static IActionSource resolveRefillActionSource(
             ExecutingCraftingJobAccessor jobAccessor,
             CraftingCPUCluster cpu
@@ -493,7 +815,16 @@ public final class CraftingContinuationStatusService {
     }
 
     public static String encodeKeyForSync(@Nullable AEKey key) {
-        return key == null ? "" : key.toTagGeneric().toString();
+        if (key == null) {
+            return "";
+        }
+
+        String encoded = ENCODED_KEYS.get(key);
+        if (encoded == null) {
+            encoded = key.toTagGeneric().toString();
+            ENCODED_KEYS.put(key, encoded);
+        }
+        return encoded;
     }
 
     public interface SelectedCpuDetailHost {
@@ -510,6 +841,47 @@ public final class CraftingContinuationStatusService {
         String chexsonsaeutils$waitingStackLines();
     }
 
+    public interface WaitingInputsHost {
+        CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> chexsonsaeutils$waitingIndex();
+
+        CraftingContinuationAvailabilityWatcher chexsonsaeutils$availabilityWatcher();
+
+        CraftingContinuationRefillQueue<AEKey> chexsonsaeutils$refillQueue();
+    }
+
+    private record RefillTarget(
+            CraftingContinuationStatusService service,
+            CraftingCPUCluster cpu,
+            CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> waitingIndex,
+            @Nullable Integer playerId,
+            IActionSource actionSource,
+            long accepted,
+            long age
+    ) implements CraftingContinuationRefillQueue.Target<AEKey> {
+        @Override
+        public long insert(AEKey key, long amount) {
+            return cpu.insert(key, amount, Actionable.MODULATE, actionSource);
+        }
+
+        @Override
+        public void refresh() {
+            service.refreshWaitingJob(cpu, waitingIndex);
+        }
+    }
+
+    private record RefillStorage(MEStorage storage)
+            implements CraftingContinuationRefillQueue.Storage<AEKey, RefillTarget> {
+        @Override
+        public long extract(AEKey key, long amount, Actionable mode, RefillTarget requester) {
+            return storage.extract(key, amount, mode, requester.actionSource());
+        }
+
+        @Override
+        public void insert(AEKey key, long amount, RefillTarget requester) {
+            storage.insert(key, amount, Actionable.MODULATE, requester.actionSource());
+        }
+    }
+
     public interface WaitingStackProjectionHost {
         boolean chexsonsaeutils$partialWaiting();
 
@@ -0,0 +1,100 @@
+package git.chexson.chexsonsaeutils.crafting.status;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Which continuation jobs of one grid are still waiting for which key, so an import only visits the CPUs that can
+ * take it. Entries are hints: callers re-check the CPU's current job before acting on one.
+ */
+public final class CraftingContinuationWaitingIndex<K, C> {
+    private final Map<K, Map<UUID, C>> waitingJobsByKey = new HashMap<>();
+    private final Map<UUID, Set<K>> waitingKeysByJob = new HashMap<>();
+    private long keyVersion;
+
+    public void update(UUID craftId, C cpu, Collection<K> waitingKeys) {
+        if (craftId == null || cpu == null) {
+            return;
+        }
+        if (waitingKeys == null || waitingKeys.isEmpty()) {
+            remove(craftId);
+            return;
+        }
+
+        Set<K> previousKeys = waitingKeysByJob.get(craftId);
+        if (previousKeys != null) {
+            for (K previousKey : previousKeys) {
+                if (!waitingKeys.contains(previousKey)) {
+                    unlink(previousKey, craftId);
+                }
+            }
+        }
+        for (K waitingKey : waitingKeys) {
+            waitingJobsByKey.computeIfAbsent(waitingKey, ignored -> {
+                keyVersion++;
+                return new LinkedHashMap<>(2);
+            }).put(craftId, cpu);
+        }
+        waitingKeysByJob.put(craftId, new HashSet<>(waitingKeys));
+    }
+
+    public void remove(UUID craftId) {
+        Set<K> previousKeys = craftId == null ? null : waitingKeysByJob.remove(craftId);
+        if (previousKeys == null) {
+            return;
+        }
+        for (K previousKey : previousKeys) {
+            unlink(previousKey, craftId);
+        }
+    }
+
+    public void retain(Set<UUID> liveCraftIds) {
+        if (waitingKeysByJob.isEmpty()) {
+            return;
+        }
+        for (UUID craftId : Set.copyOf(waitingKeysByJob.keySet())) {
+            if (liveCraftIds == null || !liveCraftIds.contains(craftId)) {
+                remove(craftId);
+            }
+        }
+    }
+
+    /**
+     * Copy of the jobs waiting for {@code key} in the order they started waiting, safe to iterate while reconciling
+     * them updates this index. The order decides who gets the remainder of a proportional refill.
+     */
+    public Map<UUID, C> waitingFor(K key) {
+        Map<UUID, C> waitingJobs = waitingJobsByKey.get(key);
+        return waitingJobs == null ? Map.of() : new LinkedHashMap<>(waitingJobs);
+    }
+
+    public boolean isWaiting(UUID craftId) {
+        return waitingKeysByJob.containsKey(craftId);
+    }
+
+    public Set<K> keys() {
+        return Collections.unmodifiableSet(waitingJobsByKey.keySet());
+    }
+
+    /**
+     * Changes whenever a key starts or stops being waited for, so watchers of {@link #keys()} can skip unchanged
+     * ticks.
+     */
+    public long keyVersion() {
+        return keyVersion;
+    }
+
+    private void unlink(K key, UUID craftId) {
+        Map<UUID, C> waitingJobs = waitingJobsByKey.get(key);
+        if (waitingJobs != null && waitingJobs.remove(craftId) != null && waitingJobs.isEmpty()) {
+            waitingJobsByKey.remove(key);
+            keyVersion++;
+        }
+    }
+}
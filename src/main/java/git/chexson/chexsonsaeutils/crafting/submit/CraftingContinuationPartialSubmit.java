@@ -78,6 +78,7 @@ public final class CraftingContinuationPartialSubmit {
         cpuCluster.markDirty();
         logicAccessor.invokeNotifyJobOwner(job, CraftingJobStatusPacket.Status.STARTED);
         recordWaitingDetail(cpuCluster, plan, job, missingInitialItems);
+        CraftingContinuationStatusService.indexWaitingJob(grid, cpuCluster);
 
         return CraftingSubmitResult.successful(null);
     }
@@ -5,13 +5,16 @@ import appeng.menu.locator.MenuLocators;
 import appeng.api.upgrades.IUpgradeInventory;
 import appeng.menu.AEBaseMenu;
 import appeng.menu.SlotSemantics;
+import appeng.menu.guisync.GuiSync;
+import appeng.menu.guisync.PacketWritable;
 import appeng.menu.slot.FakeSlot;
 import appeng.menu.slot.RestrictedInputSlot;
+import git.chexson.chexsonsaeutils.config.ChexsonsaeutilsCompatibilityConfig;
 import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterItem;
 import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterPart;
 import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterRuntimePart;
 import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterUtils;
-import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompiler;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCache;
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionOwnership;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.network.chat.Component;
@@ -26,6 +29,7 @@ import net.minecraft.world.item.ItemStack;
 import net.minecraftforge.network.NetworkHooks;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -40,10 +44,13 @@ public final class MultiLevelEmitterMenu {
     private static final int MIN_CONFIGURED_SLOTS = 1;
     private static final String ACTION_SET_CONFIGURED_SLOT_COUNT = "setConfiguredSlotCount";
     private static final String ACTION_COMMIT_THRESHOLD = "commitThreshold";
+    private static final String ACTION_COMMIT_HYSTERESIS_BAND = "commitHysteresisBand";
+    private static final String ACTION_COMMIT_MINIMUM_DWELL = "commitMinimumDwell";
     private static final String ACTION_CYCLE_COMPARISON_MODE = "cycleComparisonMode";
     private static final String ACTION_CYCLE_MATCHING_MODE = "cycleMatchingMode";
     private static final String ACTION_CYCLE_CRAFTING_MODE = "cycleCraftingMode";
     private static final String ACTION_APPLY_EXPRESSION = "applyExpression";
+    private static final String ACTION_REQUEST_FULL_SYNC = "requestFullSync";
     private static Supplier<MenuType<RuntimeMenu>> menuTypeSupplier;
     private static final AtomicReference<RuntimeBindingResolver> runtimeBindingResolver =
             new AtomicReference<>((inventory, data) -> null);
@@ -201,15 +208,86 @@ public final class MultiLevelEmitterMenu {
     public record ThresholdPayload(int slotIndex, long rawThreshold, long maxValue) {
     }
 
+    public record HysteresisBandPayload(int slotIndex, long rawBand) {
+    }
+
     public record SlotIndexPayload(int slotIndex) {
     }
 
     public record ExpressionPayload(String rawExpression) {
     }
 
+    /**
+     * Per-slot stock as last read on the server. Equal contents compare equal, so the menu sync only resends it
+     * when an amount actually moved.
+     */
+    public static final class ObservedAmounts implements PacketWritable {
+        public static final ObservedAmounts EMPTY = new ObservedAmounts(new long[0]);
+
+        private final long[] amounts;
+
+        private ObservedAmounts(long[] amounts) {
+            this.amounts = amounts;
+        }
+
+        public ObservedAmounts(FriendlyByteBuf data) {
+            int slotCount = Math.min(SLOT_CAPACITY, Math.max(0, data.readVarInt()));
+            amounts = new long[slotCount];
+            for (int slot = 0; slot < slotCount; slot++) {
+                amounts[slot] = data.readVarLong();
+            }
+        }
+
+        static ObservedAmounts copyOf(long[] amounts, int slotCount) {
+            return new ObservedAmounts(Arrays.copyOf(amounts, slotCount));
+        }
+
+        public int slotCount() {
+            return amounts.length;
+        }
+
+        public long amount(int slotIndex) {
+            return slotIndex >= 0 && slotIndex < amounts.length ? amounts[slotIndex] : 0L;
+        }
+
+        boolean matches(long[] candidate, int slotCount) {
+            return Arrays.equals(amounts, 0, amounts.length, candidate, 0, slotCount);
+        }
+
+        @Override
+        public void writeToPacket(FriendlyByteBuf data) {
+            data.writeVarInt(amounts.length);
+            for (long amount : amounts) {
+                data.writeVarLong(amount);
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ObservedAmounts observed && Arrays.equals(amounts, observed.amounts);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(amounts);
+        }
+    }
+
     public static final class RuntimeMenu extends AEBaseMenu {
 
+        @GuiSync(1)
+        public ObservedAmounts observedAmounts = ObservedAmounts.EMPTY;
+
         private MultiLevelEmitterRuntimePart runtimePart;
+        private int viewVersion;
+        private int observedPartViewVersion;
+        private int observedCards = -1;
+        private ObservedAmounts seenObservedAmounts = ObservedAmounts.EMPTY;
+        // Server side: amounts are re-read every few ticks into this buffer and only copied out when they changed.
+        private long[] observedAmountBuffer;
+        private int ticksUntilObservedRead;
+        // Server side: a full state is broadcast to every tracking player, so one open menu may only ask once.
+        private boolean fullSyncRequested;
 
         public RuntimeMenu(int containerId, Inventory inventory) {
             this(containerId, inventory, registeredMenuType(), null);
@@ -225,6 +303,9 @@ public final class MultiLevelEmitterMenu {
             this.runtimePart = runtimePart;
             registerClientAction(ACTION_SET_CONFIGURED_SLOT_COUNT, Integer.class, this::applyConfiguredSlotCountOnServer);
             registerClientAction(ACTION_COMMIT_THRESHOLD, ThresholdPayload.class, this::applyThresholdCommitOnServer);
+            registerClientAction(ACTION_COMMIT_HYSTERESIS_BAND, HysteresisBandPayload.class,
+                    this::applyHysteresisBandCommitOnServer);
+            registerClientAction(ACTION_COMMIT_MINIMUM_DWELL, Integer.class, this::applyMinimumDwellCommitOnServer);
             registerClientAction(ACTION_CYCLE_COMPARISON_MODE, SlotIndexPayload.class,
                     payload -> applyComparisonToggleOnServer(payload.slotIndex()));
             registerClientAction(ACTION_CYCLE_MATCHING_MODE, SlotIndexPayload.class,
@@ -232,10 +313,15 @@ public final class MultiLevelEmitterMenu {
             registerClientAction(ACTION_CYCLE_CRAFTING_MODE, SlotIndexPayload.class,
                     payload -> applyCraftingModeToggleOnServer(payload.slotIndex()));
             registerClientAction(ACTION_APPLY_EXPRESSION, ExpressionPayload.class, this::applyExpressionOnServer);
+            registerClientAction(ACTION_REQUEST_FULL_SYNC, Integer.class, this::requestFullSyncOnServer);
 
             if (inventory != null && runtimePart != null) {
                 initializeSlots(inventory, runtimePart);
             }
+            // A client that missed a delta keeps its last good state; opening the menu asks for a fresh copy.
+            if (isLiveClientMenu() && !runtimePart.isStreamSynced()) {
+                sendClientAction(ACTION_REQUEST_FULL_SYNC, runtimePart.receivedStreamVersion());
+            }
         }
 
         public static RuntimeMenu fromNetwork(int containerId, Inventory inventory, FriendlyByteBuf networkData) {
@@ -250,6 +336,53 @@ public final class MultiLevelEmitterMenu {
 
         public void bindRuntimePart(MultiLevelEmitterRuntimePart runtimePart) {
             this.runtimePart = runtimePart;
+            observedCards = -1;
+        }
+
+        /**
+         * Moves whenever something the emitter screen shows may have changed: the part's slots, expression or marked
+         * items, or the installed cards. An open screen polls this instead of rebuilding its state every tick.
+         */
+        public int viewVersion() {
+            int partViewVersion = runtimePart == null ? 0 : runtimePart.viewVersion();
+            // Cards are read live from the upgrade inventory, which the part does not version.
+            int cards = (hasFuzzyCardInstalled() ? 1 : 0) | (hasCraftingCardInstalled() ? 2 : 0);
+            // Synced amounts arrive as a new instance, so a reference check is enough to see them.
+            if (partViewVersion != observedPartViewVersion
+                    || cards != observedCards
+                    || observedAmounts != seenObservedAmounts) {
+                observedPartViewVersion = partViewVersion;
+                observedCards = cards;
+                seenObservedAmounts = observedAmounts;
+                viewVersion++;
+            }
+            return viewVersion;
+        }
+
+        public long observedAmountForSlot(int slotIndex) {
+            return observedAmounts.amount(slotIndex);
+        }
+
+        @Override
+        public void broadcastChanges() {
+            if (runtimePart != null && isServerSide()) {
+                refreshObservedAmounts();
+            }
+            super.broadcastChanges();
+        }
+
+        private void refreshObservedAmounts() {
+            if (--ticksUntilObservedRead > 0) {
+                return;
+            }
+            ticksUntilObservedRead = observedSyncTicks();
+            if (observedAmountBuffer == null) {
+                observedAmountBuffer = new long[SLOT_CAPACITY];
+            }
+            int slotCount = runtimePart.readObservedAmounts(observedAmountBuffer);
+            if (!observedAmounts.matches(observedAmountBuffer, slotCount)) {
+                observedAmounts = ObservedAmounts.copyOf(observedAmountBuffer, slotCount);
+            }
         }
 
         public boolean hasRuntimePartBinding() {
@@ -271,6 +404,26 @@ public final class MultiLevelEmitterMenu {
             }
         }
 
+        public void commitHysteresisBand(int slotIndex, long rawBand) {
+            if (runtimePart == null) {
+                return;
+            }
+            runtimePart.updateHysteresisBand(slotIndex, rawBand);
+            if (isLiveClientMenu()) {
+                sendClientAction(ACTION_COMMIT_HYSTERESIS_BAND, new HysteresisBandPayload(slotIndex, rawBand));
+            }
+        }
+
+        public void commitMinimumDwellTicks(int ticks) {
+            if (runtimePart == null) {
+                return;
+            }
+            runtimePart.updateMinimumDwellTicks(ticks);
+            if (isLiveClientMenu()) {
+                sendClientAction(ACTION_COMMIT_MINIMUM_DWELL, ticks);
+            }
+        }
+
         public void cycleComparisonMode(int slotIndex) {
             if (runtimePart == null) {
                 return;
@@ -372,7 +525,21 @@ public final class MultiLevelEmitterMenu {
             if (runtimePart == null) {
                 return 1L;
             }
-            return runtimePart.thresholds().getOrDefault(slotIndex, 1L);
+            return runtimePart.slotConfigSnapshot().threshold(slotIndex);
+        }
+
+        public long hysteresisBandForSlot(int slotIndex) {
+            if (slotIndex < 0 || slotIndex >= totalSlotCapacity()) {
+                return 0L;
+            }
+            if (runtimePart == null) {
+                return 0L;
+            }
+            return runtimePart.hysteresisBand(slotIndex);
+        }
+
+        public int minimumDwellTicks() {
+            return runtimePart == null ? 0 : runtimePart.minimumDwellTicks();
         }
 
         public MultiLevelEmitterPart.ComparisonMode comparisonModeForSlot(int slotIndex) {
@@ -382,10 +549,7 @@ public final class MultiLevelEmitterMenu {
             if (runtimePart == null) {
                 return MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL;
             }
-            List<MultiLevelEmitterPart.ComparisonMode> modes = runtimePart.comparisonModes();
-            return slotIndex < modes.size()
-                    ? modes.get(slotIndex)
-                    : MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL;
+            return runtimePart.slotConfigSnapshot().comparisonMode(slotIndex);
         }
 
         public MultiLevelEmitterPart.MatchingMode matchingModeForSlot(int slotIndex) {
@@ -454,6 +618,18 @@ public final class MultiLevelEmitterMenu {
             }
         }
 
+        private void applyHysteresisBandCommitOnServer(HysteresisBandPayload payload) {
+            if (runtimePart != null && payload != null) {
+                runtimePart.updateHysteresisBand(payload.slotIndex(), payload.rawBand());
+            }
+        }
+
+        private void applyMinimumDwellCommitOnServer(Integer ticks) {
+            if (runtimePart != null && ticks != null) {
+                runtimePart.updateMinimumDwellTicks(ticks);
+            }
+        }
+
         private void applyComparisonToggleOnServer(int slotIndex) {
             if (runtimePart != null) {
                 runtimePart.cycleComparisonModeFromUi(slotIndex);
@@ -472,6 +648,14 @@ public final class MultiLevelEmitterMenu {
             }
         }
 
+        private void requestFullSyncOnServer(Integer clientVersion) {
+            if (runtimePart == null || clientVersion == null || fullSyncRequested) {
+                return;
+            }
+            fullSyncRequested = true;
+            runtimePart.requestFullStreamSync(clientVersion);
+        }
+
         private void applyExpressionOnServer(ExpressionPayload payload) {
             if (runtimePart == null || payload == null) {
                 return;
@@ -486,13 +670,19 @@ public final class MultiLevelEmitterMenu {
             if (runtimePart == null) {
                 return false;
             }
-            return !MultiLevelEmitterExpressionCompiler.compile(
+            return !MultiLevelEmitterExpressionCache.compile(
                     rawExpression,
                     runtimePart.configuredItemCount(),
                     runtimePart::hasConfiguredItem
             ).isInvalid();
         }
 
+        private static int observedSyncTicks() {
+            return ChexsonsaeutilsCompatibilityConfig.SPEC.isLoaded()
+                    ? ChexsonsaeutilsCompatibilityConfig.MULTI_LEVEL_EMITTER_OBSERVED_SYNC_TICKS.get()
+                    : ChexsonsaeutilsCompatibilityConfig.MULTI_LEVEL_EMITTER_OBSERVED_SYNC_TICKS.getDefault();
+        }
+
         private boolean isLiveClientMenu() {
             try {
                 return runtimePart != null && getPlayerInventory() != null && isClientSide();
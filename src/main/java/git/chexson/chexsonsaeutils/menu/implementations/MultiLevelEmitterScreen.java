@@ -6,18 +6,19 @@ import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterRuntimePart
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompileResult;
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompiler;
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionFormatter;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionLexer;
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionOwnership;
 import net.minecraft.network.chat.Component;
 import net.minecraft.world.inventory.MenuType;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.IntPredicate;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Predicate;
 
 public final class MultiLevelEmitterScreen {
 
@@ -28,8 +29,7 @@ public final class MultiLevelEmitterScreen {
             "gui.chexsonsaeutils.multi_level_emitter.crafting_lock_helper";
     private static final String CRAFTING_LOCK_TOOLTIP_KEY =
             "gui.chexsonsaeutils.multi_level_emitter.crafting_lock_tooltip";
-    private static final Pattern OPERATOR_PATTERN = Pattern.compile("(?i)\\b(?:AND|OR)\\b");
-    private static final Pattern SLOT_REFERENCE_PATTERN = Pattern.compile("#\\d+");
+    private static final String[] AMOUNT_SUFFIXES = {"k", "M", "G", "T", "P", "E"};
     private static final AtomicReference<MenuType<MultiLevelEmitterMenu.RuntimeMenu>> menuType = new AtomicReference<>();
     private static final AtomicReference<ThresholdCommitHandler> thresholdCommitHandler =
             new AtomicReference<>(MultiLevelEmitterScreen::commitThresholdToMenu);
@@ -84,6 +84,343 @@ public final class MultiLevelEmitterScreen {
     ) {
     }
 
+    /**
+     * Reusable counterpart of {@link RuntimeScreenState} for an open screen.
+     * <p>
+     * {@link #refresh(MultiLevelEmitterMenu.RuntimeMenu)} only re-reads the menu when its view version moved, and
+     * then reports which slots actually look different, so an idle screen neither allocates nor re-lays widgets.
+     */
+    public static final class RuntimeScreenModel {
+        private final SlotModel[] slots = new SlotModel[MultiLevelEmitterMenu.SLOT_CAPACITY];
+        private final Component craftingLockTooltip = MultiLevelEmitterScreen.craftingLockTooltip();
+        private boolean loaded;
+        private int viewVersion;
+        private int configuredSlots;
+        private int markedSlots;
+        private int visibleSlots;
+        private int totalSlots;
+        private String appliedExpressionText = "";
+        private MultiLevelEmitterExpressionOwnership expressionOwnership = MultiLevelEmitterExpressionOwnership.AUTO;
+        private boolean expressionInvalid;
+        private boolean expressionLocked;
+        private long changedSlots;
+
+        public RuntimeScreenModel() {
+            for (int slot = 0; slot < slots.length; slot++) {
+                slots[slot] = new SlotModel(slot);
+            }
+        }
+
+        /**
+         * Brings the model up to the menu's current view. Returns {@code false}, without touching the model, when the
+         * menu has not changed since the previous call.
+         */
+        public boolean refresh(MultiLevelEmitterMenu.RuntimeMenu menu) {
+            int menuVersion = menu == null ? 0 : menu.viewVersion();
+            if (loaded && menuVersion == viewVersion) {
+                return false;
+            }
+            int previousVisibleSlots = visibleSlots;
+            boolean previousExpressionLocked = expressionLocked;
+            viewVersion = menuVersion;
+            if (menu == null) {
+                configuredSlots = 0;
+                markedSlots = 0;
+                visibleSlots = 0;
+                totalSlots = 0;
+                appliedExpressionText = "";
+                expressionOwnership = MultiLevelEmitterExpressionOwnership.AUTO;
+                expressionInvalid = false;
+            } else {
+                configuredSlots = menu.configuredSlotCount();
+                markedSlots = menu.markedSlotCount();
+                visibleSlots = Math.min(slots.length, menu.visibleSlotCount());
+                totalSlots = menu.totalSlotCapacity();
+                appliedExpressionText = menu.appliedExpressionText();
+                expressionOwnership = menu.expressionOwnership();
+                expressionInvalid = menu.expressionIsInvalid();
+            }
+            expressionLocked = false;
+
+            long changed = 0L;
+            if (visibleSlots > 0) {
+                boolean craftingCardInstalled = menu.hasCraftingCardInstalled();
+                boolean fuzzyCardInstalled = menu.hasFuzzyCardInstalled();
+                for (int slot = 0; slot < visibleSlots; slot++) {
+                    if (slots[slot].update(menu, craftingCardInstalled, fuzzyCardInstalled)) {
+                        changed |= 1L << slot;
+                    }
+                    // Amounts are only drawn, never laid out, so a new reading does not mark the slot changed.
+                    slots[slot].updateObservedAmount(menu.observedAmountForSlot(slot));
+                }
+            }
+            // Every row is laid out against these, so a change re-syncs all of them.
+            if (!loaded || previousVisibleSlots != visibleSlots || previousExpressionLocked != expressionLocked) {
+                changed = -1L;
+            }
+            changedSlots = changed;
+            loaded = true;
+            return true;
+        }
+
+        /**
+         * Slots whose view changed in the last {@link #refresh} that returned {@code true}; all bits when the layout
+         * itself changed.
+         */
+        public long changedSlots() {
+            return changedSlots;
+        }
+
+        public SlotModel slot(int slotIndex) {
+            return slots[slotIndex];
+        }
+
+        public int configuredSlots() {
+            return configuredSlots;
+        }
+
+        public int markedSlots() {
+            return markedSlots;
+        }
+
+        public int visibleSlots() {
+            return visibleSlots;
+        }
+
+        public int totalSlots() {
+            return totalSlots;
+        }
+
+        public String appliedExpressionText() {
+            return appliedExpressionText;
+        }
+
+        public MultiLevelEmitterExpressionOwnership expressionOwnership() {
+            return expressionOwnership;
+        }
+
+        public boolean expressionInvalid() {
+            return expressionInvalid;
+        }
+
+        public boolean expressionLocked() {
+            return expressionLocked;
+        }
+
+        public Component craftingLockTooltip() {
+            return craftingLockTooltip;
+        }
+
+        public RuntimeScreenState toState() {
+            List<SlotView> views = new ArrayList<>(visibleSlots);
+            for (int slot = 0; slot < visibleSlots; slot++) {
+                views.add(slots[slot].toView());
+            }
+            return new RuntimeScreenState(
+                    configuredSlots,
+                    markedSlots,
+                    visibleSlots,
+                    totalSlots,
+                    appliedExpressionText,
+                    expressionOwnership,
+                    expressionInvalid,
+                    expressionLocked,
+                    craftingLockTooltip,
+                    List.copyOf(views)
+            );
+        }
+    }
+
+    public static final class SlotModel {
+        private final int slotIndex;
+        private boolean loaded;
+        private boolean enabled;
+        private boolean configured;
+        private boolean marked;
+        private long threshold;
+        private boolean craftingLocked;
+        private MultiLevelEmitterPart.ComparisonMode comparisonMode;
+        private MultiLevelEmitterPart.MatchingMode matchingMode;
+        private MultiLevelEmitterPart.CraftingMode craftingMode;
+        private boolean showFuzzyControl;
+        private boolean showCraftingControl;
+        private boolean duplicateEmitToCraftTarget;
+        private Component fuzzyTooltip;
+        private Component craftingTooltip;
+        private long observedAmount = -1L;
+        private String observedAmountLabel = "";
+
+        private SlotModel(int slotIndex) {
+            this.slotIndex = slotIndex;
+        }
+
+        private void updateObservedAmount(long amount) {
+            if (amount != observedAmount) {
+                observedAmount = amount;
+                observedAmountLabel = MultiLevelEmitterScreen.observedAmountLabel(amount);
+            }
+        }
+
+        private boolean update(
+                MultiLevelEmitterMenu.RuntimeMenu menu,
+                boolean craftingCardInstalled,
+                boolean fuzzyCardInstalled
+        ) {
+            boolean nextEnabled = menu.isSlotEnabled(slotIndex);
+            boolean nextConfigured = menu.isSlotConfigured(slotIndex);
+            boolean nextMarked = menu.hasMarkedItem(slotIndex);
+            long nextThreshold = menu.thresholdForSlot(slotIndex);
+            MultiLevelEmitterPart.ComparisonMode nextComparison = menu.comparisonModeForSlot(slotIndex);
+            MultiLevelEmitterPart.MatchingMode nextMatching = menu.matchingModeForSlot(slotIndex);
+            MultiLevelEmitterPart.CraftingMode nextCrafting = menu.craftingModeForSlot(slotIndex);
+            boolean nextDuplicate = menu.duplicateEmitToCraftTarget(slotIndex);
+            boolean nextCraftingLocked =
+                    craftingCardInstalled && nextCrafting != MultiLevelEmitterPart.CraftingMode.NONE;
+            if (loaded
+                    && enabled == nextEnabled
+                    && configured == nextConfigured
+                    && marked == nextMarked
+                    && threshold == nextThreshold
+                    && craftingLocked == nextCraftingLocked
+                    && comparisonMode == nextComparison
+                    && matchingMode == nextMatching
+                    && craftingMode == nextCrafting
+                    && showFuzzyControl == fuzzyCardInstalled
+                    && showCraftingControl == craftingCardInstalled
+                    && duplicateEmitToCraftTarget == nextDuplicate) {
+                return false;
+            }
+            if (!loaded || matchingMode != nextMatching) {
+                fuzzyTooltip = MultiLevelEmitterScreen.fuzzyTooltip(nextMatching);
+            }
+            if (!loaded || craftingMode != nextCrafting || marked != nextMarked
+                    || duplicateEmitToCraftTarget != nextDuplicate) {
+                craftingTooltip = MultiLevelEmitterScreen.craftingTooltip(nextCrafting, nextMarked, nextDuplicate);
+            }
+            enabled = nextEnabled;
+            configured = nextConfigured;
+            marked = nextMarked;
+            threshold = nextThreshold;
+            craftingLocked = nextCraftingLocked;
+            comparisonMode = nextComparison;
+            matchingMode = nextMatching;
+            craftingMode = nextCrafting;
+            showFuzzyControl = fuzzyCardInstalled;
+            showCraftingControl = craftingCardInstalled;
+            duplicateEmitToCraftTarget = nextDuplicate;
+            loaded = true;
+            return true;
+        }
+
+        public int slotIndex() {
+            return slotIndex;
+        }
+
+        public boolean enabled() {
+            return enabled;
+        }
+
+        public boolean configured() {
+            return configured;
+        }
+
+        public boolean marked() {
+            return marked;
+        }
+
+        public long threshold() {
+            return threshold;
+        }
+
+        public boolean thresholdLocked() {
+            return craftingLocked;
+        }
+
+        public MultiLevelEmitterPart.ComparisonMode comparisonMode() {
+            return comparisonMode;
+        }
+
+        public boolean comparisonLocked() {
+            return craftingLocked;
+        }
+
+        public MultiLevelEmitterPart.MatchingMode matchingMode() {
+            return matchingMode;
+        }
+
+        public MultiLevelEmitterPart.CraftingMode craftingMode() {
+            return craftingMode;
+        }
+
+        public boolean showFuzzyControl() {
+            return showFuzzyControl;
+        }
+
+        public boolean emphasizeFuzzyMode() {
+            return matchingMode != MultiLevelEmitterPart.MatchingMode.STRICT;
+        }
+
+        public String fuzzyShortLabel() {
+            return MultiLevelEmitterScreen.fuzzyShortLabel(matchingMode);
+        }
+
+        public Component fuzzyTooltip() {
+            return fuzzyTooltip;
+        }
+
+        public boolean showCraftingControl() {
+            return showCraftingControl;
+        }
+
+        public boolean emphasizeCraftingMode() {
+            return craftingLocked;
+        }
+
+        public String craftingShortLabel() {
+            return MultiLevelEmitterScreen.craftingShortLabel(craftingMode);
+        }
+
+        public Component craftingTooltip() {
+            return craftingTooltip;
+        }
+
+        public boolean duplicateEmitToCraftTarget() {
+            return duplicateEmitToCraftTarget;
+        }
+
+        public long observedAmount() {
+            return Math.max(0L, observedAmount);
+        }
+
+        public String observedAmountLabel() {
+            return observedAmountLabel;
+        }
+
+        private SlotView toView() {
+            return new SlotView(
+                    slotIndex,
+                    enabled,
+                    configured,
+                    marked,
+                    threshold,
+                    craftingLocked,
+                    comparisonMode,
+                    craftingLocked,
+                    matchingMode,
+                    craftingMode,
+                    showFuzzyControl,
+                    emphasizeFuzzyMode(),
+                    fuzzyShortLabel(),
+                    fuzzyTooltip,
+                    showCraftingControl,
+                    craftingLocked,
+                    craftingShortLabel(),
+                    craftingTooltip,
+                    duplicateEmitToCraftTarget
+            );
+        }
+    }
+
     public record ThresholdSyncDecision(String fieldValue, boolean preserveLocalDraft) {
     }
 
@@ -157,6 +494,18 @@ public final class MultiLevelEmitterScreen {
         }
     }
 
+    public static void commitHysteresisBand(MultiLevelEmitterMenu.RuntimeMenu menu, int slotIndex, long band) {
+        if (menu != null && menu.isSlotConfigured(slotIndex) && menu.hysteresisBandForSlot(slotIndex) != band) {
+            menu.commitHysteresisBand(slotIndex, band);
+        }
+    }
+
+    public static void commitMinimumDwellTicks(MultiLevelEmitterMenu.RuntimeMenu menu, int ticks) {
+        if (menu != null && menu.minimumDwellTicks() != ticks) {
+            menu.commitMinimumDwellTicks(ticks);
+        }
+    }
+
     public static long normalizeThresholdForCommit(long rawThreshold, long maxValue) {
         return MultiLevelEmitterMenu.sanitizeAndClampThreshold(rawThreshold, maxValue);
     }
@@ -184,6 +533,10 @@ public final class MultiLevelEmitterScreen {
         }
     }
 
+    public static int parseDwellTicksInput(String value, int fallback) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0L, parseThresholdInput(value, fallback)));
+    }
+
     public static String thresholdFieldValue(long threshold) {
         return Long.toString(Math.max(0L, threshold));
     }
@@ -294,13 +647,24 @@ public final class MultiLevelEmitterScreen {
         return MultiLevelEmitterExpressionCompiler.compile(rawText, configuredSlots, markedSlotPredicate);
     }
 
+    public static MultiLevelEmitterExpressionCompileResult validateExpressionDraft(
+            String rawText,
+            List<MultiLevelEmitterExpressionLexer.Token> tokens,
+            int configuredSlots,
+            IntPredicate markedSlotPredicate
+    ) {
+        return MultiLevelEmitterExpressionCompiler.compile(rawText, tokens, configuredSlots, markedSlotPredicate);
+    }
+
     public static String insertOperator(String rawText, int selectionStart, int selectionEnd, String operator) {
         String safeRawText = rawText == null ? "" : rawText;
         String normalizedOperator = normalizeOperator(operator);
         TextRange selection = normalizeSelection(safeRawText, selectionStart, selectionEnd);
         TextRange replacementRange = selection.isEmpty()
-                ? findTokenAt(safeRawText, selection.start(), OPERATOR_PATTERN).orElse(selection)
-                : findCoveredToken(safeRawText, selection, OPERATOR_PATTERN).orElse(selection);
+                ? findTokenAt(safeRawText, selection.start(), MultiLevelEmitterExpressionLexer.TokenKind::isLogical)
+                        .orElse(selection)
+                : findCoveredToken(safeRawText, selection, MultiLevelEmitterExpressionLexer.TokenKind::isLogical)
+                        .orElse(selection);
         return replaceRange(safeRawText, replacementRange.start(), replacementRange.end(), normalizedOperator, true, true);
     }
 
@@ -322,8 +686,8 @@ public final class MultiLevelEmitterScreen {
         String replacement = "#" + Math.max(1, slotNumber);
         TextRange selection = normalizeSelection(safeRawText, selectionStart, selectionEnd);
         TextRange replacementRange = selection.isEmpty()
-                ? findTokenAt(safeRawText, selection.start(), SLOT_REFERENCE_PATTERN).orElse(selection)
-                : findCoveredToken(safeRawText, selection, SLOT_REFERENCE_PATTERN).orElse(selection);
+                ? findTokenAt(safeRawText, selection.start(), MultiLevelEmitterScreen::isSlotReference).orElse(selection)
+                : findCoveredToken(safeRawText, selection, MultiLevelEmitterScreen::isSlotReference).orElse(selection);
         return replaceRange(safeRawText, replacementRange.start(), replacementRange.end(), replacement, false, false);
     }
 
@@ -331,71 +695,18 @@ public final class MultiLevelEmitterScreen {
         return MultiLevelEmitterExpressionFormatter.format(rawText);
     }
 
+    public static String formatDraftExpression(String rawText, int configuredSlots) {
+        return MultiLevelEmitterExpressionFormatter.simplify(rawText, configuredSlots);
+    }
+
     public static boolean canApplyExpression(MultiLevelEmitterExpressionCompileResult compileResult) {
         return compileResult != null && !compileResult.isInvalid();
     }
 
     public static RuntimeScreenState snapshotState(MultiLevelEmitterMenu.RuntimeMenu menu) {
-        if (menu == null) {
-            return new RuntimeScreenState(
-                    0,
-                    0,
-                    0,
-                    0,
-                    "",
-                    MultiLevelEmitterExpressionOwnership.AUTO,
-                    false,
-                    false,
-                    Component.empty(),
-                    List.of()
-            );
-        }
-        int configuredSlots = menu.configuredSlotCount();
-        int markedSlots = menu.markedSlotCount();
-        int visibleSlots = menu.visibleSlotCount();
-        int totalSlots = menu.totalSlotCapacity();
-        boolean craftingCardInstalled = menu.hasCraftingCardInstalled();
-        Component craftingLockTooltip = craftingLockTooltip();
-        List<SlotView> slots = new ArrayList<>(visibleSlots);
-        for (int slotIndex = 0; slotIndex < visibleSlots; slotIndex++) {
-            MultiLevelEmitterPart.MatchingMode matchingMode = menu.matchingModeForSlot(slotIndex);
-            boolean marked = menu.hasMarkedItem(slotIndex);
-            MultiLevelEmitterPart.CraftingMode craftingMode = menu.craftingModeForSlot(slotIndex);
-            boolean duplicateEmitToCraftTarget = menu.duplicateEmitToCraftTarget(slotIndex);
-            slots.add(new SlotView(
-                    slotIndex,
-                    menu.isSlotEnabled(slotIndex),
-                    menu.isSlotConfigured(slotIndex),
-                    marked,
-                    menu.thresholdForSlot(slotIndex),
-                    craftingCardInstalled && craftingMode != MultiLevelEmitterPart.CraftingMode.NONE,
-                    menu.comparisonModeForSlot(slotIndex),
-                    craftingCardInstalled && craftingMode != MultiLevelEmitterPart.CraftingMode.NONE,
-                    matchingMode,
-                    craftingMode,
-                    menu.hasFuzzyCardInstalled(),
-                    matchingMode != MultiLevelEmitterPart.MatchingMode.STRICT,
-                    fuzzyShortLabel(matchingMode),
-                    fuzzyTooltip(matchingMode),
-                    craftingCardInstalled,
-                    craftingCardInstalled && craftingMode != MultiLevelEmitterPart.CraftingMode.NONE,
-                    craftingShortLabel(craftingMode),
-                    craftingTooltip(craftingMode, marked, duplicateEmitToCraftTarget),
-                    duplicateEmitToCraftTarget
-            ));
-        }
-        return new RuntimeScreenState(
-                configuredSlots,
-                markedSlots,
-                visibleSlots,
-                totalSlots,
-                menu.appliedExpressionText(),
-                menu.expressionOwnership(),
-                menu.expressionIsInvalid(),
-                false,
-                craftingLockTooltip,
-                List.copyOf(slots)
-        );
+        RuntimeScreenModel model = new RuntimeScreenModel();
+        model.refresh(menu);
+        return model.toState();
     }
 
     private static void commitThresholdToMenu(
@@ -407,6 +718,29 @@ public final class MultiLevelEmitterScreen {
         menu.commitThreshold(slotIndex, threshold, maxValue);
     }
 
+    /**
+     * Stock readout short enough to sit on a slot, with the same k / M / G suffixes the expression literals use.
+     */
+    public static String observedAmountLabel(long amount) {
+        long safeAmount = Math.max(0L, amount);
+        if (safeAmount < 1_000L) {
+            return Long.toString(safeAmount);
+        }
+        int unit = 0;
+        long scaled = safeAmount / 1_000L;
+        long remainder = safeAmount % 1_000L;
+        while (scaled >= 1_000L && unit < AMOUNT_SUFFIXES.length - 1) {
+            remainder = scaled % 1_000L;
+            scaled /= 1_000L;
+            unit++;
+        }
+        if (scaled < 10L) {
+            // One truncated decimal below ten, so 1999 reads 1.9k rather than rounding up past the real stock.
+            return String.format(Locale.ROOT, "%d.%d%s", scaled, remainder / 100L, AMOUNT_SUFFIXES[unit]);
+        }
+        return scaled + AMOUNT_SUFFIXES[unit];
+    }
+
     public static String configuredOverTotalLabel(int configured, int total) {
         int safeConfigured = Math.max(0, configured);
         int safeTotal = Math.max(0, total);
@@ -500,21 +834,31 @@ public final class MultiLevelEmitterScreen {
         return !suffix.isEmpty() && !Character.isWhitespace(suffix.charAt(0)) && suffix.charAt(0) != ')';
     }
 
-    private static java.util.Optional<TextRange> findTokenAt(String rawText, int caret, Pattern pattern) {
-        Matcher matcher = pattern.matcher(rawText);
-        while (matcher.find()) {
-            if (caret >= matcher.start() && caret <= matcher.end()) {
-                return java.util.Optional.of(new TextRange(matcher.start(), matcher.end()));
+    private static boolean isSlotReference(MultiLevelEmitterExpressionLexer.TokenKind kind) {
+        return kind == MultiLevelEmitterExpressionLexer.TokenKind.SLOT_REFERENCE;
+    }
+
+    private static java.util.Optional<TextRange> findTokenAt(
+            String rawText,
+            int caret,
+            Predicate<MultiLevelEmitterExpressionLexer.TokenKind> kinds
+    ) {
+        for (MultiLevelEmitterExpressionLexer.Token token : MultiLevelEmitterExpressionLexer.lex(rawText)) {
+            if (kinds.test(token.kind()) && caret >= token.start() && caret <= token.end()) {
+                return java.util.Optional.of(new TextRange(token.start(), token.end()));
             }
         }
         return java.util.Optional.empty();
     }
 
-    private static java.util.Optional<TextRange> findCoveredToken(String rawText, TextRange selection, Pattern pattern) {
-        Matcher matcher = pattern.matcher(rawText);
-        while (matcher.find()) {
-            if (selection.start() <= matcher.start() && selection.end() >= matcher.end()) {
-                return java.util.Optional.of(new TextRange(matcher.start(), matcher.end()));
+    private static java.util.Optional<TextRange> findCoveredToken(
+            String rawText,
+            TextRange selection,
+            Predicate<MultiLevelEmitterExpressionLexer.TokenKind> kinds
+    ) {
+        for (MultiLevelEmitterExpressionLexer.Token token : MultiLevelEmitterExpressionLexer.lex(rawText)) {
+            if (kinds.test(token.kind()) && selection.start() <= token.start() && selection.end() >= token.end()) {
+                return java.util.Optional.of(new TextRange(token.start(), token.end()));
             }
         }
         return java.util.Optional.empty();
@@ -38,6 +38,7 @@ public final class ChexsonsaeutilsMixinPlugin implements IMixinConfigPlugin {
             "git.chexson.chexsonsaeutils.mixin.ae2.client.gui.CraftingStatusTableRendererContinuationMixin",
             "git.chexson.chexsonsaeutils.mixin.ae2.crafting.CraftingCpuLogicAccessor",
             "git.chexson.chexsonsaeutils.mixin.ae2.crafting.ExecutingCraftingJobAccessor",
+            "git.chexson.chexsonsaeutils.mixin.ae2.crafting.StorageServiceAccessor",
             "git.chexson.chexsonsaeutils.mixin.ae2.menu.CraftingCPUMenuAccessor",
             "git.chexson.chexsonsaeutils.mixin.ae2.client.gui.AbstractTableRendererAccessor"
     );
@@ -13,13 +13,17 @@ import appeng.crafting.execution.CraftingSubmitResult;
 import appeng.me.cluster.implementations.CraftingCPUCluster;
 import appeng.me.service.CraftingService;
 import git.chexson.chexsonsaeutils.crafting.CraftingContinuationMode;
+import git.chexson.chexsonsaeutils.crafting.status.CraftingContinuationAvailabilityWatcher;
+import git.chexson.chexsonsaeutils.crafting.status.CraftingContinuationRefillQueue;
 import git.chexson.chexsonsaeutils.crafting.status.CraftingContinuationStatusService;
+import git.chexson.chexsonsaeutils.crafting.status.CraftingContinuationWaitingIndex;
 import git.chexson.chexsonsaeutils.crafting.submit.CraftingContinuationPartialSubmit;
 import git.chexson.chexsonsaeutils.crafting.submit.CraftingContinuationSubmitBridge;
 import org.apache.commons.lang3.mutable.MutableObject;
 import org.jetbrains.annotations.Nullable;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
@@ -28,13 +32,26 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 import java.util.Set;
 
 @Mixin(value = CraftingService.class, remap = false)
-public abstract class CraftingServiceContinuationMixin {
+public abstract class CraftingServiceContinuationMixin
+        implements CraftingContinuationStatusService.WaitingInputsHost {
     @Shadow(remap = false)
     private IGrid grid;
 
     @Shadow(remap = false)
     private Set<CraftingCPUCluster> craftingCPUClusters;
 
+    @Unique
+    private final CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> chexsonsaeutils$waitingIndex =
+            new CraftingContinuationWaitingIndex<>();
+
+    @Unique
+    private final CraftingContinuationAvailabilityWatcher chexsonsaeutils$availabilityWatcher =
+            new CraftingContinuationAvailabilityWatcher();
+
+    @Unique
+    private final CraftingContinuationRefillQueue<AEKey> chexsonsaeutils$refillQueue =
+            new CraftingContinuationRefillQueue<>();
+
     @Shadow(remap = false)
     @Nullable
     protected abstract CraftingCPUCluster findSuitableCraftingCPU(
@@ -83,6 +100,21 @@ public abstract class CraftingServiceContinuationMixin {
         ));
     }
 
+    @Override
+    public CraftingContinuationWaitingIndex<AEKey, CraftingCPUCluster> chexsonsaeutils$waitingIndex() {
+        return chexsonsaeutils$waitingIndex;
+    }
+
+    @Override
+    public CraftingContinuationAvailabilityWatcher chexsonsaeutils$availabilityWatcher() {
+        return chexsonsaeutils$availabilityWatcher;
+    }
+
+    @Override
+    public CraftingContinuationRefillQueue<AEKey> chexsonsaeutils$refillQueue() {
+        return chexsonsaeutils$refillQueue;
+    }
+
     @Inject(method = "insertIntoCpus", at = @At("TAIL"), remap = false)
     private void chexsonsaeutils$reconcileWaitingInputsOnInsert(
             AEKey what,
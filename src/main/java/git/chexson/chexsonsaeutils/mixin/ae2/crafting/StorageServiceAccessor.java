@@ -0,0 +1,14 @@
+package git.chexson.chexsonsaeutils.mixin.ae2.crafting;
+
+import appeng.api.networking.storage.IStorageWatcherNode;
+import appeng.me.helpers.InterestManager;
+import appeng.me.helpers.StackWatcher;
+import appeng.me.service.StorageService;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(value = StorageService.class, remap = false)
+public interface StorageServiceAccessor {
+    @Accessor(value = "interestManager", remap = false)
+    InterestManager<StackWatcher<IStorageWatcherNode>> chexsonsaeutils$getInterestManager();
+}
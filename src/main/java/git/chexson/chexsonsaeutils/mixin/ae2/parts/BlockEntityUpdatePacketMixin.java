@@ -0,0 +1,23 @@
+package git.chexson.chexsonsaeutils.mixin.ae2.parts;
+
+import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterStreamSync;
+import net.minecraft.server.level.ChunkHolder;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+// getUpdateTag serves chunk data, block update packets and anyone else calling getUpdatePacket. Only the packet the
+// chunk holder actually sends to its tracking players may carry emitter deltas and move their broadcast base.
+@Mixin(ChunkHolder.class)
+public abstract class BlockEntityUpdatePacketMixin {
+    @Inject(method = "broadcastBlockEntity", at = @At("HEAD"))
+    private void chexsonsaeutils$beginUpdatePacket(CallbackInfo ci) {
+        MultiLevelEmitterStreamSync.beginUpdatePacket();
+    }
+
+    @Inject(method = "broadcastBlockEntity", at = @At("RETURN"))
+    private void chexsonsaeutils$endUpdatePacket(CallbackInfo ci) {
+        MultiLevelEmitterStreamSync.endUpdatePacket();
+    }
+}
@@ -0,0 +1,33 @@
+package git.chexson.chexsonsaeutils.mixin.ae2.parts;
+
+import appeng.api.networking.IGrid;
+import appeng.me.Grid;
+import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterUpdateScheduler;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(value = Grid.class, remap = false)
+public abstract class GridEmitterFlushMixin implements MultiLevelEmitterUpdateScheduler.GridHost {
+    @Unique
+    private final MultiLevelEmitterUpdateScheduler chexsonsaeutils$emitterUpdates =
+            new MultiLevelEmitterUpdateScheduler();
+
+    @Inject(method = "onServerEndTick", at = @At("HEAD"), remap = false)
+    private void chexsonsaeutils$beginMultiLevelEmitterTick(CallbackInfo ci) {
+        MultiLevelEmitterUpdateScheduler.beginTick((IGrid) (Object) this);
+    }
+
+    // Storage watchers are notified from the grid services' end-tick pass, so flushing afterwards sees every change.
+    @Inject(method = "onServerEndTick", at = @At("TAIL"), remap = false)
+    private void chexsonsaeutils$flushMultiLevelEmitters(CallbackInfo ci) {
+        MultiLevelEmitterUpdateScheduler.flush((IGrid) (Object) this);
+    }
+
+    @Override
+    public MultiLevelEmitterUpdateScheduler chexsonsaeutils$emitterUpdates() {
+        return chexsonsaeutils$emitterUpdates;
+    }
+}
@@ -0,0 +1,28 @@
+package git.chexson.chexsonsaeutils.mixin.ae2.parts;
+
+import appeng.api.stacks.AEKey;
+import appeng.parts.automation.StorageLevelEmitterPart;
+import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterRuntimePart;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+// StorageLevelEmitterPart keeps its IStorageWatcherNode as the first anonymous class, so the changed key
+// is only visible here.
+@Mixin(targets = "appeng.parts.automation.StorageLevelEmitterPart$1", remap = false)
+public abstract class StorageLevelEmitterWatcherNodeMixin {
+    @Shadow(remap = false)
+    @Final
+    StorageLevelEmitterPart this$0;
+
+    @Inject(method = "onStackChange", at = @At("HEAD"), cancellable = true, remap = false)
+    private void chexsonsaeutils$routeStackChangeToRuntimePart(AEKey what, long amount, CallbackInfo ci) {
+        if (this$0 instanceof MultiLevelEmitterRuntimePart runtimePart) {
+            runtimePart.onStorageStackChange(what, amount);
+            ci.cancel();
+        }
+    }
+}
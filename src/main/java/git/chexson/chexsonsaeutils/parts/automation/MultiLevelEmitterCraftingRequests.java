@@ -0,0 +1,65 @@
+package git.chexson.chexsonsaeutils.parts.automation;
+
+import appeng.api.networking.IGrid;
+import appeng.api.networking.crafting.ICraftingService;
+import appeng.api.stacks.AEKey;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Grid-wide answers to {@link ICraftingService#isRequesting(AEKey)}, shared by every emitter on the grid.
+ * <p>
+ * The crafting service walks every CPU for each lookup, while its requests only move during the grid's
+ * end-of-tick pass. Answers are therefore kept until the grid starts its next pass, and again once that pass is
+ * done, so crafting watcher callbacks and the scheduled flush both see the state the crafting service just left.
+ * The snapshot refers to the crafting service and through it to the grid, so it is kept by the grid's
+ * {@link MultiLevelEmitterUpdateScheduler} rather than in any static map.
+ */
+public final class MultiLevelEmitterCraftingRequests {
+    private final ICraftingService craftingService;
+    private final Map<AEKey, Boolean> requesting = new HashMap<>();
+
+    private MultiLevelEmitterCraftingRequests(@Nullable ICraftingService craftingService) {
+        this.craftingService = craftingService;
+    }
+
+    @Nullable
+    public static MultiLevelEmitterCraftingRequests of(@Nullable IGrid grid) {
+        if (grid == null) {
+            return null;
+        }
+        if (!(grid instanceof MultiLevelEmitterUpdateScheduler.GridHost host)) {
+            // Nothing would invalidate a snapshot for this grid, so answers are only shared by one evaluation.
+            return new MultiLevelEmitterCraftingRequests(grid.getCraftingService());
+        }
+        MultiLevelEmitterUpdateScheduler scheduler = host.chexsonsaeutils$emitterUpdates();
+        if (scheduler.craftingRequests == null) {
+            scheduler.craftingRequests = new MultiLevelEmitterCraftingRequests(grid.getCraftingService());
+        }
+        return scheduler.craftingRequests;
+    }
+
+    public static void invalidate(@Nullable IGrid grid) {
+        if (!(grid instanceof MultiLevelEmitterUpdateScheduler.GridHost host)) {
+            return;
+        }
+        MultiLevelEmitterCraftingRequests requests = host.chexsonsaeutils$emitterUpdates().craftingRequests;
+        if (requests != null && !requests.requesting.isEmpty()) {
+            requests.requesting.clear();
+        }
+    }
+
+    public boolean isRequesting(@Nullable AEKey key) {
+        if (craftingService == null || key == null) {
+            return false;
+        }
+        Boolean cached = requesting.get(key);
+        if (cached == null) {
+            cached = craftingService.isRequesting(key);
+            requesting.put(key, cached);
+        }
+        return cached;
+    }
+}
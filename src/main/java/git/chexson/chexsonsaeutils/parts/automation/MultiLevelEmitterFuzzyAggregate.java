@@ -0,0 +1,78 @@
+package git.chexson.chexsonsaeutils.parts.automation;
+
+import appeng.api.config.FuzzyMode;
+import appeng.api.stacks.AEKey;
+import appeng.api.stacks.KeyCounter;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Running fuzzy total for one emitter slot, kept in step with storage watcher notifications.
+ */
+final class MultiLevelEmitterFuzzyAggregate {
+    private final AEKey filter;
+    private final FuzzyMode fuzzyMode;
+    private final Map<AEKey, Long> memberAmounts = new HashMap<>();
+    // Same primary key but outside the fuzzy bucket; remembered so they never trigger another rescan.
+    private final Set<AEKey> nonMembers = new HashSet<>();
+    private long total;
+    private boolean synced;
+
+    MultiLevelEmitterFuzzyAggregate(AEKey filter, FuzzyMode fuzzyMode) {
+        this.filter = filter;
+        this.fuzzyMode = fuzzyMode;
+    }
+
+    void invalidate() {
+        synced = false;
+    }
+
+    void rescan(KeyCounter inventory) {
+        memberAmounts.clear();
+        nonMembers.clear();
+        total = 0L;
+        synced = inventory != null;
+        if (inventory == null) {
+            return;
+        }
+        for (var entry : inventory.findFuzzy(filter, fuzzyMode)) {
+            memberAmounts.put(entry.getKey(), entry.getLongValue());
+            total += entry.getLongValue();
+        }
+    }
+
+    /**
+     * @param amount the new stored amount of {@code what}, as reported by the storage watcher
+     */
+    void applyChange(AEKey what, long amount, KeyCounter inventory) {
+        if (!synced) {
+            // Rescanned on the next read anyway.
+            return;
+        }
+        Long previous = memberAmounts.get(what);
+        if (previous != null) {
+            memberAmounts.put(what, amount);
+            total += amount - previous;
+            return;
+        }
+        if (nonMembers.contains(what)) {
+            return;
+        }
+
+        // First time this variant shows up: only findFuzzy knows whether it belongs to the bucket.
+        rescan(inventory);
+        if (amount > 0L && !memberAmounts.containsKey(what)) {
+            nonMembers.add(what);
+        }
+    }
+
+    long total(KeyCounter inventory) {
+        if (!synced) {
+            rescan(inventory);
+        }
+        return total;
+    }
+}
@@ -260,6 +260,36 @@ public final class MultiLevelEmitterPart {
         };
     }
 
+    /**
+     * Like {@link #evaluateComparison}, except that a slot already on stays on until the amount is more than
+     * {@code hysteresisBand} past the threshold. The band moves the off threshold away from the on threshold:
+     * below it for {@code >=}, above it for {@code <}, and around it for {@code ==} and {@code !=}.
+     */
+    public static boolean evaluateComparisonWithHysteresis(
+            long actual,
+            long threshold,
+            ComparisonMode mode,
+            long hysteresisBand,
+            boolean currentlyOn
+    ) {
+        if (hysteresisBand <= 0L) {
+            return evaluateComparison(actual, threshold, mode);
+        }
+        ComparisonMode effectiveMode = mode == null ? ComparisonMode.GREATER_OR_EQUAL : mode;
+        long distance = Math.abs(actual - threshold);
+        return switch (effectiveMode) {
+            case GREATER_OR_EQUAL -> currentlyOn ? actual >= threshold - hysteresisBand : actual >= threshold;
+            case LESS_THAN -> currentlyOn ? actual < saturatedAdd(threshold, hysteresisBand) : actual < threshold;
+            case EQUAL -> currentlyOn ? distance <= hysteresisBand : distance == 0L;
+            case NOT_EQUAL -> currentlyOn ? distance != 0L : distance > hysteresisBand;
+        };
+    }
+
+    private static long saturatedAdd(long left, long right) {
+        long sum = left + right;
+        return ((left ^ sum) & (right ^ sum)) < 0L ? Long.MAX_VALUE : sum;
+    }
+
     public static boolean evaluateFinalResult(List<Boolean> slotResults, List<LogicRelation> relations) {
         return evaluateFinalResultWithParticipation(asParticipatingSlots(slotResults), relations).result();
     }
@@ -414,6 +444,10 @@ public final class MultiLevelEmitterPart {
         return persistedThreshold <= 0L ? 1L : persistedThreshold;
     }
 
+    public static long sanitizeHysteresisBand(long persistedBand) {
+        return Math.max(0L, persistedBand);
+    }
+
     public static void writeThresholdsToNbt(Map<Integer, Long> thresholds, CompoundTag target, String key) {
         CompoundTag thresholdTag = new CompoundTag();
         if (thresholds != null) {
@@ -441,6 +475,40 @@ public final class MultiLevelEmitterPart {
         return thresholds;
     }
 
+    // Only slots with a band are written, so emitters without hysteresis keep their old NBT shape.
+    public static void writeHysteresisBandsToNbt(Map<Integer, Long> bands, CompoundTag target, String key) {
+        CompoundTag bandTag = new CompoundTag();
+        if (bands != null) {
+            for (Map.Entry<Integer, Long> entry : bands.entrySet()) {
+                long band = sanitizeHysteresisBand(entry.getValue());
+                if (band > 0L) {
+                    bandTag.putLong(String.valueOf(entry.getKey()), band);
+                }
+            }
+        }
+        if (bandTag.isEmpty()) {
+            target.remove(key);
+        } else {
+            target.put(key, bandTag);
+        }
+    }
+
+    public static Map<Integer, Long> readHysteresisBandsFromNbt(CompoundTag source, String key) {
+        Map<Integer, Long> bands = new LinkedHashMap<>();
+        if (source == null || key == null || !source.contains(key, Tag.TAG_COMPOUND)) {
+            return bands;
+        }
+        CompoundTag bandTag = source.getCompound(key);
+        for (String rawKey : bandTag.getAllKeys()) {
+            try {
+                bands.put(Integer.parseInt(rawKey), sanitizeHysteresisBand(bandTag.getLong(rawKey)));
+            } catch (NumberFormatException ignored) {
+                // Ignore invalid keys.
+            }
+        }
+        return bands;
+    }
+
     public static List<SlotEvaluation> asParticipatingSlots(List<Boolean> slotResults) {
         if (slotResults == null || slotResults.isEmpty()) {
             return List.of();
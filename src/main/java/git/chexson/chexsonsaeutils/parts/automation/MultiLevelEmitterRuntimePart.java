@@ -5,35 +5,39 @@ import appeng.api.config.RedstoneMode;
 import appeng.api.config.Settings;
 import appeng.api.networking.IGrid;
 import appeng.api.networking.IStackWatcher;
-import appeng.api.networking.crafting.ICraftingService;
 import appeng.api.networking.crafting.ICraftingProvider;
 import appeng.api.parts.IPartItem;
 import appeng.api.stacks.AEKey;
+import appeng.api.stacks.GenericStack;
 import appeng.api.stacks.KeyCounter;
 import appeng.core.definitions.AEItems;
 import appeng.parts.automation.StorageLevelEmitterPart;
 import appeng.util.ConfigInventory;
 import git.chexson.chexsonsaeutils.menu.implementations.MultiLevelEmitterMenu;
+import git.chexson.chexsonsaeutils.mixin.ae2.parts.StorageLevelEmitterPartAccessor;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCache;
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompileResult;
-import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompiler;
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionFormatter;
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionOwnership;
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionPlan;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionProgram;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.InteractionHand;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.phys.Vec3;
+import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -43,6 +47,8 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
     private static final String NBT_CONFIG = "config";
     static final String NBT_CONFIGURED_ITEM_COUNT = "configured_item_count";
     static final String NBT_REPORTING_VALUES = "reportingValues";
+    static final String NBT_HYSTERESIS_VALUES = "hysteresis_values";
+    static final String NBT_MINIMUM_DWELL_TICKS = "minimum_dwell_ticks";
     static final String NBT_COMPARISON_MODES = "comparison_modes";
     static final String NBT_LOGIC_RELATIONS = "logic_relations";
     static final String NBT_MATCHING_MODES = "matching_modes";
@@ -50,23 +56,58 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
     static final String NBT_EXPRESSION_TEXT = "expression_text";
     static final String NBT_EXPRESSION_OWNERSHIP = "expression_ownership";
     public static final int DEFAULT_VISIBLE_SLOT_COUNT = 1;
-    private static final Field STORAGE_WATCHER_FIELD = resolveField("storageWatcher");
-    private static final Field CRAFTING_WATCHER_FIELD = resolveField("craftingWatcher");
     private static final ThreadLocal<MultiLevelEmitterRuntimePart> PUBLISHED_MENU_RUNTIME = new ThreadLocal<>();
+    private static final int FUZZY_RESYNC_INTERVAL = 4096;
 
     private ConfigInventory configInventory;
     private int configuredItemCount = DEFAULT_VISIBLE_SLOT_COUNT;
-    private Map<Integer, Long> thresholds = new LinkedHashMap<>();
-    private List<MultiLevelEmitterPart.ComparisonMode> comparisonModes = List.of();
-    private List<MultiLevelEmitterPart.LogicRelation> relations = List.of();
-    private List<MultiLevelEmitterPart.MatchingMode> requestedMatchingModes = List.of();
-    private List<MultiLevelEmitterPart.MatchingMode> matchingModes = List.of();
-    private List<MultiLevelEmitterPart.CraftingMode> requestedCraftingModes = List.of();
-    private List<MultiLevelEmitterPart.CraftingMode> craftingModes = List.of();
+    private MultiLevelEmitterSlotConfig slotConfig;
     private String appliedExpressionText = "";
     private MultiLevelEmitterExpressionOwnership expressionOwnership = MultiLevelEmitterExpressionOwnership.AUTO;
     private MultiLevelEmitterExpressionCompileResult expressionCompileResult;
     private MultiLevelEmitterExpressionPlan compiledExpressionPlan;
+    // Slot results are kept between updates so watcher deltas only re-read the slots mapped to the changed key.
+    private long participatingSlotMask;
+    private long slotResultMask;
+    private long knownSlotMask;
+    private long fuzzySlotMask;
+    private long craftingSlotMask;
+    private boolean slotMasksValid;
+    // Whether each slot with a hysteresis band was last on; that decides which of its thresholds applies next.
+    private long hysteresisOnMask;
+    private IGrid slotMaskGrid;
+    private Map<AEKey, Long> strictSlotsByKey;
+    private Map<Object, Long> fuzzySlotsByPrimaryKey;
+    private MultiLevelEmitterFuzzyAggregate[] fuzzyAggregates;
+    // Crafting slots by key, rebuilt on the first read after a config or crafting-mode edit. AE2 asks for the
+    // emitable set on every provider refresh and the screen asks for duplicates on every frame, so both are
+    // answered from here instead of walking the slots.
+    private Map<AEKey, Long> emitToCraftSlotsByKey;
+    private long duplicateEmitToCraftSlots;
+    private Set<AEKey> emitToCraftKeySet;
+    private List<AEKey> emitWhileCraftingKeyList;
+    private int fuzzyChangesSinceResync;
+    private MultiLevelEmitterUpdateScheduler.TickReads scheduledReads;
+    private MultiLevelEmitterWatchedKeys watchedStorageKeys;
+    private MultiLevelEmitterWatchedKeys watchedCraftingKeys;
+    private MultiLevelEmitterExpressionProgram.SlotResultReader lazySlotReader;
+    private MultiLevelEmitterExpressionProgram.SlotAmountReader lazyAmountReader;
+    private KeyCounter lazyInventory;
+    private MultiLevelEmitterCraftingRequests lazyCraftingRequests;
+    // Server side: versions bump on every synced edit; the dirty slots are relative to the last update packet.
+    private int streamVersion;
+    private int broadcastStreamVersion;
+    private long streamDirtySlots;
+    private boolean streamFullSyncPending;
+    // Client side: the server version this copy was last brought up to.
+    private int receivedStreamVersion;
+    private boolean streamSynced;
+    // Both sides: bumped with every edit a screen would show, whether made locally or received from the server.
+    private int viewVersion;
+    private int minimumDwellTicks;
+    private boolean dwellOutputTracked;
+    private boolean dwellOutput;
+    private long dwellOutputSinceTick;
     private RedstoneMode redstoneMode = RedstoneMode.HIGH_SIGNAL;
     private boolean suppressConfigInventoryCallback;
     private boolean cardCapabilityStateInitialized;
@@ -112,20 +153,90 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
     @Override
     public void writeToStream(FriendlyByteBuf data) {
         super.writeToStream(data);
-        CompoundTag snapshot = new CompoundTag();
-        writeRuntimeSnapshot(snapshot);
-        data.writeNbt(snapshot);
+        // Length-prefixed so a reader that rejects the body can still skip to the next part.
+        int lengthIndex = data.writerIndex();
+        data.writeInt(0);
+        data.writeByte(MultiLevelEmitterStreamSync.FORMAT);
+        data.writeVarInt(streamVersion);
+        boolean updatePacket = MultiLevelEmitterStreamSync.isWritingUpdatePacket();
+        if (!updatePacket || streamFullSyncPending
+                || (streamDirtySlots == 0L && streamVersion != broadcastStreamVersion)) {
+            data.writeByte(MultiLevelEmitterStreamSync.KIND_FULL);
+            writeFullStreamState(data);
+        } else if (streamDirtySlots != 0L) {
+            data.writeByte(MultiLevelEmitterStreamSync.KIND_DELTA);
+            data.writeVarInt(broadcastStreamVersion);
+            MultiLevelEmitterStreamSync.writeSlotRanges(data, slotConfig(), streamDirtySlots);
+        } else {
+            data.writeByte(MultiLevelEmitterStreamSync.KIND_UNCHANGED);
+        }
+        if (updatePacket) {
+            broadcastStreamVersion = streamVersion;
+            streamDirtySlots = 0L;
+            streamFullSyncPending = false;
+        }
+        data.setInt(lengthIndex, data.writerIndex() - lengthIndex - Integer.BYTES);
     }
 
     @Override
     public boolean readFromStream(FriendlyByteBuf data) {
         boolean changed = super.readFromStream(data);
-        CompoundTag snapshot = data.readNbt();
-        if (snapshot != null) {
-            readRuntimeSnapshot(snapshot, false);
-            return true;
+        int length = data.readInt();
+        int end = data.readerIndex() + length;
+        try {
+            if (length <= 0 || data.readByte() != MultiLevelEmitterStreamSync.FORMAT) {
+                streamSynced = false;
+                return changed;
+            }
+            int version = data.readVarInt();
+            int kind = data.readByte();
+            if (kind == MultiLevelEmitterStreamSync.KIND_FULL) {
+                readFullStreamState(data);
+                receivedStreamVersion = version;
+                streamSynced = true;
+                return true;
+            }
+            if (!streamSynced) {
+                return changed;
+            }
+            if (kind == MultiLevelEmitterStreamSync.KIND_DELTA) {
+                int baseVersion = data.readVarInt();
+                if (receivedStreamVersion == baseVersion) {
+                    readStreamSlotRanges(data);
+                    receivedStreamVersion = version;
+                    return true;
+                }
+            }
+            // Chunk data may already have carried this version; anything else means an update was missed.
+            streamSynced = receivedStreamVersion == version;
+            return changed;
+        } finally {
+            data.readerIndex(end);
         }
-        return changed;
+    }
+
+    public boolean isStreamSynced() {
+        return streamSynced;
+    }
+
+    public int viewVersion() {
+        return viewVersion;
+    }
+
+    public int receivedStreamVersion() {
+        return receivedStreamVersion;
+    }
+
+    /**
+     * Queues the full state for the next update packet when a client reports an older version than this one holds.
+     */
+    public boolean requestFullStreamSync(int clientVersion) {
+        if (clientVersion == streamVersion) {
+            return false;
+        }
+        markStreamFullSync();
+        markRuntimeStateDirty();
+        return true;
     }
 
     public void applyConfiguration(
@@ -144,12 +255,18 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
     }
 
     public void updateConfiguredItemCountFromUi(int configuredItemCount) {
-        applyConfiguration(configuredItemCount, thresholds, comparisonModes, relations);
+        invalidateWatchIndex();
+        int previousSlotCount = this.configuredItemCount;
+        this.configuredItemCount = normalizeConfiguredItemCount(configuredItemCount);
+        editableSlotConfig().setSlotCount(this.configuredItemCount);
+        markStreamFullSync();
+        finishConfigurationState(previousSlotCount, appliedExpressionText, expressionOwnership, true);
     }
 
     public void applyExpressionFromUi(String rawExpression) {
         expressionOwnership = MultiLevelEmitterExpressionOwnership.CUSTOM;
         recompileExpression(rawExpression, MultiLevelEmitterExpressionOwnership.CUSTOM);
+        markStreamFullSync();
         refreshRuntimeState(true);
     }
 
@@ -157,59 +274,97 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
         if (slotIndex < 0 || slotIndex >= configuredItemCount) {
             return;
         }
-        Map<Integer, Long> updatedThresholds = new LinkedHashMap<>(thresholds);
-        updatedThresholds.put(slotIndex, threshold);
-        applyConfiguration(configuredItemCount, updatedThresholds, comparisonModes, relations);
+        if (slotConfig().threshold(slotIndex) == MultiLevelEmitterPart.sanitizeThreshold(threshold)) {
+            return;
+        }
+        // Thresholds do not change what is watched, only how the watched amounts compare.
+        editableSlotConfig().setThreshold(slotIndex, threshold);
+        clearHysteresisState(slotIndex);
+        markStreamSlotDirty(slotIndex);
+        refreshRuntimeState(false);
     }
 
     public void cycleComparisonModeFromUi(int slotIndex) {
         if (slotIndex < 0 || slotIndex >= configuredItemCount) {
             return;
         }
-        List<MultiLevelEmitterPart.ComparisonMode> updatedModes = new ArrayList<>(comparisonModes);
-        MultiLevelEmitterPart.ComparisonMode current = updatedModes.get(slotIndex);
-        updatedModes.set(slotIndex, MultiLevelEmitterMenu.nextComparisonMode(current));
-        applyConfiguration(configuredItemCount, thresholds, updatedModes, relations);
+        MultiLevelEmitterPart.ComparisonMode current = slotConfig().comparisonMode(slotIndex);
+        editableSlotConfig().setComparisonMode(slotIndex, MultiLevelEmitterMenu.nextComparisonMode(current));
+        clearHysteresisState(slotIndex);
+        markStreamSlotDirty(slotIndex);
+        refreshRuntimeState(false);
     }
 
     public void cycleMatchingModeFromUi(int slotIndex) {
         if (slotIndex < 0 || slotIndex >= configuredItemCount) {
             return;
         }
-        List<MultiLevelEmitterPart.MatchingMode> updatedModes = new ArrayList<>(requestedMatchingModes);
-        MultiLevelEmitterPart.MatchingMode current = updatedModes.get(slotIndex);
-        updatedModes.set(slotIndex, MultiLevelEmitterPart.nextMatchingMode(current));
-        applyConfigurationState(
-                configuredItemCount,
-                thresholds,
-                comparisonModes,
-                relations,
-                updatedModes,
-                requestedCraftingModes,
-                appliedExpressionText,
-                expressionOwnership,
-                true
+        MultiLevelEmitterPart.MatchingMode requested =
+                MultiLevelEmitterPart.nextMatchingMode(slotConfig().requestedMatchingMode(slotIndex));
+        editableSlotConfig().setMatchingMode(
+                slotIndex,
+                requested,
+                MultiLevelEmitterPart.resolveMatchingMode(requested, hasFuzzyCardInstalled())
         );
+        clearHysteresisState(slotIndex);
+        markStreamSlotDirty(slotIndex);
+        invalidateWatchIndex();
+        refreshRuntimeState(true);
     }
 
     public void cycleCraftingModeFromUi(int slotIndex) {
         if (slotIndex < 0 || slotIndex >= configuredItemCount) {
             return;
         }
-        List<MultiLevelEmitterPart.CraftingMode> updatedModes = new ArrayList<>(requestedCraftingModes);
-        MultiLevelEmitterPart.CraftingMode current = updatedModes.get(slotIndex);
-        updatedModes.set(slotIndex, MultiLevelEmitterPart.nextCraftingMode(current));
-        applyConfigurationState(
-                configuredItemCount,
-                thresholds,
-                comparisonModes,
-                relations,
-                requestedMatchingModes,
-                updatedModes,
-                appliedExpressionText,
-                expressionOwnership,
-                true
+        MultiLevelEmitterPart.CraftingMode requested =
+                MultiLevelEmitterPart.nextCraftingMode(slotConfig().requestedCraftingMode(slotIndex));
+        editableSlotConfig().setCraftingMode(
+                slotIndex,
+                requested,
+                MultiLevelEmitterPart.resolveCraftingMode(requested, hasCraftingCardInstalled())
         );
+        clearHysteresisState(slotIndex);
+        markStreamSlotDirty(slotIndex);
+        invalidateWatchIndex();
+        refreshRuntimeState(true);
+    }
+
+    public long hysteresisBand(int slotIndex) {
+        return slotConfig().hysteresisBand(slotIndex);
+    }
+
+    /**
+     * A slot that is on stays on until its amount moves {@code band} past the threshold; {@code 0} disables it.
+     */
+    public void updateHysteresisBand(int slotIndex, long band) {
+        if (slotIndex < 0 || slotIndex >= configuredItemCount) {
+            return;
+        }
+        if (slotConfig().hysteresisBand(slotIndex) == MultiLevelEmitterPart.sanitizeHysteresisBand(band)) {
+            return;
+        }
+        editableSlotConfig().setHysteresisBand(slotIndex, band);
+        clearHysteresisState(slotIndex);
+        markStreamSlotDirty(slotIndex);
+        refreshRuntimeState(false);
+    }
+
+    public int minimumDwellTicks() {
+        return minimumDwellTicks;
+    }
+
+    /**
+     * Once the output changes it is held for at least {@code ticks} game ticks; {@code 0} disables it.
+     */
+    public void updateMinimumDwellTicks(int ticks) {
+        int sanitized = Math.max(0, ticks);
+        if (sanitized == minimumDwellTicks) {
+            return;
+        }
+        minimumDwellTicks = sanitized;
+        dwellOutputTracked = false;
+        markStreamFullSync();
+        markRuntimeStateDirty();
     }
 
     @Override
@@ -220,25 +375,15 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
     @Override
     protected void configureWatchers() {
         reconcileCardModes();
-        IStackWatcher storageWatcher = getWatcher(STORAGE_WATCHER_FIELD);
-        if (storageWatcher != null) {
-            storageWatcher.reset();
-            if (hasMarkedNonStrictStorageSlot()) {
-                storageWatcher.setWatchAll(true);
-            } else {
-                for (AEKey key : storageCountedKeys()) {
-                    storageWatcher.add(key);
-                }
-            }
-        }
-
-        IStackWatcher craftingWatcher = getWatcher(CRAFTING_WATCHER_FIELD);
-        if (craftingWatcher != null) {
-            craftingWatcher.reset();
-            for (AEKey key : requestStateCraftingKeys()) {
-                craftingWatcher.add(key);
-            }
+        rebuildWatchIndex();
+        if (watchedStorageKeys == null) {
+            watchedStorageKeys = new MultiLevelEmitterWatchedKeys();
+            watchedCraftingKeys = new MultiLevelEmitterWatchedKeys();
         }
+        // IStackWatcher only knows exact keys, so new variants of a fuzzy class are only reported to a
+        // watch-all watcher. onStorageStackChange drops everything outside the watched classes.
+        watchedStorageKeys.update(storageWatcher(), !fuzzySlotsByPrimaryKey.isEmpty(), strictSlotsByKey.keySet());
+        watchedCraftingKeys.update(craftingWatcher(), false, requestStateCraftingKeys());
 
         requestCraftingProviderUpdate();
         refreshRuntimeState(false);
@@ -249,7 +394,7 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
         if (!hasCraftingCardInstalled()) {
             return Set.of();
         }
-        return Set.copyOf(emitToCraftKeys());
+        return emitToCraftKeys();
     }
 
     @Override
@@ -259,15 +404,109 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
         }
 
         if (!getMainNode().isActive()) {
+            invalidateSlotMasks();
+            dwellOutputTracked = false;
             return false;
         }
 
         IGrid grid = getMainNode().getGrid();
         if (grid == null) {
+            invalidateSlotMasks();
+            dwellOutputTracked = false;
             return false;
         }
 
-        return evaluateConfiguredOutput(grid, true);
+        return holdForMinimumDwell(evaluateConfiguredOutput(grid, true), grid);
+    }
+
+    private boolean holdForMinimumDwell(boolean output, IGrid grid) {
+        long now = minimumDwellTicks <= 0 ? -1L : dwellClock();
+        if (now < 0L) {
+            dwellOutputTracked = false;
+            return output;
+        }
+        if (dwellOutputTracked && output != dwellOutput && now - dwellOutputSinceTick < minimumDwellTicks) {
+            // Settled amounts send no further watcher updates, so look again next tick until the dwell has passed.
+            // Grids without the tick hook cannot defer; they release the hold on their next storage change.
+            MultiLevelEmitterUpdateScheduler.markDirtyNextTick(grid, this);
+            return dwellOutput;
+        }
+        if (!dwellOutputTracked || output != dwellOutput) {
+            dwellOutputTracked = true;
+            dwellOutput = output;
+            dwellOutputSinceTick = now;
+        }
+        return output;
+    }
+
+    public void onStorageStackChange(AEKey what, long amount) {
+        if (isClientSide() || what == null) {
+            return;
+        }
+        if (strictSlotsByKey != null && storageSlotsAffectedBy(what) == 0L) {
+            return;
+        }
+        IGrid grid = getMainNode().getGrid();
+        if (!slotMasksValid || grid != slotMaskGrid || applyStorageStackChange(grid, what, amount)) {
+            MultiLevelEmitterUpdateScheduler.markDirty(grid, this);
+        }
+    }
+
+    public void flushScheduledUpdate(IGrid grid, MultiLevelEmitterUpdateScheduler.TickReads reads) {
+        if (isClientSide() || getHost() == null || getMainNode().getGrid() != grid) {
+            return;
+        }
+        scheduledReads = reads;
+        try {
+            updateState();
+        } finally {
+            scheduledReads = null;
+        }
+    }
+
+    private boolean applyStorageStackChange(IGrid grid, AEKey what, long amount) {
+        if (!slotMasksValid || grid != slotMaskGrid) {
+            return false;
+        }
+        long affectedSlots = storageSlotsAffectedBy(what);
+        if (affectedSlots == 0L) {
+            return false;
+        }
+
+        KeyCounter inventory = grid.getStorageService().getCachedInventory();
+        applyFuzzyAggregateChange(affectedSlots, what, amount, inventory);
+        // Amount terms are not cached, so any change to a slot they read needs a new evaluation.
+        boolean amountTermAffected = (affectedSlots & amountSlotMask()) != 0L;
+        // Slots that were never read were skipped by short-circuiting, so they cannot flip the output yet. Banded
+        // slots are the exception: their latch has to see every change, or a slot that dipped below its off
+        // threshold while skipped would come back into its band still reporting on.
+        long refreshedSlots = (affectedSlots & knownSlotMask)
+                | hysteresisSlotsIn(affectedSlots & ~knownSlotMask & ~craftingSlotMask);
+        if (refreshedSlots == 0L) {
+            return amountTermAffected;
+        }
+        long refreshedResults = readSlotResults(refreshedSlots, inventory, null);
+        knownSlotMask |= refreshedSlots;
+        long updatedResults = (slotResultMask & ~refreshedSlots) | refreshedResults;
+        if (updatedResults == slotResultMask) {
+            return amountTermAffected;
+        }
+        slotResultMask = updatedResults;
+        return true;
+    }
+
+    private long hysteresisSlotsIn(long slots) {
+        MultiLevelEmitterSlotConfig config = slotConfig();
+        long bandedSlots = 0L;
+        long remaining = slots;
+        while (remaining != 0L) {
+            int slot = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1L;
+            if (config.hysteresisBand(slot) > 0L) {
+                bandedSlots |= 1L << slot;
+            }
+        }
+        return bandedSlots;
     }
 
     public void setRedstoneMode(RedstoneMode redstoneMode) {
@@ -291,19 +530,27 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
     public boolean evaluateConfiguredOutput(List<Long> observedValues, boolean networkActive) {
         List<Long> normalizedObservedValues =
                 MultiLevelEmitterUtils.normalizeObservedValuesForSlotCount(observedValues, configuredItemCount);
+        MultiLevelEmitterSlotConfig slots = slotConfig();
         List<MultiLevelEmitterPart.SlotEvaluation> slotResults =
                 MultiLevelEmitterPart.evaluateSlotComparisonsWithParticipation(
                         normalizedObservedValues,
-                        thresholds,
-                        comparisonModes
+                        slots.thresholdMap(),
+                        slots.comparisonModeList()
                 );
         MultiLevelEmitterPart.AggregationResult evaluationResult;
         if (compiledExpressionPlan != null) {
-            evaluationResult = compiledExpressionPlan.evaluateParticipating(slotResults);
+            long[] slotAmounts = new long[normalizedObservedValues.size()];
+            for (int slot = 0; slot < slotAmounts.length; slot++) {
+                slotAmounts[slot] = normalizedObservedValues.get(slot);
+            }
+            evaluationResult = compiledExpressionPlan.evaluateParticipating(slotResults, slotAmounts);
         } else if (expressionIsInvalid()) {
             evaluationResult = new MultiLevelEmitterPart.AggregationResult(normalizedObservedValues.size(), false);
         } else {
-            evaluationResult = MultiLevelEmitterPart.evaluateFinalResultWithParticipation(slotResults, relations);
+            evaluationResult = MultiLevelEmitterPart.evaluateFinalResultWithParticipation(
+                    slotResults,
+                    slots.relationList()
+            );
         }
         return MultiLevelEmitterPart.resolveEmitterState(
                 networkActive,
@@ -314,12 +561,29 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
     }
 
     public boolean evaluateConfiguredOutput(IGrid grid, boolean networkActive) {
-        List<MultiLevelEmitterPart.SlotEvaluation> slotResults = readSlotEvaluations(grid);
+        if (!slotMasksValid || grid != slotMaskGrid) {
+            rebuildSlotMasks(grid);
+        }
+
         if (compiledExpressionPlan != null) {
+            long evaluationResult;
+            beginSlotReads(grid);
+            try {
+                evaluationResult = compiledExpressionPlan.program().evaluateLazy(
+                        participatingSlotMask,
+                        knownSlotMask,
+                        fuzzySlotMask,
+                        craftingSlotMask,
+                        lazySlotReader,
+                        lazyAmountReader
+                );
+            } finally {
+                endSlotReads();
+            }
             return MultiLevelEmitterPart.resolveEmitterState(
                     networkActive,
-                    configuredItemCount,
-                    compiledExpressionPlan.evaluateParticipating(slotResults),
+                    MultiLevelEmitterExpressionProgram.hasParticipatingSlots(evaluationResult) ? configuredItemCount : 0,
+                    MultiLevelEmitterExpressionProgram.result(evaluationResult),
                     currentRedstoneMode()
             );
         }
@@ -331,27 +595,241 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
                     currentRedstoneMode()
             );
         }
+        beginSlotReads(grid);
+        try {
+            long remaining = participatingSlotMask;
+            while (remaining != 0L) {
+                readSlotResultLazily(Long.numberOfTrailingZeros(remaining));
+                remaining &= remaining - 1L;
+            }
+        } finally {
+            endSlotReads();
+        }
+        // Same left-to-right fold as evaluateFinalResultWithParticipation, read straight from the masks.
+        MultiLevelEmitterSlotConfig slots = slotConfig();
+        int participatingCount = 0;
+        boolean aggregate = false;
+        long remaining = participatingSlotMask;
+        while (remaining != 0L) {
+            int slot = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1L;
+            boolean next = (slotResultMask & (1L << slot)) != 0L;
+            if (participatingCount++ == 0) {
+                aggregate = next;
+            } else if (slots.relation(slot - 1) == MultiLevelEmitterPart.LogicRelation.AND) {
+                aggregate = aggregate && next;
+            } else {
+                aggregate = aggregate || next;
+            }
+        }
         return MultiLevelEmitterPart.resolveEmitterState(
                 networkActive,
-                configuredItemCount,
-                MultiLevelEmitterPart.evaluateFinalResultWithParticipation(slotResults, relations),
+                participatingCount > 0 ? configuredItemCount : 0,
+                aggregate,
                 currentRedstoneMode()
         );
     }
 
-    private List<MultiLevelEmitterPart.SlotEvaluation> readSlotEvaluations(IGrid grid) {
-        KeyCounter inventory = grid.getStorageService().getCachedInventory();
-        ICraftingService craftingService = grid.getCraftingService();
-        List<MultiLevelEmitterPart.SlotEvaluation> slotResults = new ArrayList<>(configuredItemCount);
-        for (int slot = 0; slot < configuredItemCount; slot++) {
-            slotResults.add(slotEvaluationForGridSlot(
-                    slot,
-                    ensureConfigInventory().getKey(slot),
-                    inventory,
-                    craftingService
-            ));
+    private void beginSlotReads(IGrid grid) {
+        if (lazySlotReader == null) {
+            lazySlotReader = this::readSlotResultLazily;
+            lazyAmountReader = this::readSlotAmountLazily;
+        }
+        lazyInventory = scheduledReads != null
+                ? scheduledReads.inventory()
+                : grid.getStorageService().getCachedInventory();
+        lazyCraftingRequests = scheduledReads != null
+                ? scheduledReads.craftingRequests()
+                : MultiLevelEmitterCraftingRequests.of(grid);
+    }
+
+    private void endSlotReads() {
+        lazyInventory = null;
+        lazyCraftingRequests = null;
+    }
+
+    private boolean readSlotResultLazily(int slot) {
+        long slotBit = 1L << slot;
+        if ((knownSlotMask & slotBit) != 0L) {
+            return (slotResultMask & slotBit) != 0L;
+        }
+        AEKey key = configuredKey(slot);
+        boolean result = key != null && slotResultForGridSlot(slot, key, lazyInventory, lazyCraftingRequests);
+        slotResultMask = result ? slotResultMask | slotBit : slotResultMask & ~slotBit;
+        // Crafting watcher callbacks carry no key, so crafting slots are read again on every evaluation.
+        if ((craftingSlotMask & slotBit) == 0L) {
+            knownSlotMask |= slotBit;
+        }
+        return result;
+    }
+
+    private long readSlotAmountLazily(int slot) {
+        AEKey key = configuredKey(slot);
+        return key == null ? 0L : readStorageCountedAmount(slot, lazyInventory, key);
+    }
+
+    private long amountSlotMask() {
+        return compiledExpressionPlan == null ? 0L : compiledExpressionPlan.program().amountSlots();
+    }
+
+    private void applyFuzzyAggregateChange(long affectedSlots, AEKey what, long amount, KeyCounter inventory) {
+        if (fuzzySlotsByPrimaryKey.isEmpty()) {
+            return;
+        }
+        // Deltas are exact as long as no notification is missed; a periodic rescan bounds any drift.
+        if (++fuzzyChangesSinceResync >= FUZZY_RESYNC_INTERVAL) {
+            invalidateFuzzyAggregates();
+            return;
+        }
+        long remaining = affectedSlots;
+        while (remaining != 0L) {
+            int slot = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1L;
+            if (fuzzyAggregates[slot] != null) {
+                fuzzyAggregates[slot].applyChange(what, amount, inventory);
+            }
+        }
+    }
+
+    private void invalidateFuzzyAggregates() {
+        fuzzyChangesSinceResync = 0;
+        for (MultiLevelEmitterFuzzyAggregate aggregate : fuzzyAggregates) {
+            if (aggregate != null) {
+                aggregate.invalidate();
+            }
+        }
+    }
+
+    private void rebuildWatchIndex() {
+        Map<AEKey, Long> strictSlots = new HashMap<>();
+        Map<Object, Long> fuzzySlots = new HashMap<>();
+        MultiLevelEmitterFuzzyAggregate[] aggregates =
+                new MultiLevelEmitterFuzzyAggregate[MultiLevelEmitterExpressionProgram.MAX_SLOTS];
+        long participating = 0L;
+        long fuzzySlotBits = 0L;
+        long craftingSlots = 0L;
+        long amountSlots = amountSlotMask();
+        int slotLimit = Math.min(configuredItemCount, MultiLevelEmitterExpressionProgram.MAX_SLOTS);
+        for (int slot = 0; slot < slotLimit; slot++) {
+            AEKey key = configuredKey(slot);
+            if (key == null) {
+                continue;
+            }
+            long slotBit = 1L << slot;
+            participating |= slotBit;
+            if (isCraftingExpressionParticipatingSlot(slot)) {
+                craftingSlots |= slotBit;
+                // The slot result comes from the crafting service, but an amount term still reads its stock.
+                if ((amountSlots & slotBit) == 0L) {
+                    continue;
+                }
+            }
+            if (matchingModeForSlot(slot) == MultiLevelEmitterPart.MatchingMode.STRICT) {
+                strictSlots.merge(key, slotBit, (left, right) -> left | right);
+            } else {
+                // Fuzzy slots react to their whole equivalence class: same primary key, any damage or NBT.
+                fuzzySlotBits |= slotBit;
+                fuzzySlots.merge(key.getPrimaryKey(), slotBit, (left, right) -> left | right);
+                aggregates[slot] = new MultiLevelEmitterFuzzyAggregate(key, toFuzzyMode(matchingModeForSlot(slot)));
+            }
+        }
+
+        participatingSlotMask = participating;
+        fuzzySlotMask = fuzzySlotBits;
+        craftingSlotMask = craftingSlots;
+        strictSlotsByKey = strictSlots;
+        fuzzySlotsByPrimaryKey = fuzzySlots;
+        fuzzyAggregates = aggregates;
+    }
+
+    private void rebuildSlotMasks(IGrid grid) {
+        if (strictSlotsByKey == null) {
+            rebuildWatchIndex();
+        }
+        // Nothing is read here; slots are pulled in by the next evaluation as the expression needs them.
+        invalidateFuzzyAggregates();
+        knownSlotMask = 0L;
+        slotResultMask = 0L;
+        slotMaskGrid = grid;
+        slotMasksValid = true;
+    }
+
+    private long readSlotResults(long slots, KeyCounter inventory, MultiLevelEmitterCraftingRequests craftingRequests) {
+        long results = 0L;
+        long remaining = slots;
+        while (remaining != 0L) {
+            int slot = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1L;
+            AEKey key = configuredKey(slot);
+            if (key != null && slotResultForGridSlot(slot, key, inventory, craftingRequests)) {
+                results |= 1L << slot;
+            }
+        }
+        return results;
+    }
+
+    private long storageSlotsAffectedBy(AEKey what) {
+        long affectedSlots = 0L;
+        Long strictSlots = strictSlotsByKey.get(what);
+        if (strictSlots != null) {
+            affectedSlots |= strictSlots;
+        }
+        if (!fuzzySlotsByPrimaryKey.isEmpty()) {
+            Long fuzzySlots = fuzzySlotsByPrimaryKey.get(what.getPrimaryKey());
+            if (fuzzySlots != null) {
+                affectedSlots |= fuzzySlots;
+            }
+        }
+        return affectedSlots;
+    }
+
+    private void invalidateSlotMasks() {
+        slotMasksValid = false;
+        slotMaskGrid = null;
+    }
+
+    private void invalidateWatchIndex() {
+        strictSlotsByKey = null;
+        fuzzySlotsByPrimaryKey = null;
+        fuzzyAggregates = null;
+        emitToCraftSlotsByKey = null;
+        invalidateSlotMasks();
+    }
+
+    private void rebuildCraftTargetIndex() {
+        Map<AEKey, Long> emitToCraftSlots = new LinkedHashMap<>();
+        Set<AEKey> emitWhileCraftingKeys = new LinkedHashSet<>();
+        long duplicates = 0L;
+        int slotLimit = Math.min(configuredItemCount, MultiLevelEmitterExpressionProgram.MAX_SLOTS);
+        for (int slot = 0; slot < slotLimit; slot++) {
+            MultiLevelEmitterPart.CraftingMode craftingMode = craftingModeForSlot(slot);
+            if (craftingMode != MultiLevelEmitterPart.CraftingMode.EMIT_WHILE_CRAFTING
+                    && craftingMode != MultiLevelEmitterPart.CraftingMode.EMIT_TO_CRAFT) {
+                continue;
+            }
+            AEKey key = configuredKey(slot);
+            if (key == null) {
+                continue;
+            }
+            emitWhileCraftingKeys.add(key);
+            if (craftingMode == MultiLevelEmitterPart.CraftingMode.EMIT_TO_CRAFT) {
+                long sharedSlots = emitToCraftSlots.merge(key, 1L << slot, (left, right) -> left | right);
+                if (Long.bitCount(sharedSlots) > 1) {
+                    duplicates |= sharedSlots;
+                }
+            }
+        }
+
+        duplicateEmitToCraftSlots = duplicates;
+        emitToCraftKeySet = Collections.unmodifiableSet(new LinkedHashSet<>(emitToCraftSlots.keySet()));
+        emitWhileCraftingKeyList = List.copyOf(emitWhileCraftingKeys);
+        emitToCraftSlotsByKey = emitToCraftSlots;
+    }
+
+    private void ensureCraftTargetIndex() {
+        if (emitToCraftSlotsByKey == null) {
+            rebuildCraftTargetIndex();
         }
-        return List.copyOf(slotResults);
     }
 
     public int configuredItemCount() {
@@ -360,9 +838,8 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
 
     public int markedItemCount() {
         int count = 0;
-        ConfigInventory config = ensureConfigInventory();
         for (int slot = 0; slot < configuredItemCount; slot++) {
-            if (config.getKey(slot) != null) {
+            if (configuredKey(slot) != null) {
                 count++;
             }
         }
@@ -372,27 +849,37 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
     public boolean hasConfiguredItem(int slotIndex) {
         return slotIndex >= 0
                 && slotIndex < configuredItemCount
-                && ensureConfigInventory().getKey(slotIndex) != null;
+                && configuredKey(slotIndex) != null;
     }
 
     public ItemStack configuredItemStack(int slotIndex) {
         if (slotIndex < 0 || slotIndex >= configuredItemCount) {
             return ItemStack.EMPTY;
         }
-        ItemStack stack = ensureConfigInventory().createMenuWrapper().getStackInSlot(slotIndex);
+        if (configInventory == null) {
+            return ItemStack.EMPTY;
+        }
+        ItemStack stack = configInventory.createMenuWrapper().getStackInSlot(slotIndex);
         return stack == null ? ItemStack.EMPTY : stack;
     }
 
     public Map<Integer, Long> thresholds() {
-        return new LinkedHashMap<>(thresholds);
+        return slotConfig().thresholdMap();
     }
 
     public List<MultiLevelEmitterPart.ComparisonMode> comparisonModes() {
-        return List.copyOf(comparisonModes);
+        return slotConfig().comparisonModeList();
     }
 
     public List<MultiLevelEmitterPart.LogicRelation> relations() {
-        return List.copyOf(relations);
+        return slotConfig().relationList();
+    }
+
+    /**
+     * Read-only view of the slot columns. Later edits copy the columns first, so the view never changes.
+     */
+    public MultiLevelEmitterSlotConfig slotConfigSnapshot() {
+        return slotConfig().share();
     }
 
     public boolean hasFuzzyCardInstalled() {
@@ -415,43 +902,22 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
         if (slotIndex < 0 || slotIndex >= configuredItemCount) {
             return MultiLevelEmitterPart.MatchingMode.STRICT;
         }
-        return slotIndex < matchingModes.size()
-                ? matchingModes.get(slotIndex)
-                : MultiLevelEmitterPart.MatchingMode.STRICT;
+        return slotConfig().matchingMode(slotIndex);
     }
 
     public MultiLevelEmitterPart.CraftingMode craftingModeForSlot(int slotIndex) {
         if (slotIndex < 0 || slotIndex >= configuredItemCount) {
             return MultiLevelEmitterPart.CraftingMode.NONE;
         }
-        return slotIndex < craftingModes.size()
-                ? craftingModes.get(slotIndex)
-                : MultiLevelEmitterPart.CraftingMode.NONE;
+        return slotConfig().craftingMode(slotIndex);
     }
 
     public boolean hasDuplicateEmitToCraftTarget(int slotIndex) {
         if (slotIndex < 0 || slotIndex >= configuredItemCount) {
             return false;
         }
-        if (craftingModeForSlot(slotIndex) != MultiLevelEmitterPart.CraftingMode.EMIT_TO_CRAFT) {
-            return false;
-        }
-        AEKey targetKey = ensureConfigInventory().getKey(slotIndex);
-        if (targetKey == null) {
-            return false;
-        }
-        for (int candidate = 0; candidate < configuredItemCount; candidate++) {
-            if (candidate == slotIndex) {
-                continue;
-            }
-            if (craftingModeForSlot(candidate) != MultiLevelEmitterPart.CraftingMode.EMIT_TO_CRAFT) {
-                continue;
-            }
-            if (Objects.equals(targetKey, ensureConfigInventory().getKey(candidate))) {
-                return true;
-            }
-        }
-        return false;
+        ensureCraftTargetIndex();
+        return (duplicateEmitToCraftSlots & (1L << slotIndex)) != 0L;
     }
 
     public String appliedExpressionText() {
@@ -466,6 +932,46 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
         return expressionCompileResult != null && expressionCompileResult.isInvalid();
     }
 
+    private MultiLevelEmitterSlotConfig slotConfig() {
+        if (slotConfig == null) {
+            slotConfig = MultiLevelEmitterSlotConfig.defaults(0);
+        }
+        return slotConfig;
+    }
+
+    // Emitters that were never configured, or were set back to defaults, share one frozen config per slot count.
+    private void shareSlotConfigIfDefault() {
+        MultiLevelEmitterSlotConfig slots = slotConfig();
+        if (slots.isDefault()) {
+            slotConfig = MultiLevelEmitterSlotConfig.defaults(slots.slotCount());
+        }
+    }
+
+    private void loadHysteresisBands(Map<Integer, Long> persistedBands) {
+        if ((persistedBands == null || persistedBands.isEmpty()) && !slotConfig().hasHysteresisBands()) {
+            return;
+        }
+        editableSlotConfig().loadHysteresisBands(persistedBands);
+        shareSlotConfigIfDefault();
+    }
+
+    private MultiLevelEmitterSlotConfig editableSlotConfig() {
+        slotConfig = slotConfig().editable();
+        return slotConfig;
+    }
+
+    // Created on the first marked item or menu open; until then every slot reads as unmarked.
+    @Nullable
+    private AEKey configuredKey(int slot) {
+        return configInventory == null ? null : configInventory.getKey(slot);
+    }
+
+    private void clearConfigInventory() {
+        if (configInventory != null) {
+            configInventory.clear();
+        }
+    }
+
     private ConfigInventory ensureConfigInventory() {
         if (configInventory == null) {
             configInventory = ConfigInventory.configTypes(
@@ -477,7 +983,10 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
     }
 
     private void trimConfigInventoryToConfiguredSlots(int configuredSlots) {
-        ConfigInventory config = ensureConfigInventory();
+        ConfigInventory config = configInventory;
+        if (config == null) {
+            return;
+        }
         boolean previous = suppressConfigInventoryCallback;
         suppressConfigInventoryCallback = true;
         config.beginBatch();
@@ -504,57 +1013,44 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
             MultiLevelEmitterExpressionOwnership persistedOwnership,
             boolean refreshRuntimeState
     ) {
+        invalidateWatchIndex();
+        hysteresisOnMask = 0L;
         int previousSlotCount = this.configuredItemCount;
-        int normalizedSlotCount = Math.max(
-                DEFAULT_VISIBLE_SLOT_COUNT,
-                Math.min(MultiLevelEmitterMenu.SLOT_CAPACITY, configuredItemCount)
-        );
-        this.configuredItemCount = normalizedSlotCount;
-        this.thresholds = new LinkedHashMap<>(
-                MultiLevelEmitterPart.normalizeThresholdsForSlotCount(persistedThresholds, normalizedSlotCount)
-        );
-        this.comparisonModes = List.copyOf(
-                MultiLevelEmitterPart.normalizeComparisonModesForSlotCount(persistedComparisons, normalizedSlotCount)
-        );
-        this.relations = List.copyOf(
-                MultiLevelEmitterPart.normalizeRelationsForSlotCount(persistedRelations, normalizedSlotCount)
-        );
-        boolean fuzzyCardInstalled = hasFuzzyCardInstalled();
-        boolean craftingCardInstalled = hasCraftingCardInstalled();
-        this.requestedMatchingModes = List.copyOf(reconcileRequestedMatchingModes(
+        this.configuredItemCount = normalizeConfiguredItemCount(configuredItemCount);
+        markStreamFullSync();
+        editableSlotConfig().load(
+                this.configuredItemCount,
+                persistedThresholds,
+                persistedComparisons,
+                persistedRelations,
                 persistedMatchingModes,
-                normalizedSlotCount,
-                fuzzyCardInstalled
-        ));
-        this.requestedCraftingModes = List.copyOf(reconcileRequestedCraftingModes(
-                persistedCraftingModes,
-                normalizedSlotCount,
-                craftingCardInstalled
-        ));
-        this.matchingModes = List.copyOf(
-                MultiLevelEmitterPart.normalizeMatchingModesForSlotCount(
-                        requestedMatchingModes,
-                        normalizedSlotCount,
-                        fuzzyCardInstalled
-                )
-        );
-        this.craftingModes = List.copyOf(
-                MultiLevelEmitterPart.normalizeCraftingModesForSlotCount(
-                        requestedCraftingModes,
-                        normalizedSlotCount,
-                        craftingCardInstalled
-                )
+                persistedCraftingModes
         );
-        this.cardCapabilityStateInitialized = true;
-        this.lastKnownFuzzyCardInstalled = fuzzyCardInstalled;
-        this.lastKnownCraftingCardInstalled = craftingCardInstalled;
-        trimConfigInventoryToConfiguredSlots(normalizedSlotCount);
+        shareSlotConfigIfDefault();
+        finishConfigurationState(previousSlotCount, persistedExpressionText, persistedOwnership, refreshRuntimeState);
+    }
+
+    private void finishConfigurationState(
+            int previousSlotCount,
+            String persistedExpressionText,
+            MultiLevelEmitterExpressionOwnership persistedOwnership,
+            boolean refreshRuntimeState
+    ) {
+        reconcileSlotModes();
+        trimConfigInventoryToConfiguredSlots(configuredItemCount);
         synchronizeExpressionState(previousSlotCount, persistedExpressionText, persistedOwnership);
         if (refreshRuntimeState) {
             refreshRuntimeState(true);
         }
     }
 
+    private static int normalizeConfiguredItemCount(int configuredItemCount) {
+        return Math.max(
+                DEFAULT_VISIBLE_SLOT_COUNT,
+                Math.min(MultiLevelEmitterMenu.SLOT_CAPACITY, configuredItemCount)
+        );
+    }
+
     private void applyConfigurationState(
             int configuredItemCount,
             Map<Integer, Long> persistedThresholds,
@@ -567,8 +1063,8 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
                 persistedThresholds,
                 persistedComparisons,
                 persistedRelations,
-                requestedMatchingModes,
-                requestedCraftingModes,
+                slotConfig().requestedMatchingModeList(),
+                slotConfig().requestedCraftingModeList(),
                 appliedExpressionText,
                 expressionOwnership,
                 refreshRuntimeState
@@ -576,27 +1072,72 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
     }
 
     private void reconcileCardModes() {
-        applyConfigurationState(
-                configuredItemCount,
-                thresholds,
-                comparisonModes,
-                relations,
-                requestedMatchingModes,
-                requestedCraftingModes,
-                appliedExpressionText,
-                expressionOwnership,
-                false
-        );
+        invalidateWatchIndex();
+        finishConfigurationState(configuredItemCount, appliedExpressionText, expressionOwnership, false);
+    }
+
+    private void reconcileSlotModes() {
+        boolean fuzzyCardInstalled = hasFuzzyCardInstalled();
+        boolean craftingCardInstalled = hasCraftingCardInstalled();
+        boolean fuzzyCardRemoved = cardCapabilityStateInitialized && lastKnownFuzzyCardInstalled && !fuzzyCardInstalled;
+        boolean craftingCardRemoved =
+                cardCapabilityStateInitialized && lastKnownCraftingCardInstalled && !craftingCardInstalled;
+        boolean craftingCardAdded =
+                cardCapabilityStateInitialized && !lastKnownCraftingCardInstalled && craftingCardInstalled;
+        MultiLevelEmitterSlotConfig slots = slotConfig();
+        for (int slot = 0; slot < configuredItemCount; slot++) {
+            MultiLevelEmitterPart.MatchingMode requestedMatching = fuzzyCardRemoved
+                    ? MultiLevelEmitterPart.MatchingMode.STRICT
+                    : slots.requestedMatchingMode(slot);
+            MultiLevelEmitterPart.CraftingMode requestedCrafting = slots.requestedCraftingMode(slot);
+            if (craftingCardRemoved) {
+                requestedCrafting = MultiLevelEmitterPart.CraftingMode.NONE;
+            } else if (craftingCardAdded
+                    && requestedCrafting == MultiLevelEmitterPart.CraftingMode.NONE
+                    && configuredKey(slot) != null) {
+                requestedCrafting = MultiLevelEmitterPart.CraftingMode.EMIT_WHILE_CRAFTING;
+            }
+            MultiLevelEmitterPart.MatchingMode matching =
+                    MultiLevelEmitterPart.resolveMatchingMode(requestedMatching, fuzzyCardInstalled);
+            MultiLevelEmitterPart.CraftingMode crafting =
+                    MultiLevelEmitterPart.resolveCraftingMode(requestedCrafting, craftingCardInstalled);
+            if (requestedMatching != slots.requestedMatchingMode(slot)
+                    || requestedCrafting != slots.requestedCraftingMode(slot)) {
+                markStreamSlotDirty(slot);
+            }
+            if (requestedMatching != slots.requestedMatchingMode(slot)
+                    || matching != slots.matchingMode(slot)
+                    || requestedCrafting != slots.requestedCraftingMode(slot)
+                    || crafting != slots.craftingMode(slot)) {
+                slots = editableSlotConfig();
+                slots.setMatchingMode(slot, requestedMatching, matching);
+                slots.setCraftingMode(slot, requestedCrafting, crafting);
+            }
+        }
+        cardCapabilityStateInitialized = true;
+        lastKnownFuzzyCardInstalled = fuzzyCardInstalled;
+        lastKnownCraftingCardInstalled = craftingCardInstalled;
     }
 
     private void writeRuntimeSnapshot(CompoundTag data) {
         data.putInt(NBT_CONFIGURED_ITEM_COUNT, configuredItemCount);
-        ensureConfigInventory().writeToChildTag(data, NBT_CONFIG);
-        MultiLevelEmitterPart.writeThresholdsToNbt(thresholds, data, NBT_REPORTING_VALUES);
-        MultiLevelEmitterUtils.writeComparisonModesToNBT(comparisonModes, data, NBT_COMPARISON_MODES);
-        MultiLevelEmitterUtils.writeLogicRelationsToNBT(relations, data, NBT_LOGIC_RELATIONS);
-        MultiLevelEmitterUtils.writeMatchingModesToNBT(requestedMatchingModes, data, NBT_MATCHING_MODES);
-        MultiLevelEmitterUtils.writeCraftingModesToNBT(requestedCraftingModes, data, NBT_CRAFTING_MODES);
+        if (configInventory != null) {
+            configInventory.writeToChildTag(data, NBT_CONFIG);
+        } else {
+            data.remove(NBT_CONFIG);
+        }
+        MultiLevelEmitterSlotConfig slots = slotConfig();
+        MultiLevelEmitterPart.writeThresholdsToNbt(slots.thresholdMap(), data, NBT_REPORTING_VALUES);
+        MultiLevelEmitterPart.writeHysteresisBandsToNbt(slots.hysteresisBandMap(), data, NBT_HYSTERESIS_VALUES);
+        if (minimumDwellTicks > 0) {
+            data.putInt(NBT_MINIMUM_DWELL_TICKS, minimumDwellTicks);
+        } else {
+            data.remove(NBT_MINIMUM_DWELL_TICKS);
+        }
+        MultiLevelEmitterUtils.writeComparisonModesToNBT(slots.comparisonModeList(), data, NBT_COMPARISON_MODES);
+        MultiLevelEmitterUtils.writeLogicRelationsToNBT(slots.relationList(), data, NBT_LOGIC_RELATIONS);
+        MultiLevelEmitterUtils.writeMatchingModesToNBT(slots.requestedMatchingModeList(), data, NBT_MATCHING_MODES);
+        MultiLevelEmitterUtils.writeCraftingModesToNBT(slots.requestedCraftingModeList(), data, NBT_CRAFTING_MODES);
         data.putString(NBT_EXPRESSION_TEXT, appliedExpressionText);
         data.putString(NBT_EXPRESSION_OWNERSHIP, expressionOwnership.name());
     }
@@ -605,7 +1146,7 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
         if (data == null) {
             boolean previous = suppressConfigInventoryCallback;
             suppressConfigInventoryCallback = true;
-            ensureConfigInventory().clear();
+            clearConfigInventory();
             suppressConfigInventoryCallback = previous;
             applyConfigurationState(
                     DEFAULT_VISIBLE_SLOT_COUNT,
@@ -618,6 +1159,8 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
                     MultiLevelEmitterExpressionOwnership.AUTO,
                     refreshRuntimeState
             );
+            loadHysteresisBands(null);
+            minimumDwellTicks = 0;
             return;
         }
         boolean previous = suppressConfigInventoryCallback;
@@ -625,7 +1168,7 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
         if (data.contains(NBT_CONFIG)) {
             ensureConfigInventory().readFromChildTag(data, NBT_CONFIG);
         } else {
-            ensureConfigInventory().clear();
+            clearConfigInventory();
         }
         suppressConfigInventoryCallback = previous;
         applyConfigurationState(
@@ -637,8 +1180,120 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
                 MultiLevelEmitterUtils.readCraftingModesFromNBT(data, NBT_CRAFTING_MODES),
                 readPersistedExpressionText(data),
                 readPersistedExpressionOwnership(data),
-                refreshRuntimeState
+                false
         );
+        loadHysteresisBands(MultiLevelEmitterPart.readHysteresisBandsFromNbt(data, NBT_HYSTERESIS_VALUES));
+        minimumDwellTicks = Math.max(0, data.getInt(NBT_MINIMUM_DWELL_TICKS));
+        if (refreshRuntimeState) {
+            refreshRuntimeState(true);
+        }
+    }
+
+    private void writeFullStreamState(FriendlyByteBuf data) {
+        MultiLevelEmitterSlotConfig slots = slotConfig();
+        ConfigInventory config = configInventory;
+        data.writeVarInt(configuredItemCount);
+        for (int slot = 0; slot < configuredItemCount; slot++) {
+            MultiLevelEmitterStreamSync.writeSlot(data, slots, slot);
+            GenericStack.writeBuffer(config == null ? null : config.getStack(slot), data);
+        }
+        for (int index = 0; index < configuredItemCount - 1; index++) {
+            data.writeByte(slots.relation(index).ordinal());
+        }
+        data.writeUtf(appliedExpressionText);
+        data.writeByte(expressionOwnership.ordinal());
+        data.writeVarInt(minimumDwellTicks);
+    }
+
+    private void readFullStreamState(FriendlyByteBuf data) {
+        int slotCount = data.readVarInt();
+        Map<Integer, Long> persistedThresholds = new HashMap<>(slotCount);
+        List<MultiLevelEmitterPart.ComparisonMode> persistedComparisons = new ArrayList<>(slotCount);
+        List<MultiLevelEmitterPart.MatchingMode> persistedMatchingModes = new ArrayList<>(slotCount);
+        List<MultiLevelEmitterPart.CraftingMode> persistedCraftingModes = new ArrayList<>(slotCount);
+        Map<Integer, Long> persistedBands = new HashMap<>(slotCount);
+        List<MultiLevelEmitterPart.LogicRelation> persistedRelations = new ArrayList<>(Math.max(0, slotCount - 1));
+        boolean previous = suppressConfigInventoryCallback;
+        suppressConfigInventoryCallback = true;
+        try {
+            clearConfigInventory();
+            for (int slot = 0; slot < slotCount; slot++) {
+                persistedThresholds.put(slot, data.readVarLong());
+                persistedComparisons.add(MultiLevelEmitterStreamSync.comparisonMode(data.readByte()));
+                persistedMatchingModes.add(MultiLevelEmitterStreamSync.matchingMode(data.readByte()));
+                persistedCraftingModes.add(MultiLevelEmitterStreamSync.craftingMode(data.readByte()));
+                persistedBands.put(slot, data.readVarLong());
+                GenericStack stack = GenericStack.readBuffer(data);
+                if (stack != null) {
+                    ensureConfigInventory().setStack(slot, stack);
+                }
+            }
+        } finally {
+            suppressConfigInventoryCallback = previous;
+        }
+        for (int index = 0; index < slotCount - 1; index++) {
+            persistedRelations.add(MultiLevelEmitterStreamSync.logicRelation(data.readByte()));
+        }
+        String expressionText = data.readUtf();
+        int ownership = data.readByte();
+        int dwellTicks = data.readVarInt();
+        applyConfigurationState(
+                slotCount,
+                persistedThresholds,
+                persistedComparisons,
+                persistedRelations,
+                persistedMatchingModes,
+                persistedCraftingModes,
+                expressionText,
+                ownership >= 0 && ownership < MultiLevelEmitterExpressionOwnership.values().length
+                        ? MultiLevelEmitterExpressionOwnership.values()[ownership]
+                        : MultiLevelEmitterExpressionOwnership.AUTO,
+                false
+        );
+        loadHysteresisBands(persistedBands);
+        minimumDwellTicks = Math.max(0, dwellTicks);
+    }
+
+    private void readStreamSlotRanges(FriendlyByteBuf data) {
+        boolean fuzzyCardInstalled = hasFuzzyCardInstalled();
+        boolean craftingCardInstalled = hasCraftingCardInstalled();
+        MultiLevelEmitterSlotConfig slots = editableSlotConfig();
+        int rangeCount = data.readVarInt();
+        for (int range = 0; range < rangeCount; range++) {
+            int start = data.readVarInt();
+            int length = data.readVarInt();
+            for (int slot = start; slot < start + length; slot++) {
+                slots.setThreshold(slot, data.readVarLong());
+                slots.setComparisonMode(slot, MultiLevelEmitterStreamSync.comparisonMode(data.readByte()));
+                MultiLevelEmitterPart.MatchingMode matching = MultiLevelEmitterStreamSync.matchingMode(data.readByte());
+                MultiLevelEmitterPart.CraftingMode crafting = MultiLevelEmitterStreamSync.craftingMode(data.readByte());
+                slots.setMatchingMode(
+                        slot,
+                        matching,
+                        MultiLevelEmitterPart.resolveMatchingMode(matching, fuzzyCardInstalled)
+                );
+                slots.setCraftingMode(
+                        slot,
+                        crafting,
+                        MultiLevelEmitterPart.resolveCraftingMode(crafting, craftingCardInstalled)
+                );
+                slots.setHysteresisBand(slot, data.readVarLong());
+            }
+        }
+        invalidateWatchIndex();
+        viewVersion++;
+    }
+
+    private void markStreamSlotDirty(int slot) {
+        streamVersion++;
+        streamDirtySlots |= 1L << slot;
+        viewVersion++;
+    }
+
+    private void markStreamFullSync() {
+        streamVersion++;
+        streamFullSyncPending = true;
+        viewVersion++;
     }
 
     private void synchronizeExpressionState(
@@ -668,7 +1323,7 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
                 ? MultiLevelEmitterExpressionFormatter.defaultExpressionForSlots(configuredItemCount)
                 : rawExpression;
         expressionOwnership = ownership == null ? MultiLevelEmitterExpressionOwnership.AUTO : ownership;
-        expressionCompileResult = MultiLevelEmitterExpressionCompiler.compile(
+        expressionCompileResult = MultiLevelEmitterExpressionCache.compile(
                 appliedExpressionText,
                 configuredItemCount,
                 this::hasConfiguredItem
@@ -704,10 +1359,14 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
         if (suppressConfigInventoryCallback) {
             return;
         }
+        invalidateWatchIndex();
+        hysteresisOnMask = 0L;
+        markStreamFullSync();
         refreshRuntimeState(true);
     }
 
     private void refreshRuntimeState(boolean reconfigureWatchers) {
+        invalidateSlotMasks();
         if (!isClientSide()) {
             if (reconfigureWatchers) {
                 configureWatchers();
@@ -718,77 +1377,45 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
         markRuntimeStateDirty();
     }
 
-    private List<AEKey> storageCountedKeys() {
-        List<AEKey> keys = new ArrayList<>(configuredItemCount);
-        for (int slot = 0; slot < configuredItemCount; slot++) {
-            if (!isStorageCountingSlot(slot)) {
-                continue;
-            }
-            AEKey key = ensureConfigInventory().getKey(slot);
-            if (key != null) {
-                keys.add(key);
-            }
-        }
-        return keys;
-    }
-
-    private MultiLevelEmitterPart.SlotEvaluation slotEvaluationForGridSlot(
+    private boolean slotResultForGridSlot(
             int slot,
             AEKey key,
             KeyCounter inventory,
-            ICraftingService craftingService
+            MultiLevelEmitterCraftingRequests craftingRequests
     ) {
-        if (key == null) {
-            return MultiLevelEmitterPart.SlotEvaluation.inactive();
-        }
-
         if (isCraftingExpressionParticipatingSlot(slot)) {
-            return MultiLevelEmitterPart.SlotEvaluation.participating(
-                    craftingService != null && craftingService.isRequesting(key)
-            );
+            return craftingRequests != null && craftingRequests.isRequesting(key);
         }
-
-        return MultiLevelEmitterPart.SlotEvaluation.participating(
-                MultiLevelEmitterPart.evaluateComparison(
-                        readStorageCountedAmount(slot, inventory, key),
-                        thresholds.getOrDefault(slot, 1L),
-                        comparisonModeForSlot(slot)
-                )
+        MultiLevelEmitterSlotConfig slots = slotConfig();
+        long hysteresisBand = slots.hysteresisBand(slot);
+        long slotBit = 1L << slot;
+        boolean result = MultiLevelEmitterPart.evaluateComparisonWithHysteresis(
+                readStorageCountedAmount(slot, inventory, key),
+                slots.threshold(slot),
+                slots.comparisonMode(slot),
+                hysteresisBand,
+                (hysteresisOnMask & slotBit) != 0L
         );
+        if (hysteresisBand > 0L) {
+            hysteresisOnMask = result ? hysteresisOnMask | slotBit : hysteresisOnMask & ~slotBit;
+        }
+        return result;
     }
 
-    private List<AEKey> emitWhileCraftingKeys() {
-        List<AEKey> keys = new ArrayList<>(configuredItemCount);
-        for (int slot = 0; slot < configuredItemCount; slot++) {
-            MultiLevelEmitterPart.CraftingMode craftingMode = craftingModeForSlot(slot);
-            if (craftingMode != MultiLevelEmitterPart.CraftingMode.EMIT_WHILE_CRAFTING
-                    && craftingMode != MultiLevelEmitterPart.CraftingMode.EMIT_TO_CRAFT) {
-                continue;
-            }
-            AEKey key = ensureConfigInventory().getKey(slot);
-            if (key != null) {
-                keys.add(key);
-            }
+    private void clearHysteresisState(int slot) {
+        if (slot >= 0 && slot < MultiLevelEmitterExpressionProgram.MAX_SLOTS) {
+            hysteresisOnMask &= ~(1L << slot);
         }
-        return keys;
     }
 
     private List<AEKey> requestStateCraftingKeys() {
-        return emitWhileCraftingKeys();
+        ensureCraftTargetIndex();
+        return emitWhileCraftingKeyList;
     }
 
     private Set<AEKey> emitToCraftKeys() {
-        Set<AEKey> keys = new LinkedHashSet<>(configuredItemCount);
-        for (int slot = 0; slot < configuredItemCount; slot++) {
-            if (craftingModeForSlot(slot) != MultiLevelEmitterPart.CraftingMode.EMIT_TO_CRAFT) {
-                continue;
-            }
-            AEKey key = ensureConfigInventory().getKey(slot);
-            if (key != null) {
-                keys.add(key);
-            }
-        }
-        return keys;
+        ensureCraftTargetIndex();
+        return emitToCraftKeySet;
     }
 
     private boolean isCraftingExpressionParticipatingSlot(int slot) {
@@ -797,95 +1424,35 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
 
     private long readStorageCountedAmount(int slot, KeyCounter inventory, AEKey key) {
         MultiLevelEmitterPart.MatchingMode matchingMode = matchingModeForSlot(slot);
-        return matchingMode == MultiLevelEmitterPart.MatchingMode.STRICT
-                ? inventory.get(key)
-                : readFuzzyAmount(inventory, key, toFuzzyMode(matchingMode));
-    }
-
-    private MultiLevelEmitterPart.ComparisonMode comparisonModeForSlot(int slot) {
-        return slot < comparisonModes.size()
-                ? comparisonModes.get(slot)
-                : MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL;
-    }
-
-    private List<Long> readObservedValues(IGrid grid) {
-        KeyCounter inventory = grid.getStorageService().getCachedInventory();
-        List<Long> observedValues = new ArrayList<>(configuredItemCount);
-        for (int slot = 0; slot < configuredItemCount; slot++) {
-            AEKey key = ensureConfigInventory().getKey(slot);
-            if (key == null) {
-                observedValues.add(0L);
-                continue;
-            }
-
-            MultiLevelEmitterPart.MatchingMode matchingMode = matchingModeForSlot(slot);
-            long amount = matchingMode == MultiLevelEmitterPart.MatchingMode.STRICT
-                    ? inventory.get(key)
-                    : readFuzzyAmount(inventory, key, toFuzzyMode(matchingMode));
-            observedValues.add(amount);
-        }
-        return observedValues;
-    }
-
-    private boolean hasMarkedNonStrictStorageSlot() {
-        ConfigInventory config = ensureConfigInventory();
-        for (int slot = 0; slot < configuredItemCount; slot++) {
-            if (isStorageCountingSlot(slot)
-                    && config.getKey(slot) != null
-                    && matchingModeForSlot(slot) != MultiLevelEmitterPart.MatchingMode.STRICT) {
-                return true;
-            }
+        if (matchingMode == MultiLevelEmitterPart.MatchingMode.STRICT) {
+            return inventory.get(key);
         }
-        return false;
-    }
-
-    private boolean isStorageCountingSlot(int slot) {
-        return craftingModeForSlot(slot) == MultiLevelEmitterPart.CraftingMode.NONE;
+        MultiLevelEmitterFuzzyAggregate aggregate = fuzzyAggregates == null ? null : fuzzyAggregates[slot];
+        return aggregate != null
+                ? aggregate.total(inventory)
+                : readFuzzyAmount(inventory, key, toFuzzyMode(matchingMode));
     }
 
-    private List<MultiLevelEmitterPart.MatchingMode> reconcileRequestedMatchingModes(
-            List<MultiLevelEmitterPart.MatchingMode> persistedMatchingModes,
-            int normalizedSlotCount,
-            boolean fuzzyCardInstalled
-    ) {
-        List<MultiLevelEmitterPart.MatchingMode> requestedModes =
-                new ArrayList<>(MultiLevelEmitterPart.normalizeRequestedMatchingModesForSlotCount(
-                        persistedMatchingModes,
-                        normalizedSlotCount
-                ));
-        if (cardCapabilityStateInitialized && lastKnownFuzzyCardInstalled && !fuzzyCardInstalled) {
-            for (int slot = 0; slot < requestedModes.size(); slot++) {
-                requestedModes.set(slot, MultiLevelEmitterPart.MatchingMode.STRICT);
-            }
+    /**
+     * Server side: writes the stock each configured slot currently counts, the way its matching mode sees it, into
+     * {@code amounts} and returns how many slots were written. Unmarked slots read zero; without a grid nothing is
+     * written.
+     */
+    public int readObservedAmounts(long[] amounts) {
+        if (isClientSide() || getMainNode() == null || !getMainNode().isActive()) {
+            return 0;
         }
-        return requestedModes;
-    }
-
-    private List<MultiLevelEmitterPart.CraftingMode> reconcileRequestedCraftingModes(
-            List<MultiLevelEmitterPart.CraftingMode> persistedCraftingModes,
-            int normalizedSlotCount,
-            boolean craftingCardInstalled
-    ) {
-        List<MultiLevelEmitterPart.CraftingMode> requestedModes =
-                new ArrayList<>(MultiLevelEmitterPart.normalizeRequestedCraftingModesForSlotCount(
-                        persistedCraftingModes,
-                        normalizedSlotCount
-                ));
-        if (cardCapabilityStateInitialized && lastKnownCraftingCardInstalled && !craftingCardInstalled) {
-            for (int slot = 0; slot < requestedModes.size(); slot++) {
-                requestedModes.set(slot, MultiLevelEmitterPart.CraftingMode.NONE);
-            }
-            return requestedModes;
+        IGrid grid = getMainNode().getGrid();
+        if (grid == null) {
+            return 0;
         }
-        if (cardCapabilityStateInitialized && !lastKnownCraftingCardInstalled && craftingCardInstalled) {
-            ConfigInventory config = ensureConfigInventory();
-            for (int slot = 0; slot < requestedModes.size(); slot++) {
-                if (requestedModes.get(slot) == MultiLevelEmitterPart.CraftingMode.NONE && config.getKey(slot) != null) {
-                    requestedModes.set(slot, MultiLevelEmitterPart.CraftingMode.EMIT_WHILE_CRAFTING);
-                }
-            }
+        KeyCounter inventory = grid.getStorageService().getCachedInventory();
+        int slotCount = Math.min(configuredItemCount, amounts.length);
+        for (int slot = 0; slot < slotCount; slot++) {
+            AEKey key = configuredKey(slot);
+            amounts[slot] = key == null ? 0L : readStorageCountedAmount(slot, inventory, key);
         }
-        return requestedModes;
+        return slotCount;
     }
 
     private static long readFuzzyAmount(KeyCounter inventory, AEKey key, FuzzyMode fuzzyMode) {
@@ -928,22 +1495,20 @@ public class MultiLevelEmitterRuntimePart extends StorageLevelEmitterPart {
         }
     }
 
-    private IStackWatcher getWatcher(Field field) {
-        try {
-            return (IStackWatcher) field.get(this);
-        } catch (IllegalAccessException exception) {
-            throw new IllegalStateException("Unable to read AE2 watcher field", exception);
-        }
+    /**
+     * Game time the minimum dwell is measured in, or {@code -1} while the part has no level.
+     */
+    protected long dwellClock() {
+        Level level = getHost() == null ? null : getLevel();
+        return level == null ? -1L : level.getGameTime();
     }
 
-    private static Field resolveField(String fieldName) {
-        try {
-            Field field = StorageLevelEmitterPart.class.getDeclaredField(fieldName);
-            field.setAccessible(true);
-            return field;
-        } catch (ReflectiveOperationException exception) {
-            throw new IllegalStateException("Unable to resolve StorageLevelEmitterPart." + fieldName, exception);
-        }
+    protected IStackWatcher storageWatcher() {
+        return ((StorageLevelEmitterPartAccessor) this).chexsonsaeutils$getStorageWatcher();
+    }
+
+    protected IStackWatcher craftingWatcher() {
+        return ((StorageLevelEmitterPartAccessor) this).chexsonsaeutils$getCraftingWatcher();
     }
 
     private void markRuntimeStateDirty() {
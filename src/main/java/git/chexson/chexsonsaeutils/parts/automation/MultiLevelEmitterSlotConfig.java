@@ -0,0 +1,369 @@
+package git.chexson.chexsonsaeutils.parts.automation;
+
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionProgram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-slot emitter configuration kept column by column: thresholds as longs, modes as enum ordinals.
+ * <p>
+ * Once {@link #share()} hands an instance out it is frozen; the owner edits a copy obtained from {@link #editable()}.
+ * Columns only grow as far as the slot count has reached, and untouched emitters all point at the frozen
+ * {@link #defaults(int)} instance for their slot count.
+ */
+public final class MultiLevelEmitterSlotConfig {
+    public static final int CAPACITY = MultiLevelEmitterExpressionProgram.MAX_SLOTS;
+
+    private static final MultiLevelEmitterPart.ComparisonMode[] COMPARISON_MODES =
+            MultiLevelEmitterPart.ComparisonMode.values();
+    private static final MultiLevelEmitterPart.LogicRelation[] LOGIC_RELATIONS =
+            MultiLevelEmitterPart.LogicRelation.values();
+    private static final MultiLevelEmitterPart.MatchingMode[] MATCHING_MODES =
+            MultiLevelEmitterPart.MatchingMode.values();
+    private static final MultiLevelEmitterPart.CraftingMode[] CRAFTING_MODES =
+            MultiLevelEmitterPart.CraftingMode.values();
+    private static final byte DEFAULT_RELATION = (byte) MultiLevelEmitterPart.LogicRelation.OR.ordinal();
+    private static final MultiLevelEmitterSlotConfig[] DEFAULTS = new MultiLevelEmitterSlotConfig[CAPACITY + 1];
+
+    private long[] thresholds;
+    private long[] hysteresisBands;
+    private byte[] comparisonModes;
+    // relations[i] joins slot i and slot i + 1.
+    private byte[] relations;
+    private byte[] requestedMatchingModes;
+    private byte[] matchingModes;
+    private byte[] requestedCraftingModes;
+    private byte[] craftingModes;
+    private int slotCount;
+    private boolean shared;
+
+    public MultiLevelEmitterSlotConfig() {
+        this(0);
+    }
+
+    private MultiLevelEmitterSlotConfig(int columnLength) {
+        thresholds = new long[columnLength];
+        hysteresisBands = new long[columnLength];
+        comparisonModes = new byte[columnLength];
+        relations = new byte[columnLength];
+        requestedMatchingModes = new byte[columnLength];
+        matchingModes = new byte[columnLength];
+        requestedCraftingModes = new byte[columnLength];
+        craftingModes = new byte[columnLength];
+        resetFrom(0);
+    }
+
+    private MultiLevelEmitterSlotConfig(MultiLevelEmitterSlotConfig source) {
+        thresholds = source.thresholds.clone();
+        hysteresisBands = source.hysteresisBands.clone();
+        comparisonModes = source.comparisonModes.clone();
+        relations = source.relations.clone();
+        requestedMatchingModes = source.requestedMatchingModes.clone();
+        matchingModes = source.matchingModes.clone();
+        requestedCraftingModes = source.requestedCraftingModes.clone();
+        craftingModes = source.craftingModes.clone();
+        slotCount = source.slotCount;
+    }
+
+    /**
+     * The frozen configuration a freshly placed or reset emitter with {@code slotCount} slots starts from.
+     */
+    static synchronized MultiLevelEmitterSlotConfig defaults(int slotCount) {
+        int clamped = clampSlotCount(slotCount);
+        MultiLevelEmitterSlotConfig defaults = DEFAULTS[clamped];
+        if (defaults == null) {
+            defaults = new MultiLevelEmitterSlotConfig(clamped);
+            defaults.slotCount = clamped;
+            DEFAULTS[clamped] = defaults.share();
+        }
+        return defaults;
+    }
+
+    MultiLevelEmitterSlotConfig share() {
+        shared = true;
+        return this;
+    }
+
+    MultiLevelEmitterSlotConfig editable() {
+        return shared ? new MultiLevelEmitterSlotConfig(this) : this;
+    }
+
+    public int slotCount() {
+        return slotCount;
+    }
+
+    public long threshold(int slot) {
+        return inRange(slot) ? thresholds[slot] : 1L;
+    }
+
+    public long hysteresisBand(int slot) {
+        return inRange(slot) ? hysteresisBands[slot] : 0L;
+    }
+
+    public MultiLevelEmitterPart.ComparisonMode comparisonMode(int slot) {
+        return inRange(slot)
+                ? COMPARISON_MODES[comparisonModes[slot]]
+                : MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL;
+    }
+
+    public MultiLevelEmitterPart.LogicRelation relation(int index) {
+        return index >= 0 && index < slotCount - 1
+                ? LOGIC_RELATIONS[relations[index]]
+                : MultiLevelEmitterPart.LogicRelation.OR;
+    }
+
+    public MultiLevelEmitterPart.MatchingMode requestedMatchingMode(int slot) {
+        return inRange(slot) ? MATCHING_MODES[requestedMatchingModes[slot]] : MultiLevelEmitterPart.MatchingMode.STRICT;
+    }
+
+    public MultiLevelEmitterPart.MatchingMode matchingMode(int slot) {
+        return inRange(slot) ? MATCHING_MODES[matchingModes[slot]] : MultiLevelEmitterPart.MatchingMode.STRICT;
+    }
+
+    public MultiLevelEmitterPart.CraftingMode requestedCraftingMode(int slot) {
+        return inRange(slot) ? CRAFTING_MODES[requestedCraftingModes[slot]] : MultiLevelEmitterPart.CraftingMode.NONE;
+    }
+
+    public MultiLevelEmitterPart.CraftingMode craftingMode(int slot) {
+        return inRange(slot) ? CRAFTING_MODES[craftingModes[slot]] : MultiLevelEmitterPart.CraftingMode.NONE;
+    }
+
+    /**
+     * Replaces every column with the persisted values, applying the same defaults as the
+     * {@code MultiLevelEmitterPart.normalize*ForSlotCount} helpers. Effective modes start out equal to the
+     * requested ones until the owner resolves them against its installed cards. Hysteresis bands are not part
+     * of this and stay as they are.
+     */
+    void load(
+            int slotCount,
+            Map<Integer, Long> persistedThresholds,
+            List<MultiLevelEmitterPart.ComparisonMode> persistedComparisons,
+            List<MultiLevelEmitterPart.LogicRelation> persistedRelations,
+            List<MultiLevelEmitterPart.MatchingMode> persistedMatchingModes,
+            List<MultiLevelEmitterPart.CraftingMode> persistedCraftingModes
+    ) {
+        this.slotCount = clampSlotCount(slotCount);
+        ensureColumnLength(this.slotCount);
+        resetFrom(0);
+        Arrays.fill(hysteresisBands, this.slotCount, hysteresisBands.length, 0L);
+        for (int slot = 0; slot < this.slotCount; slot++) {
+            Long threshold = persistedThresholds == null ? null : persistedThresholds.get(slot);
+            thresholds[slot] = MultiLevelEmitterPart.sanitizeThreshold(threshold == null ? 1L : threshold);
+            MultiLevelEmitterPart.ComparisonMode comparison = elementAt(persistedComparisons, slot);
+            if (comparison != null) {
+                comparisonModes[slot] = (byte) comparison.ordinal();
+            }
+            if (slot + 1 < this.slotCount) {
+                MultiLevelEmitterPart.LogicRelation relation = elementAt(persistedRelations, slot);
+                if (relation != null) {
+                    relations[slot] = (byte) relation.ordinal();
+                }
+            }
+            MultiLevelEmitterPart.MatchingMode matchingMode = elementAt(persistedMatchingModes, slot);
+            if (matchingMode != null) {
+                requestedMatchingModes[slot] = (byte) matchingMode.ordinal();
+                matchingModes[slot] = requestedMatchingModes[slot];
+            }
+            MultiLevelEmitterPart.CraftingMode craftingMode = elementAt(persistedCraftingModes, slot);
+            if (craftingMode != null) {
+                requestedCraftingModes[slot] = (byte) craftingMode.ordinal();
+                craftingModes[slot] = requestedCraftingModes[slot];
+            }
+        }
+    }
+
+    /**
+     * Bands are persisted apart from the other columns; {@link #load} keeps the bands of the slots it keeps.
+     */
+    void loadHysteresisBands(Map<Integer, Long> persistedBands) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            Long band = persistedBands == null ? null : persistedBands.get(slot);
+            hysteresisBands[slot] = MultiLevelEmitterPart.sanitizeHysteresisBand(band == null ? 0L : band);
+        }
+    }
+
+    /**
+     * Shrinking drops the configuration of the removed slots, so growing again starts them from defaults.
+     */
+    void setSlotCount(int slotCount) {
+        int clamped = clampSlotCount(slotCount);
+        if (clamped < this.slotCount) {
+            resetFrom(clamped);
+            Arrays.fill(hysteresisBands, clamped, hysteresisBands.length, 0L);
+        }
+        ensureColumnLength(clamped);
+        this.slotCount = clamped;
+    }
+
+    boolean setThreshold(int slot, long threshold) {
+        long sanitized = MultiLevelEmitterPart.sanitizeThreshold(threshold);
+        if (!inRange(slot) || thresholds[slot] == sanitized) {
+            return false;
+        }
+        thresholds[slot] = sanitized;
+        return true;
+    }
+
+    boolean setHysteresisBand(int slot, long band) {
+        long sanitized = MultiLevelEmitterPart.sanitizeHysteresisBand(band);
+        if (!inRange(slot) || hysteresisBands[slot] == sanitized) {
+            return false;
+        }
+        hysteresisBands[slot] = sanitized;
+        return true;
+    }
+
+    boolean setComparisonMode(int slot, MultiLevelEmitterPart.ComparisonMode mode) {
+        byte ordinal = (byte) (mode == null ? MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL : mode).ordinal();
+        if (!inRange(slot) || comparisonModes[slot] == ordinal) {
+            return false;
+        }
+        comparisonModes[slot] = ordinal;
+        return true;
+    }
+
+    void setMatchingMode(
+            int slot,
+            MultiLevelEmitterPart.MatchingMode requested,
+            MultiLevelEmitterPart.MatchingMode effective
+    ) {
+        if (inRange(slot)) {
+            requestedMatchingModes[slot] = (byte) requested.ordinal();
+            matchingModes[slot] = (byte) effective.ordinal();
+        }
+    }
+
+    void setCraftingMode(
+            int slot,
+            MultiLevelEmitterPart.CraftingMode requested,
+            MultiLevelEmitterPart.CraftingMode effective
+    ) {
+        if (inRange(slot)) {
+            requestedCraftingModes[slot] = (byte) requested.ordinal();
+            craftingModes[slot] = (byte) effective.ordinal();
+        }
+    }
+
+    public boolean hasHysteresisBands() {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (hysteresisBands[slot] != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether every slot reads the same as in {@link #defaults(int)} for this slot count.
+     */
+    public boolean isDefault() {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (thresholds[slot] != 1L
+                    || hysteresisBands[slot] != 0L
+                    || comparisonModes[slot] != 0
+                    || requestedMatchingModes[slot] != 0
+                    || matchingModes[slot] != 0
+                    || requestedCraftingModes[slot] != 0
+                    || craftingModes[slot] != 0
+                    || (slot + 1 < slotCount && relations[slot] != DEFAULT_RELATION)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Map<Integer, Long> thresholdMap() {
+        Map<Integer, Long> values = new LinkedHashMap<>(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            values.put(slot, thresholds[slot]);
+        }
+        return values;
+    }
+
+    public Map<Integer, Long> hysteresisBandMap() {
+        Map<Integer, Long> values = new LinkedHashMap<>();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (hysteresisBands[slot] > 0L) {
+                values.put(slot, hysteresisBands[slot]);
+            }
+        }
+        return values;
+    }
+
+    public List<MultiLevelEmitterPart.ComparisonMode> comparisonModeList() {
+        List<MultiLevelEmitterPart.ComparisonMode> values = new ArrayList<>(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            values.add(COMPARISON_MODES[comparisonModes[slot]]);
+        }
+        return List.copyOf(values);
+    }
+
+    public List<MultiLevelEmitterPart.LogicRelation> relationList() {
+        int relationCount = Math.max(0, slotCount - 1);
+        List<MultiLevelEmitterPart.LogicRelation> values = new ArrayList<>(relationCount);
+        for (int index = 0; index < relationCount; index++) {
+            values.add(LOGIC_RELATIONS[relations[index]]);
+        }
+        return List.copyOf(values);
+    }
+
+    public List<MultiLevelEmitterPart.MatchingMode> requestedMatchingModeList() {
+        List<MultiLevelEmitterPart.MatchingMode> values = new ArrayList<>(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            values.add(MATCHING_MODES[requestedMatchingModes[slot]]);
+        }
+        return List.copyOf(values);
+    }
+
+    public List<MultiLevelEmitterPart.CraftingMode> requestedCraftingModeList() {
+        List<MultiLevelEmitterPart.CraftingMode> values = new ArrayList<>(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            values.add(CRAFTING_MODES[requestedCraftingModes[slot]]);
+        }
+        return List.copyOf(values);
+    }
+
+    private boolean inRange(int slot) {
+        return slot >= 0 && slot < slotCount;
+    }
+
+    private void ensureColumnLength(int length) {
+        int previousLength = thresholds.length;
+        if (length <= previousLength) {
+            return;
+        }
+        thresholds = Arrays.copyOf(thresholds, length);
+        hysteresisBands = Arrays.copyOf(hysteresisBands, length);
+        comparisonModes = Arrays.copyOf(comparisonModes, length);
+        relations = Arrays.copyOf(relations, length);
+        requestedMatchingModes = Arrays.copyOf(requestedMatchingModes, length);
+        matchingModes = Arrays.copyOf(matchingModes, length);
+        requestedCraftingModes = Arrays.copyOf(requestedCraftingModes, length);
+        craftingModes = Arrays.copyOf(craftingModes, length);
+        Arrays.fill(thresholds, previousLength, length, 1L);
+        Arrays.fill(relations, previousLength, length, DEFAULT_RELATION);
+    }
+
+    private void resetFrom(int slot) {
+        int length = thresholds.length;
+        Arrays.fill(thresholds, slot, length, 1L);
+        Arrays.fill(comparisonModes, slot, length, (byte) 0);
+        Arrays.fill(relations, Math.max(0, slot - 1), length, DEFAULT_RELATION);
+        Arrays.fill(requestedMatchingModes, slot, length, (byte) 0);
+        Arrays.fill(matchingModes, slot, length, (byte) 0);
+        Arrays.fill(requestedCraftingModes, slot, length, (byte) 0);
+        Arrays.fill(craftingModes, slot, length, (byte) 0);
+    }
+
+    private static int clampSlotCount(int slotCount) {
+        return Math.max(0, Math.min(CAPACITY, slotCount));
+    }
+
+    private static <T> T elementAt(List<T> values, int index) {
+        return values != null && index < values.size() ? values.get(index) : null;
+    }
+}
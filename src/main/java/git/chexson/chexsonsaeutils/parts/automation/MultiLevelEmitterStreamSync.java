@@ -0,0 +1,93 @@
+package git.chexson.chexsonsaeutils.parts.automation;
+
+import net.minecraft.network.FriendlyByteBuf;
+
+/**
+ * Binary client sync for {@link MultiLevelEmitterRuntimePart}.
+ * <p>
+ * Chunk data always carries the full state. Block update packets reach every tracking client in order, so only
+ * those may carry a delta against the previously broadcast version; a client that cannot match the base version
+ * ignores it and waits for the next full state. Only the update packet a chunk holder broadcasts counts as sent:
+ * any other {@code getUpdatePacket} caller is given the full state and leaves the pending delta alone.
+ */
+public final class MultiLevelEmitterStreamSync {
+    static final int FORMAT = 2;
+    static final int KIND_FULL = 0;
+    static final int KIND_DELTA = 1;
+    static final int KIND_UNCHANGED = 2;
+
+    private static final MultiLevelEmitterPart.ComparisonMode[] COMPARISON_MODES =
+            MultiLevelEmitterPart.ComparisonMode.values();
+    private static final MultiLevelEmitterPart.LogicRelation[] LOGIC_RELATIONS =
+            MultiLevelEmitterPart.LogicRelation.values();
+    private static final MultiLevelEmitterPart.MatchingMode[] MATCHING_MODES =
+            MultiLevelEmitterPart.MatchingMode.values();
+    private static final MultiLevelEmitterPart.CraftingMode[] CRAFTING_MODES =
+            MultiLevelEmitterPart.CraftingMode.values();
+    private static final ThreadLocal<Boolean> WRITING_UPDATE_PACKET = new ThreadLocal<>();
+
+    private MultiLevelEmitterStreamSync() {
+    }
+
+    public static void beginUpdatePacket() {
+        WRITING_UPDATE_PACKET.set(Boolean.TRUE);
+    }
+
+    public static void endUpdatePacket() {
+        WRITING_UPDATE_PACKET.remove();
+    }
+
+    static boolean isWritingUpdatePacket() {
+        return WRITING_UPDATE_PACKET.get() != null;
+    }
+
+    static void writeSlot(FriendlyByteBuf data, MultiLevelEmitterSlotConfig slots, int slot) {
+        data.writeVarLong(slots.threshold(slot));
+        data.writeByte(slots.comparisonMode(slot).ordinal());
+        data.writeByte(slots.requestedMatchingMode(slot).ordinal());
+        data.writeByte(slots.requestedCraftingMode(slot).ordinal());
+        data.writeVarLong(slots.hysteresisBand(slot));
+    }
+
+    /**
+     * Writes the set bits of {@code slots} as contiguous runs so neighbouring edits share one header.
+     */
+    static void writeSlotRanges(FriendlyByteBuf data, MultiLevelEmitterSlotConfig config, long slots) {
+        data.writeVarInt(Long.bitCount(slots & ~(slots << 1)));
+        long remaining = slots;
+        while (remaining != 0L) {
+            int start = Long.numberOfTrailingZeros(remaining);
+            int length = Long.numberOfTrailingZeros(~(remaining >>> start));
+            data.writeVarInt(start);
+            data.writeVarInt(length);
+            for (int slot = start; slot < start + length; slot++) {
+                writeSlot(data, config, slot);
+            }
+            remaining &= length >= Long.SIZE ? 0L : ~(((1L << length) - 1L) << start);
+        }
+    }
+
+    static MultiLevelEmitterPart.ComparisonMode comparisonMode(int ordinal) {
+        return ordinal >= 0 && ordinal < COMPARISON_MODES.length
+                ? COMPARISON_MODES[ordinal]
+                : MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL;
+    }
+
+    static MultiLevelEmitterPart.LogicRelation logicRelation(int ordinal) {
+        return ordinal >= 0 && ordinal < LOGIC_RELATIONS.length
+                ? LOGIC_RELATIONS[ordinal]
+                : MultiLevelEmitterPart.LogicRelation.OR;
+    }
+
+    static MultiLevelEmitterPart.MatchingMode matchingMode(int ordinal) {
+        return ordinal >= 0 && ordinal < MATCHING_MODES.length
+                ? MATCHING_MODES[ordinal]
+                : MultiLevelEmitterPart.MatchingMode.STRICT;
+    }
+
+    static MultiLevelEmitterPart.CraftingMode craftingMode(int ordinal) {
+        return ordinal >= 0 && ordinal < CRAFTING_MODES.length
+                ? CRAFTING_MODES[ordinal]
+                : MultiLevelEmitterPart.CraftingMode.NONE;
+    }
+}
@@ -0,0 +1,98 @@
+package git.chexson.chexsonsaeutils.parts.automation;
+
+import appeng.api.networking.IGrid;
+import appeng.api.stacks.KeyCounter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Coalesces watcher-driven emitter updates so every dirty emitter on a grid is evaluated once per tick.
+ * <p>
+ * Each grid owns its scheduler, so emitters still queued on a grid that is torn down or merged away are released
+ * together with it.
+ */
+public final class MultiLevelEmitterUpdateScheduler {
+    private final Set<MultiLevelEmitterRuntimePart> dirtyEmitters = new LinkedHashSet<>();
+    MultiLevelEmitterCraftingRequests craftingRequests;
+
+    public static void markDirty(@Nullable IGrid grid, MultiLevelEmitterRuntimePart emitter) {
+        if (grid == null || emitter == null) {
+            return;
+        }
+        if (grid instanceof GridHost host) {
+            host.chexsonsaeutils$emitterUpdates().dirtyEmitters.add(emitter);
+            return;
+        }
+        // Nothing would flush a grid without the tick hook, so the update cannot be deferred.
+        emitter.flushScheduledUpdate(grid, new TickReads(grid));
+    }
+
+    /**
+     * Queues the emitter for the grid's next flush. Unlike {@link #markDirty}, a grid without the tick hook is
+     * left alone: evaluating right away from inside an evaluation would only recurse.
+     */
+    public static void markDirtyNextTick(@Nullable IGrid grid, MultiLevelEmitterRuntimePart emitter) {
+        if (emitter != null && grid instanceof GridHost host) {
+            host.chexsonsaeutils$emitterUpdates().dirtyEmitters.add(emitter);
+        }
+    }
+
+    public static void beginTick(@Nullable IGrid grid) {
+        MultiLevelEmitterCraftingRequests.invalidate(grid);
+    }
+
+    public static void flush(@Nullable IGrid grid) {
+        if (grid == null) {
+            return;
+        }
+        // The grid services just ticked, so crafting requests may have moved since the last lookup.
+        MultiLevelEmitterCraftingRequests.invalidate(grid);
+        if (!(grid instanceof GridHost host)) {
+            return;
+        }
+        MultiLevelEmitterUpdateScheduler scheduler = host.chexsonsaeutils$emitterUpdates();
+        if (scheduler.dirtyEmitters.isEmpty()) {
+            return;
+        }
+
+        // Emitters may mark themselves dirty again while updating; those wait for the next tick.
+        List<MultiLevelEmitterRuntimePart> emitters = new ArrayList<>(scheduler.dirtyEmitters);
+        scheduler.dirtyEmitters.clear();
+        TickReads reads = new TickReads(grid);
+        for (MultiLevelEmitterRuntimePart emitter : emitters) {
+            emitter.flushScheduledUpdate(grid, reads);
+        }
+    }
+
+    /**
+     * Implemented by the grid, which keeps its own scheduler.
+     */
+    public interface GridHost {
+        MultiLevelEmitterUpdateScheduler chexsonsaeutils$emitterUpdates();
+    }
+
+    /**
+     * Grid reads shared by every emitter flushed in the same tick.
+     */
+    public static final class TickReads {
+        private final KeyCounter inventory;
+        private final MultiLevelEmitterCraftingRequests craftingRequests;
+
+        TickReads(IGrid grid) {
+            this.inventory = grid.getStorageService().getCachedInventory();
+            this.craftingRequests = MultiLevelEmitterCraftingRequests.of(grid);
+        }
+
+        public KeyCounter inventory() {
+            return inventory;
+        }
+
+        public MultiLevelEmitterCraftingRequests craftingRequests() {
+            return craftingRequests;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package git.chexson.chexsonsaeutils.parts.automation;
+
+import appeng.api.networking.IStackWatcher;
+import appeng.api.stacks.AEKey;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * What one AE2 watcher was last told to watch, so reconfiguring only adds and removes the keys that changed.
+ * <p>
+ * Every add or remove touches the grid-wide interest registry, so resetting and re-adding all keys on each
+ * config edit is what this avoids.
+ */
+final class MultiLevelEmitterWatchedKeys {
+    private IStackWatcher watcher;
+    private boolean watchAll;
+    private final Set<AEKey> keys = new HashSet<>();
+
+    void update(@Nullable IStackWatcher current, boolean watchAll, Collection<AEKey> wanted) {
+        if (current == null) {
+            watcher = null;
+            this.watchAll = false;
+            keys.clear();
+            return;
+        }
+        if (current != watcher || watchAll != this.watchAll) {
+            // AE2 hands out a fresh watcher whenever the node joins a grid; mode switches also start over.
+            current.reset();
+            watcher = current;
+            this.watchAll = watchAll;
+            keys.clear();
+            if (watchAll) {
+                current.setWatchAll(true);
+                return;
+            }
+            for (AEKey key : wanted) {
+                if (keys.add(key)) {
+                    current.add(key);
+                }
+            }
+            return;
+        }
+        if (watchAll) {
+            return;
+        }
+
+        Set<AEKey> next = wanted instanceof Set<AEKey> set ? set : new HashSet<>(wanted);
+        for (Iterator<AEKey> iterator = keys.iterator(); iterator.hasNext(); ) {
+            AEKey key = iterator.next();
+            if (!next.contains(key)) {
+                iterator.remove();
+                current.remove(key);
+            }
+        }
+        for (AEKey key : next) {
+            if (keys.add(key)) {
+                current.add(key);
+            }
+        }
+    }
+}
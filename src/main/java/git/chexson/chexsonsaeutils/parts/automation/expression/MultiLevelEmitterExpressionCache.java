@@ -0,0 +1,108 @@
+package git.chexson.chexsonsaeutils.parts.automation.expression;
+
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionLexer.Token;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionLexer.TokenKind;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Bounded, thread-safe cache of compile results shared by every emitter.
+ * <p>
+ * Results are keyed on the exact text because diagnostics carry text positions. Plans only depend on the simplified
+ * tree, so differently spaced, cased or redundantly written copies of one expression still share a single plan.
+ */
+public final class MultiLevelEmitterExpressionCache {
+    static final int MAX_ENTRIES = 256;
+
+    private static final Map<Key, MultiLevelEmitterExpressionCompileResult> RESULTS = boundedMap();
+    private static final Map<String, MultiLevelEmitterExpressionPlan> PLANS = boundedMap();
+
+    private MultiLevelEmitterExpressionCache() {
+    }
+
+    public static MultiLevelEmitterExpressionCompileResult compile(
+            String rawText,
+            int configuredSlots,
+            IntPredicate markedSlotPredicate
+    ) {
+        if (configuredSlots > MultiLevelEmitterExpressionProgram.MAX_SLOTS) {
+            return MultiLevelEmitterExpressionCompiler.compile(rawText, configuredSlots, markedSlotPredicate);
+        }
+        String safeRawText = rawText == null ? "" : rawText;
+        Key key = new Key(safeRawText, configuredSlots, markedSlots(configuredSlots, markedSlotPredicate));
+        MultiLevelEmitterExpressionCompileResult cached = RESULTS.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        MultiLevelEmitterExpressionCompileResult compiled =
+                shareSamePlan(MultiLevelEmitterExpressionCompiler.compile(safeRawText, configuredSlots, markedSlotPredicate));
+        MultiLevelEmitterExpressionCompileResult raced = RESULTS.putIfAbsent(key, compiled);
+        return raced == null ? compiled : raced;
+    }
+
+    static void clear() {
+        RESULTS.clear();
+        PLANS.clear();
+    }
+
+    private static MultiLevelEmitterExpressionCompileResult shareSamePlan(MultiLevelEmitterExpressionCompileResult result) {
+        if (result.plan() == null) {
+            return result;
+        }
+        MultiLevelEmitterExpressionPlan shared = PLANS.putIfAbsent(canonicalText(result), result.plan());
+        if (shared == null || shared == result.plan()) {
+            return result;
+        }
+        return new MultiLevelEmitterExpressionCompileResult(result.rawText(), result.tokens(), result.diagnostics(), shared);
+    }
+
+    private static String canonicalText(MultiLevelEmitterExpressionCompileResult result) {
+        String simplified = MultiLevelEmitterExpressionCompiler.simplifiedText(result.plan());
+        if (simplified != null) {
+            return simplified;
+        }
+        StringBuilder canonical = new StringBuilder(result.rawText().length());
+        for (Object element : result.tokens()) {
+            if (!(element instanceof Token token) || token.kind() == TokenKind.WHITESPACE) {
+                continue;
+            }
+            if (!canonical.isEmpty()) {
+                canonical.append(' ');
+            }
+            if (token.kind() == TokenKind.SLOT_REFERENCE) {
+                canonical.append('#').append(token.slotNumber());
+            } else if (token.kind() == TokenKind.NUMBER) {
+                canonical.append(token.numberValue());
+            } else {
+                canonical.append(token.kind());
+            }
+        }
+        return canonical.toString();
+    }
+
+    private static long markedSlots(int configuredSlots, IntPredicate markedSlotPredicate) {
+        long marked = 0L;
+        for (int slot = 0; slot < configuredSlots; slot++) {
+            if (markedSlotPredicate == null || markedSlotPredicate.test(slot)) {
+                marked |= 1L << slot;
+            }
+        }
+        return marked;
+    }
+
+    private static <K, V> Map<K, V> boundedMap() {
+        return Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        });
+    }
+
+    private record Key(String rawText, int configuredSlots, long markedSlots) {
+    }
+}
@@ -1,12 +1,18 @@
 package git.chexson.chexsonsaeutils.parts.automation.expression;
 
 import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterPart;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionLexer.Token;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionLexer.TokenKind;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.IntPredicate;
 
 public final class MultiLevelEmitterExpressionCompiler {
@@ -26,9 +32,21 @@ public final class MultiLevelEmitterExpressionCompiler {
             IntPredicate markedSlotPredicate
     ) {
         String safeRawText = rawText == null ? "" : rawText;
-        List<Token> tokens = tokenize(safeRawText);
+        return compile(safeRawText, MultiLevelEmitterExpressionLexer.lex(safeRawText), configuredSlots, markedSlotPredicate);
+    }
+
+    /**
+     * Compiles {@code rawText} from tokens the caller already holds for it, such as the editor's re-lexed draft.
+     */
+    public static MultiLevelEmitterExpressionCompileResult compile(
+            String rawText,
+            List<Token> tokens,
+            int configuredSlots,
+            IntPredicate markedSlotPredicate
+    ) {
+        String safeRawText = rawText == null ? "" : rawText;
         List<Token> parserTokens = tokens.stream()
-                .filter(token -> token.kind != TokenKind.WHITESPACE)
+                .filter(token -> token.kind() != TokenKind.WHITESPACE)
                 .toList();
         List<MultiLevelEmitterExpressionDiagnostic> diagnostics = new ArrayList<>();
 
@@ -40,6 +58,9 @@ public final class MultiLevelEmitterExpressionCompiler {
             root = parser.parseExpression();
         }
 
+        if (root != null) {
+            checkCondition(root, diagnostics);
+        }
         validateSlots(tokens, Math.max(0, configuredSlots), markedSlotPredicate, diagnostics);
 
         if (root != null && !containsInvalidDiagnostics(diagnostics) && mixesOperatorsWithoutGrouping(root)) {
@@ -67,101 +88,16 @@ public final class MultiLevelEmitterExpressionCompiler {
         diagnostics.sort(DIAGNOSTIC_ORDER);
         MultiLevelEmitterExpressionPlan plan = containsInvalidDiagnostics(diagnostics) || root == null
                 ? null
-                : new CompiledPlan(root);
+                : new CompiledPlan(optimize(root));
 
         return new MultiLevelEmitterExpressionCompileResult(safeRawText, tokens, diagnostics, plan);
     }
 
-    private static List<Token> tokenize(String rawText) {
-        List<Token> tokens = new ArrayList<>();
-        int index = 0;
-        while (index < rawText.length()) {
-            char current = rawText.charAt(index);
-            if (Character.isWhitespace(current)) {
-                int start = index;
-                while (index < rawText.length() && Character.isWhitespace(rawText.charAt(index))) {
-                    index++;
-                }
-                tokens.add(new Token(TokenKind.WHITESPACE, rawText.substring(start, index), start, index, -1));
-                continue;
-            }
-            if (current == '(') {
-                tokens.add(new Token(TokenKind.LEFT_PAREN, "(", index, index + 1, -1));
-                index++;
-                continue;
-            }
-            if (current == ')') {
-                tokens.add(new Token(TokenKind.RIGHT_PAREN, ")", index, index + 1, -1));
-                index++;
-                continue;
-            }
-            if (current == '#') {
-                int start = index;
-                index++;
-                while (index < rawText.length() && Character.isDigit(rawText.charAt(index))) {
-                    index++;
-                }
-                if (index > start + 1) {
-                    String value = rawText.substring(start, index);
-                    int slotNumber;
-                    try {
-                        slotNumber = Integer.parseInt(value.substring(1));
-                    } catch (NumberFormatException exception) {
-                        slotNumber = Integer.MAX_VALUE;
-                    }
-                    tokens.add(new Token(TokenKind.SLOT_REFERENCE, value, start, index, slotNumber));
-                } else {
-                    while (index < rawText.length() && !Character.isWhitespace(rawText.charAt(index))
-                            && rawText.charAt(index) != '(' && rawText.charAt(index) != ')') {
-                        index++;
-                    }
-                    tokens.add(new Token(
-                            TokenKind.INVALID_FRAGMENT,
-                            rawText.substring(start, index),
-                            start,
-                            index,
-                            -1
-                    ));
-                }
-                continue;
-            }
-            if (Character.isLetter(current)) {
-                int start = index;
-                while (index < rawText.length() && Character.isLetter(rawText.charAt(index))) {
-                    index++;
-                }
-                String value = rawText.substring(start, index);
-                String normalized = value.toUpperCase(Locale.ROOT);
-                if ("AND".equals(normalized)) {
-                    tokens.add(new Token(TokenKind.AND, value, start, index, -1));
-                } else if ("OR".equals(normalized)) {
-                    tokens.add(new Token(TokenKind.OR, value, start, index, -1));
-                } else {
-                    tokens.add(new Token(TokenKind.INVALID_FRAGMENT, value, start, index, -1));
-                }
-                continue;
-            }
-
-            int start = index;
-            while (index < rawText.length() && !Character.isWhitespace(rawText.charAt(index))
-                    && rawText.charAt(index) != '(' && rawText.charAt(index) != ')') {
-                if (rawText.charAt(index) == '#') {
-                    break;
-                }
-                index++;
-            }
-            if (index == start) {
-                index++;
-            }
-            tokens.add(new Token(
-                    TokenKind.INVALID_FRAGMENT,
-                    rawText.substring(start, index),
-                    start,
-                    index,
-                    -1
-            ));
-        }
-        return List.copyOf(tokens);
+    /**
+     * Text of the simplified tree a plan evaluates, or {@code null} for plans not built by this compiler.
+     */
+    static String simplifiedText(MultiLevelEmitterExpressionPlan plan) {
+        return plan instanceof CompiledPlan compiledPlan ? compiledPlan.simplifiedText : null;
     }
 
     private static void validateSlots(
@@ -172,17 +108,17 @@ public final class MultiLevelEmitterExpressionCompiler {
     ) {
         IntPredicate safeMarkedSlotPredicate = markedSlotPredicate == null ? index -> true : markedSlotPredicate;
         for (Token token : tokens) {
-            if (token.kind != TokenKind.SLOT_REFERENCE) {
+            if (token.kind() != TokenKind.SLOT_REFERENCE) {
                 continue;
             }
-            int slotNumber = token.slotNumber;
+            int slotNumber = token.slotNumber();
             if (slotNumber < 1 || slotNumber > configuredSlots) {
                 diagnostics.add(new MultiLevelEmitterExpressionDiagnostic(
                         MultiLevelEmitterExpressionDiagnostic.Severity.INVALID,
                         "out_of_range_slot",
-                        token.text + " is out of range for the current slot list.",
-                        token.start,
-                        token.end,
+                        token.text() + " is out of range for the current slot list.",
+                        token.start(),
+                        token.end(),
                         slotNumber - 1
                 ));
                 continue;
@@ -191,15 +127,311 @@ public final class MultiLevelEmitterExpressionCompiler {
                 diagnostics.add(new MultiLevelEmitterExpressionDiagnostic(
                         MultiLevelEmitterExpressionDiagnostic.Severity.WARNING,
                         "unmarked_slot",
-                        token.text + " references an existing slot with no marked item.",
-                        token.start,
-                        token.end,
+                        token.text() + " references an existing slot with no marked item.",
+                        token.start(),
+                        token.end(),
                         slotNumber - 1
                 ));
             }
         }
     }
 
+    private static void checkCondition(ExprNode node, List<MultiLevelEmitterExpressionDiagnostic> diagnostics) {
+        if (node instanceof BinaryNode binaryNode) {
+            checkCondition(binaryNode.left, diagnostics);
+            checkCondition(binaryNode.right, diagnostics);
+        } else if (node instanceof ParenthesizedNode parenthesizedNode) {
+            checkCondition(parenthesizedNode.inner, diagnostics);
+        } else if (node instanceof ComparisonNode comparisonNode) {
+            checkAmount(comparisonNode.left, diagnostics);
+            checkAmount(comparisonNode.right, diagnostics);
+        } else if (node instanceof NumberNode || node instanceof ArithmeticNode) {
+            diagnostics.add(new MultiLevelEmitterExpressionDiagnostic(
+                    MultiLevelEmitterExpressionDiagnostic.Severity.INVALID,
+                    "missing_comparison",
+                    "Amount terms must be compared against a value.",
+                    node.start(),
+                    node.end(),
+                    -1
+            ));
+        }
+    }
+
+    private static void checkAmount(ExprNode node, List<MultiLevelEmitterExpressionDiagnostic> diagnostics) {
+        if (node instanceof ArithmeticNode arithmeticNode) {
+            checkAmount(arithmeticNode.left, diagnostics);
+            checkAmount(arithmeticNode.right, diagnostics);
+            if (arithmeticNode.operator == TokenKind.MULTIPLY
+                    && !isConstant(arithmeticNode.left)
+                    && !isConstant(arithmeticNode.right)) {
+                diagnostics.add(new MultiLevelEmitterExpressionDiagnostic(
+                        MultiLevelEmitterExpressionDiagnostic.Severity.INVALID,
+                        "nonconstant_scale",
+                        "Slot amounts can only be scaled by constants.",
+                        arithmeticNode.start,
+                        arithmeticNode.end,
+                        -1
+                ));
+            }
+        } else if (node instanceof ParenthesizedNode parenthesizedNode) {
+            checkAmount(parenthesizedNode.inner, diagnostics);
+        } else if (node instanceof BinaryNode || node instanceof ComparisonNode) {
+            diagnostics.add(new MultiLevelEmitterExpressionDiagnostic(
+                    MultiLevelEmitterExpressionDiagnostic.Severity.INVALID,
+                    "expected_amount",
+                    "Conditions cannot be used as amounts.",
+                    node.start(),
+                    node.end(),
+                    -1
+            ));
+        }
+    }
+
+    private static boolean isConstant(ExprNode node) {
+        if (node instanceof NumberNode) {
+            return true;
+        }
+        if (node instanceof ParenthesizedNode parenthesizedNode) {
+            return isConstant(parenthesizedNode.inner);
+        }
+        return node instanceof ArithmeticNode arithmeticNode
+                && isConstant(arithmeticNode.left)
+                && isConstant(arithmeticNode.right);
+    }
+
+    // AND and OR skip operands without participating slots, which keeps both associative, commutative and
+    // idempotent. Chains are flattened and deduplicated on that basis and parentheses only survive as tree shape.
+    private static ExprNode optimize(ExprNode node) {
+        if (node instanceof ParenthesizedNode parenthesizedNode) {
+            return optimize(parenthesizedNode.inner);
+        }
+        if (node instanceof ArithmeticNode arithmeticNode) {
+            return new ArithmeticNode(
+                    arithmeticNode.operator,
+                    optimize(arithmeticNode.left),
+                    optimize(arithmeticNode.right),
+                    arithmeticNode.start,
+                    arithmeticNode.end
+            );
+        }
+        if (node instanceof ComparisonNode comparisonNode) {
+            return new ComparisonNode(
+                    comparisonNode.operator,
+                    optimize(comparisonNode.left),
+                    optimize(comparisonNode.right),
+                    comparisonNode.start,
+                    comparisonNode.end
+            );
+        }
+        if (!(node instanceof BinaryNode binaryNode)) {
+            return node;
+        }
+        List<ExprNode> operands = new ArrayList<>();
+        collectOperands(binaryNode, binaryNode.operator, operands);
+        return chain(binaryNode.operator, hoistShared(binaryNode.operator, distinct(operands)));
+    }
+
+    private static void collectOperands(ExprNode node, TokenKind operator, List<ExprNode> operands) {
+        ExprNode unwrapped = node;
+        while (unwrapped instanceof ParenthesizedNode parenthesizedNode) {
+            unwrapped = parenthesizedNode.inner;
+        }
+        if (unwrapped instanceof BinaryNode binaryNode && binaryNode.operator == operator) {
+            collectOperands(binaryNode.left, operator, operands);
+            collectOperands(binaryNode.right, operator, operands);
+            return;
+        }
+        flattenChain(optimize(unwrapped), operator, operands);
+    }
+
+    private static void flattenChain(ExprNode node, TokenKind operator, List<ExprNode> operands) {
+        if (node instanceof BinaryNode binaryNode && binaryNode.operator == operator) {
+            flattenChain(binaryNode.left, operator, operands);
+            flattenChain(binaryNode.right, operator, operands);
+        } else {
+            operands.add(node);
+        }
+    }
+
+    private static List<ExprNode> distinct(List<ExprNode> operands) {
+        Map<String, ExprNode> unique = new LinkedHashMap<>();
+        for (ExprNode operand : operands) {
+            unique.putIfAbsent(render(operand, true), operand);
+        }
+        return new ArrayList<>(unique.values());
+    }
+
+    /**
+     * Turns {@code (x AND a) OR (x AND b)} into {@code x AND (a OR b)}, and the same with the operators swapped.
+     * An inactive remainder would leave a bare {@code x} in its branch, which the factored form cannot express, so
+     * this only happens when every remainder reads the same slots and all of them drop out together.
+     */
+    private static List<ExprNode> hoistShared(TokenKind operator, List<ExprNode> operands) {
+        if (operands.size() < 2) {
+            return operands;
+        }
+        TokenKind dual = operator == TokenKind.AND ? TokenKind.OR : TokenKind.AND;
+        List<List<ExprNode>> branches = new ArrayList<>(operands.size());
+        Set<String> shared = null;
+        for (ExprNode operand : operands) {
+            if (!(operand instanceof BinaryNode binaryNode) || binaryNode.operator != dual) {
+                return operands;
+            }
+            List<ExprNode> branch = new ArrayList<>();
+            flattenChain(operand, dual, branch);
+            Set<String> keys = new LinkedHashSet<>();
+            for (ExprNode term : branch) {
+                keys.add(render(term, true));
+            }
+            if (shared == null) {
+                shared = keys;
+            } else {
+                shared.retainAll(keys);
+            }
+            branches.add(branch);
+        }
+        if (shared.isEmpty()) {
+            return operands;
+        }
+
+        List<ExprNode> hoisted = new ArrayList<>();
+        List<ExprNode> remainders = new ArrayList<>(branches.size());
+        BitSet remainderSlots = null;
+        for (List<ExprNode> branch : branches) {
+            List<ExprNode> remainder = new ArrayList<>();
+            for (ExprNode term : branch) {
+                boolean isShared = shared.contains(render(term, true));
+                if (!isShared) {
+                    remainder.add(term);
+                } else if (remainders.isEmpty()) {
+                    hoisted.add(term);
+                }
+            }
+            BitSet slots = new BitSet();
+            for (ExprNode term : remainder) {
+                collectReferencedSlots(term, slots);
+            }
+            if (remainder.isEmpty() || (remainderSlots != null && !remainderSlots.equals(slots))) {
+                return operands;
+            }
+            remainderSlots = slots;
+            flattenChain(chain(dual, remainder), operator, remainders);
+        }
+        flattenChain(chain(operator, hoistShared(operator, distinct(remainders))), dual, hoisted);
+        return List.of(chain(dual, distinct(hoisted)));
+    }
+
+    private static void collectReferencedSlots(ExprNode node, BitSet slots) {
+        if (node instanceof SlotNode slotNode) {
+            slots.set(Math.max(0, slotNode.slotNumber));
+        } else if (node instanceof BinaryNode binaryNode) {
+            collectReferencedSlots(binaryNode.left, slots);
+            collectReferencedSlots(binaryNode.right, slots);
+        } else if (node instanceof ComparisonNode comparisonNode) {
+            collectReferencedSlots(comparisonNode.left, slots);
+            collectReferencedSlots(comparisonNode.right, slots);
+        } else if (node instanceof ArithmeticNode arithmeticNode) {
+            collectReferencedSlots(arithmeticNode.left, slots);
+            collectReferencedSlots(arithmeticNode.right, slots);
+        } else if (node instanceof ParenthesizedNode parenthesizedNode) {
+            collectReferencedSlots(parenthesizedNode.inner, slots);
+        }
+    }
+
+    private static ExprNode chain(TokenKind operator, List<ExprNode> operands) {
+        ExprNode result = operands.get(0);
+        for (int index = 1; index < operands.size(); index++) {
+            ExprNode next = operands.get(index);
+            result = new BinaryNode(operator, result, next, result.start(), next.end());
+        }
+        return result;
+    }
+
+    /**
+     * Renders a tree with the fewest parentheses that keep its shape; AND inside OR stays grouped so the text
+     * never trips the mixed precedence warning. {@code sortChains} orders AND / OR operands for use as a key.
+     */
+    private static String render(ExprNode node, boolean sortChains) {
+        if (node instanceof SlotNode slotNode) {
+            return "#" + slotNode.slotNumber;
+        }
+        if (node instanceof NumberNode numberNode) {
+            return renderNumber(numberNode.value);
+        }
+        if (node instanceof ParenthesizedNode parenthesizedNode) {
+            return render(parenthesizedNode.inner, sortChains);
+        }
+        if (node instanceof BinaryNode binaryNode) {
+            List<ExprNode> operands = new ArrayList<>();
+            flattenChain(binaryNode, binaryNode.operator, operands);
+            List<String> rendered = new ArrayList<>(operands.size());
+            for (ExprNode operand : operands) {
+                String text = render(operand, sortChains);
+                rendered.add(operand instanceof BinaryNode ? "(" + text + ")" : text);
+            }
+            if (sortChains) {
+                rendered.sort(null);
+            }
+            return String.join(binaryNode.operator == TokenKind.AND ? " AND " : " OR ", rendered);
+        }
+        if (node instanceof ComparisonNode comparisonNode) {
+            return render(comparisonNode.left, sortChains)
+                    + " " + comparisonSymbol(comparisonNode.operator) + " "
+                    + render(comparisonNode.right, sortChains);
+        }
+        if (node instanceof ArithmeticNode arithmeticNode) {
+            int precedence = arithmeticPrecedence(arithmeticNode);
+            String left = render(arithmeticNode.left, sortChains);
+            String right = render(arithmeticNode.right, sortChains);
+            if (arithmeticPrecedence(arithmeticNode.left) < precedence) {
+                left = "(" + left + ")";
+            }
+            int rightPrecedence = arithmeticPrecedence(arithmeticNode.right);
+            if (rightPrecedence < precedence
+                    || (rightPrecedence == precedence && arithmeticNode.operator == TokenKind.MINUS)) {
+                right = "(" + right + ")";
+            }
+            String symbol = switch (arithmeticNode.operator) {
+                case PLUS -> " + ";
+                case MINUS -> " - ";
+                default -> " * ";
+            };
+            return left + symbol + right;
+        }
+        return "";
+    }
+
+    private static int arithmeticPrecedence(ExprNode node) {
+        if (!(node instanceof ArithmeticNode arithmeticNode)) {
+            return Integer.MAX_VALUE;
+        }
+        return arithmeticNode.operator == TokenKind.MULTIPLY ? 2 : 1;
+    }
+
+    private static String comparisonSymbol(TokenKind operator) {
+        return switch (operator) {
+            case GREATER_OR_EQUAL -> ">=";
+            case GREATER -> ">";
+            case LESS_OR_EQUAL -> "<=";
+            case LESS -> "<";
+            case EQUAL -> "=";
+            default -> "!=";
+        };
+    }
+
+    private static String renderNumber(long value) {
+        if (value != 0L && value % 1_000_000_000L == 0L) {
+            return value / 1_000_000_000L + "G";
+        }
+        if (value != 0L && value % 1_000_000L == 0L) {
+            return value / 1_000_000L + "M";
+        }
+        if (value != 0L && value % 1_000L == 0L) {
+            return value / 1_000L + "k";
+        }
+        return Long.toString(value);
+    }
+
     private static boolean containsInvalidDiagnostics(List<MultiLevelEmitterExpressionDiagnostic> diagnostics) {
         return diagnostics.stream().anyMatch(diagnostic -> diagnostic.severity() == MultiLevelEmitterExpressionDiagnostic.Severity.INVALID);
     }
@@ -232,52 +464,6 @@ public final class MultiLevelEmitterExpressionCompiler {
         };
     }
 
-    private enum TokenKind {
-        SLOT_REFERENCE,
-        AND,
-        OR,
-        LEFT_PAREN,
-        RIGHT_PAREN,
-        WHITESPACE,
-        INVALID_FRAGMENT
-    }
-
-    static final class Token {
-        private final TokenKind kind;
-        private final String text;
-        private final int start;
-        private final int end;
-        private final int slotNumber;
-
-        private Token(TokenKind kind, String text, int start, int end, int slotNumber) {
-            this.kind = Objects.requireNonNull(kind, "kind");
-            this.text = Objects.requireNonNull(text, "text");
-            this.start = start;
-            this.end = end;
-            this.slotNumber = slotNumber;
-        }
-
-        public String kind() {
-            return kind.name();
-        }
-
-        public String text() {
-            return text;
-        }
-
-        public int start() {
-            return start;
-        }
-
-        public int end() {
-            return end;
-        }
-
-        public int slotNumber() {
-            return slotNumber;
-        }
-    }
-
     private static final class Parser {
         private final String rawText;
         private final List<Token> tokens;
@@ -312,9 +498,9 @@ public final class MultiLevelEmitterExpressionCompiler {
                 addDiagnostic(
                         MultiLevelEmitterExpressionDiagnostic.Severity.INVALID,
                         "unexpected_token",
-                        "Unexpected token '" + token.text + "'.",
-                        token.start,
-                        token.end
+                        "Unexpected token '" + token.text() + "'.",
+                        token.start(),
+                        token.end()
                 );
             }
             return expression;
@@ -331,15 +517,44 @@ public final class MultiLevelEmitterExpressionCompiler {
         }
 
         private ExprNode parseAndExpression() {
-            ExprNode left = parsePrimary();
+            ExprNode left = parseComparison();
             while (match(TokenKind.AND)) {
                 Token operator = previous();
-                ExprNode right = parsePrimary();
+                ExprNode right = parseComparison();
                 left = new BinaryNode(TokenKind.AND, left, right, left.start(), right.end());
             }
             return left;
         }
 
+        private ExprNode parseComparison() {
+            ExprNode left = parseSum();
+            if (!isAtEnd() && peek().kind().isComparison()) {
+                TokenKind operator = advance().kind();
+                ExprNode right = parseSum();
+                return new ComparisonNode(operator, left, right, left.start(), right.end());
+            }
+            return left;
+        }
+
+        private ExprNode parseSum() {
+            ExprNode left = parseProduct();
+            while (match(TokenKind.PLUS) || match(TokenKind.MINUS)) {
+                TokenKind operator = previous().kind();
+                ExprNode right = parseProduct();
+                left = new ArithmeticNode(operator, left, right, left.start(), right.end());
+            }
+            return left;
+        }
+
+        private ExprNode parseProduct() {
+            ExprNode left = parsePrimary();
+            while (match(TokenKind.MULTIPLY)) {
+                ExprNode right = parsePrimary();
+                left = new ArithmeticNode(TokenKind.MULTIPLY, left, right, left.start(), right.end());
+            }
+            return left;
+        }
+
         private ExprNode parsePrimary() {
             if (isAtEnd()) {
                 int caret = rawText.length();
@@ -354,28 +569,42 @@ public final class MultiLevelEmitterExpressionCompiler {
             }
 
             Token token = advance();
-            return switch (token.kind) {
-                case SLOT_REFERENCE -> new SlotNode(token.slotNumber, token.start, token.end);
+            return switch (token.kind()) {
+                case SLOT_REFERENCE -> new SlotNode(token.slotNumber(), token.start(), token.end());
+                case NUMBER -> {
+                    if (token.numberValue() >= 0L) {
+                        yield new NumberNode(token.numberValue(), token.start(), token.end());
+                    }
+                    addDiagnostic(
+                            MultiLevelEmitterExpressionDiagnostic.Severity.INVALID,
+                            "number_out_of_range",
+                            token.text() + " is too large.",
+                            token.start(),
+                            token.end()
+                    );
+                    yield new ErrorNode(token.start(), token.end());
+                }
                 case LEFT_PAREN -> parseParenthesized(token);
                 case INVALID_FRAGMENT -> {
                     addDiagnostic(
                             MultiLevelEmitterExpressionDiagnostic.Severity.INVALID,
                             "unexpected_token",
-                            "Unexpected token '" + token.text + "'.",
-                            token.start,
-                            token.end
+                            "Unexpected token '" + token.text() + "'.",
+                            token.start(),
+                            token.end()
                     );
-                    yield new ErrorNode(token.start, token.end);
+                    yield new ErrorNode(token.start(), token.end());
                 }
-                case RIGHT_PAREN, AND, OR -> {
+                case RIGHT_PAREN, AND, OR, PLUS, MINUS, MULTIPLY, GREATER_OR_EQUAL, GREATER, LESS_OR_EQUAL, LESS,
+                        EQUAL, NOT_EQUAL -> {
                     addDiagnostic(
                             MultiLevelEmitterExpressionDiagnostic.Severity.INVALID,
                             "missing_operand",
                             "Expression is missing an operand.",
-                            token.start,
-                            token.end
+                            token.start(),
+                            token.end()
                     );
-                    yield new ErrorNode(token.start, token.end);
+                    yield new ErrorNode(token.start(), token.end());
                 }
                 case WHITESPACE -> throw new IllegalStateException("Whitespace tokens should not reach the parser.");
             };
@@ -385,17 +614,17 @@ public final class MultiLevelEmitterExpressionCompiler {
             ExprNode inner = parseOrExpression();
             if (match(TokenKind.RIGHT_PAREN)) {
                 Token closeParen = previous();
-                return new ParenthesizedNode(inner, openParen.start, closeParen.end);
+                return new ParenthesizedNode(inner, openParen.start(), closeParen.end());
             }
 
             addDiagnostic(
                     MultiLevelEmitterExpressionDiagnostic.Severity.INVALID,
                     "missing_closing_paren",
                     "Missing closing parenthesis.",
-                    openParen.start,
-                    openParen.end
+                    openParen.start(),
+                    openParen.end()
             );
-            return new ParenthesizedNode(inner, openParen.start, Math.max(openParen.end, inner.end()));
+            return new ParenthesizedNode(inner, openParen.start(), Math.max(openParen.end(), inner.end()));
         }
 
         private boolean match(TokenKind kind) {
@@ -407,7 +636,7 @@ public final class MultiLevelEmitterExpressionCompiler {
         }
 
         private boolean check(TokenKind kind) {
-            return !isAtEnd() && peek().kind == kind;
+            return !isAtEnd() && peek().kind() == kind;
         }
 
         private Token advance() {
@@ -441,41 +670,223 @@ public final class MultiLevelEmitterExpressionCompiler {
     }
 
     private interface ExprNode {
-        MultiLevelEmitterPart.AggregationResult evaluate(List<MultiLevelEmitterPart.SlotEvaluation> slotResults);
+        MultiLevelEmitterPart.AggregationResult evaluate(
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults,
+                long[] slotAmounts
+        );
 
         int highestReferencedSlot();
 
+        void lower(ProgramBuilder builder);
+
         int start();
 
         int end();
+
+        // Amount side; only reached below a comparison once checkCondition has accepted the tree.
+        default long amount(List<MultiLevelEmitterPart.SlotEvaluation> slotResults, long[] slotAmounts) {
+            return 0L;
+        }
+
+        default long participatingSlots(List<MultiLevelEmitterPart.SlotEvaluation> slotResults) {
+            return 0L;
+        }
+
+        default void lowerAmount(ProgramBuilder builder) {
+            builder.push(MultiLevelEmitterExpressionProgram.constantInstruction(builder.constant(0L)));
+        }
     }
 
     private record SlotNode(int slotNumber, int start, int end) implements ExprNode {
         @Override
-        public MultiLevelEmitterPart.AggregationResult evaluate(List<MultiLevelEmitterPart.SlotEvaluation> slotResults) {
-            int index = slotNumber - 1;
-            if (slotResults == null || index < 0 || index >= slotResults.size()) {
+        public MultiLevelEmitterPart.AggregationResult evaluate(
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults,
+                long[] slotAmounts
+        ) {
+            MultiLevelEmitterPart.SlotEvaluation slotResult = participatingSlot(slotResults);
+            if (slotResult == null) {
                 return new MultiLevelEmitterPart.AggregationResult(0, false);
             }
+            return new MultiLevelEmitterPart.AggregationResult(1, slotResult.result());
+        }
+
+        @Override
+        public long amount(List<MultiLevelEmitterPart.SlotEvaluation> slotResults, long[] slotAmounts) {
+            int index = slotNumber - 1;
+            if (participatingSlot(slotResults) == null || slotAmounts == null || index >= slotAmounts.length) {
+                return 0L;
+            }
+            return slotAmounts[index];
+        }
+
+        @Override
+        public long participatingSlots(List<MultiLevelEmitterPart.SlotEvaluation> slotResults) {
+            int index = slotNumber - 1;
+            return index < MultiLevelEmitterExpressionProgram.MAX_SLOTS && participatingSlot(slotResults) != null
+                    ? 1L << index
+                    : 0L;
+        }
+
+        @Override
+        public int highestReferencedSlot() {
+            return slotNumber;
+        }
+
+        @Override
+        public void lower(ProgramBuilder builder) {
+            builder.push(MultiLevelEmitterExpressionProgram.slotInstruction(slotNumber - 1));
+        }
 
+        @Override
+        public void lowerAmount(ProgramBuilder builder) {
+            builder.push(MultiLevelEmitterExpressionProgram.amountInstruction(slotNumber - 1));
+        }
+
+        private MultiLevelEmitterPart.SlotEvaluation participatingSlot(
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults
+        ) {
+            int index = slotNumber - 1;
+            if (slotResults == null || index < 0 || index >= slotResults.size()) {
+                return null;
+            }
             MultiLevelEmitterPart.SlotEvaluation slotResult = slotResults.get(index);
-            if (slotResult == null || !slotResult.participating()) {
+            return slotResult == null || !slotResult.participating() ? null : slotResult;
+        }
+    }
+
+    private record NumberNode(long value, int start, int end) implements ExprNode {
+        @Override
+        public MultiLevelEmitterPart.AggregationResult evaluate(
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults,
+                long[] slotAmounts
+        ) {
+            return new MultiLevelEmitterPart.AggregationResult(0, false);
+        }
+
+        @Override
+        public long amount(List<MultiLevelEmitterPart.SlotEvaluation> slotResults, long[] slotAmounts) {
+            return value;
+        }
+
+        @Override
+        public int highestReferencedSlot() {
+            return 0;
+        }
+
+        @Override
+        public void lower(ProgramBuilder builder) {
+            builder.push(MultiLevelEmitterExpressionProgram.OP_INACTIVE);
+        }
+
+        @Override
+        public void lowerAmount(ProgramBuilder builder) {
+            builder.push(MultiLevelEmitterExpressionProgram.constantInstruction(builder.constant(value)));
+        }
+    }
+
+    private record ArithmeticNode(TokenKind operator, ExprNode left, ExprNode right, int start, int end)
+            implements ExprNode {
+        @Override
+        public MultiLevelEmitterPart.AggregationResult evaluate(
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults,
+                long[] slotAmounts
+        ) {
+            return new MultiLevelEmitterPart.AggregationResult(0, false);
+        }
+
+        @Override
+        public long amount(List<MultiLevelEmitterPart.SlotEvaluation> slotResults, long[] slotAmounts) {
+            return MultiLevelEmitterExpressionProgram.arithmetic(
+                    opcode(),
+                    left.amount(slotResults, slotAmounts),
+                    right.amount(slotResults, slotAmounts)
+            );
+        }
+
+        @Override
+        public long participatingSlots(List<MultiLevelEmitterPart.SlotEvaluation> slotResults) {
+            return left.participatingSlots(slotResults) | right.participatingSlots(slotResults);
+        }
+
+        @Override
+        public int highestReferencedSlot() {
+            return Math.max(left.highestReferencedSlot(), right.highestReferencedSlot());
+        }
+
+        @Override
+        public void lower(ProgramBuilder builder) {
+            builder.push(MultiLevelEmitterExpressionProgram.OP_INACTIVE);
+        }
+
+        @Override
+        public void lowerAmount(ProgramBuilder builder) {
+            left.lowerAmount(builder);
+            right.lowerAmount(builder);
+            builder.combine(opcode());
+        }
+
+        private int opcode() {
+            return switch (operator) {
+                case PLUS -> MultiLevelEmitterExpressionProgram.OP_ADD;
+                case MINUS -> MultiLevelEmitterExpressionProgram.OP_SUBTRACT;
+                default -> MultiLevelEmitterExpressionProgram.OP_MULTIPLY;
+            };
+        }
+    }
+
+    private record ComparisonNode(TokenKind operator, ExprNode left, ExprNode right, int start, int end)
+            implements ExprNode {
+        @Override
+        public MultiLevelEmitterPart.AggregationResult evaluate(
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults,
+                long[] slotAmounts
+        ) {
+            long participating = left.participatingSlots(slotResults) | right.participatingSlots(slotResults);
+            if (participating == 0L) {
                 return new MultiLevelEmitterPart.AggregationResult(0, false);
             }
-            return new MultiLevelEmitterPart.AggregationResult(1, slotResult.result());
+            return new MultiLevelEmitterPart.AggregationResult(
+                    Long.bitCount(participating),
+                    MultiLevelEmitterExpressionProgram.compare(
+                            comparison(),
+                            left.amount(slotResults, slotAmounts),
+                            right.amount(slotResults, slotAmounts)
+                    )
+            );
         }
 
         @Override
         public int highestReferencedSlot() {
-            return slotNumber;
+            return Math.max(left.highestReferencedSlot(), right.highestReferencedSlot());
+        }
+
+        @Override
+        public void lower(ProgramBuilder builder) {
+            left.lowerAmount(builder);
+            right.lowerAmount(builder);
+            builder.combine(MultiLevelEmitterExpressionProgram.compareInstruction(comparison()));
+        }
+
+        private int comparison() {
+            return switch (operator) {
+                case GREATER_OR_EQUAL -> MultiLevelEmitterExpressionProgram.COMPARE_GREATER_OR_EQUAL;
+                case GREATER -> MultiLevelEmitterExpressionProgram.COMPARE_GREATER;
+                case LESS_OR_EQUAL -> MultiLevelEmitterExpressionProgram.COMPARE_LESS_OR_EQUAL;
+                case LESS -> MultiLevelEmitterExpressionProgram.COMPARE_LESS;
+                case EQUAL -> MultiLevelEmitterExpressionProgram.COMPARE_EQUAL;
+                default -> MultiLevelEmitterExpressionProgram.COMPARE_NOT_EQUAL;
+            };
         }
     }
 
     private record BinaryNode(TokenKind operator, ExprNode left, ExprNode right, int start, int end) implements ExprNode {
         @Override
-        public MultiLevelEmitterPart.AggregationResult evaluate(List<MultiLevelEmitterPart.SlotEvaluation> slotResults) {
-            MultiLevelEmitterPart.AggregationResult leftResult = left.evaluate(slotResults);
-            MultiLevelEmitterPart.AggregationResult rightResult = right.evaluate(slotResults);
+        public MultiLevelEmitterPart.AggregationResult evaluate(
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults,
+                long[] slotAmounts
+        ) {
+            MultiLevelEmitterPart.AggregationResult leftResult = left.evaluate(slotResults, slotAmounts);
+            MultiLevelEmitterPart.AggregationResult rightResult = right.evaluate(slotResults, slotAmounts);
             if (leftResult.participatingCount() == 0) {
                 return rightResult;
             }
@@ -498,23 +909,58 @@ public final class MultiLevelEmitterExpressionCompiler {
         public int highestReferencedSlot() {
             return Math.max(left.highestReferencedSlot(), right.highestReferencedSlot());
         }
+
+        @Override
+        public void lower(ProgramBuilder builder) {
+            left.lower(builder);
+            right.lower(builder);
+            builder.combine(operator == TokenKind.AND
+                    ? MultiLevelEmitterExpressionProgram.OP_AND
+                    : MultiLevelEmitterExpressionProgram.OP_OR);
+        }
     }
 
     private record ParenthesizedNode(ExprNode inner, int start, int end) implements ExprNode {
         @Override
-        public MultiLevelEmitterPart.AggregationResult evaluate(List<MultiLevelEmitterPart.SlotEvaluation> slotResults) {
-            return inner.evaluate(slotResults);
+        public MultiLevelEmitterPart.AggregationResult evaluate(
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults,
+                long[] slotAmounts
+        ) {
+            return inner.evaluate(slotResults, slotAmounts);
         }
 
         @Override
         public int highestReferencedSlot() {
             return inner.highestReferencedSlot();
         }
+
+        @Override
+        public void lower(ProgramBuilder builder) {
+            inner.lower(builder);
+        }
+
+        @Override
+        public long amount(List<MultiLevelEmitterPart.SlotEvaluation> slotResults, long[] slotAmounts) {
+            return inner.amount(slotResults, slotAmounts);
+        }
+
+        @Override
+        public long participatingSlots(List<MultiLevelEmitterPart.SlotEvaluation> slotResults) {
+            return inner.participatingSlots(slotResults);
+        }
+
+        @Override
+        public void lowerAmount(ProgramBuilder builder) {
+            inner.lowerAmount(builder);
+        }
     }
 
     private record ErrorNode(int start, int end) implements ExprNode {
         @Override
-        public MultiLevelEmitterPart.AggregationResult evaluate(List<MultiLevelEmitterPart.SlotEvaluation> slotResults) {
+        public MultiLevelEmitterPart.AggregationResult evaluate(
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults,
+                long[] slotAmounts
+        ) {
             return new MultiLevelEmitterPart.AggregationResult(0, false);
         }
 
@@ -522,13 +968,21 @@ public final class MultiLevelEmitterExpressionCompiler {
         public int highestReferencedSlot() {
             return 0;
         }
+
+        @Override
+        public void lower(ProgramBuilder builder) {
+            builder.push(MultiLevelEmitterExpressionProgram.OP_INACTIVE);
+        }
     }
 
     private enum EmptyNode implements ExprNode {
         INSTANCE;
 
         @Override
-        public MultiLevelEmitterPart.AggregationResult evaluate(List<MultiLevelEmitterPart.SlotEvaluation> slotResults) {
+        public MultiLevelEmitterPart.AggregationResult evaluate(
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults,
+                long[] slotAmounts
+        ) {
             return new MultiLevelEmitterPart.AggregationResult(0, false);
         }
 
@@ -537,6 +991,11 @@ public final class MultiLevelEmitterExpressionCompiler {
             return 0;
         }
 
+        @Override
+        public void lower(ProgramBuilder builder) {
+            builder.push(MultiLevelEmitterExpressionProgram.OP_INACTIVE);
+        }
+
         @Override
         public int start() {
             return 0;
@@ -548,23 +1007,81 @@ public final class MultiLevelEmitterExpressionCompiler {
         }
     }
 
+    private static final class ProgramBuilder {
+        private int[] instructions = new int[16];
+        private long[] constants = new long[0];
+        private int size;
+        private int depth;
+        private int maxDepth;
+
+        private void push(int instruction) {
+            append(instruction);
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        private void combine(int opcode) {
+            append(opcode);
+            depth--;
+        }
+
+        private int constant(long value) {
+            for (int index = 0; index < constants.length; index++) {
+                if (constants[index] == value) {
+                    return index;
+                }
+            }
+            constants = Arrays.copyOf(constants, constants.length + 1);
+            constants[constants.length - 1] = value;
+            return constants.length - 1;
+        }
+
+        private void append(int instruction) {
+            if (size == instructions.length) {
+                instructions = Arrays.copyOf(instructions, size * 2);
+            }
+            instructions[size++] = instruction;
+        }
+
+        private MultiLevelEmitterExpressionProgram build(int highestReferencedSlot) {
+            return new MultiLevelEmitterExpressionProgram(
+                    Arrays.copyOf(instructions, size),
+                    constants,
+                    maxDepth,
+                    highestReferencedSlot
+            );
+        }
+    }
+
     private static final class CompiledPlan implements MultiLevelEmitterExpressionPlan {
         private final ExprNode root;
+        private final MultiLevelEmitterExpressionProgram program;
+        private final String simplifiedText;
 
         private CompiledPlan(ExprNode root) {
             this.root = root;
+            this.simplifiedText = render(root, false);
+            ProgramBuilder builder = new ProgramBuilder();
+            root.lower(builder);
+            this.program = builder.build(root.highestReferencedSlot());
         }
 
         @Override
         public MultiLevelEmitterPart.AggregationResult evaluateParticipating(
-                List<MultiLevelEmitterPart.SlotEvaluation> slotResults
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults,
+                long[] slotAmounts
         ) {
-            return root.evaluate(slotResults);
+            return root.evaluate(slotResults, slotAmounts);
         }
 
         @Override
         public int highestReferencedSlot() {
             return root.highestReferencedSlot();
         }
+
+        @Override
+        public MultiLevelEmitterExpressionProgram program() {
+            return program;
+        }
     }
 }
@@ -1,5 +1,8 @@
 package git.chexson.chexsonsaeutils.parts.automation.expression;
 
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionLexer.Token;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionLexer.TokenKind;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -24,105 +27,42 @@ public final class MultiLevelEmitterExpressionFormatter {
         if (rawText == null || rawText.isBlank()) {
             return "";
         }
+        return format(MultiLevelEmitterExpressionLexer.lex(rawText));
+    }
 
-        List<Token> tokens = tokenize(rawText);
-        StringBuilder formatted = new StringBuilder(rawText.length());
+    public static String format(List<Token> tokens) {
+        StringBuilder formatted = new StringBuilder();
         Token previous = null;
         for (Token token : tokens) {
-            if (token.type == TokenType.WHITESPACE) {
+            if (token.kind() == TokenKind.WHITESPACE) {
                 continue;
             }
             if (formatted.length() > 0 && needsSpace(previous, token)) {
                 formatted.append(' ');
             }
-            formatted.append(switch (token.type) {
-                case OPERATOR -> token.text.toUpperCase(Locale.ROOT);
-                default -> token.text;
-            });
+            formatted.append(token.kind().isLogical() ? token.text().toUpperCase(Locale.ROOT) : token.text());
             previous = token;
         }
-        return formatted.toString().trim();
+        return formatted.toString();
     }
 
-    private static boolean needsSpace(Token previous, Token current) {
-        if (previous == null) {
-            return false;
-        }
-        if (previous.type == TokenType.LEFT_PAREN || current.type == TokenType.RIGHT_PAREN) {
-            return false;
-        }
-        if (previous.type == TokenType.OPERATOR || current.type == TokenType.OPERATOR) {
-            return true;
-        }
-        return current.type != TokenType.RIGHT_PAREN;
-    }
-
-    private static List<Token> tokenize(String rawText) {
-        List<Token> tokens = new ArrayList<>();
-        int index = 0;
-        while (index < rawText.length()) {
-            char current = rawText.charAt(index);
-            if (Character.isWhitespace(current)) {
-                int start = index;
-                while (index < rawText.length() && Character.isWhitespace(rawText.charAt(index))) {
-                    index++;
-                }
-                tokens.add(new Token(TokenType.WHITESPACE, rawText.substring(start, index)));
-                continue;
-            }
-            if (current == '(') {
-                tokens.add(new Token(TokenType.LEFT_PAREN, "("));
-                index++;
-                continue;
-            }
-            if (current == ')') {
-                tokens.add(new Token(TokenType.RIGHT_PAREN, ")"));
-                index++;
-                continue;
-            }
-            if (current == '#') {
-                int start = index;
-                index++;
-                while (index < rawText.length() && Character.isDigit(rawText.charAt(index))) {
-                    index++;
-                }
-                tokens.add(new Token(TokenType.SLOT_REFERENCE, rawText.substring(start, index)));
-                continue;
-            }
-            if (Character.isLetter(current)) {
-                int start = index;
-                while (index < rawText.length() && Character.isLetter(rawText.charAt(index))) {
-                    index++;
-                }
-                String word = rawText.substring(start, index);
-                String normalized = word.toUpperCase(Locale.ROOT);
-                if ("AND".equals(normalized) || "OR".equals(normalized)) {
-                    tokens.add(new Token(TokenType.OPERATOR, word));
-                } else {
-                    tokens.add(new Token(TokenType.TEXT, word));
-                }
-                continue;
-            }
-
-            int start = index;
-            while (index < rawText.length() && !Character.isWhitespace(rawText.charAt(index))
-                    && rawText.charAt(index) != '(' && rawText.charAt(index) != ')') {
-                index++;
-            }
-            tokens.add(new Token(TokenType.TEXT, rawText.substring(start, index)));
+    /**
+     * Formats the simplified form of a valid expression: redundant parentheses, repeated operands and slots shared
+     * by every branch are dropped. Expressions that do not compile are only re-spaced by {@link #format(String)}.
+     */
+    public static String simplify(String rawText, int configuredSlots) {
+        if (rawText == null || rawText.isBlank()) {
+            return "";
         }
-        return tokens;
+        String simplified = MultiLevelEmitterExpressionCompiler.simplifiedText(
+                MultiLevelEmitterExpressionCompiler.compile(rawText, configuredSlots, null).plan()
+        );
+        return simplified == null || simplified.isEmpty() ? format(rawText) : simplified;
     }
 
-    private enum TokenType {
-        SLOT_REFERENCE,
-        OPERATOR,
-        LEFT_PAREN,
-        RIGHT_PAREN,
-        TEXT,
-        WHITESPACE
-    }
-
-    private record Token(TokenType type, String text) {
+    private static boolean needsSpace(Token previous, Token current) {
+        return previous != null
+                && previous.kind() != TokenKind.LEFT_PAREN
+                && current.kind() != TokenKind.RIGHT_PAREN;
     }
 }
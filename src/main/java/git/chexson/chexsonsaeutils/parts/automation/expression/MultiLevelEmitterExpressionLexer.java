@@ -0,0 +1,328 @@
+package git.chexson.chexsonsaeutils.parts.automation.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * The one tokenizer behind the compiler, the formatter and the editor's highlighting.
+ * <p>
+ * Every token is scanned from its own start without looking back, and its extent only depends on its characters
+ * plus at most two that follow ({@code "$!="} splits before {@code "!="}, {@code "$!x"} does not).
+ * {@link #relex(String, List, String)} relies on that to keep the tokens in front of an edit, scan the edited span,
+ * and shift the old tokens behind it once scanning lands back on one of their starts.
+ */
+public final class MultiLevelEmitterExpressionLexer {
+
+    private MultiLevelEmitterExpressionLexer() {
+    }
+
+    public static List<Token> lex(String rawText) {
+        String safeRawText = rawText == null ? "" : rawText;
+        List<Token> tokens = new ArrayList<>();
+        int index = 0;
+        while (index < safeRawText.length()) {
+            Token token = scan(safeRawText, index);
+            tokens.add(token);
+            index = token.end;
+        }
+        return List.copyOf(tokens);
+    }
+
+    /**
+     * Tokens of {@code rawText}, reusing {@code previousTokens} (the result of lexing {@code previousText}) outside
+     * the span that differs between the two texts.
+     */
+    public static List<Token> relex(String previousText, List<Token> previousTokens, String rawText) {
+        String safeRawText = rawText == null ? "" : rawText;
+        if (previousText == null || previousTokens == null) {
+            return lex(safeRawText);
+        }
+        if (previousText.equals(safeRawText)) {
+            return previousTokens;
+        }
+
+        int sharedLength = Math.min(previousText.length(), safeRawText.length());
+        int prefix = 0;
+        while (prefix < sharedLength && previousText.charAt(prefix) == safeRawText.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < sharedLength - prefix
+                && previousText.charAt(previousText.length() - 1 - suffix)
+                == safeRawText.charAt(safeRawText.length() - 1 - suffix)) {
+            suffix++;
+        }
+        int delta = safeRawText.length() - previousText.length();
+        int unchangedTail = safeRawText.length() - suffix;
+
+        List<Token> tokens = new ArrayList<>(previousTokens.size() + 4);
+        int reused = 0;
+        // A token ending just before the edit may have been cut short by the characters that changed.
+        while (reused < previousTokens.size() && previousTokens.get(reused).end + 1 < prefix) {
+            tokens.add(previousTokens.get(reused));
+            reused++;
+        }
+
+        int index = tokens.isEmpty() ? 0 : tokens.get(tokens.size() - 1).end;
+        int oldIndex = reused;
+        while (index < safeRawText.length()) {
+            if (index >= unchangedTail) {
+                int oldStart = index - delta;
+                while (oldIndex < previousTokens.size() && previousTokens.get(oldIndex).start < oldStart) {
+                    oldIndex++;
+                }
+                if (oldIndex < previousTokens.size() && previousTokens.get(oldIndex).start == oldStart) {
+                    for (int remaining = oldIndex; remaining < previousTokens.size(); remaining++) {
+                        tokens.add(previousTokens.get(remaining).shift(delta));
+                    }
+                    return List.copyOf(tokens);
+                }
+            }
+            Token token = scan(safeRawText, index);
+            tokens.add(token);
+            index = token.end;
+        }
+        return List.copyOf(tokens);
+    }
+
+    private static Token scan(String rawText, int index) {
+        char current = rawText.charAt(index);
+        if (Character.isWhitespace(current)) {
+            int end = index;
+            while (end < rawText.length() && Character.isWhitespace(rawText.charAt(end))) {
+                end++;
+            }
+            return new Token(TokenKind.WHITESPACE, rawText.substring(index, end), index, end, -1);
+        }
+        if (current == '(') {
+            return new Token(TokenKind.LEFT_PAREN, "(", index, index + 1, -1);
+        }
+        if (current == ')') {
+            return new Token(TokenKind.RIGHT_PAREN, ")", index, index + 1, -1);
+        }
+        TokenKind symbol = symbolAt(rawText, index);
+        if (symbol != null) {
+            int end = index + symbolLength(rawText, index, symbol);
+            return new Token(symbol, rawText.substring(index, end), index, end, -1);
+        }
+        if (Character.isDigit(current)) {
+            int end = scanNumber(rawText, index);
+            return numberToken(rawText.substring(index, end), index, end);
+        }
+        if (current == '#') {
+            int end = index + 1;
+            while (end < rawText.length() && Character.isDigit(rawText.charAt(end))) {
+                end++;
+            }
+            if (end > index + 1) {
+                String value = rawText.substring(index, end);
+                int slotNumber;
+                try {
+                    slotNumber = Integer.parseInt(value.substring(1));
+                } catch (NumberFormatException exception) {
+                    slotNumber = Integer.MAX_VALUE;
+                }
+                return new Token(TokenKind.SLOT_REFERENCE, value, index, end, slotNumber);
+            }
+            while (end < rawText.length() && !endsFragment(rawText, end)) {
+                end++;
+            }
+            return new Token(TokenKind.INVALID_FRAGMENT, rawText.substring(index, end), index, end, -1);
+        }
+        if (Character.isLetter(current)) {
+            int end = index;
+            while (end < rawText.length() && Character.isLetter(rawText.charAt(end))) {
+                end++;
+            }
+            String value = rawText.substring(index, end);
+            TokenKind kind = switch (value.toUpperCase(Locale.ROOT)) {
+                case "AND" -> TokenKind.AND;
+                case "OR" -> TokenKind.OR;
+                default -> TokenKind.INVALID_FRAGMENT;
+            };
+            return new Token(kind, value, index, end, -1);
+        }
+
+        int end = index;
+        while (end < rawText.length() && !endsFragment(rawText, end) && rawText.charAt(end) != '#') {
+            end++;
+        }
+        if (end == index) {
+            end++;
+        }
+        return new Token(TokenKind.INVALID_FRAGMENT, rawText.substring(index, end), index, end, -1);
+    }
+
+    private static TokenKind symbolAt(String rawText, int index) {
+        return switch (rawText.charAt(index)) {
+            case '+' -> TokenKind.PLUS;
+            case '-' -> TokenKind.MINUS;
+            case '*' -> TokenKind.MULTIPLY;
+            case '>' -> nextCharIs(rawText, index, '=') ? TokenKind.GREATER_OR_EQUAL : TokenKind.GREATER;
+            case '<' -> nextCharIs(rawText, index, '=') ? TokenKind.LESS_OR_EQUAL : TokenKind.LESS;
+            case '=' -> TokenKind.EQUAL;
+            case '!' -> nextCharIs(rawText, index, '=') ? TokenKind.NOT_EQUAL : null;
+            default -> null;
+        };
+    }
+
+    private static int symbolLength(String rawText, int index, TokenKind symbol) {
+        return switch (symbol) {
+            case GREATER_OR_EQUAL, LESS_OR_EQUAL, NOT_EQUAL -> 2;
+            // "==" is accepted as a spelling of "=".
+            case EQUAL -> nextCharIs(rawText, index, '=') ? 2 : 1;
+            default -> 1;
+        };
+    }
+
+    private static boolean nextCharIs(String rawText, int index, char expected) {
+        return index + 1 < rawText.length() && rawText.charAt(index + 1) == expected;
+    }
+
+    private static boolean endsFragment(String rawText, int index) {
+        char current = rawText.charAt(index);
+        return Character.isWhitespace(current) || current == '(' || current == ')' || symbolAt(rawText, index) != null;
+    }
+
+    private static int scanNumber(String rawText, int index) {
+        int end = index;
+        while (end < rawText.length() && Character.isLetterOrDigit(rawText.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    // Literals are plain digits with an optional k / M / G suffix, so "10k" reads like the slot amounts on screen.
+    private static Token numberToken(String text, int start, int end) {
+        int digitsEnd = 0;
+        while (digitsEnd < text.length() && Character.isDigit(text.charAt(digitsEnd))) {
+            digitsEnd++;
+        }
+        long multiplier = switch (text.substring(digitsEnd).toUpperCase(Locale.ROOT)) {
+            case "" -> 1L;
+            case "K" -> 1_000L;
+            case "M" -> 1_000_000L;
+            case "G" -> 1_000_000_000L;
+            default -> 0L;
+        };
+        if (multiplier == 0L) {
+            return new Token(TokenKind.INVALID_FRAGMENT, text, start, end, -1);
+        }
+        long value;
+        try {
+            value = Math.multiplyExact(Long.parseLong(text.substring(0, digitsEnd)), multiplier);
+        } catch (NumberFormatException | ArithmeticException exception) {
+            value = -1L;
+        }
+        return new Token(TokenKind.NUMBER, text, start, end, -1, value);
+    }
+
+    public enum TokenKind {
+        SLOT_REFERENCE,
+        NUMBER,
+        AND,
+        OR,
+        PLUS,
+        MINUS,
+        MULTIPLY,
+        GREATER_OR_EQUAL,
+        GREATER,
+        LESS_OR_EQUAL,
+        LESS,
+        EQUAL,
+        NOT_EQUAL,
+        LEFT_PAREN,
+        RIGHT_PAREN,
+        WHITESPACE,
+        INVALID_FRAGMENT;
+
+        public boolean isLogical() {
+            return this == AND || this == OR;
+        }
+
+        public boolean isComparison() {
+            return this == GREATER_OR_EQUAL
+                    || this == GREATER
+                    || this == LESS_OR_EQUAL
+                    || this == LESS
+                    || this == EQUAL
+                    || this == NOT_EQUAL;
+        }
+    }
+
+    public static final class Token {
+        private final TokenKind kind;
+        private final String text;
+        private final int start;
+        private final int end;
+        private final int slotNumber;
+        private final long numberValue;
+
+        private Token(TokenKind kind, String text, int start, int end, int slotNumber) {
+            this(kind, text, start, end, slotNumber, -1L);
+        }
+
+        private Token(TokenKind kind, String text, int start, int end, int slotNumber, long numberValue) {
+            this.kind = Objects.requireNonNull(kind, "kind");
+            this.text = Objects.requireNonNull(text, "text");
+            this.start = start;
+            this.end = end;
+            this.slotNumber = slotNumber;
+            this.numberValue = numberValue;
+        }
+
+        private Token shift(int delta) {
+            return delta == 0 ? this : new Token(kind, text, start + delta, end + delta, slotNumber, numberValue);
+        }
+
+        public TokenKind kind() {
+            return kind;
+        }
+
+        public String text() {
+            return text;
+        }
+
+        public int start() {
+            return start;
+        }
+
+        public int end() {
+            return end;
+        }
+
+        public int slotNumber() {
+            return slotNumber;
+        }
+
+        /**
+         * Value of a {@code NUMBER} literal with its suffix applied, or {@code -1} when it does not fit a long.
+         */
+        public long numberValue() {
+            return numberValue;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Token token
+                    && kind == token.kind
+                    && start == token.start
+                    && end == token.end
+                    && slotNumber == token.slotNumber
+                    && numberValue == token.numberValue
+                    && text.equals(token.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, text, start, end, slotNumber, numberValue);
+        }
+
+        @Override
+        public String toString() {
+            return kind + ":" + text + "@" + start + ":" + end;
+        }
+    }
+}
@@ -9,7 +9,21 @@ public interface MultiLevelEmitterExpressionPlan {
         return evaluateParticipating(MultiLevelEmitterPart.asParticipatingSlots(slotResults)).result();
     }
 
-    MultiLevelEmitterPart.AggregationResult evaluateParticipating(List<MultiLevelEmitterPart.SlotEvaluation> slotResults);
+    default MultiLevelEmitterPart.AggregationResult evaluateParticipating(
+            List<MultiLevelEmitterPart.SlotEvaluation> slotResults
+    ) {
+        return evaluateParticipating(slotResults, null);
+    }
+
+    /**
+     * @param slotAmounts observed amount per slot index for amount terms; {@code null} or missing entries read as zero
+     */
+    MultiLevelEmitterPart.AggregationResult evaluateParticipating(
+            List<MultiLevelEmitterPart.SlotEvaluation> slotResults,
+            long[] slotAmounts
+    );
 
     int highestReferencedSlot();
+
+    MultiLevelEmitterExpressionProgram program();
 }
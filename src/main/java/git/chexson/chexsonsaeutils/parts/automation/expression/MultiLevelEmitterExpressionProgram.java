@@ -0,0 +1,460 @@
+package git.chexson.chexsonsaeutils.parts.automation.expression;
+
+import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterPart;
+
+import java.util.List;
+
+/**
+ * Flat postfix lowering of a compiled expression tree.
+ * Slot state is passed as two bitmasks and aggregation results are packed into a single {@code long}
+ * ({@code participatingCount << 1 | result}) so the runtime hot path never allocates.
+ * Amount terms share the operand stack: they push plain amounts, which a comparison turns back into a packed result.
+ */
+public final class MultiLevelEmitterExpressionProgram implements MultiLevelEmitterExpressionPlan {
+    public static final int MAX_SLOTS = Long.SIZE;
+    public static final long INACTIVE = 0L;
+
+    static final int OP_SLOT = 0;
+    static final int OP_INACTIVE = 1;
+    static final int OP_AND = 2;
+    static final int OP_OR = 3;
+    static final int OP_AMOUNT = 4;
+    static final int OP_CONSTANT = 5;
+    static final int OP_ADD = 6;
+    static final int OP_SUBTRACT = 7;
+    static final int OP_MULTIPLY = 8;
+    static final int OP_COMPARE = 9;
+    static final int COMPARE_GREATER_OR_EQUAL = 0;
+    static final int COMPARE_GREATER = 1;
+    static final int COMPARE_LESS_OR_EQUAL = 2;
+    static final int COMPARE_LESS = 3;
+    static final int COMPARE_EQUAL = 4;
+    static final int COMPARE_NOT_EQUAL = 5;
+    private static final int OPCODE_BITS = 4;
+    private static final int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+
+    // Plans are shared between emitters, so the operand stack lives per thread instead of per program.
+    private static final ThreadLocal<long[]> OPERAND_STACK = ThreadLocal.withInitial(() -> new long[16]);
+
+    private static final SlotAmountReader NO_AMOUNTS = slotIndex -> 0L;
+
+    private final int[] instructions;
+    private final long[] constants;
+    // Per instruction: first instruction index of the subtree it closes, the slots referenced inside it, and
+    // the subset of those read as amounts.
+    private final int[] subtreeStart;
+    private final long[] subtreeSlots;
+    private final long[] subtreeAmountSlots;
+    private final int maxStackDepth;
+    private final int highestReferencedSlot;
+
+    MultiLevelEmitterExpressionProgram(int[] instructions, int maxStackDepth, int highestReferencedSlot) {
+        this(instructions, new long[0], maxStackDepth, highestReferencedSlot);
+    }
+
+    MultiLevelEmitterExpressionProgram(
+            int[] instructions,
+            long[] constants,
+            int maxStackDepth,
+            int highestReferencedSlot
+    ) {
+        this.instructions = instructions.clone();
+        this.constants = constants.clone();
+        this.subtreeStart = new int[this.instructions.length];
+        this.subtreeSlots = new long[this.instructions.length];
+        this.subtreeAmountSlots = new long[this.instructions.length];
+        this.maxStackDepth = Math.max(1, maxStackDepth);
+        this.highestReferencedSlot = highestReferencedSlot;
+        indexSubtrees();
+    }
+
+    /**
+     * Supplies a single slot result on demand; only called for participating slots.
+     */
+    @FunctionalInterface
+    public interface SlotResultReader {
+        boolean read(int slotIndex);
+    }
+
+    /**
+     * Supplies the observed amount of a slot on demand; only called for participating slots.
+     */
+    @FunctionalInterface
+    public interface SlotAmountReader {
+        long read(int slotIndex);
+    }
+
+    static int slotInstruction(int slotIndex) {
+        if (slotIndex < 0 || slotIndex >= MAX_SLOTS) {
+            return OP_INACTIVE;
+        }
+        return (slotIndex << OPCODE_BITS) | OP_SLOT;
+    }
+
+    static int amountInstruction(int slotIndex) {
+        if (slotIndex < 0 || slotIndex >= MAX_SLOTS) {
+            return constantInstruction(0);
+        }
+        return (slotIndex << OPCODE_BITS) | OP_AMOUNT;
+    }
+
+    static int constantInstruction(int constantIndex) {
+        return (constantIndex << OPCODE_BITS) | OP_CONSTANT;
+    }
+
+    static int compareInstruction(int comparison) {
+        return (comparison << OPCODE_BITS) | OP_COMPARE;
+    }
+
+    public static long pack(int participatingCount, boolean result) {
+        return ((long) Math.max(0, participatingCount) << 1) | (result ? 1L : 0L);
+    }
+
+    public static int participatingCount(long packedResult) {
+        return (int) (packedResult >>> 1);
+    }
+
+    public static boolean hasParticipatingSlots(long packedResult) {
+        return packedResult >>> 1 != 0L;
+    }
+
+    public static boolean result(long packedResult) {
+        return (packedResult & 1L) != 0L;
+    }
+
+    public static MultiLevelEmitterPart.AggregationResult unpack(long packedResult) {
+        return new MultiLevelEmitterPart.AggregationResult(participatingCount(packedResult), result(packedResult));
+    }
+
+    /**
+     * @param participatingSlots bit {@code n} set when slot {@code n} takes part in aggregation
+     * @param slotResults        bit {@code n} set when slot {@code n} evaluated to {@code true}
+     * @return packed aggregation result, see {@link #participatingCount(long)} and {@link #result(long)}
+     */
+    public long evaluatePacked(long participatingSlots, long slotResults) {
+        return evaluatePacked(participatingSlots, slotResults, null);
+    }
+
+    /**
+     * @param slotAmounts observed amount per slot index; missing entries and non-participating slots count as zero
+     */
+    public long evaluatePacked(long participatingSlots, long slotResults, long[] slotAmounts) {
+        long[] stack = OPERAND_STACK.get();
+        if (stack.length < maxStackDepth) {
+            stack = new long[maxStackDepth];
+            OPERAND_STACK.set(stack);
+        }
+
+        int top = 0;
+        for (int index = 0; index < instructions.length; index++) {
+            int instruction = instructions[index];
+            int operand = instruction >>> OPCODE_BITS;
+            switch (instruction & OPCODE_MASK) {
+                case OP_SLOT -> {
+                    long bit = 1L << operand;
+                    stack[top++] = (participatingSlots & bit) == 0L
+                            ? INACTIVE
+                            : pack(1, (slotResults & bit) != 0L);
+                }
+                case OP_INACTIVE -> stack[top++] = INACTIVE;
+                case OP_AND -> {
+                    long right = stack[--top];
+                    stack[top - 1] = combine(stack[top - 1], right, true);
+                }
+                case OP_OR -> {
+                    long right = stack[--top];
+                    stack[top - 1] = combine(stack[top - 1], right, false);
+                }
+                case OP_AMOUNT -> stack[top++] = (participatingSlots & (1L << operand)) == 0L
+                        || slotAmounts == null
+                        || operand >= slotAmounts.length
+                        ? 0L
+                        : slotAmounts[operand];
+                case OP_CONSTANT -> stack[top++] = constants[operand];
+                case OP_COMPARE -> {
+                    long right = stack[--top];
+                    stack[top - 1] = comparisonResult(index, participatingSlots, stack[top - 1], right);
+                }
+                default -> {
+                    long right = stack[--top];
+                    stack[top - 1] = arithmetic(instruction & OPCODE_MASK, stack[top - 1], right);
+                }
+            }
+        }
+        return top == 0 ? INACTIVE : stack[top - 1];
+    }
+
+    /**
+     * Same result as {@link #evaluatePacked(long, long)}, but slot results are pulled through {@code reader} only
+     * when they can still change the outcome. Of two operands the cheaper one is read first, where cached slots
+     * are free, plain slots cost one, fuzzy slots two and crafting slots three.
+     */
+    public long evaluateLazy(
+            long participatingSlots,
+            long cachedSlots,
+            long fuzzySlots,
+            long craftingSlots,
+            SlotResultReader reader
+    ) {
+        return evaluateLazy(participatingSlots, cachedSlots, fuzzySlots, craftingSlots, reader, NO_AMOUNTS);
+    }
+
+    /**
+     * As {@link #evaluateLazy(long, long, long, long, SlotResultReader)}; amount terms pull their slots through
+     * {@code amountReader} when their comparison has to be decided. Amounts are never cached.
+     */
+    public long evaluateLazy(
+            long participatingSlots,
+            long cachedSlots,
+            long fuzzySlots,
+            long craftingSlots,
+            SlotResultReader reader,
+            SlotAmountReader amountReader
+    ) {
+        int participatingCount = 0;
+        for (int index = 0; index < instructions.length; index++) {
+            int instruction = instructions[index];
+            int opcode = instruction & OPCODE_MASK;
+            if (opcode == OP_SLOT && (participatingSlots & (1L << (instruction >>> OPCODE_BITS))) != 0L) {
+                participatingCount++;
+            } else if (opcode == OP_COMPARE) {
+                participatingCount += Long.bitCount(subtreeSlots[index] & participatingSlots);
+            }
+        }
+        // Participation never depends on slot results, so the count is known before anything is read.
+        if (participatingCount == 0) {
+            return INACTIVE;
+        }
+        boolean result = evaluateLazyNode(
+                instructions.length - 1,
+                participatingSlots,
+                cachedSlots,
+                fuzzySlots,
+                craftingSlots,
+                reader,
+                amountReader == null ? NO_AMOUNTS : amountReader
+        );
+        return pack(participatingCount, result);
+    }
+
+    @Override
+    public MultiLevelEmitterPart.AggregationResult evaluateParticipating(
+            List<MultiLevelEmitterPart.SlotEvaluation> slotResults,
+            long[] slotAmounts
+    ) {
+        long participatingSlots = 0L;
+        long resultSlots = 0L;
+        if (slotResults != null) {
+            int limit = Math.min(MAX_SLOTS, slotResults.size());
+            for (int slot = 0; slot < limit; slot++) {
+                MultiLevelEmitterPart.SlotEvaluation slotResult = slotResults.get(slot);
+                if (slotResult == null || !slotResult.participating()) {
+                    continue;
+                }
+                participatingSlots |= 1L << slot;
+                if (slotResult.result()) {
+                    resultSlots |= 1L << slot;
+                }
+            }
+        }
+        return unpack(evaluatePacked(participatingSlots, resultSlots, slotAmounts));
+    }
+
+    @Override
+    public int highestReferencedSlot() {
+        return highestReferencedSlot;
+    }
+
+    @Override
+    public MultiLevelEmitterExpressionProgram program() {
+        return this;
+    }
+
+    public int instructionCount() {
+        return instructions.length;
+    }
+
+    /**
+     * Slots whose observed amount feeds an amount term. Their results are re-read on every evaluation, so any
+     * change to one of them has to trigger one.
+     */
+    public long amountSlots() {
+        return instructions.length == 0 ? 0L : subtreeAmountSlots[instructions.length - 1];
+    }
+
+    private boolean evaluateLazyNode(
+            int index,
+            long participatingSlots,
+            long cachedSlots,
+            long fuzzySlots,
+            long craftingSlots,
+            SlotResultReader reader,
+            SlotAmountReader amountReader
+    ) {
+        int instruction = instructions[index];
+        int opcode = instruction & OPCODE_MASK;
+        if (opcode == OP_SLOT) {
+            return reader.read(instruction >>> OPCODE_BITS);
+        }
+        if (opcode == OP_INACTIVE) {
+            return false;
+        }
+        if (opcode == OP_COMPARE) {
+            int right = index - 1;
+            int left = subtreeStart[right] - 1;
+            return compare(
+                    instruction >>> OPCODE_BITS,
+                    evaluateAmountNode(left, participatingSlots, amountReader),
+                    evaluateAmountNode(right, participatingSlots, amountReader)
+            );
+        }
+
+        int right = index - 1;
+        int left = subtreeStart[right] - 1;
+        boolean leftParticipates = (subtreeSlots[left] & participatingSlots) != 0L;
+        boolean rightParticipates = (subtreeSlots[right] & participatingSlots) != 0L;
+        if (!leftParticipates || !rightParticipates) {
+            return evaluateLazyNode(
+                    leftParticipates ? left : right,
+                    participatingSlots,
+                    cachedSlots,
+                    fuzzySlots,
+                    craftingSlots,
+                    reader,
+                    amountReader
+            );
+        }
+
+        int first = left;
+        int second = right;
+        if (readCost(right, participatingSlots, cachedSlots, fuzzySlots, craftingSlots)
+                < readCost(left, participatingSlots, cachedSlots, fuzzySlots, craftingSlots)) {
+            first = right;
+            second = left;
+        }
+        boolean firstResult = evaluateLazyNode(
+                first,
+                participatingSlots,
+                cachedSlots,
+                fuzzySlots,
+                craftingSlots,
+                reader,
+                amountReader
+        );
+        boolean decided = opcode == OP_AND ? !firstResult : firstResult;
+        if (decided) {
+            return firstResult;
+        }
+        return evaluateLazyNode(second, participatingSlots, cachedSlots, fuzzySlots, craftingSlots, reader, amountReader);
+    }
+
+    private long evaluateAmountNode(int index, long participatingSlots, SlotAmountReader amountReader) {
+        int instruction = instructions[index];
+        int opcode = instruction & OPCODE_MASK;
+        if (opcode == OP_AMOUNT) {
+            int slot = instruction >>> OPCODE_BITS;
+            return (participatingSlots & (1L << slot)) == 0L ? 0L : amountReader.read(slot);
+        }
+        if (opcode == OP_CONSTANT) {
+            return constants[instruction >>> OPCODE_BITS];
+        }
+        int right = index - 1;
+        int left = subtreeStart[right] - 1;
+        return arithmetic(
+                opcode,
+                evaluateAmountNode(left, participatingSlots, amountReader),
+                evaluateAmountNode(right, participatingSlots, amountReader)
+        );
+    }
+
+    private int readCost(int index, long participatingSlots, long cachedSlots, long fuzzySlots, long craftingSlots) {
+        // Amounts are read fresh every time, so only plain slot results can come from the cache.
+        long amountSlots = subtreeAmountSlots[index] & participatingSlots;
+        long uncached = subtreeSlots[index] & participatingSlots & ~amountSlots & ~cachedSlots;
+        return Long.bitCount(uncached)
+                + Long.bitCount(uncached & fuzzySlots)
+                + 2 * Long.bitCount(uncached & craftingSlots)
+                + Long.bitCount(amountSlots)
+                + Long.bitCount(amountSlots & fuzzySlots);
+    }
+
+    private long comparisonResult(int index, long participatingSlots, long left, long right) {
+        // Like a slot, a comparison drops out when none of the slots it reads take part.
+        int participatingCount = Long.bitCount(subtreeSlots[index] & participatingSlots);
+        if (participatingCount == 0) {
+            return INACTIVE;
+        }
+        return pack(participatingCount, compare(instructions[index] >>> OPCODE_BITS, left, right));
+    }
+
+    static boolean compare(int comparison, long left, long right) {
+        return switch (comparison) {
+            case COMPARE_GREATER_OR_EQUAL -> left >= right;
+            case COMPARE_GREATER -> left > right;
+            case COMPARE_LESS_OR_EQUAL -> left <= right;
+            case COMPARE_LESS -> left < right;
+            case COMPARE_EQUAL -> left == right;
+            default -> left != right;
+        };
+    }
+
+    // Storage amounts can reach Long.MAX_VALUE, so sums and scaled amounts saturate instead of wrapping.
+    static long arithmetic(int opcode, long left, long right) {
+        return switch (opcode) {
+            case OP_ADD -> {
+                long sum = left + right;
+                yield ((left ^ sum) & (right ^ sum)) < 0L ? saturated(left) : sum;
+            }
+            case OP_SUBTRACT -> {
+                long difference = left - right;
+                yield ((left ^ right) & (left ^ difference)) < 0L ? saturated(left) : difference;
+            }
+            default -> {
+                long high = Math.multiplyHigh(left, right);
+                long low = left * right;
+                yield high == (low >> 63) ? low : (high < 0L ? Long.MIN_VALUE : Long.MAX_VALUE);
+            }
+        };
+    }
+
+    private static long saturated(long left) {
+        return left < 0L ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+
+    private void indexSubtrees() {
+        int[] openSubtrees = new int[Math.max(1, instructions.length)];
+        int top = 0;
+        for (int index = 0; index < instructions.length; index++) {
+            int instruction = instructions[index];
+            int opcode = instruction & OPCODE_MASK;
+            if (opcode == OP_SLOT || opcode == OP_AMOUNT) {
+                subtreeStart[index] = index;
+                subtreeSlots[index] = 1L << (instruction >>> OPCODE_BITS);
+                subtreeAmountSlots[index] = opcode == OP_AMOUNT ? subtreeSlots[index] : 0L;
+            } else if (opcode == OP_INACTIVE || opcode == OP_CONSTANT) {
+                subtreeStart[index] = index;
+            } else {
+                int right = openSubtrees[--top];
+                int left = openSubtrees[--top];
+                subtreeStart[index] = subtreeStart[left];
+                subtreeSlots[index] = subtreeSlots[left] | subtreeSlots[right];
+                subtreeAmountSlots[index] = subtreeAmountSlots[left] | subtreeAmountSlots[right];
+            }
+            openSubtrees[top++] = index;
+        }
+    }
+
+    private static long combine(long left, long right, boolean and) {
+        // A side without participating slots drops out instead of forcing the operator result.
+        if (!hasParticipatingSlots(left)) {
+            return right;
+        }
+        if (!hasParticipatingSlots(right)) {
+            return left;
+        }
+        boolean combined = and
+                ? result(left) && result(right)
+                : result(left) || result(right);
+        return pack(participatingCount(left) + participatingCount(right), combined);
+    }
+}
@@ -0,0 +1,81 @@
+package git.chexson.chexsonsaeutils.crafting;
+
+import git.chexson.chexsonsaeutils.crafting.status.CraftingContinuationRefillPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CraftingContinuationRefillPolicyTest {
+
+    private static final long[] REQUESTED = {60L, 10L, 30L};
+    private static final long[] AGES = {5L, 50L, 20L};
+
+    @Test
+    void scarceArrivalsFollowEachPolicy() {
+        Map<CraftingContinuationRefillPolicy, long[]> expected = Map.of(
+                CraftingContinuationRefillPolicy.PROPORTIONAL, new long[]{30L, 5L, 15L},
+                CraftingContinuationRefillPolicy.OLDEST_FIRST, new long[]{10L, 10L, 30L},
+                CraftingContinuationRefillPolicy.SMALLEST_REMAINING_FIRST, new long[]{10L, 10L, 30L}
+        );
+
+        for (CraftingContinuationRefillPolicy policy : CraftingContinuationRefillPolicy.values()) {
+            assertArrayEquals(expected.get(policy), policy.allocate(50L, REQUESTED, AGES), policy.name());
+        }
+    }
+
+    @Test
+    void orderedPoliciesDisagreeWhenAgeAndSizeDisagree() {
+        long[] requested = {5L, 40L};
+        long[] ages = {1L, 99L};
+
+        assertArrayEquals(new long[]{0L, 20L},
+                CraftingContinuationRefillPolicy.OLDEST_FIRST.allocate(20L, requested, ages));
+        assertArrayEquals(new long[]{5L, 15L},
+                CraftingContinuationRefillPolicy.SMALLEST_REMAINING_FIRST.allocate(20L, requested, ages));
+        assertArrayEquals(new long[]{3L, 17L},
+                CraftingContinuationRefillPolicy.PROPORTIONAL.allocate(20L, requested, ages));
+    }
+
+    @Test
+    void everyPolicyFillsAllRequestsWhenStorageSuffices() {
+        for (CraftingContinuationRefillPolicy policy : CraftingContinuationRefillPolicy.values()) {
+            assertArrayEquals(REQUESTED, policy.allocate(500L, REQUESTED, AGES), policy.name());
+            assertArrayEquals(REQUESTED, policy.allocate(100L, REQUESTED, AGES), policy.name());
+            assertArrayEquals(new long[3], policy.allocate(0L, REQUESTED, AGES), policy.name());
+            assertArrayEquals(new long[0], policy.allocate(10L, new long[0], new long[0]), policy.name());
+        }
+    }
+
+    @Test
+    void everyPolicyHandsOutExactlyWhatIsAvailableWithoutOverfilling() {
+        long[] requested = {7L, 3L, 11L, 1L, 5L};
+        long[] ages = {4L, 2L, 9L, 9L, 1L};
+        for (CraftingContinuationRefillPolicy policy : CraftingContinuationRefillPolicy.values()) {
+            for (long available = 0L; available <= 27L; available++) {
+                long[] allocated = policy.allocate(available, requested, ages);
+                for (int index = 0; index < requested.length; index++) {
+                    assertTrue(allocated[index] >= 0L && allocated[index] <= requested[index],
+                            policy + " " + available + " " + Arrays.toString(allocated));
+                }
+                assertEquals(Math.min(available, 27L), Arrays.stream(allocated).sum(),
+                        policy + " " + available + " " + Arrays.toString(allocated));
+            }
+        }
+    }
+
+    @Test
+    void proportionalSharesSurviveHugeAmounts() {
+        long[] requested = {Long.MAX_VALUE / 2, Long.MAX_VALUE / 2};
+
+        long[] allocated = CraftingContinuationRefillPolicy.PROPORTIONAL.allocate(
+                Long.MAX_VALUE / 2, requested, new long[2]);
+
+        assertEquals(Long.MAX_VALUE / 2, allocated[0] + allocated[1]);
+        assertTrue(Math.abs(allocated[0] - allocated[1]) <= 1L);
+    }
+}
@@ -0,0 +1,256 @@
+package git.chexson.chexsonsaeutils.crafting;
+
+import appeng.api.config.Actionable;
+import git.chexson.chexsonsaeutils.crafting.status.CraftingContinuationRefillPolicy;
+import git.chexson.chexsonsaeutils.crafting.status.CraftingContinuationRefillQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CraftingContinuationRefillQueueTest {
+
+    @Test
+    void extractsOncePerPlayerAndEmptiesTheQueue() {
+        FakeStorage storage = new FakeStorage(Map.of("redstone", 100L));
+        FakeTarget first = new FakeTarget(1, 10L);
+        FakeTarget second = new FakeTarget(2, 20L);
+        FakeTarget third = new FakeTarget(1, 30L);
+        CraftingContinuationRefillQueue<String> queue = queueOf("redstone");
+
+        queue.drain(targets(Map.of("redstone", List.of(first, second, third))), storage,
+                CraftingContinuationRefillPolicy.PROPORTIONAL, 1_000L, 64);
+
+        assertEquals(List.of("1:redstone:40", "2:redstone:20"), storage.extractions);
+        assertEquals(10L, first.received);
+        assertEquals(20L, second.received);
+        assertEquals(30L, third.received);
+        assertEquals(40L, storage.stock("redstone"));
+        assertEquals(1, first.refreshes);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void whatTheCpuRefusesGoesBackToStorage() {
+        FakeStorage storage = new FakeStorage(Map.of("redstone", 50L));
+        FakeTarget refusing = new FakeTarget(1, 20L);
+        refusing.takes = 5L;
+        FakeTarget taking = new FakeTarget(1, 10L);
+        CraftingContinuationRefillQueue<String> queue = queueOf("redstone");
+
+        queue.drain(targets(Map.of("redstone", List.of(refusing, taking))), storage,
+                CraftingContinuationRefillPolicy.PROPORTIONAL, 1_000L, 64);
+
+        assertEquals(List.of("1:redstone:30"), storage.extractions);
+        assertEquals(5L, refusing.received);
+        assertEquals(10L, taking.received);
+        assertEquals(15L, storage.returned);
+        assertEquals(35L, storage.stock("redstone"));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void eachPlayerIsOnlyGivenWhatStorageShowsThem() {
+        FakeStorage storage = new FakeStorage(Map.of("redstone", 100L));
+        storage.visibleTo.put(1, 10L);
+        FakeTarget limited = new FakeTarget(1, 30L);
+        FakeTarget unlimited = new FakeTarget(2, 30L);
+        CraftingContinuationRefillQueue<String> queue = queueOf("redstone");
+
+        queue.drain(targets(Map.of("redstone", List.of(limited, unlimited))), storage,
+                CraftingContinuationRefillPolicy.PROPORTIONAL, 1_000L, 64);
+
+        assertEquals(List.of("1:redstone:10", "2:redstone:30"), storage.extractions);
+        assertEquals(10L, limited.received);
+        assertEquals(30L, unlimited.received);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void aPlayerWhoSeesNothingDoesNotStarveTheOthers() {
+        FakeStorage storage = new FakeStorage(Map.of("redstone", 100L));
+        storage.visibleTo.put(1, 0L);
+        FakeTarget blind = new FakeTarget(1, 40L);
+        FakeTarget oldest = new FakeTarget(2, 40L);
+        oldest.age = 5L;
+        FakeTarget newest = new FakeTarget(2, 40L);
+        CraftingContinuationRefillQueue<String> queue = queueOf("redstone");
+
+        queue.drain(targets(Map.of("redstone", List.of(blind, oldest, newest))), storage,
+                CraftingContinuationRefillPolicy.OLDEST_FIRST, 50L, 64);
+
+        assertEquals(List.of("2:redstone:50"), storage.extractions);
+        assertEquals(0L, blind.received);
+        assertEquals(40L, oldest.received);
+        assertEquals(10L, newest.received);
+        assertEquals("redstone", queue.peek());
+    }
+
+    @Test
+    void amountBudgetStopsThePassWithTheKeyStillAtTheHead() {
+        FakeStorage storage = new FakeStorage(Map.of("redstone", 100L, "glass", 100L));
+        FakeTarget redstoneTarget = new FakeTarget(1, 80L);
+        FakeTarget glassTarget = new FakeTarget(1, 10L);
+        CraftingContinuationRefillQueue<String> queue = queueOf("redstone", "glass");
+        var targets = targets(Map.of("redstone", List.of(redstoneTarget), "glass", List.of(glassTarget)));
+
+        queue.drain(targets, storage, CraftingContinuationRefillPolicy.PROPORTIONAL, 30L, 64);
+
+        assertEquals(30L, redstoneTarget.received);
+        assertEquals(0L, glassTarget.received);
+        assertEquals("redstone", queue.peek());
+
+        queue.drain(targets, storage, CraftingContinuationRefillPolicy.PROPORTIONAL, 60L, 64);
+
+        assertEquals(80L, redstoneTarget.received);
+        assertEquals(10L, glassTarget.received);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void spendingTheWholeAmountBudgetLeavesLaterKeysQueued() {
+        FakeStorage storage = new FakeStorage(Map.of("redstone", 100L, "glass", 100L));
+        FakeTarget redstoneTarget = new FakeTarget(1, 30L);
+        FakeTarget glassTarget = new FakeTarget(1, 10L);
+        CraftingContinuationRefillQueue<String> queue = queueOf("redstone", "glass");
+
+        queue.drain(targets(Map.of("redstone", List.of(redstoneTarget), "glass", List.of(glassTarget))),
+                storage, CraftingContinuationRefillPolicy.PROPORTIONAL, 30L, 64);
+
+        assertEquals(30L, redstoneTarget.received);
+        assertEquals(0L, glassTarget.received);
+        assertEquals("glass", queue.peek());
+    }
+
+    @Test
+    void operationBudgetStopsThePassBetweenPlayers() {
+        FakeStorage storage = new FakeStorage(Map.of("redstone", 100L));
+        FakeTarget first = new FakeTarget(1, 10L);
+        FakeTarget second = new FakeTarget(2, 10L);
+        FakeTarget third = new FakeTarget(3, 10L);
+        CraftingContinuationRefillQueue<String> queue = queueOf("redstone");
+        var targets = targets(Map.of("redstone", List.of(first, second, third)));
+
+        queue.drain(targets, storage, CraftingContinuationRefillPolicy.PROPORTIONAL, 1_000L, 2);
+
+        assertEquals(List.of("1:redstone:10", "2:redstone:10"), storage.extractions);
+        assertEquals(0L, third.received);
+        assertEquals(0, third.refreshes);
+        assertEquals("redstone", queue.peek());
+
+        queue.drain(targets, storage, CraftingContinuationRefillPolicy.PROPORTIONAL, 1_000L, 2);
+
+        assertEquals(List.of("1:redstone:10", "2:redstone:10", "3:redstone:10"), storage.extractions);
+        assertEquals(10L, third.received);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void keysNobodyCanTakeAreDropped() {
+        FakeStorage storage = new FakeStorage(Map.of());
+        FakeTarget waiting = new FakeTarget(1, 10L);
+        CraftingContinuationRefillQueue<String> queue = queueOf("redstone", "glass");
+
+        queue.drain(targets(Map.of("glass", List.of(waiting))), storage,
+                CraftingContinuationRefillPolicy.PROPORTIONAL, 1_000L, 64);
+
+        assertEquals(List.of(), storage.extractions);
+        assertEquals(0L, waiting.received);
+        assertTrue(queue.isEmpty());
+    }
+
+    private static CraftingContinuationRefillQueue<String> queueOf(String... keys) {
+        CraftingContinuationRefillQueue<String> queue = new CraftingContinuationRefillQueue<>();
+        for (String key : keys) {
+            queue.enqueue(key);
+        }
+        return queue;
+    }
+
+    // Targets that no longer accept anything drop out, the way the status service skips satisfied CPUs.
+    private static Function<String, List<FakeTarget>> targets(Map<String, List<FakeTarget>> byKey) {
+        return key -> byKey.getOrDefault(key, List.of()).stream()
+                .filter(target -> target.accepted > 0L)
+                .toList();
+    }
+
+    private static final class FakeTarget implements CraftingContinuationRefillQueue.Target<String> {
+        private final Integer playerId;
+        private long accepted;
+        private long age;
+        private long takes = Long.MAX_VALUE;
+        private long received;
+        private int refreshes;
+
+        private FakeTarget(Integer playerId, long accepted) {
+            this.playerId = playerId;
+            this.accepted = accepted;
+        }
+
+        @Override
+        public Integer playerId() {
+            return playerId;
+        }
+
+        @Override
+        public long accepted() {
+            return accepted;
+        }
+
+        @Override
+        public long age() {
+            return age;
+        }
+
+        @Override
+        public long insert(String key, long amount) {
+            long taken = Math.min(amount, takes - received);
+            received += taken;
+            accepted = Math.max(0L, accepted - taken);
+            return taken;
+        }
+
+        @Override
+        public void refresh() {
+            refreshes++;
+        }
+    }
+
+    private static final class FakeStorage implements CraftingContinuationRefillQueue.Storage<String, FakeTarget> {
+        private final Map<String, Long> stock;
+        private final Map<Integer, Long> visibleTo = new HashMap<>();
+        private final List<String> extractions = new ArrayList<>();
+        private long returned;
+
+        private FakeStorage(Map<String, Long> stock) {
+            this.stock = new HashMap<>(stock);
+        }
+
+        long stock(String key) {
+            return stock.getOrDefault(key, 0L);
+        }
+
+        @Override
+        public long extract(String key, long amount, Actionable mode, FakeTarget requester) {
+            long extracted = Math.min(Math.min(amount, stock(key)),
+                    visibleTo.getOrDefault(requester.playerId, Long.MAX_VALUE));
+            if (mode == Actionable.MODULATE) {
+                stock.put(key, stock(key) - extracted);
+                extractions.add(requester.playerId + ":" + key + ":" + extracted);
+            }
+            return extracted;
+        }
+
+        @Override
+        public void insert(String key, long amount, FakeTarget requester) {
+            stock.merge(key, amount, Long::sum);
+            returned += amount;
+        }
+    }
+}
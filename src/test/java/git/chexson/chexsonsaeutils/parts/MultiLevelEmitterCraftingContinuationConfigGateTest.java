@@ -66,6 +66,17 @@ class MultiLevelEmitterCraftingContinuationConfigGateTest {
         assertDoesNotContain(COMPATIBILITY_CONFIG, "compatibilityMode");
     }
 
+    @Test
+    void budgetsQueuedRefills() throws IOException {
+        Path statusService = javaSource(
+                "git/chexson/chexsonsaeutils/crafting/status/CraftingContinuationStatusService.java"
+        );
+        assertContains(COMPATIBILITY_CONFIG, "craftingContinuationRefillAmountPerTick");
+        assertContains(COMPATIBILITY_CONFIG, "craftingContinuationRefillOperationsPerTick");
+        assertContains(statusService, "refillQueuedWaitingInputs(");
+        assertContains(statusService, "Actionable.SIMULATE");
+    }
+
     @Test
     void registersContinuationConfig() throws IOException {
         assertContains(MOD_ENTRYPOINT, "registerConfig");
@@ -1,17 +1,32 @@
 package git.chexson.chexsonsaeutils.parts;
 
+import appeng.api.stacks.AEKey;
+import appeng.api.stacks.AEKeyType;
 import git.chexson.chexsonsaeutils.crafting.CraftingContinuationMode;
 import git.chexson.chexsonsaeutils.crafting.persistence.CraftingContinuationSavedData;
+import git.chexson.chexsonsaeutils.crafting.status.CraftingContinuationStatusService;
 import git.chexson.chexsonsaeutils.crafting.status.CraftingContinuationStatusSnapshot;
 import git.chexson.chexsonsaeutils.crafting.status.CraftingContinuationWaitingBranch;
 import git.chexson.chexsonsaeutils.crafting.status.CraftingContinuationWaitingDetail;
+import git.chexson.chexsonsaeutils.crafting.status.CraftingContinuationWaitingIndex;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 
@@ -19,7 +34,9 @@ import static git.chexson.chexsonsaeutils.support.SourceLayoutTestSupport.assert
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class MultiLevelEmitterCraftingContinuationStateTest {
@@ -173,6 +190,182 @@ class MultiLevelEmitterCraftingContinuationStateTest {
         assertContains(STATUS_SERVICE, "storage.insert(liveKey, extracted - inserted, Actionable.MODULATE, refillActionSource)");
     }
 
+    @Test
+    void waitingIndexListsJobsInTheOrderTheyStartedWaiting() {
+        CraftingContinuationWaitingIndex<String, String> index = new CraftingContinuationWaitingIndex<>();
+        List<UUID> craftIds = new ArrayList<>();
+        for (int job = 0; job < 16; job++) {
+            UUID craftId = UUID.nameUUIDFromBytes(("job-" + job).getBytes(StandardCharsets.UTF_8));
+            craftIds.add(craftId);
+            index.update(craftId, "cpu_" + job, List.of("minecraft:redstone"));
+        }
+
+        assertEquals(craftIds, List.copyOf(index.waitingFor("minecraft:redstone").keySet()));
+        index.remove(craftIds.get(3));
+        craftIds.remove(3);
+        assertEquals(craftIds, List.copyOf(index.waitingFor("minecraft:redstone").keySet()));
+    }
+
+    @Test
+    void waitingIndexTracksConsumedAndClearedKeys() throws IOException {
+        UUID firstCraftId = UUID.fromString("5b1f7d0e-6c0a-4d43-9a49-8f4e6f0a2c11");
+        UUID secondCraftId = UUID.fromString("a7f3c2d4-0e5b-4c8e-b1a2-3d4e5f607182");
+        CraftingContinuationWaitingIndex<String, String> index = new CraftingContinuationWaitingIndex<>();
+
+        index.update(firstCraftId, "cpu_a", List.of("minecraft:redstone", "minecraft:glass"));
+        index.update(secondCraftId, "cpu_b", List.of("minecraft:redstone"));
+        assertEquals(Map.of(firstCraftId, "cpu_a", secondCraftId, "cpu_b"), index.waitingFor("minecraft:redstone"));
+        assertEquals(Map.of(), index.waitingFor("minecraft:iron_ingot"));
+
+        index.update(firstCraftId, "cpu_a", List.of("minecraft:glass"));
+        assertEquals(Map.of(secondCraftId, "cpu_b"), index.waitingFor("minecraft:redstone"));
+
+        index.retain(Set.of(firstCraftId));
+        assertEquals(Map.of(), index.waitingFor("minecraft:redstone"));
+        assertFalse(index.isWaiting(secondCraftId));
+
+        index.update(firstCraftId, "cpu_a", List.of());
+        assertEquals(Map.of(), index.waitingFor("minecraft:glass"));
+        assertFalse(index.isWaiting(firstCraftId));
+
+        assertContains(STATUS_SERVICE, "reconcileIndexedWaitingInputs(");
+        assertContains(STATUS_SERVICE, "waitingIndex.retain(liveCraftIds)");
+    }
+
+    @Test
+    void watchedKeysFollowTheWaitingIndexKeySet() throws IOException {
+        UUID craftId = UUID.fromString("c4b2e1f0-7a3d-4e5f-9b8c-1d2e3f4a5b6c");
+        CraftingContinuationWaitingIndex<String, String> index = new CraftingContinuationWaitingIndex<>();
+        long initialVersion = index.keyVersion();
+
+        index.update(craftId, "cpu_a", List.of("minecraft:redstone", "minecraft:glass"));
+        long seededVersion = index.keyVersion();
+        assertTrue(seededVersion != initialVersion);
+        assertEquals(Set.of("minecraft:redstone", "minecraft:glass"), index.keys());
+
+        index.update(craftId, "cpu_a", List.of("minecraft:glass", "minecraft:redstone"));
+        assertEquals(seededVersion, index.keyVersion());
+
+        index.update(craftId, "cpu_a", List.of("minecraft:glass"));
+        assertTrue(index.keyVersion() != seededVersion);
+        assertEquals(Set.of("minecraft:glass"), index.keys());
+
+        assertContains(STATUS_SERVICE, "availabilityWatcher().watch(grid, waitingIndex)");
+        assertContains(STATUS_SERVICE, "drainChangedKeys()");
+    }
+
+    @Test
+    void liveWaitingBranchesMatchTheEncodedKeyBookkeeping() throws ReflectiveOperationException {
+        DummyKey redstone = new DummyKey("redstone");
+        DummyKey glass = new DummyKey("glass");
+        DummyKey ironIngot = new DummyKey("iron_ingot");
+        Map<AEKey, Long> liveWaitingKeys = new LinkedHashMap<>();
+        liveWaitingKeys.put(redstone, 5L);
+        liveWaitingKeys.put(glass, 3L);
+        liveWaitingKeys.put(new DummyKey("gold_ingot"), 9L);
+
+        Map<String, Long> firstBranchStacks = new LinkedHashMap<>();
+        firstBranchStacks.put(encodeUncached(redstone), 4L);
+        firstBranchStacks.put(encodeUncached(ironIngot), 2L);
+        firstBranchStacks.put(encodeUncached(glass), 1L);
+        Map<String, Long> secondBranchStacks = new LinkedHashMap<>();
+        secondBranchStacks.put(encodeUncached(redstone), 4L);
+        secondBranchStacks.put(encodeUncached(glass), 8L);
+        List<CraftingContinuationWaitingBranch> trackedBranches = List.of(
+                new CraftingContinuationWaitingBranch("circuit", 0, firstBranchStacks),
+                new CraftingContinuationWaitingBranch("window", 1, secondBranchStacks)
+        );
+
+        List<CraftingContinuationWaitingBranch> liveBranches = liveWaitingBranches(trackedBranches, liveWaitingKeys);
+
+        assertEquals(encodedKeyBranches(trackedBranches, liveWaitingKeys), liveBranches);
+        assertEquals(Map.of(encodeUncached(redstone), 4L, encodeUncached(glass), 1L),
+                liveBranches.get(0).missingStacks());
+        assertEquals(Map.of(encodeUncached(redstone), 1L, encodeUncached(glass), 2L),
+                liveBranches.get(1).missingStacks());
+        assertEquals(List.of(), liveWaitingBranches(trackedBranches, Map.of(ironIngot, 0L)));
+    }
+
+    @Test
+    void syncKeyEncodingSurvivesCacheEviction() {
+        DummyKey redstone = new DummyKey("redstone");
+        String encoded = CraftingContinuationStatusService.encodeKeyForSync(redstone);
+        assertEquals(encodeUncached(redstone), encoded);
+        assertSame(encoded, CraftingContinuationStatusService.encodeKeyForSync(redstone));
+
+        // Far more distinct keys than the cache holds, so the first entry is evicted and encoded again.
+        for (int filler = 0; filler < 4096; filler++) {
+            CraftingContinuationStatusService.encodeKeyForSync(new DummyKey("filler_" + filler));
+        }
+        String reencoded = CraftingContinuationStatusService.encodeKeyForSync(new DummyKey("redstone"));
+        assertNotSame(encoded, reencoded);
+        assertEquals(encoded, reencoded);
+        assertEquals("", CraftingContinuationStatusService.encodeKeyForSync(null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<CraftingContinuationWaitingBranch> liveWaitingBranches(
+            List<CraftingContinuationWaitingBranch> trackedBranches,
+            Map<AEKey, Long> liveWaitingKeys
+    ) throws ReflectiveOperationException {
+        Method liveKeysBySyncKey = CraftingContinuationStatusService.class.getDeclaredMethod(
+                "liveKeysBySyncKey",
+                Map.class
+        );
+        liveKeysBySyncKey.setAccessible(true);
+        Method buildLiveWaitingBranches = CraftingContinuationStatusService.class.getDeclaredMethod(
+                "buildLiveWaitingBranches",
+                List.class,
+                Map.class,
+                Map.class
+        );
+        buildLiveWaitingBranches.setAccessible(true);
+        return (List<CraftingContinuationWaitingBranch>) buildLiveWaitingBranches.invoke(
+                null,
+                trackedBranches,
+                liveWaitingKeys,
+                liveKeysBySyncKey.invoke(null, liveWaitingKeys)
+        );
+    }
+
+    // The bookkeeping as it was done before live keys stayed AEKeys: everything compared by encoded string.
+    private static List<CraftingContinuationWaitingBranch> encodedKeyBranches(
+            List<CraftingContinuationWaitingBranch> trackedBranches,
+            Map<AEKey, Long> liveWaitingKeys
+    ) {
+        Map<String, Long> remainingStacks = new LinkedHashMap<>();
+        liveWaitingKeys.forEach((key, amount) -> remainingStacks.merge(encodeUncached(key), amount, Long::sum));
+        List<CraftingContinuationWaitingBranch> liveBranches = new ArrayList<>();
+        for (CraftingContinuationWaitingBranch trackedBranch : trackedBranches) {
+            Map<String, Long> branchStacks = new LinkedHashMap<>();
+            for (var missingStack : trackedBranch.missingStacks().entrySet()) {
+                long remainingAmount = remainingStacks.getOrDefault(missingStack.getKey(), 0L);
+                if (remainingAmount <= 0L) {
+                    continue;
+                }
+                long liveAmount = Math.min(missingStack.getValue(), remainingAmount);
+                branchStacks.put(missingStack.getKey(), liveAmount);
+                if (liveAmount == remainingAmount) {
+                    remainingStacks.remove(missingStack.getKey());
+                } else {
+                    remainingStacks.put(missingStack.getKey(), remainingAmount - liveAmount);
+                }
+            }
+            if (!branchStacks.isEmpty()) {
+                liveBranches.add(new CraftingContinuationWaitingBranch(
+                        trackedBranch.branchLabel(),
+                        trackedBranch.planOrder(),
+                        branchStacks
+                ));
+            }
+        }
+        return liveBranches;
+    }
+
+    private static String encodeUncached(AEKey key) {
+        return key.toTagGeneric().toString();
+    }
+
     private static Map<String, Long> orderedStacks(Map<String, Long> rawStacks) {
         Map<String, Long> orderedStacks = new LinkedHashMap<>();
         rawStacks.entrySet().stream()
@@ -180,4 +373,82 @@ class MultiLevelEmitterCraftingContinuationStateTest {
                 .forEach(entry -> orderedStacks.put(entry.getKey(), entry.getValue()));
         return orderedStacks;
     }
+
+    private static final class DummyKeyType extends AEKeyType {
+        private static final DummyKeyType INSTANCE = new DummyKeyType();
+
+        private DummyKeyType() {
+            super(Objects.requireNonNull(ResourceLocation.tryParse("chexsonsaeutils:test")),
+                    DummyKey.class,
+                    Component.literal("Test"));
+        }
+
+        @Override
+        public AEKey readFromPacket(FriendlyByteBuf input) {
+            return null;
+        }
+
+        @Override
+        public AEKey loadKeyFromTag(CompoundTag tag) {
+            return null;
+        }
+    }
+
+    private static final class DummyKey extends AEKey {
+        private final String id;
+
+        private DummyKey(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public AEKeyType getType() {
+            return DummyKeyType.INSTANCE;
+        }
+
+        @Override
+        public AEKey dropSecondary() {
+            return this;
+        }
+
+        @Override
+        public CompoundTag toTag() {
+            CompoundTag tag = new CompoundTag();
+            tag.putString("id", id);
+            return tag;
+        }
+
+        @Override
+        public Object getPrimaryKey() {
+            return id;
+        }
+
+        @Override
+        public ResourceLocation getId() {
+            return Objects.requireNonNull(ResourceLocation.tryParse("chexsonsaeutils:" + id));
+        }
+
+        @Override
+        public void writeToPacket(FriendlyByteBuf data) {
+        }
+
+        @Override
+        protected Component computeDisplayName() {
+            return Component.literal(id);
+        }
+
+        @Override
+        public void addDrops(long amount, List<ItemStack> drops, Level level, BlockPos pos) {
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof DummyKey dummyKey && id.equals(dummyKey.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+    }
 }
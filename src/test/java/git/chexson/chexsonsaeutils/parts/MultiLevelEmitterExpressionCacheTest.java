@@ -0,0 +1,104 @@
+package git.chexson.chexsonsaeutils.parts;
+
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCache;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompileResult;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompiler;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionFormatter;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionPlan;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MultiLevelEmitterExpressionCacheTest {
+
+    @Test
+    void identicalEmittersShareOneCompileResult() {
+        String expression = MultiLevelEmitterExpressionFormatter.defaultExpressionForSlots(5);
+
+        MultiLevelEmitterExpressionCompileResult first = MultiLevelEmitterExpressionCache.compile(expression, 5, slot -> true);
+        MultiLevelEmitterExpressionCompileResult second = MultiLevelEmitterExpressionCache.compile(
+                new String(expression.toCharArray()),
+                5,
+                slot -> slot < 5
+        );
+
+        assertSame(first, second);
+        assertNotNull(first.plan());
+    }
+
+    @Test
+    void cachedResultsMatchTheCompilerForEveryMarkedMask() {
+        for (int marked = 0; marked < 4; marked++) {
+            int mask = marked;
+            MultiLevelEmitterExpressionCompileResult expected =
+                    MultiLevelEmitterExpressionCompiler.compile("#1 OR #2", 2, slot -> (mask & (1 << slot)) != 0);
+            MultiLevelEmitterExpressionCompileResult actual =
+                    MultiLevelEmitterExpressionCache.compile("#1 OR #2", 2, slot -> (mask & (1 << slot)) != 0);
+
+            assertEquals(expected.rawText(), actual.rawText());
+            assertEquals(expected.diagnostics(), actual.diagnostics());
+            assertEquals(expected.isInvalid(), actual.isInvalid());
+        }
+    }
+
+    @Test
+    void equivalentSpellingsShareOnePlan() {
+        MultiLevelEmitterExpressionPlan spaced =
+                MultiLevelEmitterExpressionCache.compile("#1 AND ( #2 OR #3 )", 3, slot -> true).plan();
+        MultiLevelEmitterExpressionPlan compact =
+                MultiLevelEmitterExpressionCache.compile("#1 and (#2 or #3)", 3, slot -> true).plan();
+        MultiLevelEmitterExpressionPlan differentSlotCount =
+                MultiLevelEmitterExpressionCache.compile("#1 AND (#2 OR #3)", 4, slot -> true).plan();
+        MultiLevelEmitterExpressionPlan different =
+                MultiLevelEmitterExpressionCache.compile("(#1 AND #2) OR #3", 3, slot -> true).plan();
+
+        MultiLevelEmitterExpressionPlan redundant =
+                MultiLevelEmitterExpressionCache.compile("((#1 AND #1)) AND (#2 OR #3 OR #2)", 3, slot -> true).plan();
+
+        assertNotNull(spaced);
+        assertSame(spaced, compact);
+        assertSame(spaced, redundant);
+        assertSame(spaced, differentSlotCount);
+        assertNotSame(spaced, different);
+    }
+
+    @Test
+    void cacheStaysBounded() {
+        MultiLevelEmitterExpressionCompileResult first = MultiLevelEmitterExpressionCache.compile("#1", 1, slot -> true);
+        for (int slots = 1; slots <= 64; slots++) {
+            for (int variant = 0; variant < 8; variant++) {
+                int hidden = variant;
+                MultiLevelEmitterExpressionCache.compile("#1 OR #1", slots, slot -> slot != hidden);
+            }
+        }
+
+        assertNotSame(first, MultiLevelEmitterExpressionCache.compile("#1", 1, slot -> true));
+    }
+
+    @Test
+    void concurrentCompilesAgreeOnOnePlan() throws Exception {
+        String expression = "(#1 OR #2) AND (#3 OR #4) AND #5";
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<MultiLevelEmitterExpressionPlan>> plans = new ArrayList<>();
+            for (int task = 0; task < 32; task++) {
+                plans.add(executor.submit(() -> MultiLevelEmitterExpressionCache.compile(expression, 5, slot -> true).plan()));
+            }
+            MultiLevelEmitterExpressionPlan expected = MultiLevelEmitterExpressionCache.compile(expression, 5, slot -> true).plan();
+            for (Future<MultiLevelEmitterExpressionPlan> plan : plans) {
+                assertSame(expected, plan.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
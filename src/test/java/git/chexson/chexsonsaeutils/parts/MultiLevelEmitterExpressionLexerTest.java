@@ -0,0 +1,82 @@
+package git.chexson.chexsonsaeutils.parts;
+
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompiler;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionLexer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MultiLevelEmitterExpressionLexerTest {
+    private static final String ALPHABET = "#1209kMGandorAND OR()+-*<>=!$ ";
+
+    @Test
+    void relexMatchesAFullLexAfterRandomEdits() {
+        Random random = new Random(16);
+        String text = "";
+        List<MultiLevelEmitterExpressionLexer.Token> tokens = MultiLevelEmitterExpressionLexer.lex(text);
+        for (int edit = 0; edit < 20_000; edit++) {
+            int start = text.isEmpty() ? 0 : random.nextInt(text.length() + 1);
+            int end = Math.min(text.length(), start + random.nextInt(4));
+            StringBuilder inserted = new StringBuilder();
+            for (int count = random.nextInt(4); count > 0; count--) {
+                inserted.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            String edited = text.substring(0, start) + inserted + text.substring(end);
+            if (edited.length() > 48) {
+                edited = edited.substring(edited.length() - 48);
+            }
+
+            List<MultiLevelEmitterExpressionLexer.Token> relexed =
+                    MultiLevelEmitterExpressionLexer.relex(text, tokens, edited);
+
+            assertEquals(MultiLevelEmitterExpressionLexer.lex(edited), relexed, text + " -> " + edited);
+            text = edited;
+            tokens = relexed;
+        }
+    }
+
+    @Test
+    void relexKeepsTokensAwayFromTheEdit() {
+        String before = "#1 AND (#2 OR #3) AND #4";
+        List<MultiLevelEmitterExpressionLexer.Token> tokens = MultiLevelEmitterExpressionLexer.lex(before);
+
+        List<MultiLevelEmitterExpressionLexer.Token> relexed =
+                MultiLevelEmitterExpressionLexer.relex(before, tokens, "#1 AND (#2 OR #35) AND #4");
+
+        assertSame(tokens.get(0), relexed.get(0));
+        assertSame(tokens.get(4), relexed.get(4));
+        assertEquals("#35", relexed.get(9).text());
+        assertEquals(35, relexed.get(9).slotNumber());
+        assertEquals(MultiLevelEmitterExpressionLexer.lex("#1 AND (#2 OR #35) AND #4"), relexed);
+    }
+
+    @Test
+    void relexSeesEditsThatChangeAnEarlierTokenEnd() {
+        String before = "$!= #1";
+        List<MultiLevelEmitterExpressionLexer.Token> tokens = MultiLevelEmitterExpressionLexer.lex(before);
+
+        assertEquals(
+                MultiLevelEmitterExpressionLexer.lex("$!x #1"),
+                MultiLevelEmitterExpressionLexer.relex(before, tokens, "$!x #1")
+        );
+    }
+
+    @Test
+    void compilingPreLexedTokensMatchesCompilingText() {
+        String text = "(#1 + 2 * #2 >= 10k) or #3 != 0 AND";
+        var fromText = MultiLevelEmitterExpressionCompiler.compile(text, 3, slot -> slot != 1);
+        var fromTokens = MultiLevelEmitterExpressionCompiler.compile(
+                text,
+                MultiLevelEmitterExpressionLexer.lex(text),
+                3,
+                slot -> slot != 1
+        );
+
+        assertEquals(fromText.tokens(), fromTokens.tokens());
+        assertEquals(fromText.diagnostics(), fromTokens.diagnostics());
+    }
+}
@@ -1,5 +1,6 @@
 package git.chexson.chexsonsaeutils.parts;
 
+import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterPart;
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompileResult;
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompiler;
 import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionDiagnostic;
@@ -136,6 +137,69 @@ class MultiLevelEmitterExpressionParserTest {
         ), tokenSummaries(result.tokens()));
     }
 
+    @Test
+    void amountSumsCompareAgainstSuffixedLiterals() {
+        MultiLevelEmitterExpressionCompileResult result = MultiLevelEmitterExpressionCompiler.compile(
+                "#1 + #2 + 2 * #3 >= 10k AND #4",
+                4,
+                index -> true
+        );
+
+        assertFalse(result.isInvalid());
+        assertNotNull(result.plan());
+        List<MultiLevelEmitterPart.SlotEvaluation> slots = MultiLevelEmitterPart.asParticipatingSlots(
+                List.of(false, false, false, true)
+        );
+        assertTrue(result.plan().evaluateParticipating(slots, new long[]{4_000L, 2_000L, 2_000L, 0L}).result());
+        assertFalse(result.plan().evaluateParticipating(slots, new long[]{4_000L, 2_000L, 1_999L, 0L}).result());
+        assertFalse(result.plan().evaluateParticipating(slots, null).result());
+        assertEquals(4, result.plan().highestReferencedSlot());
+    }
+
+    @Test
+    void amountTermsOutsideComparisonsAreInvalid() {
+        assertEquals("missing_comparison", primaryCode("#1 + #2"));
+        assertEquals("missing_comparison", primaryCode("#1 AND 5"));
+        assertEquals("expected_amount", primaryCode("(#1 OR #2) + 1 >= 3"));
+        assertEquals("nonconstant_scale", primaryCode("#1 * #2 >= 5"));
+        assertEquals("number_out_of_range", primaryCode("#1 >= 99999999999999999999"));
+        assertEquals("unexpected_token", primaryCode("#1 >= 10x"));
+        assertEquals("missing_operand", primaryCode("#1 >="));
+        assertFalse(MultiLevelEmitterExpressionCompiler.compile("(#1 + #2) * 3 != #3 - 1", 3, index -> true).isInvalid());
+    }
+
+    @Test
+    void explicitFormatterSpacesArithmeticAndComparisons() {
+        assertEquals(
+                "(#1 + 2 * #2 >= 10k) OR #3 != 0",
+                MultiLevelEmitterExpressionFormatter.format("(#1+2*#2>=10k) or #3!=0")
+        );
+        assertEquals("#1 - #2 < #3", MultiLevelEmitterExpressionFormatter.format("#1-#2<#3"));
+    }
+
+    @Test
+    void simplifiedFormDropsRedundancyButKeepsUnsafeFactoring() {
+        assertEquals("#1", MultiLevelEmitterExpressionFormatter.simplify("#1 AND #1", 1));
+        assertEquals("#2 AND #3", MultiLevelEmitterExpressionFormatter.simplify("((#2 OR #2)) AND #3", 3));
+        assertEquals("#1 AND #2 AND #3", MultiLevelEmitterExpressionFormatter.simplify("#1 and (#2 AND (#3))", 3));
+        assertEquals(
+                "#1 AND (#2 >= 5 OR #2 < 2)",
+                MultiLevelEmitterExpressionFormatter.simplify("(#1 AND #2 >= 5) OR (#2 < 2 AND #1)", 2)
+        );
+        // #2 and #3 can drop out independently, so factoring #1 out would change the result.
+        assertEquals(
+                "(#1 AND #2) OR (#1 AND #3)",
+                MultiLevelEmitterExpressionFormatter.simplify("(#1 AND #2) OR (#1 AND #3)", 3)
+        );
+        assertEquals("#1 + #2 + #3 >= 10k", MultiLevelEmitterExpressionFormatter.simplify("#1 + (#2 + #3) >= 10000", 3));
+        assertEquals("#1 - (#2 - #3) > 0", MultiLevelEmitterExpressionFormatter.simplify("(#1) - (#2 - #3) > 0", 3));
+        assertEquals("#1 AND", MultiLevelEmitterExpressionFormatter.simplify("#1   and", 1));
+    }
+
+    private static String primaryCode(String expression) {
+        return MultiLevelEmitterExpressionCompiler.compile(expression, 3, index -> true).primaryDiagnostic().code();
+    }
+
     private static List<String> tokenSummaries(List<?> tokens) throws Exception {
         List<String> summaries = new ArrayList<>(tokens.size());
         for (Object token : tokens) {
@@ -0,0 +1,456 @@
+package git.chexson.chexsonsaeutils.parts;
+
+import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterPart;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompileResult;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionCompiler;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionFormatter;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionPlan;
+import git.chexson.chexsonsaeutils.parts.automation.expression.MultiLevelEmitterExpressionProgram;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultiLevelEmitterExpressionProgramTest {
+
+    @Test
+    void flatProgramMatchesTreeEvaluatorForRandomExpressions() {
+        Random random = new Random(0x5EEDL);
+        for (int expressionIndex = 0; expressionIndex < 400; expressionIndex++) {
+            int slotCount = 1 + random.nextInt(MultiLevelEmitterExpressionProgram.MAX_SLOTS);
+            String expression = randomExpression(random, slotCount, 0);
+            MultiLevelEmitterExpressionPlan plan = compile(expression, slotCount);
+            MultiLevelEmitterExpressionProgram program = plan.program();
+
+            for (int sample = 0; sample < 32; sample++) {
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults = randomSlotResults(random, slotCount);
+                MultiLevelEmitterPart.AggregationResult expected = plan.evaluateParticipating(slotResults);
+                long packed = program.evaluatePacked(participatingMask(slotResults), resultMask(slotResults));
+
+                assertEquals(expected, MultiLevelEmitterExpressionProgram.unpack(packed), expression);
+                assertEquals(expected, program.evaluateParticipating(slotResults), expression);
+            }
+        }
+    }
+
+    @Test
+    void nonParticipatingSlotsDropOutOfBothOperators() {
+        MultiLevelEmitterExpressionProgram program = compile("#1 AND (#2 OR #3)", 3).program();
+
+        long onlyFirstParticipates = program.evaluatePacked(0b001L, 0b001L);
+        assertEquals(1, MultiLevelEmitterExpressionProgram.participatingCount(onlyFirstParticipates));
+        assertTrue(MultiLevelEmitterExpressionProgram.result(onlyFirstParticipates));
+
+        long nothingParticipates = program.evaluatePacked(0L, 0b111L);
+        assertFalse(MultiLevelEmitterExpressionProgram.hasParticipatingSlots(nothingParticipates));
+        assertFalse(MultiLevelEmitterExpressionProgram.result(nothingParticipates));
+
+        long secondFalseThirdInactive = program.evaluatePacked(0b011L, 0b001L);
+        assertEquals(2, MultiLevelEmitterExpressionProgram.participatingCount(secondFalseThirdInactive));
+        assertFalse(MultiLevelEmitterExpressionProgram.result(secondFalseThirdInactive));
+    }
+
+    @Test
+    void defaultSixtyFourSlotExpressionLowersToFlatProgram() {
+        MultiLevelEmitterExpressionProgram program = compile(
+                MultiLevelEmitterExpressionFormatter.defaultExpressionForSlots(64),
+                64
+        ).program();
+
+        assertEquals(127, program.instructionCount());
+        assertEquals(64, program.highestReferencedSlot());
+        assertTrue(MultiLevelEmitterExpressionProgram.result(program.evaluatePacked(-1L, 1L << 63)));
+        assertEquals(64, MultiLevelEmitterExpressionProgram.participatingCount(program.evaluatePacked(-1L, 0L)));
+    }
+
+    @Test
+    void packedEvaluationDoesNotAllocate() {
+        MultiLevelEmitterExpressionProgram program = compile(
+                "(#1 AND #2) OR (#3 AND (#4 OR #5 OR #6)) OR " + MultiLevelEmitterExpressionFormatter.defaultExpressionForSlots(64),
+                64
+        ).program();
+
+        assertDoesNotAllocate(iteration ->
+                program.evaluatePacked(iteration * 0x9E3779B97F4A7C15L, iteration * 0xC2B2AE3D27D4EB4FL));
+    }
+
+    @Test
+    void lazyEvaluationMatchesPackedEvaluation() {
+        Random random = new Random(0xC0FFEEL);
+        for (int expressionIndex = 0; expressionIndex < 400; expressionIndex++) {
+            int slotCount = 1 + random.nextInt(MultiLevelEmitterExpressionProgram.MAX_SLOTS);
+            String expression = randomExpression(random, slotCount, 0);
+            MultiLevelEmitterExpressionProgram program = compile(expression, slotCount).program();
+
+            for (int sample = 0; sample < 32; sample++) {
+                long participating = random.nextLong();
+                long results = random.nextLong();
+                long expected = program.evaluatePacked(participating, results);
+                long actual = program.evaluateLazy(
+                        participating,
+                        random.nextLong(),
+                        random.nextLong(),
+                        random.nextLong(),
+                        slot -> {
+                            assertTrue((participating & (1L << slot)) != 0L, expression);
+                            return (results & (1L << slot)) != 0L;
+                        }
+                );
+                assertEquals(expected, actual, expression);
+            }
+        }
+    }
+
+    @Test
+    void lazyEvaluationShortCircuitsDecidedOperands() {
+        MultiLevelEmitterExpressionProgram program = compile("#1 AND (#2 OR #3)", 3).program();
+        List<Integer> reads = new ArrayList<>();
+
+        long packed = program.evaluateLazy(0b111L, 0L, 0L, 0L, slot -> {
+            reads.add(slot);
+            return false;
+        });
+
+        assertEquals(List.of(0), reads);
+        assertEquals(3, MultiLevelEmitterExpressionProgram.participatingCount(packed));
+        assertFalse(MultiLevelEmitterExpressionProgram.result(packed));
+    }
+
+    @Test
+    void lazyEvaluationReadsCheaperOperandsFirst() {
+        MultiLevelEmitterExpressionProgram program = compile("#1 AND (#2 OR #3)", 3).program();
+        List<Integer> reads = new ArrayList<>();
+
+        // #1 is a crafting slot, #2 is fuzzy and #3 is already cached.
+        long packed = program.evaluateLazy(0b111L, 0b100L, 0b010L, 0b001L, slot -> {
+            reads.add(slot);
+            return slot == 1;
+        });
+
+        assertEquals(List.of(2, 1, 0), reads);
+        assertFalse(MultiLevelEmitterExpressionProgram.result(packed));
+
+        reads.clear();
+        program.evaluateLazy(0b111L, 0L, 0L, 0b001L, slot -> {
+            reads.add(slot);
+            return false;
+        });
+        assertEquals(List.of(1, 2), reads);
+    }
+
+    @Test
+    void amountTermsMatchTreeEvaluatorAndLazyEvaluation() {
+        Random random = new Random(0xA11CEL);
+        for (int expressionIndex = 0; expressionIndex < 400; expressionIndex++) {
+            int slotCount = 1 + random.nextInt(MultiLevelEmitterExpressionProgram.MAX_SLOTS);
+            String expression = randomExpressionWithAmounts(random, slotCount, 0);
+            MultiLevelEmitterExpressionPlan plan = compile(expression, slotCount);
+            MultiLevelEmitterExpressionProgram program = plan.program();
+
+            for (int sample = 0; sample < 32; sample++) {
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults = randomSlotResults(random, slotCount);
+                long[] amounts = new long[slotCount];
+                for (int slot = 0; slot < slotCount; slot++) {
+                    amounts[slot] = random.nextInt(8) == 0 ? Long.MAX_VALUE : random.nextInt(2_000);
+                }
+                long participating = participatingMask(slotResults);
+                long results = resultMask(slotResults);
+                MultiLevelEmitterPart.AggregationResult expected = plan.evaluateParticipating(slotResults, amounts);
+                long packed = program.evaluatePacked(participating, results, amounts);
+                long lazy = program.evaluateLazy(
+                        participating,
+                        0L,
+                        0L,
+                        0L,
+                        slot -> (results & (1L << slot)) != 0L,
+                        slot -> {
+                            assertTrue((participating & (1L << slot)) != 0L, expression);
+                            return amounts[slot];
+                        }
+                );
+
+                assertEquals(expected, MultiLevelEmitterExpressionProgram.unpack(packed), expression);
+                assertEquals(packed, lazy, expression);
+            }
+        }
+    }
+
+    @Test
+    void amountArithmeticSaturatesInsteadOfWrapping() {
+        MultiLevelEmitterExpressionProgram sum = compile("#1 + #2 > 5", 2).program();
+        MultiLevelEmitterExpressionProgram scaled = compile("#1 * 3 >= #1", 1).program();
+        MultiLevelEmitterExpressionProgram difference = compile("0 - #1 - #2 < 0", 2).program();
+        long[] huge = {Long.MAX_VALUE, Long.MAX_VALUE};
+
+        assertTrue(MultiLevelEmitterExpressionProgram.result(sum.evaluatePacked(0b11L, 0L, huge)));
+        assertTrue(MultiLevelEmitterExpressionProgram.result(scaled.evaluatePacked(0b1L, 0L, huge)));
+        assertTrue(MultiLevelEmitterExpressionProgram.result(difference.evaluatePacked(0b11L, 0L, huge)));
+    }
+
+    @Test
+    void amountComparisonsDropOutWithoutParticipatingSlots() {
+        MultiLevelEmitterExpressionProgram program = compile("#1 OR #2 + #3 >= 10", 3).program();
+
+        assertEquals(0b110L, program.amountSlots());
+        long onlyAmounts = program.evaluatePacked(0b110L, 0L, new long[]{0L, 4L, 6L});
+        assertEquals(2, MultiLevelEmitterExpressionProgram.participatingCount(onlyAmounts));
+        assertTrue(MultiLevelEmitterExpressionProgram.result(onlyAmounts));
+
+        long secondOnly = program.evaluatePacked(0b011L, 0b000L, new long[]{0L, 4L, 6L});
+        assertEquals(2, MultiLevelEmitterExpressionProgram.participatingCount(secondOnly));
+        assertFalse(MultiLevelEmitterExpressionProgram.result(secondOnly));
+
+        assertFalse(MultiLevelEmitterExpressionProgram.hasParticipatingSlots(
+                program.evaluatePacked(0L, 0L, new long[]{0L, 4L, 6L})
+        ));
+    }
+
+    @Test
+    void packedAmountEvaluationDoesNotAllocate() {
+        MultiLevelEmitterExpressionProgram program = compile("#1 + #2 + 2 * #3 >= 10k AND (#4 - #5 < 64 OR #6)", 6).program();
+        long[] amounts = {4_000L, 3_000L, 1_500L, 90L, 30L, 0L};
+
+        assertDoesNotAllocate(iteration -> {
+            amounts[3] = iteration & 127;
+            return program.evaluatePacked(0b111111L, iteration, amounts);
+        });
+    }
+
+    @Test
+    void simplifiedPlansKeepResultAndParticipationOfTheWrittenExpression() {
+        Random random = new Random(0x0971L);
+        for (int expressionIndex = 0; expressionIndex < 600; expressionIndex++) {
+            int slotCount = 1 + random.nextInt(4);
+            String expression = redundantExpression(random, slotCount, 0);
+            MultiLevelEmitterExpressionPlan plan = compile(expression, slotCount);
+
+            // Every slot is inactive, false or true: 3^slotCount assignments cover all participation patterns.
+            int assignments = (int) Math.pow(3, slotCount);
+            for (int assignment = 0; assignment < assignments; assignment++) {
+                int[] states = new int[slotCount];
+                List<MultiLevelEmitterPart.SlotEvaluation> slotResults = new ArrayList<>(slotCount);
+                int remaining = assignment;
+                for (int slot = 0; slot < slotCount; slot++) {
+                    states[slot] = remaining % 3 - 1;
+                    remaining /= 3;
+                    slotResults.add(states[slot] < 0
+                            ? MultiLevelEmitterPart.SlotEvaluation.inactive()
+                            : MultiLevelEmitterPart.SlotEvaluation.participating(states[slot] == 1));
+                }
+                int expected = new ReferenceEvaluator(expression, states).evaluate();
+                MultiLevelEmitterPart.AggregationResult actual = plan.evaluateParticipating(slotResults);
+
+                assertEquals(expected >= 0, actual.hasParticipatingSlots(), expression);
+                assertEquals(expected == 1, actual.result(), expression);
+            }
+        }
+    }
+
+    @Test
+    void redundantOperandsDoNotReachTheProgram() {
+        assertEquals(1, compile("#1 AND #1 AND (#1)", 1).program().instructionCount());
+        assertEquals(3, compile("((#2 OR #2)) AND #2 OR (#2 OR #1)", 2).program().instructionCount());
+        assertEquals(7, compile("(#1 AND #2) OR (#1 AND #3) OR (#3 AND #1)", 3).program().instructionCount());
+        assertEquals(9, compile("(#1 AND #2 >= 5) OR (#1 AND #2 < 2)", 2).program().instructionCount());
+    }
+
+    // Runs the evaluation until it is compiled, then checks that further runs allocate nothing on this thread.
+    private static void assertDoesNotAllocate(IntToLongFunction evaluation) {
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long checksum = 0L;
+        for (int warmup = 0; warmup < 20_000; warmup++) {
+            checksum += evaluation.applyAsLong(warmup);
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int iteration = 0; iteration < 20_000; iteration++) {
+            checksum += evaluation.applyAsLong(iteration);
+        }
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+
+        assertTrue(checksum != 0L);
+        assertTrue(after - before < 1024L, "evaluation allocated " + (after - before) + " bytes");
+    }
+
+    private static MultiLevelEmitterExpressionPlan compile(String expression, int slotCount) {
+        MultiLevelEmitterExpressionCompileResult result =
+                MultiLevelEmitterExpressionCompiler.compile(expression, slotCount, index -> true);
+        assertFalse(result.isInvalid(), expression);
+        assertNotNull(result.plan());
+        return result.plan();
+    }
+
+    private static String randomExpression(Random random, int slotCount, int depth) {
+        if (depth >= 5 || random.nextInt(3) == 0) {
+            return "#" + (1 + random.nextInt(slotCount));
+        }
+        int operands = 2 + random.nextInt(3);
+        List<String> parts = new ArrayList<>(operands);
+        for (int operand = 0; operand < operands; operand++) {
+            parts.add(randomExpression(random, slotCount, depth + 1));
+        }
+        StringBuilder expression = new StringBuilder(parts.get(0));
+        for (int operand = 1; operand < operands; operand++) {
+            expression.append(random.nextBoolean() ? " AND " : " OR ").append(parts.get(operand));
+        }
+        return random.nextBoolean() ? "(" + expression + ")" : expression.toString();
+    }
+
+    private static String randomExpressionWithAmounts(Random random, int slotCount, int depth) {
+        if (depth >= 4 || random.nextInt(3) == 0) {
+            if (random.nextBoolean()) {
+                return "#" + (1 + random.nextInt(slotCount));
+            }
+            String[] comparisons = {" >= ", " > ", " <= ", " < ", " = ", " != "};
+            return randomAmount(random, slotCount) + comparisons[random.nextInt(comparisons.length)]
+                    + (random.nextBoolean() ? String.valueOf(random.nextInt(4_000)) : randomAmount(random, slotCount));
+        }
+        int operands = 2 + random.nextInt(3);
+        StringBuilder expression = new StringBuilder(randomExpressionWithAmounts(random, slotCount, depth + 1));
+        for (int operand = 1; operand < operands; operand++) {
+            expression.append(random.nextBoolean() ? " AND " : " OR ")
+                    .append(randomExpressionWithAmounts(random, slotCount, depth + 1));
+        }
+        return "(" + expression + ")";
+    }
+
+    private static String randomAmount(Random random, int slotCount) {
+        int terms = 1 + random.nextInt(3);
+        StringBuilder amount = new StringBuilder();
+        for (int term = 0; term < terms; term++) {
+            if (term > 0) {
+                amount.append(random.nextBoolean() ? " + " : " - ");
+            }
+            if (random.nextInt(3) == 0) {
+                amount.append(1 + random.nextInt(4)).append(" * ");
+            }
+            amount.append('#').append(1 + random.nextInt(slotCount));
+        }
+        return amount.toString();
+    }
+
+    private static String redundantExpression(Random random, int slotCount, int depth) {
+        if (depth >= 3 || random.nextInt(4) == 0) {
+            return "#" + (1 + random.nextInt(slotCount));
+        }
+        String shared = redundantExpression(random, slotCount, depth + 1);
+        String operator = random.nextBoolean() ? " AND " : " OR ";
+        String dual = " AND ".equals(operator) ? " OR " : " AND ";
+        StringBuilder expression = new StringBuilder();
+        int operands = 2 + random.nextInt(2);
+        for (int operand = 0; operand < operands; operand++) {
+            if (operand > 0) {
+                expression.append(operator);
+            }
+            // Branches often repeat a term or share one, so flattening, deduplication and hoisting all kick in.
+            switch (random.nextInt(3)) {
+                case 0 -> expression.append(shared);
+                case 1 -> expression.append('(').append(shared).append(dual)
+                        .append(redundantExpression(random, slotCount, depth + 1)).append(')');
+                default -> expression.append(redundantExpression(random, slotCount, depth + 1));
+            }
+        }
+        return random.nextBoolean() ? "(" + expression + ")" : "((" + expression + "))";
+    }
+
+    private static List<MultiLevelEmitterPart.SlotEvaluation> randomSlotResults(Random random, int slotCount) {
+        List<MultiLevelEmitterPart.SlotEvaluation> slotResults = new ArrayList<>(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            slotResults.add(random.nextInt(4) == 0
+                    ? MultiLevelEmitterPart.SlotEvaluation.inactive()
+                    : MultiLevelEmitterPart.SlotEvaluation.participating(random.nextBoolean()));
+        }
+        return slotResults;
+    }
+
+    private static long participatingMask(List<MultiLevelEmitterPart.SlotEvaluation> slotResults) {
+        long mask = 0L;
+        for (int slot = 0; slot < slotResults.size(); slot++) {
+            if (slotResults.get(slot).participating()) {
+                mask |= 1L << slot;
+            }
+        }
+        return mask;
+    }
+
+    private static long resultMask(List<MultiLevelEmitterPart.SlotEvaluation> slotResults) {
+        long mask = 0L;
+        for (int slot = 0; slot < slotResults.size(); slot++) {
+            if (slotResults.get(slot).result()) {
+                mask |= 1L << slot;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Evaluates the written text directly, without the compiler: -1 for no participating slot, 0 false, 1 true.
+     */
+    private static final class ReferenceEvaluator {
+        private final String text;
+        private final int[] states;
+        private int index;
+
+        private ReferenceEvaluator(String text, int[] states) {
+            this.text = text.replace(" ", "");
+            this.states = states;
+        }
+
+        private int evaluate() {
+            int result = or();
+            assertEquals(text.length(), index, text);
+            return result;
+        }
+
+        private int or() {
+            int result = and();
+            while (text.startsWith("OR", index)) {
+                index += 2;
+                result = combine(result, and(), false);
+            }
+            return result;
+        }
+
+        private int and() {
+            int result = primary();
+            while (text.startsWith("AND", index)) {
+                index += 3;
+                result = combine(result, primary(), true);
+            }
+            return result;
+        }
+
+        private int primary() {
+            if (text.charAt(index) == '(') {
+                index++;
+                int result = or();
+                index++;
+                return result;
+            }
+            int start = ++index;
+            while (index < text.length() && Character.isDigit(text.charAt(index))) {
+                index++;
+            }
+            return states[Integer.parseInt(text.substring(start, index)) - 1];
+        }
+
+        private static int combine(int left, int right, boolean and) {
+            if (left < 0) {
+                return right;
+            }
+            if (right < 0) {
+                return left;
+            }
+            return (and ? left == 1 && right == 1 : left == 1 || right == 1) ? 1 : 0;
+        }
+    }
+}
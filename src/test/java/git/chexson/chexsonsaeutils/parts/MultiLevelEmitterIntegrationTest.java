@@ -24,6 +24,8 @@ import git.chexson.chexsonsaeutils.menu.implementations.MultiLevelEmitterMenu;
 import git.chexson.chexsonsaeutils.menu.implementations.MultiLevelEmitterScreen;
 import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterPart;
 import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterRuntimePart;
+import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterStreamSync;
+import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterUpdateScheduler;
 import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterUtils;
 import io.netty.buffer.Unpooled;
 import net.minecraft.core.BlockPos;
@@ -51,6 +53,7 @@ import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class MultiLevelEmitterIntegrationTest {
@@ -60,6 +63,8 @@ class MultiLevelEmitterIntegrationTest {
     private static final String NBT_LOGIC_RELATIONS = "logic_relations";
     private static final String NBT_MATCHING_MODES = "matching_modes";
     private static final String NBT_CRAFTING_MODES = "crafting_modes";
+    private static final String NBT_HYSTERESIS_VALUES = "hysteresis_values";
+    private static final String NBT_MINIMUM_DWELL_TICKS = "minimum_dwell_ticks";
 
     @Test
     void runtimePathIsAnchoredAndRejectsPassThroughRegression() throws IOException {
@@ -344,6 +349,104 @@ class MultiLevelEmitterIntegrationTest {
         assertTrue(storageWatcher.addedKeys.isEmpty());
     }
 
+    @Test
+    void watchAllDropsChangesToItemsNoSlotWatches() {
+        WatcherAwareRuntimePart runtime = newWatcherAwareRuntimePart(true);
+        runtime.applyConfiguration(
+                2,
+                Map.of(0, 5L, 1, 10L),
+                List.of(
+                        MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL,
+                        MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL
+                ),
+                List.of(MultiLevelEmitterPart.LogicRelation.AND)
+        );
+        readRuntimeSnapshot(runtime, createMatchingModeSnapshot(
+                List.of(
+                        MultiLevelEmitterPart.MatchingMode.STRICT,
+                        MultiLevelEmitterPart.MatchingMode.PERCENT_75
+                )
+        ));
+
+        DummyKey strictKey = new DummyKey("strict", "strict", 0, 0);
+        DummyKey fuzzyFilter = new DummyKey("durable", "filter", 10, 100);
+        DummyKey unrelatedKey = new DummyKey("other", "other", 0, 0);
+        setConfiguredKey(runtime, 0, strictKey);
+        setConfiguredKey(runtime, 1, fuzzyFilter);
+
+        RecordingStackWatcher storageWatcher = new RecordingStackWatcher();
+        attachWatchers(runtime, storageWatcher, new RecordingStackWatcher());
+        runtime.invokeConfigureWatchers();
+        assertTrue(storageWatcher.watchAll);
+
+        KeyCounter inventory = new KeyCounter();
+        inventory.add(strictKey, 5L);
+        inventory.add(fuzzyFilter, 12L);
+        IGrid hosted = gridWithInventory(inventory);
+        int[] storageLookups = new int[1];
+        IGrid grid = (IGrid) Proxy.newProxyInstance(
+                IGrid.class.getClassLoader(),
+                new Class<?>[]{IGrid.class, MultiLevelEmitterUpdateScheduler.GridHost.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getStorageService")) {
+                        storageLookups[0]++;
+                    }
+                    return method.invoke(hosted, args);
+                }
+        );
+        assertTrue(runtime.evaluateConfiguredOutput(grid, true));
+        long slotResults = longField(runtime, "slotResultMask");
+        long knownSlots = longField(runtime, "knownSlotMask");
+        storageLookups[0] = 0;
+
+        // Watch-all reports every item on the grid; one no slot maps to must not even reach the inventory.
+        inventory.add(unrelatedKey, 64L);
+        assertEquals(0L, storageSlotsAffectedBy(runtime, unrelatedKey));
+        assertFalse(applyStorageStackChange(runtime, grid, unrelatedKey, 64L));
+        assertEquals(0, storageLookups[0]);
+        assertEquals(slotResults, longField(runtime, "slotResultMask"));
+        assertEquals(knownSlots, longField(runtime, "knownSlotMask"));
+        assertEquals(List.of(5L, 12L), readObservedValues(runtime, grid));
+    }
+
+    @Test
+    void configureWatchersOnlyAddsAndRemovesChangedKeys() {
+        WatcherAwareRuntimePart runtime = newWatcherAwareRuntimePart(false);
+        runtime.applyConfiguration(3, null, null, null);
+
+        DummyKey firstKey = new DummyKey("strict", "first", 0, 0);
+        DummyKey secondKey = new DummyKey("strict", "second", 0, 0);
+        DummyKey thirdKey = new DummyKey("strict", "third", 0, 0);
+        DummyKey replacementKey = new DummyKey("strict", "replacement", 0, 0);
+        setConfiguredKey(runtime, 0, firstKey);
+        setConfiguredKey(runtime, 1, secondKey);
+        setConfiguredKey(runtime, 2, thirdKey);
+
+        RecordingStackWatcher storageWatcher = new RecordingStackWatcher();
+        attachWatchers(runtime, storageWatcher, new RecordingStackWatcher());
+        runtime.invokeConfigureWatchers();
+        assertEquals(Set.of(firstKey, secondKey, thirdKey), storageWatcher.addedKeys);
+        assertEquals(1, storageWatcher.resetCalls);
+        assertEquals(3, storageWatcher.addCalls);
+
+        setConfiguredKey(runtime, 2, replacementKey);
+        runtime.invokeConfigureWatchers();
+        assertEquals(Set.of(firstKey, secondKey, replacementKey), storageWatcher.addedKeys);
+        assertEquals(1, storageWatcher.resetCalls);
+        assertEquals(4, storageWatcher.addCalls);
+        assertEquals(1, storageWatcher.removeCalls);
+
+        runtime.invokeConfigureWatchers();
+        assertEquals(4, storageWatcher.addCalls);
+        assertEquals(1, storageWatcher.removeCalls);
+
+        // A watcher handed out after rejoining a grid starts empty and gets every key again.
+        RecordingStackWatcher rejoinedWatcher = new RecordingStackWatcher();
+        attachWatchers(runtime, rejoinedWatcher, new RecordingStackWatcher());
+        runtime.invokeConfigureWatchers();
+        assertEquals(Set.of(firstKey, secondKey, replacementKey), rejoinedWatcher.addedKeys);
+    }
+
     @Test
     void emitToCraftExposureDedupesDuplicateMarkedKeys() {
         CapabilityAwareRuntimePart runtime = newCapabilityRuntimePart(false, true);
@@ -364,6 +467,40 @@ class MultiLevelEmitterIntegrationTest {
         assertEquals(Set.of(duplicatedKey), runtime.getEmitableItems());
     }
 
+    @Test
+    void duplicateEmitToCraftTargetsFollowModeAndKeyEdits() {
+        CapabilityAwareRuntimePart runtime = newCapabilityRuntimePart(false, true);
+        runtime.applyConfiguration(3, null, null, null);
+        readRuntimeSnapshot(runtime, createCraftingModeSnapshot(
+                List.of(
+                        MultiLevelEmitterPart.CraftingMode.EMIT_TO_CRAFT,
+                        MultiLevelEmitterPart.CraftingMode.EMIT_TO_CRAFT,
+                        MultiLevelEmitterPart.CraftingMode.EMIT_TO_CRAFT
+                )
+        ));
+
+        DummyKey sharedKey = new DummyKey("target", "shared", 0, 0);
+        DummyKey otherKey = new DummyKey("target", "other", 0, 0);
+        setConfiguredKey(runtime, 0, sharedKey);
+        setConfiguredKey(runtime, 1, sharedKey);
+        setConfiguredKey(runtime, 2, otherKey);
+
+        assertTrue(runtime.hasDuplicateEmitToCraftTarget(0));
+        assertTrue(runtime.hasDuplicateEmitToCraftTarget(1));
+        assertFalse(runtime.hasDuplicateEmitToCraftTarget(2));
+        assertSame(runtime.getEmitableItems(), runtime.getEmitableItems());
+
+        runtime.cycleCraftingModeFromUi(1);
+        assertFalse(runtime.hasDuplicateEmitToCraftTarget(0));
+        assertFalse(runtime.hasDuplicateEmitToCraftTarget(1));
+        assertEquals(Set.of(sharedKey, otherKey), runtime.getEmitableItems());
+
+        setConfiguredKey(runtime, 2, sharedKey);
+        assertTrue(runtime.hasDuplicateEmitToCraftTarget(0));
+        assertTrue(runtime.hasDuplicateEmitToCraftTarget(2));
+        assertEquals(Set.of(sharedKey), runtime.getEmitableItems());
+    }
+
     @Test
     void configureWatchersAddsMarkedRequestAndSupplyKeysToCraftingWatcher() {
         WatcherAwareRuntimePart runtime = newWatcherAwareRuntimePart(false, true);
@@ -427,6 +564,336 @@ class MultiLevelEmitterIntegrationTest {
         assertFalse(runtime.evaluateConfiguredOutput(gridWithInventoryAndRequests(inventory, Set.of()), true));
     }
 
+    @Test
+    void storageDeltaOnlyRereadsSlotsMappedToTheChangedKey() {
+        CapabilityAwareRuntimePart runtime = newCapabilityRuntimePart(true);
+        readRuntimeSnapshot(runtime, createMatchingModeSnapshot(
+                List.of(
+                        MultiLevelEmitterPart.MatchingMode.STRICT,
+                        MultiLevelEmitterPart.MatchingMode.IGNORE_ALL
+                )
+        ));
+        runtime.applyConfiguration(
+                2,
+                Map.of(0, 5L, 1, 10L),
+                List.of(
+                        MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL,
+                        MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL
+                ),
+                List.of(MultiLevelEmitterPart.LogicRelation.AND)
+        );
+        runtime.applyExpressionFromUi("#1 AND #2");
+
+        DummyKey strictKey = new DummyKey("strict", "strict", 0, 0);
+        DummyKey fuzzyFilter = new DummyKey("durable", "filter", 10, 100);
+        DummyKey fuzzySibling = new DummyKey("durable", "sibling", 40, 100);
+        DummyKey unrelatedKey = new DummyKey("other", "other", 0, 0);
+        setConfiguredKey(runtime, 0, strictKey);
+        setConfiguredKey(runtime, 1, fuzzyFilter);
+
+        KeyCounter inventory = new KeyCounter();
+        inventory.add(strictKey, 5L);
+        IGrid grid = gridWithInventory(inventory);
+        assertFalse(runtime.evaluateConfiguredOutput(grid, true));
+
+        inventory.add(fuzzySibling, 10L);
+        assertFalse(applyStorageStackChange(runtime, grid, unrelatedKey, 10L));
+        assertFalse(runtime.evaluateConfiguredOutput(grid, true));
+        assertTrue(applyStorageStackChange(runtime, grid, fuzzySibling, 10L));
+        assertTrue(runtime.evaluateConfiguredOutput(grid, true));
+
+        inventory.remove(strictKey, 1L);
+        assertTrue(applyStorageStackChange(runtime, grid, strictKey, 4L));
+        assertFalse(runtime.evaluateConfiguredOutput(grid, true));
+        assertFalse(applyStorageStackChange(runtime, grid, strictKey, 4L));
+    }
+
+    @Test
+    void skippedHysteresisSlotsStillFollowEveryStorageDelta() {
+        CapabilityAwareRuntimePart runtime = newCapabilityRuntimePart(false);
+        runtime.applyConfiguration(
+                2,
+                Map.of(0, 10L, 1, 100L),
+                List.of(
+                        MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL,
+                        MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL
+                ),
+                List.of(MultiLevelEmitterPart.LogicRelation.AND)
+        );
+        runtime.applyExpressionFromUi("#2 AND #1");
+        runtime.updateHysteresisBand(0, 5L);
+
+        DummyKey bandedKey = new DummyKey("banded", "banded", 0, 0);
+        DummyKey gateKey = new DummyKey("gate", "gate", 0, 0);
+        setConfiguredKey(runtime, 0, bandedKey);
+        setConfiguredKey(runtime, 1, gateKey);
+
+        KeyCounter inventory = new KeyCounter();
+        inventory.add(bandedKey, 10L);
+        inventory.add(gateKey, 100L);
+        IGrid grid = gridWithInventory(inventory);
+        assertTrue(runtime.evaluateConfiguredOutput(grid, true));
+
+        // #1 latched on; the edit drops every cached slot and #2 now short-circuits #1 away.
+        runtime.updateThresholdFromUi(1, 200L);
+        assertFalse(runtime.evaluateConfiguredOutput(grid, true));
+
+        inventory.remove(bandedKey, 8L);
+        applyStorageStackChange(runtime, grid, bandedKey, 2L);
+        inventory.add(bandedKey, 5L);
+        applyStorageStackChange(runtime, grid, bandedKey, 7L);
+
+        // Back inside the band, but it fell below the off threshold on the way, so #1 must now read off.
+        inventory.add(gateKey, 100L);
+        applyStorageStackChange(runtime, grid, gateKey, 200L);
+        assertFalse(runtime.evaluateConfiguredOutput(grid, true));
+
+        inventory.add(bandedKey, 3L);
+        assertTrue(applyStorageStackChange(runtime, grid, bandedKey, 10L));
+        assertTrue(runtime.evaluateConfiguredOutput(grid, true));
+        inventory.remove(bandedKey, 4L);
+        assertFalse(applyStorageStackChange(runtime, grid, bandedKey, 6L));
+        assertTrue(runtime.evaluateConfiguredOutput(grid, true));
+    }
+
+    @Test
+    void amountTermsSumStorageSlotsAndReactToEveryDelta() {
+        CapabilityAwareRuntimePart runtime = newCapabilityRuntimePart(false);
+        runtime.applyConfiguration(
+                2,
+                Map.of(0, 1L, 1, 1L),
+                List.of(
+                        MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL,
+                        MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL
+                ),
+                List.of(MultiLevelEmitterPart.LogicRelation.OR)
+        );
+        runtime.applyExpressionFromUi("#1 + 2 * #2 >= 10k");
+
+        DummyKey ingotKey = new DummyKey("iron", "ingot", 0, 0);
+        DummyKey rawKey = new DummyKey("iron", "raw", 0, 0);
+        setConfiguredKey(runtime, 0, ingotKey);
+        setConfiguredKey(runtime, 1, rawKey);
+
+        KeyCounter inventory = new KeyCounter();
+        inventory.add(ingotKey, 6_000L);
+        inventory.add(rawKey, 1_000L);
+        IGrid grid = gridWithInventory(inventory);
+        assertFalse(runtime.evaluateConfiguredOutput(grid, true));
+
+        // Both slots already pass their own thresholds, so only the amount term notices the change.
+        inventory.add(rawKey, 1_000L);
+        assertTrue(applyStorageStackChange(runtime, grid, rawKey, 2_000L));
+        assertTrue(runtime.evaluateConfiguredOutput(grid, true));
+        assertTrue(runtime.evaluateConfiguredOutput(List.of(6_000L, 2_000L), true));
+        assertFalse(runtime.evaluateConfiguredOutput(List.of(6_000L, 1_999L), true));
+    }
+
+    @Test
+    void fuzzySlotAggregateFollowsWatcherDeltasWithoutRescanning() {
+        CapabilityAwareRuntimePart runtime = newCapabilityRuntimePart(true);
+        readRuntimeSnapshot(runtime, createMatchingModeSnapshot(
+                List.of(MultiLevelEmitterPart.MatchingMode.PERCENT_75)
+        ));
+        runtime.applyConfiguration(
+                1,
+                Map.of(0, 12L),
+                List.of(MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL),
+                List.of()
+        );
+
+        DummyKey fuzzyFilter = new DummyKey("durable", "filter", 10, 100);
+        DummyKey fuzzySibling = new DummyKey("durable", "sibling", 15, 100);
+        DummyKey fuzzyExcluded = new DummyKey("durable", "excluded", 80, 100);
+        setConfiguredKey(runtime, 0, fuzzyFilter);
+
+        KeyCounter inventory = new KeyCounter();
+        inventory.add(fuzzyFilter, 5L);
+        IGrid grid = gridWithInventory(inventory);
+        assertFalse(runtime.evaluateConfiguredOutput(grid, true));
+
+        inventory.add(fuzzyExcluded, 50L);
+        assertFalse(applyStorageStackChange(runtime, grid, fuzzyExcluded, 50L));
+        inventory.add(fuzzySibling, 7L);
+        assertTrue(applyStorageStackChange(runtime, grid, fuzzySibling, 7L));
+        assertTrue(runtime.evaluateConfiguredOutput(grid, true));
+
+        // Known members are adjusted from the reported amount without another findFuzzy rescan.
+        assertTrue(applyStorageStackChange(runtime, grid, fuzzySibling, 6L));
+        assertFalse(runtime.evaluateConfiguredOutput(grid, true));
+        assertEquals(List.of(12L), readObservedValues(runtime, grid));
+    }
+
+    @Test
+    void updateSchedulerFlushesEachDirtyEmitterOnceWithSharedTickReads() {
+        DummyKey requestedKey = new DummyKey("crafted", "gear", 0, 0);
+        FlushRecordingRuntimePart first = newFlushRecordingRuntimePart(requestedKey);
+        FlushRecordingRuntimePart second = newFlushRecordingRuntimePart(requestedKey);
+        RecordingCraftingService craftingService = new RecordingCraftingService(Set.of(requestedKey));
+        IGrid grid = gridWithServices(new KeyCounter(), craftingService);
+
+        MultiLevelEmitterUpdateScheduler.markDirty(grid, first);
+        MultiLevelEmitterUpdateScheduler.markDirty(grid, second);
+        MultiLevelEmitterUpdateScheduler.markDirty(grid, first);
+        MultiLevelEmitterUpdateScheduler.flush(grid);
+
+        assertEquals(1, first.flushCount);
+        assertEquals(1, second.flushCount);
+        assertSame(first.lastReads, second.lastReads);
+        assertTrue(first.lastRequested);
+        assertTrue(second.lastRequested);
+        assertEquals(1, craftingService.requestingLookups);
+
+        MultiLevelEmitterUpdateScheduler.flush(grid);
+        assertEquals(1, first.flushCount);
+        assertEquals(1, second.flushCount);
+    }
+
+    @Test
+    void gridsWithoutTheTickHookFlushDirtyEmittersRightAway() {
+        DummyKey requestedKey = new DummyKey("crafted", "gear", 0, 0);
+        FlushRecordingRuntimePart emitter = newFlushRecordingRuntimePart(requestedKey);
+        IGrid hosted = gridWithServices(new KeyCounter(), new RecordingCraftingService(Set.of(requestedKey)));
+        IGrid grid = (IGrid) Proxy.newProxyInstance(
+                IGrid.class.getClassLoader(),
+                new Class<?>[]{IGrid.class},
+                (proxy, method, args) -> method.invoke(hosted, args)
+        );
+
+        MultiLevelEmitterUpdateScheduler.markDirty(grid, emitter);
+        assertEquals(1, emitter.flushCount);
+        assertTrue(emitter.lastRequested);
+
+        MultiLevelEmitterUpdateScheduler.flush(grid);
+        assertEquals(1, emitter.flushCount);
+    }
+
+    @Test
+    void outputFlipsAreHeldUntilTheMinimumDwellHasPassed() {
+        DwellClockRuntimePart emitter = newDwellClockRuntimePart();
+        emitter.updateMinimumDwellTicks(5);
+        IGrid grid = gridWithInventory(new KeyCounter());
+
+        emitter.clock = 100L;
+        assertTrue(holdForMinimumDwell(emitter, true, grid));
+        emitter.clock = 101L;
+        assertTrue(holdForMinimumDwell(emitter, false, grid));
+        emitter.clock = 104L;
+        assertTrue(holdForMinimumDwell(emitter, false, grid));
+        emitter.clock = 105L;
+        assertFalse(holdForMinimumDwell(emitter, false, grid));
+
+        // The release starts a new dwell, so flipping straight back is held too.
+        emitter.clock = 106L;
+        assertFalse(holdForMinimumDwell(emitter, true, grid));
+        emitter.clock = 110L;
+        assertTrue(holdForMinimumDwell(emitter, true, grid));
+    }
+
+    @Test
+    void zeroMinimumDwellReleasesTheHeldOutput() {
+        DwellClockRuntimePart emitter = newDwellClockRuntimePart();
+        emitter.updateMinimumDwellTicks(5);
+        IGrid grid = gridWithInventory(new KeyCounter());
+
+        emitter.clock = 100L;
+        assertTrue(holdForMinimumDwell(emitter, true, grid));
+        emitter.clock = 101L;
+        assertTrue(holdForMinimumDwell(emitter, false, grid));
+
+        emitter.updateMinimumDwellTicks(0);
+        assertEquals(0, emitter.minimumDwellTicks());
+        assertFalse(holdForMinimumDwell(emitter, false, grid));
+        assertTrue(holdForMinimumDwell(emitter, true, grid));
+
+        emitter.updateMinimumDwellTicks(-3);
+        assertEquals(0, emitter.minimumDwellTicks());
+    }
+
+    @Test
+    void minimumDwellAndHysteresisBandsSurviveTheRuntimeSnapshot() {
+        MultiLevelEmitterRuntimePart beforeRoundTrip = newRuntimePart();
+        beforeRoundTrip.applyConfiguration(
+                2,
+                Map.of(0, 64L, 1, 10L),
+                List.of(
+                        MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL,
+                        MultiLevelEmitterPart.ComparisonMode.LESS_THAN
+                ),
+                List.of(MultiLevelEmitterPart.LogicRelation.AND)
+        );
+        beforeRoundTrip.updateHysteresisBand(0, 8L);
+        beforeRoundTrip.updateMinimumDwellTicks(20);
+
+        CompoundTag snapshot = writeRuntimeSnapshot(beforeRoundTrip);
+        assertEquals(20, snapshot.getInt(NBT_MINIMUM_DWELL_TICKS));
+        assertTrue(snapshot.contains(NBT_HYSTERESIS_VALUES));
+
+        MultiLevelEmitterRuntimePart afterRoundTrip = newRuntimePart();
+        readRuntimeSnapshot(afterRoundTrip, snapshot);
+        assertEquals(20, afterRoundTrip.minimumDwellTicks());
+        assertEquals(8L, afterRoundTrip.hysteresisBand(0));
+        assertEquals(0L, afterRoundTrip.hysteresisBand(1));
+
+        // Disabled values leave nothing behind, so a later load starts from the defaults again.
+        afterRoundTrip.updateMinimumDwellTicks(0);
+        afterRoundTrip.updateHysteresisBand(0, 0L);
+        CompoundTag cleared = writeRuntimeSnapshot(afterRoundTrip);
+        assertFalse(cleared.contains(NBT_MINIMUM_DWELL_TICKS));
+        assertFalse(cleared.contains(NBT_HYSTERESIS_VALUES));
+        MultiLevelEmitterRuntimePart reloaded = newRuntimePart();
+        readRuntimeSnapshot(reloaded, cleared);
+        assertEquals(0, reloaded.minimumDwellTicks());
+        assertEquals(0L, reloaded.hysteresisBand(0));
+    }
+
+    @Test
+    void heldOutputsWaitForTheNextTickInsteadOfFlushingRightAway() {
+        DwellClockRuntimePart emitter = newDwellClockRuntimePart();
+        emitter.updateMinimumDwellTicks(5);
+        IGrid hosted = gridWithInventory(new KeyCounter());
+        IGrid grid = (IGrid) Proxy.newProxyInstance(
+                IGrid.class.getClassLoader(),
+                new Class<?>[]{IGrid.class},
+                (proxy, method, args) -> method.invoke(hosted, args)
+        );
+
+        emitter.clock = 100L;
+        assertTrue(holdForMinimumDwell(emitter, true, grid));
+        emitter.clock = 101L;
+        // Flushing a grid without the tick hook right away would evaluate, and hold, all over again.
+        assertTrue(holdForMinimumDwell(emitter, false, grid));
+        assertEquals(0, emitter.flushCount);
+
+        assertTrue(holdForMinimumDwell(emitter, false, hosted));
+        assertEquals(0, emitter.flushCount);
+        MultiLevelEmitterUpdateScheduler.flush(hosted);
+        assertEquals(1, emitter.flushCount);
+    }
+
+    @Test
+    void craftingRequestLookupsAreSharedByEmittersUntilTheGridTicks() {
+        DummyKey craftingKey = new DummyKey("crafted", "gear", 0, 0);
+        CapabilityAwareRuntimePart first = newEmitWhileCraftingRuntimePart(craftingKey);
+        CapabilityAwareRuntimePart second = newEmitWhileCraftingRuntimePart(craftingKey);
+        RecordingCraftingService craftingService = new RecordingCraftingService(Set.of(craftingKey));
+        IGrid grid = gridWithServices(new KeyCounter(), craftingService);
+
+        assertTrue(first.evaluateConfiguredOutput(grid, true));
+        assertTrue(second.evaluateConfiguredOutput(grid, true));
+        assertTrue(first.evaluateConfiguredOutput(grid, true));
+        assertEquals(1, craftingService.requestingLookups);
+
+        // Requests only move during the grid tick, so the snapshot is kept until the next one starts.
+        craftingService.requestedKeys.clear();
+        assertTrue(second.evaluateConfiguredOutput(grid, true));
+
+        MultiLevelEmitterUpdateScheduler.beginTick(grid);
+        assertFalse(first.evaluateConfiguredOutput(grid, true));
+        assertFalse(second.evaluateConfiguredOutput(grid, true));
+        assertEquals(2, craftingService.requestingLookups);
+    }
+
     @Test
     void repeatedEmitWhileCraftingSlotsStillRespectOverallRelations() {
         CapabilityAwareRuntimePart runtime = newCapabilityRuntimePart(false, true);
@@ -596,6 +1063,97 @@ class MultiLevelEmitterIntegrationTest {
         assertEquals(Set.of(providerKey), restored.getEmitableItems());
     }
 
+    @Test
+    void updatePacketsCarryOnlyEditedSlotsOnceClientsHoldTheFullState() {
+        MultiLevelEmitterRuntimePart server = newRuntimePart();
+        server.applyConfiguration(
+                4,
+                Map.of(0, 5L, 1, 6L, 2, 7L, 3, 8L),
+                List.of(
+                        MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL,
+                        MultiLevelEmitterPart.ComparisonMode.LESS_THAN,
+                        MultiLevelEmitterPart.ComparisonMode.EQUAL,
+                        MultiLevelEmitterPart.ComparisonMode.NOT_EQUAL
+                ),
+                List.of(
+                        MultiLevelEmitterPart.LogicRelation.AND,
+                        MultiLevelEmitterPart.LogicRelation.OR,
+                        MultiLevelEmitterPart.LogicRelation.AND
+                )
+        );
+        MultiLevelEmitterRuntimePart client = newRuntimePart();
+        MultiLevelEmitterRuntimePart laggingClient = newRuntimePart();
+
+        FriendlyByteBuf full = writeUpdatePacketStream(server);
+        int fullSize = full.readableBytes();
+        assertTrue(laggingClient.readFromStream(new FriendlyByteBuf(full.copy())));
+        assertTrue(client.readFromStream(full));
+        assertTrue(client.isStreamSynced());
+        assertEquals(server.thresholds(), client.thresholds());
+
+        server.updateThresholdFromUi(2, 40L);
+        FriendlyByteBuf delta = writeUpdatePacketStream(server);
+        assertTrue(delta.readableBytes() < fullSize);
+        assertTrue(client.readFromStream(delta));
+        assertEquals(40L, client.thresholds().get(2));
+        assertEquals(server.comparisonModes(), client.comparisonModes());
+
+        server.cycleComparisonModeFromUi(0);
+        FriendlyByteBuf missedBase = writeUpdatePacketStream(server);
+        assertTrue(client.readFromStream(new FriendlyByteBuf(missedBase.copy())));
+        laggingClient.readFromStream(missedBase);
+        assertFalse(laggingClient.isStreamSynced());
+        assertEquals(7L, laggingClient.thresholds().get(2));
+
+        FriendlyByteBuf chunkData = new FriendlyByteBuf(Unpooled.buffer());
+        server.writeToStream(chunkData);
+        assertTrue(laggingClient.readFromStream(chunkData));
+        assertTrue(laggingClient.isStreamSynced());
+        assertEquals(server.thresholds(), laggingClient.thresholds());
+        assertEquals(server.comparisonModes(), laggingClient.comparisonModes());
+        assertEquals(server.relations(), laggingClient.relations());
+    }
+
+    @Test
+    void packetsBuiltOutsideABroadcastLeaveThePendingDeltaAlone() {
+        MultiLevelEmitterRuntimePart server = newRuntimePart();
+        server.applyConfiguration(
+                2,
+                Map.of(0, 5L, 1, 6L),
+                List.of(
+                        MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL,
+                        MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL
+                ),
+                List.of(MultiLevelEmitterPart.LogicRelation.AND)
+        );
+        MultiLevelEmitterRuntimePart client = newRuntimePart();
+        assertTrue(client.readFromStream(writeUpdatePacketStream(server)));
+
+        server.updateThresholdFromUi(1, 60L);
+        FriendlyByteBuf inspected = new FriendlyByteBuf(Unpooled.buffer());
+        server.writeToStream(inspected);
+        FriendlyByteBuf inspectedAgain = new FriendlyByteBuf(Unpooled.buffer());
+        server.writeToStream(inspectedAgain);
+        assertEquals(inspected.readableBytes(), inspectedAgain.readableBytes());
+
+        FriendlyByteBuf broadcast = writeUpdatePacketStream(server);
+        assertTrue(broadcast.readableBytes() < inspected.readableBytes());
+        assertTrue(client.readFromStream(broadcast));
+        assertTrue(client.isStreamSynced());
+        assertEquals(60L, client.thresholds().get(1));
+    }
+
+    private static FriendlyByteBuf writeUpdatePacketStream(MultiLevelEmitterRuntimePart runtime) {
+        FriendlyByteBuf stream = new FriendlyByteBuf(Unpooled.buffer());
+        MultiLevelEmitterStreamSync.beginUpdatePacket();
+        try {
+            runtime.writeToStream(stream);
+        } finally {
+            MultiLevelEmitterStreamSync.endUpdatePacket();
+        }
+        return stream;
+    }
+
     private static MultiLevelEmitterRuntimePart newRuntimePart() {
         try {
             Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
@@ -635,6 +1193,39 @@ class MultiLevelEmitterIntegrationTest {
         }
     }
 
+    private static FlushRecordingRuntimePart newFlushRecordingRuntimePart(AEKey requestedKey) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafeField.setAccessible(true);
+            Object unsafe = theUnsafeField.get(null);
+            Method allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+            FlushRecordingRuntimePart runtime =
+                    (FlushRecordingRuntimePart) allocateInstance.invoke(unsafe, FlushRecordingRuntimePart.class);
+            runtime.requestedKey = requestedKey;
+            return runtime;
+        } catch (ReflectiveOperationException exception) {
+            throw new AssertionError("Unable to allocate flush-recording runtime part test instance", exception);
+        }
+    }
+
+    private static DwellClockRuntimePart newDwellClockRuntimePart() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafeField.setAccessible(true);
+            Object unsafe = theUnsafeField.get(null);
+            Method allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+            DwellClockRuntimePart runtime =
+                    (DwellClockRuntimePart) allocateInstance.invoke(unsafe, DwellClockRuntimePart.class);
+            runtime.applyConfiguration(1, null, null, null);
+            runtime.setRedstoneMode(RedstoneMode.HIGH_SIGNAL);
+            return runtime;
+        } catch (ReflectiveOperationException exception) {
+            throw new AssertionError("Unable to allocate dwell-clock runtime part test instance", exception);
+        }
+    }
+
     private static WatcherAwareRuntimePart newWatcherAwareRuntimePart(boolean fuzzyInstalled) {
         return newWatcherAwareRuntimePart(fuzzyInstalled, false);
     }
@@ -669,6 +1260,72 @@ class MultiLevelEmitterIntegrationTest {
         }
     }
 
+    private static boolean applyStorageStackChange(
+            MultiLevelEmitterRuntimePart runtime,
+            IGrid grid,
+            AEKey what,
+            long amount
+    ) {
+        try {
+            Method method = MultiLevelEmitterRuntimePart.class.getDeclaredMethod(
+                    "applyStorageStackChange",
+                    IGrid.class,
+                    AEKey.class,
+                    long.class
+            );
+            method.setAccessible(true);
+            return (boolean) method.invoke(runtime, grid, what, amount);
+        } catch (ReflectiveOperationException exception) {
+            throw new AssertionError("Unable to apply storage stack change", exception);
+        }
+    }
+
+    private static boolean holdForMinimumDwell(MultiLevelEmitterRuntimePart runtime, boolean output, IGrid grid) {
+        try {
+            Method method = MultiLevelEmitterRuntimePart.class.getDeclaredMethod(
+                    "holdForMinimumDwell",
+                    boolean.class,
+                    IGrid.class
+            );
+            method.setAccessible(true);
+            return (boolean) method.invoke(runtime, output, grid);
+        } catch (ReflectiveOperationException exception) {
+            throw new AssertionError("Unable to apply the minimum dwell", exception);
+        }
+    }
+
+    private static long storageSlotsAffectedBy(MultiLevelEmitterRuntimePart runtime, AEKey what) {
+        try {
+            Method method = MultiLevelEmitterRuntimePart.class.getDeclaredMethod("storageSlotsAffectedBy", AEKey.class);
+            method.setAccessible(true);
+            return (long) method.invoke(runtime, what);
+        } catch (ReflectiveOperationException exception) {
+            throw new AssertionError("Unable to resolve affected storage slots", exception);
+        }
+    }
+
+    private static long longField(MultiLevelEmitterRuntimePart runtime, String name) {
+        try {
+            Field field = MultiLevelEmitterRuntimePart.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field.getLong(runtime);
+        } catch (ReflectiveOperationException exception) {
+            throw new AssertionError("Unable to read runtime field " + name, exception);
+        }
+    }
+
+    private static CompoundTag writeRuntimeSnapshot(MultiLevelEmitterRuntimePart runtime) {
+        try {
+            Method method = MultiLevelEmitterRuntimePart.class.getDeclaredMethod("writeRuntimeSnapshot", CompoundTag.class);
+            method.setAccessible(true);
+            CompoundTag snapshot = new CompoundTag();
+            method.invoke(runtime, snapshot);
+            return snapshot;
+        } catch (ReflectiveOperationException exception) {
+            throw new AssertionError("Unable to write runtime snapshot for integration test instance", exception);
+        }
+    }
+
     private static void readRuntimeSnapshot(MultiLevelEmitterRuntimePart runtime, CompoundTag snapshot) {
         try {
             Method method = MultiLevelEmitterRuntimePart.class.getDeclaredMethod(
@@ -702,30 +1359,39 @@ class MultiLevelEmitterIntegrationTest {
     }
 
     private static void attachWatchers(
-            MultiLevelEmitterRuntimePart runtime,
+            WatcherAwareRuntimePart runtime,
             RecordingStackWatcher storageWatcher,
             RecordingStackWatcher craftingWatcher
     ) {
-        try {
-            Field storageWatcherField =
-                    MultiLevelEmitterRuntimePart.class.getSuperclass().getDeclaredField("storageWatcher");
-            storageWatcherField.setAccessible(true);
-            storageWatcherField.set(runtime, storageWatcher);
-
-            Field craftingWatcherField =
-                    MultiLevelEmitterRuntimePart.class.getSuperclass().getDeclaredField("craftingWatcher");
-            craftingWatcherField.setAccessible(true);
-            craftingWatcherField.set(runtime, craftingWatcher);
-        } catch (ReflectiveOperationException exception) {
-            throw new AssertionError("Unable to attach watcher test doubles", exception);
-        }
+        runtime.storageWatcher = storageWatcher;
+        runtime.craftingWatcher = craftingWatcher;
     }
 
     private static IGrid gridWithInventory(KeyCounter inventory) {
         return gridWithInventoryAndRequests(inventory, Set.of());
     }
 
+    private static CapabilityAwareRuntimePart newEmitWhileCraftingRuntimePart(AEKey craftingKey) {
+        CapabilityAwareRuntimePart runtime = newCapabilityRuntimePart(false, true);
+        runtime.applyConfiguration(
+                1,
+                Map.of(0, 1L),
+                List.of(MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL),
+                List.of()
+        );
+        readRuntimeSnapshot(runtime, createCraftingModeSnapshot(
+                List.of(MultiLevelEmitterPart.CraftingMode.EMIT_WHILE_CRAFTING)
+        ));
+        runtime.applyExpressionFromUi("#1");
+        setConfiguredKey(runtime, 0, craftingKey);
+        return runtime;
+    }
+
     private static IGrid gridWithInventoryAndRequests(KeyCounter inventory, Set<AEKey> requestingKeys) {
+        return gridWithServices(inventory, new RecordingCraftingService(requestingKeys));
+    }
+
+    private static IGrid gridWithServices(KeyCounter inventory, ICraftingService craftingService) {
         IStorageService storageService = (IStorageService) Proxy.newProxyInstance(
                 IStorageService.class.getClassLoader(),
                 new Class<?>[]{IStorageService.class},
@@ -735,13 +1401,14 @@ class MultiLevelEmitterIntegrationTest {
                     default -> defaultValue(method.getReturnType());
                 }
         );
-        ICraftingService craftingService = new RecordingCraftingService(requestingKeys);
+        MultiLevelEmitterUpdateScheduler emitterUpdates = new MultiLevelEmitterUpdateScheduler();
         return (IGrid) Proxy.newProxyInstance(
                 IGrid.class.getClassLoader(),
-                new Class<?>[]{IGrid.class},
+                new Class<?>[]{IGrid.class, MultiLevelEmitterUpdateScheduler.GridHost.class},
                 (proxy, method, args) -> switch (method.getName()) {
                     case "getStorageService" -> storageService;
                     case "getCraftingService" -> craftingService;
+                    case "chexsonsaeutils$emitterUpdates" -> emitterUpdates;
                     default -> defaultValue(method.getReturnType());
                 }
         );
@@ -780,6 +1447,7 @@ class MultiLevelEmitterIntegrationTest {
 
     private static final class RecordingCraftingService implements ICraftingService {
         private final Set<AEKey> requestedKeys;
+        private int requestingLookups;
 
         private RecordingCraftingService(Set<AEKey> requestedKeys) {
             this.requestedKeys = new HashSet<>(requestedKeys);
@@ -838,6 +1506,7 @@ class MultiLevelEmitterIntegrationTest {
 
         @Override
         public boolean isRequesting(AEKey what) {
+            requestingLookups++;
             return requestedKeys.contains(what);
         }
 
@@ -877,6 +1546,9 @@ class MultiLevelEmitterIntegrationTest {
     }
 
     private static final class WatcherAwareRuntimePart extends CapabilityAwareRuntimePart {
+        private IStackWatcher storageWatcher;
+        private IStackWatcher craftingWatcher;
+
         private WatcherAwareRuntimePart() {
             super();
         }
@@ -884,11 +1556,61 @@ class MultiLevelEmitterIntegrationTest {
         void invokeConfigureWatchers() {
             super.configureWatchers();
         }
+
+        @Override
+        protected IStackWatcher storageWatcher() {
+            return storageWatcher;
+        }
+
+        @Override
+        protected IStackWatcher craftingWatcher() {
+            return craftingWatcher;
+        }
+    }
+
+    private static final class FlushRecordingRuntimePart extends MultiLevelEmitterRuntimePart {
+        private AEKey requestedKey;
+        private int flushCount;
+        private MultiLevelEmitterUpdateScheduler.TickReads lastReads;
+        private boolean lastRequested;
+
+        private FlushRecordingRuntimePart() {
+            super(null);
+        }
+
+        @Override
+        public void flushScheduledUpdate(IGrid grid, MultiLevelEmitterUpdateScheduler.TickReads reads) {
+            flushCount++;
+            lastReads = reads;
+            lastRequested = reads.craftingRequests().isRequesting(requestedKey);
+        }
+    }
+
+    private static final class DwellClockRuntimePart extends MultiLevelEmitterRuntimePart {
+        private long clock = -1L;
+        private int flushCount;
+
+        private DwellClockRuntimePart() {
+            super(null);
+        }
+
+        @Override
+        protected long dwellClock() {
+            return clock;
+        }
+
+        @Override
+        public void flushScheduledUpdate(IGrid grid, MultiLevelEmitterUpdateScheduler.TickReads reads) {
+            flushCount++;
+        }
     }
 
     private static final class RecordingStackWatcher implements IStackWatcher {
         private boolean watchAll;
         private final java.util.LinkedHashSet<AEKey> addedKeys = new java.util.LinkedHashSet<>();
+        private int addCalls;
+        private int removeCalls;
+        private int resetCalls;
 
         @Override
         public void setWatchAll(boolean watchAll) {
@@ -897,16 +1619,19 @@ class MultiLevelEmitterIntegrationTest {
 
         @Override
         public void add(AEKey stack) {
+            addCalls++;
             addedKeys.add(stack);
         }
 
         @Override
         public void remove(AEKey stack) {
+            removeCalls++;
             addedKeys.remove(stack);
         }
 
         @Override
         public void reset() {
+            resetCalls++;
             watchAll = false;
             addedKeys.clear();
         }
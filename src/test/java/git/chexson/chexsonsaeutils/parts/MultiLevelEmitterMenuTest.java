@@ -1,11 +1,14 @@
 package git.chexson.chexsonsaeutils.parts;
 
 import appeng.api.config.RedstoneMode;
+import git.chexson.chexsonsaeutils.config.ChexsonsaeutilsCompatibilityConfig;
 import git.chexson.chexsonsaeutils.menu.implementations.MultiLevelEmitterMenu;
 import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterPart;
 import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterRuntimePart;
 import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterUtils;
+import io.netty.buffer.Unpooled;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.FriendlyByteBuf;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Field;
@@ -21,6 +24,8 @@ import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class MultiLevelEmitterMenuTest {
@@ -296,6 +301,143 @@ class MultiLevelEmitterMenuTest {
         assertEquals(MultiLevelEmitterPart.CraftingMode.NONE, menu.craftingModeForSlot(3));
     }
 
+    @Test
+    void observedAmountsAreReadOncePerSyncIntervalAndReplacedOnlyWhenTheyMove() {
+        ObservedRuntimePart runtime = newObservedRuntimePart(5L, 7L);
+        MultiLevelEmitterMenu.RuntimeMenu menu = MultiLevelEmitterMenuTestHarness.detachedForRuntime(runtime);
+        int interval = ChexsonsaeutilsCompatibilityConfig.MULTI_LEVEL_EMITTER_OBSERVED_SYNC_TICKS.getDefault();
+
+        MultiLevelEmitterMenuTestHarness.refreshObservedAmounts(menu);
+        assertEquals(1, runtime.reads);
+        MultiLevelEmitterMenu.ObservedAmounts first = menu.observedAmounts;
+        assertEquals(2, first.slotCount());
+        assertEquals(7L, menu.observedAmountForSlot(1));
+
+        runtime.amounts = new long[]{5L, 9L};
+        for (int tick = 1; tick < interval; tick++) {
+            MultiLevelEmitterMenuTestHarness.refreshObservedAmounts(menu);
+        }
+        assertEquals(1, runtime.reads);
+        assertSame(first, menu.observedAmounts);
+
+        MultiLevelEmitterMenuTestHarness.refreshObservedAmounts(menu);
+        assertEquals(2, runtime.reads);
+        MultiLevelEmitterMenu.ObservedAmounts moved = menu.observedAmounts;
+        assertNotSame(first, moved);
+        assertEquals(9L, menu.observedAmountForSlot(1));
+
+        // Same contents on the next read: the synced field keeps its instance, so nothing is resent.
+        for (int tick = 0; tick < interval; tick++) {
+            MultiLevelEmitterMenuTestHarness.refreshObservedAmounts(menu);
+        }
+        assertEquals(3, runtime.reads);
+        assertSame(moved, menu.observedAmounts);
+
+        runtime.amounts = new long[]{5L};
+        for (int tick = 0; tick < interval; tick++) {
+            MultiLevelEmitterMenuTestHarness.refreshObservedAmounts(menu);
+        }
+        assertEquals(1, menu.observedAmounts.slotCount());
+        assertEquals(0L, menu.observedAmountForSlot(1));
+    }
+
+    @Test
+    void observedAmountsRoundTripThroughTheSyncPacket() {
+        ObservedRuntimePart runtime = newObservedRuntimePart(0L, 1L, 64_512L, Long.MAX_VALUE);
+        MultiLevelEmitterMenu.RuntimeMenu menu = MultiLevelEmitterMenuTestHarness.detachedForRuntime(runtime);
+        MultiLevelEmitterMenuTestHarness.refreshObservedAmounts(menu);
+        MultiLevelEmitterMenu.ObservedAmounts sent = menu.observedAmounts;
+
+        FriendlyByteBuf data = new FriendlyByteBuf(Unpooled.buffer());
+        sent.writeToPacket(data);
+        MultiLevelEmitterMenu.ObservedAmounts received = new MultiLevelEmitterMenu.ObservedAmounts(data);
+
+        assertEquals(sent, received);
+        assertEquals(sent.hashCode(), received.hashCode());
+        assertEquals(Long.MAX_VALUE, received.amount(3));
+        assertEquals(0, data.readableBytes());
+
+        FriendlyByteBuf empty = new FriendlyByteBuf(Unpooled.buffer());
+        MultiLevelEmitterMenu.ObservedAmounts.EMPTY.writeToPacket(empty);
+        assertEquals(MultiLevelEmitterMenu.ObservedAmounts.EMPTY, new MultiLevelEmitterMenu.ObservedAmounts(empty));
+    }
+
+    @Test
+    void runtimeMenuCommitsHysteresisBandsAndMinimumDwellThroughRuntime() {
+        MultiLevelEmitterRuntimePart runtime = newRuntimePart();
+        MultiLevelEmitterMenu.RuntimeMenu menu = MultiLevelEmitterMenuTestHarness.detachedForRuntime(runtime);
+        menu.setConfiguredSlotCount(2);
+
+        menu.commitHysteresisBand(1, 16L);
+        menu.commitMinimumDwellTicks(40);
+        assertEquals(16L, runtime.hysteresisBand(1));
+        assertEquals(16L, menu.hysteresisBandForSlot(1));
+        assertEquals(0L, menu.hysteresisBandForSlot(0));
+        assertEquals(40, menu.minimumDwellTicks());
+
+        menu.commitHysteresisBand(5, 8L);
+        menu.commitMinimumDwellTicks(-1);
+        assertEquals(0L, menu.hysteresisBandForSlot(5));
+        assertEquals(0L, menu.hysteresisBandForSlot(-1));
+        assertEquals(0, runtime.minimumDwellTicks());
+    }
+
+    @Test
+    void hysteresisBandsAndMinimumDwellReachTheClient() {
+        MultiLevelEmitterRuntimePart server = newRuntimePart();
+        server.updateConfiguredItemCountFromUi(2);
+        server.updateHysteresisBand(1, 16L);
+        server.updateMinimumDwellTicks(40);
+        MultiLevelEmitterRuntimePart client = newRuntimePart();
+
+        FriendlyByteBuf chunkData = new FriendlyByteBuf(Unpooled.buffer());
+        server.writeToStream(chunkData);
+        assertTrue(client.readFromStream(chunkData));
+        assertEquals(16L, client.hysteresisBand(1));
+        assertEquals(40, client.minimumDwellTicks());
+    }
+
+    @Test
+    void fullSyncRequestsAreHonouredOncePerMenuAndOnlyForStaleClients() {
+        MultiLevelEmitterRuntimePart server = newRuntimePart();
+        server.updateThresholdFromUi(0, 40L);
+        MultiLevelEmitterRuntimePart client = newRuntimePart();
+        FriendlyByteBuf chunkData = new FriendlyByteBuf(Unpooled.buffer());
+        server.writeToStream(chunkData);
+        assertTrue(client.readFromStream(chunkData));
+        int current = client.receivedStreamVersion();
+
+        MultiLevelEmitterMenu.RuntimeMenu upToDate = MultiLevelEmitterMenuTestHarness.detachedForRuntime(server);
+        int viewVersion = server.viewVersion();
+        MultiLevelEmitterMenuTestHarness.requestFullSync(upToDate, current);
+        assertEquals(viewVersion, server.viewVersion());
+
+        MultiLevelEmitterMenu.RuntimeMenu stale = MultiLevelEmitterMenuTestHarness.detachedForRuntime(server);
+        MultiLevelEmitterMenuTestHarness.requestFullSync(stale, current - 1);
+        assertEquals(viewVersion + 1, server.viewVersion());
+        MultiLevelEmitterMenuTestHarness.requestFullSync(stale, current - 1);
+        MultiLevelEmitterMenuTestHarness.requestFullSync(stale, current - 1);
+        assertEquals(viewVersion + 1, server.viewVersion());
+    }
+
+    private static ObservedRuntimePart newObservedRuntimePart(long... amounts) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafeField = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafeField.setAccessible(true);
+            Object unsafe = theUnsafeField.get(null);
+            Method allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+            ObservedRuntimePart runtime =
+                    (ObservedRuntimePart) allocateInstance.invoke(unsafe, ObservedRuntimePart.class);
+            runtime.applyConfiguration(amounts.length, null, null, null);
+            runtime.setRedstoneMode(RedstoneMode.HIGH_SIGNAL);
+            runtime.amounts = amounts;
+            return runtime;
+        } catch (ReflectiveOperationException exception) {
+            throw new AssertionError("Unable to allocate observed runtime part test instance", exception);
+        }
+    }
+
     private static MultiLevelEmitterRuntimePart newRuntimePart() {
         try {
             Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
@@ -357,6 +499,22 @@ class MultiLevelEmitterMenuTest {
         }
     }
 
+    private static final class ObservedRuntimePart extends MultiLevelEmitterRuntimePart {
+        private long[] amounts;
+        private int reads;
+
+        private ObservedRuntimePart() {
+            super(null);
+        }
+
+        @Override
+        public int readObservedAmounts(long[] observed) {
+            reads++;
+            System.arraycopy(amounts, 0, observed, 0, amounts.length);
+            return amounts.length;
+        }
+    }
+
     private static final class CapabilityAwareRuntimePart extends MultiLevelEmitterRuntimePart {
         private boolean fuzzyInstalled;
         private boolean craftingInstalled;
@@ -19,6 +19,29 @@ final class MultiLevelEmitterMenuTestHarness {
         return menu;
     }
 
+    static void refreshObservedAmounts(MultiLevelEmitterMenu.RuntimeMenu menu) {
+        try {
+            Method method = MultiLevelEmitterMenu.RuntimeMenu.class.getDeclaredMethod("refreshObservedAmounts");
+            method.setAccessible(true);
+            method.invoke(menu);
+        } catch (ReflectiveOperationException exception) {
+            throw new AssertionError("Unable to refresh observed amounts for menu test instance", exception);
+        }
+    }
+
+    static void requestFullSync(MultiLevelEmitterMenu.RuntimeMenu menu, int clientVersion) {
+        try {
+            Method method = MultiLevelEmitterMenu.RuntimeMenu.class.getDeclaredMethod(
+                    "requestFullSyncOnServer",
+                    Integer.class
+            );
+            method.setAccessible(true);
+            method.invoke(menu, clientVersion);
+        } catch (ReflectiveOperationException exception) {
+            throw new AssertionError("Unable to request a full sync for menu test instance", exception);
+        }
+    }
+
     static MultiLevelEmitterMenu.RuntimeMenu fromNetwork(Inventory inventory, FriendlyByteBuf networkData) {
         MultiLevelEmitterMenu.RuntimeMenu menu = allocateMenu();
         menu.bindRuntimePart(resolveRuntimePart(inventory, networkData));
@@ -32,10 +55,13 @@ final class MultiLevelEmitterMenuTestHarness {
             theUnsafeField.setAccessible(true);
             Object unsafe = theUnsafeField.get(null);
             Method allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
-            return (MultiLevelEmitterMenu.RuntimeMenu) allocateInstance.invoke(
+            MultiLevelEmitterMenu.RuntimeMenu menu = (MultiLevelEmitterMenu.RuntimeMenu) allocateInstance.invoke(
                     unsafe,
                     MultiLevelEmitterMenu.RuntimeMenu.class
             );
+            // Field initializers do not run for allocated instances.
+            menu.observedAmounts = MultiLevelEmitterMenu.ObservedAmounts.EMPTY;
+            return menu;
         } catch (ReflectiveOperationException exception) {
             throw new AssertionError("Unable to allocate runtime menu test instance", exception);
         }
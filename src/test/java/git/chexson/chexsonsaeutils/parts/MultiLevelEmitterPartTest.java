@@ -44,6 +44,49 @@ class MultiLevelEmitterPartTest {
         assertFalse(MultiLevelEmitterPart.evaluateComparison(6, 5, MultiLevelEmitterPart.ComparisonMode.LESS_THAN));
     }
 
+    @Test
+    void hysteresisBandSeparatesOnAndOffThresholds() {
+        MultiLevelEmitterPart.ComparisonMode atLeast = MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL;
+        assertFalse(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(99, 100, atLeast, 10, false));
+        assertTrue(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(100, 100, atLeast, 10, false));
+        assertTrue(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(90, 100, atLeast, 10, true));
+        assertFalse(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(89, 100, atLeast, 10, true));
+
+        MultiLevelEmitterPart.ComparisonMode below = MultiLevelEmitterPart.ComparisonMode.LESS_THAN;
+        assertFalse(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(100, 100, below, 10, false));
+        assertTrue(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(109, 100, below, 10, true));
+        assertFalse(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(110, 100, below, 10, true));
+        assertTrue(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(5, 100, below, Long.MAX_VALUE, true));
+
+        MultiLevelEmitterPart.ComparisonMode equal = MultiLevelEmitterPart.ComparisonMode.EQUAL;
+        assertFalse(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(101, 100, equal, 2, false));
+        assertTrue(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(102, 100, equal, 2, true));
+        assertFalse(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(97, 100, equal, 2, true));
+
+        MultiLevelEmitterPart.ComparisonMode notEqual = MultiLevelEmitterPart.ComparisonMode.NOT_EQUAL;
+        assertFalse(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(102, 100, notEqual, 2, false));
+        assertTrue(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(103, 100, notEqual, 2, false));
+        assertTrue(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(101, 100, notEqual, 2, true));
+        assertFalse(MultiLevelEmitterPart.evaluateComparisonWithHysteresis(100, 100, notEqual, 2, true));
+
+        for (MultiLevelEmitterPart.ComparisonMode mode : MultiLevelEmitterPart.ComparisonMode.values()) {
+            assertEquals(
+                    MultiLevelEmitterPart.evaluateComparison(95, 100, mode),
+                    MultiLevelEmitterPart.evaluateComparisonWithHysteresis(95, 100, mode, 0, true)
+            );
+        }
+    }
+
+    @Test
+    void hysteresisBandsRoundTripThroughNbtAndSkipEmptyBands() {
+        CompoundTag tag = new CompoundTag();
+        MultiLevelEmitterPart.writeHysteresisBandsToNbt(Map.of(0, 0L, 1, -4L), tag, "hysteresis_values");
+        assertFalse(tag.contains("hysteresis_values"));
+
+        MultiLevelEmitterPart.writeHysteresisBandsToNbt(Map.of(0, 0L, 2, 25L), tag, "hysteresis_values");
+        assertEquals(Map.of(2, 25L), MultiLevelEmitterPart.readHysteresisBandsFromNbt(tag, "hysteresis_values"));
+    }
+
     @Test
     void evaluatesPerSlotConditionsIndependentlyWithOrRelation() {
         boolean finalResult = MultiLevelEmitterPart.evaluateFinalResult(
@@ -60,6 +60,16 @@ class MultiLevelEmitterScreenTest {
         assertEquals("3/8", MultiLevelEmitterScreen.configuredOverTotalLabel(3, 8));
     }
 
+    @Test
+    void observedAmountLabelsFitOnASlot() {
+        assertEquals("0", MultiLevelEmitterScreen.observedAmountLabel(-4L));
+        assertEquals("999", MultiLevelEmitterScreen.observedAmountLabel(999L));
+        assertEquals("1.9k", MultiLevelEmitterScreen.observedAmountLabel(1_999L));
+        assertEquals("64k", MultiLevelEmitterScreen.observedAmountLabel(64_512L));
+        assertEquals("1.5M", MultiLevelEmitterScreen.observedAmountLabel(1_500_000L));
+        assertEquals("9.2E", MultiLevelEmitterScreen.observedAmountLabel(Long.MAX_VALUE));
+    }
+
     @Test
     void configuredSlotCountChangesClampToMenuCapacity() {
         MultiLevelEmitterRuntimePart runtime = newRuntimePart();
@@ -211,6 +221,34 @@ class MultiLevelEmitterScreenTest {
         assertFalse(unlockedState.slots().get(1).comparisonLocked());
     }
 
+    @Test
+    void screenModelOnlyReportsSlotsThatChangedSinceTheLastRefresh() {
+        CapabilityAwareRuntimePart runtime = newCapabilityRuntimePart(false, true);
+        runtime.applyConfiguration(3, Map.of(0, 8L, 1, 3L, 2, 21L), null, null);
+        MultiLevelEmitterMenu.RuntimeMenu menu = MultiLevelEmitterMenuTestHarness.detachedForRuntime(runtime);
+        MultiLevelEmitterScreen.RuntimeScreenModel model = new MultiLevelEmitterScreen.RuntimeScreenModel();
+
+        assertTrue(model.refresh(menu));
+        assertEquals(-1L, model.changedSlots());
+        assertFalse(model.refresh(menu));
+
+        menu.cycleComparisonMode(1);
+        assertTrue(model.refresh(menu));
+        assertEquals(0b010L, model.changedSlots());
+        assertEquals(MultiLevelEmitterPart.ComparisonMode.LESS_THAN, model.slot(1).comparisonMode());
+
+        menu.cycleCraftingMode(2);
+        assertTrue(model.refresh(menu));
+        assertEquals(0b100L, model.changedSlots());
+        assertTrue(model.slot(2).thresholdLocked());
+
+        runtime.setInstalledCards(false, false);
+        assertTrue(model.refresh(menu));
+        assertEquals(0b111L, model.changedSlots());
+        assertFalse(model.slot(2).thresholdLocked());
+        assertFalse(model.refresh(menu));
+    }
+
     @Test
     void toggleMatchingModeDelegatesToMenuAuthority() {
         MultiLevelEmitterRuntimePart runtime = newCapabilityRuntimePart(true);
@@ -440,7 +478,7 @@ class MultiLevelEmitterScreenTest {
         assertTrue(source.contains("ThresholdEditBox"));
         assertTrue(source.contains("Button.builder"));
         assertTrue(source.contains("fuzzyModeButtons"));
-        assertTrue(source.contains("snapshotState(menu)"));
+        assertTrue(source.contains("screenModel.refresh(menu)"));
         assertTrue(source.contains("extends AEBaseScreen"));
         assertTrue(source.contains("MAX_RENDERED_ROWS = 2"));
         assertTrue(source.contains("CONTENT_WIDTH = 160"));
@@ -450,6 +488,10 @@ class MultiLevelEmitterScreenTest {
         assertTrue(source.contains("ACTION_SECONDARY_ROW_Y = 82"));
         assertTrue(source.contains("ACTION_FORMAT_WIDTH = 78"));
         assertTrue(source.contains("ACTION_APPLY_WIDTH = 81"));
+        assertTrue(source.contains("ACTION_BAND_X = 80"));
+        assertTrue(source.contains("ACTION_DWELL_X = 126"));
+        assertTrue(source.contains("ACTION_SETTING_WIDTH = 42"));
+        assertTrue(source.contains("private static final class SettingEditBox extends EditBox"));
         assertTrue(source.contains("CONFIG_PANEL_X = 7"));
         assertTrue(source.contains("CONFIG_PANEL_Y = 95"));
         assertTrue(source.contains("CONFIG_PANEL_WIDTH = 162"));
@@ -0,0 +1,162 @@
+package git.chexson.chexsonsaeutils.parts;
+
+import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterPart;
+import git.chexson.chexsonsaeutils.parts.automation.MultiLevelEmitterSlotConfig;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultiLevelEmitterSlotConfigTest {
+
+    @Test
+    void loadAppliesTheSameDefaultsAsTheListNormalizers() throws Exception {
+        MultiLevelEmitterSlotConfig config = new MultiLevelEmitterSlotConfig();
+        Map<Integer, Long> thresholds = Map.of(0, 5L, 1, -3L, 7, 9L);
+        List<MultiLevelEmitterPart.ComparisonMode> comparisons = Arrays.asList(
+                MultiLevelEmitterPart.ComparisonMode.LESS_THAN,
+                null
+        );
+        List<MultiLevelEmitterPart.LogicRelation> relations = List.of(MultiLevelEmitterPart.LogicRelation.AND);
+
+        invoke(config, "load", 3, thresholds, comparisons, relations, null, null);
+
+        assertEquals(MultiLevelEmitterPart.normalizeThresholdsForSlotCount(thresholds, 3), config.thresholdMap());
+        assertEquals(
+                MultiLevelEmitterPart.normalizeComparisonModesForSlotCount(comparisons, 3),
+                config.comparisonModeList()
+        );
+        assertEquals(MultiLevelEmitterPart.normalizeRelationsForSlotCount(relations, 3), config.relationList());
+        assertEquals(List.of(
+                MultiLevelEmitterPart.MatchingMode.STRICT,
+                MultiLevelEmitterPart.MatchingMode.STRICT,
+                MultiLevelEmitterPart.MatchingMode.STRICT
+        ), config.requestedMatchingModeList());
+        assertEquals(1L, config.threshold(7));
+        assertEquals(MultiLevelEmitterPart.LogicRelation.OR, config.relation(2));
+    }
+
+    @Test
+    void shrinkingResetsDroppedSlotsToDefaults() throws Exception {
+        MultiLevelEmitterSlotConfig config = new MultiLevelEmitterSlotConfig();
+        invoke(config, "load", 3,
+                Map.of(0, 4L, 1, 6L, 2, 8L),
+                List.of(
+                        MultiLevelEmitterPart.ComparisonMode.EQUAL,
+                        MultiLevelEmitterPart.ComparisonMode.EQUAL,
+                        MultiLevelEmitterPart.ComparisonMode.EQUAL
+                ),
+                List.of(MultiLevelEmitterPart.LogicRelation.AND, MultiLevelEmitterPart.LogicRelation.AND),
+                null,
+                null
+        );
+
+        invoke(config, "setSlotCount", 1);
+        invoke(config, "setSlotCount", 3);
+
+        assertEquals(Map.of(0, 4L, 1, 1L, 2, 1L), config.thresholdMap());
+        assertEquals(MultiLevelEmitterPart.ComparisonMode.EQUAL, config.comparisonMode(0));
+        assertEquals(MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL, config.comparisonMode(1));
+        assertEquals(List.of(MultiLevelEmitterPart.LogicRelation.OR, MultiLevelEmitterPart.LogicRelation.OR),
+                config.relationList());
+    }
+
+    @Test
+    void sharedSnapshotsAreCopiedBeforeTheNextEdit() throws Exception {
+        MultiLevelEmitterSlotConfig config = new MultiLevelEmitterSlotConfig();
+        invoke(config, "setSlotCount", 2);
+
+        MultiLevelEmitterSlotConfig unshared = (MultiLevelEmitterSlotConfig) invoke(config, "editable");
+        assertSame(config, unshared);
+
+        MultiLevelEmitterSlotConfig snapshot = (MultiLevelEmitterSlotConfig) invoke(config, "share");
+        MultiLevelEmitterSlotConfig edited = (MultiLevelEmitterSlotConfig) invoke(snapshot, "editable");
+        assertNotSame(snapshot, edited);
+        assertTrue((boolean) invoke(edited, "setThreshold", 1, 12L));
+        assertFalse((boolean) invoke(edited, "setThreshold", 1, 12L));
+
+        assertEquals(1L, snapshot.threshold(1));
+        assertEquals(12L, edited.threshold(1));
+        assertSame(edited, invoke(edited, "editable"));
+    }
+
+    @Test
+    void modeColumnsKeepRequestedAndEffectiveModesApart() throws Exception {
+        MultiLevelEmitterSlotConfig config = new MultiLevelEmitterSlotConfig();
+        invoke(config, "setSlotCount", 1);
+
+        invoke(config, "setMatchingMode", 0,
+                MultiLevelEmitterPart.MatchingMode.PERCENT_50,
+                MultiLevelEmitterPart.MatchingMode.STRICT);
+        invoke(config, "setCraftingMode", 0,
+                MultiLevelEmitterPart.CraftingMode.EMIT_TO_CRAFT,
+                MultiLevelEmitterPart.CraftingMode.NONE);
+
+        assertEquals(MultiLevelEmitterPart.MatchingMode.PERCENT_50, config.requestedMatchingMode(0));
+        assertEquals(MultiLevelEmitterPart.MatchingMode.STRICT, config.matchingMode(0));
+        assertEquals(MultiLevelEmitterPart.CraftingMode.EMIT_TO_CRAFT, config.requestedCraftingMode(0));
+        assertEquals(MultiLevelEmitterPart.CraftingMode.NONE, config.craftingMode(0));
+        assertEquals(MultiLevelEmitterPart.MatchingMode.STRICT, config.matchingMode(1));
+    }
+
+    @Test
+    void hysteresisBandsSurviveReloadsButNotShrinking() throws Exception {
+        MultiLevelEmitterSlotConfig config = new MultiLevelEmitterSlotConfig();
+        invoke(config, "setSlotCount", 3);
+        invoke(config, "loadHysteresisBands", Map.of(0, 5L, 2, 7L, 9, 4L));
+        assertEquals(Map.of(0, 5L, 2, 7L), config.hysteresisBandMap());
+
+        invoke(config, "load", 3, Map.of(0, 40L), null, null, null, null);
+        assertEquals(5L, config.hysteresisBand(0));
+        assertEquals(7L, config.hysteresisBand(2));
+
+        MultiLevelEmitterSlotConfig snapshot = (MultiLevelEmitterSlotConfig) invoke(config, "share");
+        MultiLevelEmitterSlotConfig edited = (MultiLevelEmitterSlotConfig) invoke(snapshot, "editable");
+        assertTrue((boolean) invoke(edited, "setHysteresisBand", 0, -1L));
+        assertEquals(0L, edited.hysteresisBand(0));
+        assertEquals(5L, snapshot.hysteresisBand(0));
+
+        invoke(edited, "setSlotCount", 2);
+        invoke(edited, "setSlotCount", 3);
+        assertEquals(0L, edited.hysteresisBand(2));
+    }
+
+    @Test
+    void idleEmittersShareFrozenDefaultsUntilTheirFirstEdit() throws Exception {
+        MultiLevelEmitterSlotConfig defaults = (MultiLevelEmitterSlotConfig) invoke(
+                new MultiLevelEmitterSlotConfig(), "defaults", 3);
+        assertSame(defaults, invoke(defaults, "defaults", 3));
+        assertEquals(3, defaults.slotCount());
+        assertTrue(defaults.isDefault());
+
+        MultiLevelEmitterSlotConfig edited = (MultiLevelEmitterSlotConfig) invoke(defaults, "editable");
+        assertNotSame(defaults, edited);
+        invoke(edited, "setComparisonMode", 2, MultiLevelEmitterPart.ComparisonMode.EQUAL);
+        assertFalse(edited.isDefault());
+        assertEquals(MultiLevelEmitterPart.ComparisonMode.GREATER_OR_EQUAL, defaults.comparisonMode(2));
+
+        invoke(edited, "setSlotCount", 40);
+        assertEquals(1L, edited.threshold(39));
+        assertEquals(MultiLevelEmitterPart.LogicRelation.OR, edited.relation(38));
+        assertEquals(MultiLevelEmitterPart.ComparisonMode.EQUAL, edited.comparisonMode(2));
+        assertEquals(3, defaults.slotCount());
+    }
+
+    private static Object invoke(Object target, String name, Object... args) throws Exception {
+        for (Method method : target.getClass().getDeclaredMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == args.length) {
+                method.setAccessible(true);
+                return method.invoke(target, args);
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+}